@@ -18,6 +18,8 @@ import play.twirl.sbt.Import.TwirlKeys
 
 import sbtdoge.CrossPerProjectPlugin
 
+import pl.project13.scala.sbt.JmhPlugin
+
 import bintray.BintrayPlugin.autoImport._
 
 import interplay._
@@ -281,6 +283,11 @@ object PlayBuild extends Build {
     .dependsOn(PlayServerProject, StreamsProject)
     .dependsOn(PlaySpecs2Project % "test", PlayWsProject % "test")
 
+  lazy val PlayNetty4ServerProject = PlayCrossBuiltProject("Play-Netty4-Server-Experimental", "play-netty4-server")
+    .settings(libraryDependencies ++= netty4)
+    .dependsOn(PlayServerProject, StreamsProject)
+    .dependsOn(PlaySpecs2Project % "test", PlayWsProject % "test")
+
   lazy val PlayJdbcApiProject = PlayCrossBuiltProject("Play-JDBC-Api", "play-jdbc-api")
     .dependsOn(PlayProject)
 
@@ -419,6 +426,14 @@ object PlayBuild extends Build {
     .dependsOn(PlayJavaProject)
     .dependsOn(PlayAkkaHttpServerProject)
 
+  // This project is just for benchmarking Play, it isn't published or aggregated
+  lazy val PlayMicrobenchmarkProject = PlayCrossBuiltProject("Play-Microbenchmark", "play-microbenchmark")
+    .enablePlugins(JmhPlugin)
+    .settings(
+      previousArtifact := None
+    )
+    .dependsOn(PlayProject, PlayTestProject)
+
   lazy val PlayCacheProject = PlayCrossBuiltProject("Play-Cache", "play-cache")
     .settings(
       libraryDependencies ++= playCacheDeps,
@@ -450,6 +465,7 @@ object PlayBuild extends Build {
     PlayJpaProject,
     PlayNettyUtilsProject,
     PlayNettyServerProject,
+    PlayNetty4ServerProject,
     PlayServerProject,
     PlayWsProject,
     PlayWsJavaProject,
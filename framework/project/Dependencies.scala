@@ -142,6 +142,15 @@ object Dependencies {
 
   val nettyUtilsDependencies = slf4j
 
+  val netty4Version = "4.0.33.Final"
+
+  val netty4 = Seq(
+    "io.netty"           % "netty-codec-http"             % netty4Version,
+    "io.netty"           % "netty-handler"                % netty4Version,
+    "io.netty"           % "netty-transport-native-epoll" % netty4Version classifier "linux-x86_64",
+    "com.typesafe.netty" % "netty-reactive-streams-http"  % "1.0.0"
+  )
+
   val akkaHttp = Seq(
     "com.typesafe.akka" %% "akka-http-core-experimental" % "1.0"
   )
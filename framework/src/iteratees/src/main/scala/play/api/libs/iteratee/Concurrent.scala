@@ -99,6 +99,10 @@ object Concurrent {
    *
    * chatChannel.push(Message("Hello world!"))
    * }}}
+   *
+   * Each input is only pushed once every iteratee has consumed the previous input, so a slow iteratee slows down all
+   * of them.  To broadcast to many iteratees, or to Akka Streams, `play.api.libs.streams.BroadcastHub` buffers input
+   * for each subscriber instead.
    */
   def broadcast[E]: (Enumerator[E], Channel[E]) = {
 
@@ -72,6 +72,7 @@ class AkkaHttpServer(
   }
 
   private def handleRequest(remoteAddress: InetSocketAddress, request: HttpRequest): Future[HttpResponse] = {
+    val received = System.nanoTime
     val requestId = requestIDs.incrementAndGet()
     val (convertedRequestHeader, requestBodySource) = modelConversion.convertRequest(
       requestId = requestId,
@@ -79,12 +80,14 @@ class AkkaHttpServer(
       secureProtocol = false, // TODO: Change value once HTTPS connections are supported
       request = request)
     val (taggedRequestHeader, handler, newTryApp) = getHandler(convertedRequestHeader)
+    val trace = newTryApp.toOption.flatMap(traceRequest(_, received))
     val responseFuture = executeHandler(
       newTryApp,
       request,
       taggedRequestHeader,
       requestBodySource,
-      handler
+      handler,
+      trace
     )
     responseFuture
   }
@@ -111,7 +114,8 @@ class AkkaHttpServer(
     request: HttpRequest,
     taggedRequestHeader: RequestHeader,
     requestBodySource: Source[ByteString, _],
-    handler: Handler): Future[HttpResponse] = handler match {
+    handler: Handler,
+    trace: Option[RequestTrace]): Future[HttpResponse] = handler match {
     //execute normal action
     case action: EssentialAction =>
       val actionWithErrorHandling = EssentialAction { rh =>
@@ -120,7 +124,7 @@ class AkkaHttpServer(
           case error => handleHandlerError(tryApp, taggedRequestHeader, error)
         }
       }
-      executeAction(tryApp, request, taggedRequestHeader, requestBodySource, actionWithErrorHandling)
+      executeAction(tryApp, request, taggedRequestHeader, requestBodySource, actionWithErrorHandling, trace)
     case unhandled => sys.error(s"AkkaHttpServer doesn't handle Handlers of this type: $unhandled")
   }
 
@@ -138,9 +142,20 @@ class AkkaHttpServer(
     taggedRequestHeader: RequestHeader,
     requestBodySource: Source[ByteString, _],
     action: EssentialAction): Future[HttpResponse] = {
+    executeAction(tryApp, request, taggedRequestHeader, requestBodySource, action, None)
+  }
+
+  private def executeAction(
+    tryApp: Try[Application],
+    request: HttpRequest,
+    taggedRequestHeader: RequestHeader,
+    requestBodySource: Source[ByteString, _],
+    action: EssentialAction,
+    trace: Option[RequestTrace]): Future[HttpResponse] = {
 
     import play.api.libs.iteratee.Execution.Implicits.trampoline
     val actionAccumulator: Accumulator[ByteString, Result] = action(taggedRequestHeader)
+    trace.foreach(_.actionInvoked())
 
     val source = if (request.header[Expect].exists(_ == Expect.`100-continue`)) {
       // If we expect 100 continue, then we must not feed the source into the accumulator until the accumulator
@@ -152,10 +167,13 @@ class AkkaHttpServer(
       requestBodySource
     }
 
-    val resultFuture: Future[Result] = actionAccumulator.run(source)
+    val tracedSource = trace.fold(source)(_.traceBody(source))
+    val resultFuture: Future[Result] = actionAccumulator.run(tracedSource)
     val responseFuture: Future[HttpResponse] = resultFuture.map { result =>
       val cleanedResult: Result = ServerResultUtils.cleanFlashCookie(taggedRequestHeader, result)
-      modelConversion.convertResult(taggedRequestHeader, cleanedResult, request.protocol)
+      // Akka HTTP doesn't tell us when the response has been written, so it's considered sent once it's been streamed
+      val tracedResult = trace.fold(cleanedResult)(_.traceResult(taggedRequestHeader, cleanedResult, sentWhenStreamed = true))
+      modelConversion.convertResult(taggedRequestHeader, tracedResult, request.protocol)
     }
     responseFuture
   }
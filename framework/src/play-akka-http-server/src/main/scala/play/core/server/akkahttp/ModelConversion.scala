@@ -12,6 +12,7 @@ import play.api.http.HeaderNames._
 import play.api.libs.iteratee._
 import play.api.mvc._
 import play.core.server.common.{ ForwardedHeaderHandler, ServerRequestUtils, ServerResultUtils }
+import play.core.utils.IndexedHeaders
 import scala.collection.immutable
 
 /**
@@ -80,16 +81,17 @@ private[akkahttp] class ModelConversion(forwardedHeaderHandler: ForwardedHeaderH
    * `Headers` object.
    */
   private def convertRequestHeaders(request: HttpRequest): Headers = {
-    val entityHeaders: Seq[(String, String)] = request.entity match {
+    val builder = new IndexedHeaders.Builder(request.headers.size + 2)
+    request.entity match {
       case HttpEntity.Strict(contentType, _) =>
-        Seq((CONTENT_TYPE, contentType.value))
+        builder.add(CONTENT_TYPE, contentType.value)
       case HttpEntity.Default(contentType, contentLength, _) =>
-        Seq((CONTENT_TYPE, contentType.value), (CONTENT_LENGTH, contentLength.toString))
+        builder.add(CONTENT_TYPE, contentType.value).add(CONTENT_LENGTH, contentLength.toString)
       case HttpEntity.Chunked(contentType, _) =>
-        Seq((CONTENT_TYPE, contentType.value))
+        builder.add(CONTENT_TYPE, contentType.value)
     }
-    val normalHeaders: Seq[(String, String)] = request.headers.map((rh: HttpHeader) => (rh.name, rh.value))
-    new Headers(entityHeaders ++ normalHeaders)
+    request.headers.foreach((rh: HttpHeader) => builder.add(rh.name, rh.value))
+    new Headers(builder.result())
   }
 
   /**
@@ -166,6 +168,9 @@ private[akkahttp] class ModelConversion(forwardedHeaderHandler: ForwardedHeaderH
       case PlayHttpEntity.Streamed(data, _, _) =>
         HttpEntity.CloseDelimited(contentType, data)
 
+      case entity: PlayHttpEntity.FileRegion =>
+        HttpEntity.Default(contentType, entity.length, entity.dataStream)
+
       case PlayHttpEntity.Chunked(data, _) =>
         val akkaChunks = data.map {
           case HttpChunk.Chunk(chunk) =>
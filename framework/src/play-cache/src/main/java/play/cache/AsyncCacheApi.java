@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The asynchronous Cache API.
+ */
+public interface AsyncCacheApi {
+    /**
+     * Retrieves an object by key.
+     *
+     * @return a stage that is completed with the object, or null if it isn't in the cache
+     */
+    public <T> CompletionStage<T> get(String key);
+
+    /**
+     * Retrieves several objects by key.
+     *
+     * @return a stage that is completed with the objects that were found, by key
+     */
+    public <T> CompletionStage<Map<String, T>> getAll(List<String> keys);
+
+    /**
+     * Retrieve a value from the cache, or set it from a default Callable function.
+     *
+     * @param key Item key.
+     * @param block block returning a stage of the value to set if key does not exist
+     * @param expiration expiration period in seconds.
+     * @return a stage that is completed with the value
+     */
+    public <T> CompletionStage<T> getOrElse(String key, Callable<CompletionStage<T>> block, int expiration);
+
+    /**
+     * Retrieve a value from the cache, or set it from a default Callable function.
+     *
+     * The value has no expiration.
+     *
+     * @param key Item key.
+     * @param block block returning a stage of the value to set if key does not exist
+     * @return a stage that is completed with the value
+     */
+    public <T> CompletionStage<T> getOrElse(String key, Callable<CompletionStage<T>> block);
+
+    /**
+     * Sets a value with expiration.
+     *
+     * @param key Item key.
+     * @param value The value to set.
+     * @param expiration expiration in seconds
+     * @return a stage that is completed once the value has been set
+     */
+    public CompletionStage<Void> set(String key, Object value, int expiration);
+
+    /**
+     * Sets a value without expiration.
+     *
+     * @param key Item key.
+     * @param value The value to set.
+     * @return a stage that is completed once the value has been set
+     */
+    public CompletionStage<Void> set(String key, Object value);
+
+    /**
+     * Sets several values with expiration.
+     *
+     * @param values The values to set, by key.
+     * @param expiration expiration in seconds
+     * @return a stage that is completed once the values have been set
+     */
+    public CompletionStage<Void> setAll(Map<String, Object> values, int expiration);
+
+    /**
+     * Removes a value from the cache.
+     *
+     * @param key The key to remove the value for.
+     * @return a stage that is completed once the value has been removed
+     */
+    public CompletionStage<Void> remove(String key);
+}
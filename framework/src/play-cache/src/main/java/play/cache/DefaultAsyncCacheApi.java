@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.cache;
+
+import play.libs.Scala;
+import scala.compat.java8.FutureConverters;
+import scala.concurrent.duration.Duration;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class DefaultAsyncCacheApi implements AsyncCacheApi {
+
+    private final play.api.cache.AsyncCacheApi asyncCacheApi;
+
+    @Inject
+    public DefaultAsyncCacheApi(play.api.cache.AsyncCacheApi asyncCacheApi) {
+        this.asyncCacheApi = asyncCacheApi;
+    }
+
+    public <T> CompletionStage<T> get(String key) {
+        return FutureConverters.toJava(asyncCacheApi.get(key, Scala.<T>classTag())).thenApply(Scala::orNull);
+    }
+
+    public <T> CompletionStage<Map<String, T>> getAll(List<String> keys) {
+        return FutureConverters.toJava(asyncCacheApi.getAll(Scala.toSeq(keys), Scala.<T>classTag())).thenApply(Scala::asJava);
+    }
+
+    public <T> CompletionStage<T> getOrElse(String key, Callable<CompletionStage<T>> block, int expiration) {
+        return this.<T>get(key).thenCompose(cached -> {
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletionStage<T> value;
+            try {
+                value = block.call();
+            } catch (Exception e) {
+                CompletableFuture<T> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+            return value.thenCompose(v -> set(key, v, expiration).thenApply(done -> v));
+        });
+    }
+
+    public <T> CompletionStage<T> getOrElse(String key, Callable<CompletionStage<T>> block) {
+        return getOrElse(key, block, 0);
+    }
+
+    public CompletionStage<Void> set(String key, Object value, int expiration) {
+        return toVoid(asyncCacheApi.set(key, value, intToDuration(expiration)));
+    }
+
+    public CompletionStage<Void> set(String key, Object value) {
+        return set(key, value, 0);
+    }
+
+    public CompletionStage<Void> setAll(Map<String, Object> values, int expiration) {
+        return toVoid(asyncCacheApi.setAll(Scala.asScala(values), intToDuration(expiration)));
+    }
+
+    public CompletionStage<Void> remove(String key) {
+        return toVoid(asyncCacheApi.remove(key));
+    }
+
+    private CompletionStage<Void> toVoid(scala.concurrent.Future<?> future) {
+        return FutureConverters.toJava(future).thenApply(done -> null);
+    }
+
+    private Duration intToDuration(int seconds) {
+      return seconds == 0 ? Duration.Inf() : Duration.apply(seconds, TimeUnit.SECONDS);
+    }
+}
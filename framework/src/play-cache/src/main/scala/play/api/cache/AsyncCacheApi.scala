@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.cache
+
+import javax.inject.{ Inject, Singleton }
+
+import play.core.Execution.Implicits.internalContext
+
+import scala.concurrent.Future
+import scala.concurrent.duration.Duration
+import scala.reflect.ClassTag
+
+/**
+ * The asynchronous cache API.
+ *
+ * Operations return futures, so that caches whose operations block, such as caches on remote servers, don't block
+ * the calling thread.
+ */
+trait AsyncCacheApi {
+
+  /**
+   * Set a value into the cache.
+   *
+   * @param key Item key.
+   * @param value Item value.
+   * @param expiration Expiration time.
+   */
+  def set(key: String, value: Any, expiration: Duration = Duration.Inf): Future[Unit]
+
+  /**
+   * Set several values into the cache.
+   *
+   * @param values The values, by key.
+   * @param expiration Expiration time of each value.
+   */
+  def setAll(values: Map[String, Any], expiration: Duration = Duration.Inf): Future[Unit]
+
+  /**
+   * Remove a value from the cache
+   */
+  def remove(key: String): Future[Unit]
+
+  /**
+   * Retrieve a value from the cache, or set it from a default function.
+   *
+   * @param key Item key.
+   * @param expiration expiration period in seconds.
+   * @param orElse The default function to invoke if the value was not found in cache.
+   */
+  def getOrElse[A: ClassTag](key: String, expiration: Duration = Duration.Inf)(orElse: => Future[A]): Future[A]
+
+  /**
+   * Retrieve a value from the cache for the given type
+   *
+   * @param key Item key.
+   * @return result as Option[T]
+   */
+  def get[T: ClassTag](key: String): Future[Option[T]]
+
+  /**
+   * Retrieve several values from the cache for the given type
+   *
+   * @param keys The keys.
+   * @return The values that were found and have the given type, by key.
+   */
+  def getAll[T: ClassTag](keys: Seq[String]): Future[Map[String, T]]
+}
+
+/**
+ * An asynchronous cache API for a synchronous cache.
+ *
+ * The synchronous cache is called directly, so it should only be used for caches that don't block, such as in
+ * process caches.
+ */
+@Singleton
+class DefaultAsyncCacheApi @Inject() (cacheApi: CacheApi) extends AsyncCacheApi {
+
+  def set(key: String, value: Any, expiration: Duration) = {
+    Future.successful(cacheApi.set(key, value, expiration))
+  }
+
+  def setAll(values: Map[String, Any], expiration: Duration) = {
+    Future.successful(values.foreach { case (key, value) => cacheApi.set(key, value, expiration) })
+  }
+
+  def remove(key: String) = {
+    Future.successful(cacheApi.remove(key))
+  }
+
+  def getOrElse[A: ClassTag](key: String, expiration: Duration)(orElse: => Future[A]) = {
+    cacheApi.get[A](key) match {
+      case Some(value) => Future.successful(value)
+      case None => orElse.map { value =>
+        cacheApi.set(key, value, expiration)
+        value
+      }
+    }
+  }
+
+  def get[T: ClassTag](key: String) = {
+    Future.successful(cacheApi.get[T](key))
+  }
+
+  def getAll[T: ClassTag](keys: Seq[String]) = {
+    Future.successful(keys.flatMap(key => cacheApi.get[T](key).map(key -> _)).toMap)
+  }
+}
+
+/**
+ * Statistics of the use of a cache, since it was created.
+ *
+ * @param hitCount The number of lookups that found a value.
+ * @param missCount The number of lookups that didn't find a value.
+ * @param evictionCount The number of values that were evicted to make room for others.
+ */
+case class CacheStats(hitCount: Long, missCount: Long, evictionCount: Long) {
+
+  def requestCount: Long = hitCount + missCount
+
+  /**
+   * The ratio of lookups that found a value, or 1 if there have been no lookups.
+   */
+  def hitRate: Double = if (requestCount == 0) 1.0 else hitCount.toDouble / requestCount
+}
+
+/**
+ * A cache that keeps statistics of its use.
+ */
+trait CacheStatistics {
+
+  /**
+   * A snapshot of the statistics of the cache.
+   */
+  def stats: CacheStats
+}
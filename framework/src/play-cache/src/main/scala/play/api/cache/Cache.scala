@@ -3,15 +3,19 @@
  */
 package play.api.cache
 
+import java.util.concurrent.atomic.LongAdder
 import javax.inject._
+import akka.actor.ActorSystem
+import akka.stream.Materializer
 import play.api._
 import play.api.inject.{ BindingKey, Injector, ApplicationLifecycle, Module }
 import scala.concurrent.Future
 import scala.reflect.ClassTag
 import scala.concurrent.duration._
-import play.cache.{ CacheApi => JavaCacheApi, DefaultCacheApi => DefaultJavaCacheApi, NamedCacheImpl }
+import play.cache.{ AsyncCacheApi => JavaAsyncCacheApi, CacheApi => JavaCacheApi, DefaultAsyncCacheApi => DefaultJavaAsyncCacheApi, DefaultCacheApi => DefaultJavaCacheApi, NamedCacheImpl }
 
 import net.sf.ehcache._
+import net.sf.ehcache.event.CacheEventListenerAdapter
 import com.google.common.primitives.Primitives
 
 /**
@@ -149,6 +153,7 @@ trait EhCacheComponents {
   }
 
   lazy val defaultCacheApi: CacheApi = cacheApi("play")
+  lazy val defaultAsyncCacheApi: AsyncCacheApi = new DefaultAsyncCacheApi(defaultCacheApi)
 }
 
 /**
@@ -173,10 +178,13 @@ class EhCacheModule extends Module {
       val namedCache = named(name)
       val ehcacheKey = bind[Ehcache].qualifiedWith(namedCache)
       val cacheApiKey = bind[CacheApi].qualifiedWith(namedCache)
+      val asyncCacheApiKey = bind[AsyncCacheApi].qualifiedWith(namedCache)
       Seq(
         ehcacheKey.to(new NamedEhCacheProvider(name)),
         cacheApiKey.to(new NamedCacheApiProvider(ehcacheKey)),
+        asyncCacheApiKey.to(new NamedAsyncCacheApiProvider(cacheApiKey)),
         bind[JavaCacheApi].qualifiedWith(namedCache).to(new NamedJavaCacheApiProvider(cacheApiKey)),
+        bind[JavaAsyncCacheApi].qualifiedWith(namedCache).to(new NamedJavaAsyncCacheApiProvider(asyncCacheApiKey)),
         bind[Cached].qualifiedWith(namedCache).to(new NamedCachedProvider(cacheApiKey))
       )
     }
@@ -185,7 +193,9 @@ class EhCacheModule extends Module {
       bind[CacheManager].toProvider[CacheManagerProvider],
       // alias the default cache to the unqualified implementation
       bind[CacheApi].to(bind[CacheApi].qualifiedWith(named(defaultCacheName))),
-      bind[JavaCacheApi].to[DefaultJavaCacheApi]
+      bind[AsyncCacheApi].to(bind[AsyncCacheApi].qualifiedWith(named(defaultCacheName))),
+      bind[JavaCacheApi].to[DefaultJavaCacheApi],
+      bind[JavaAsyncCacheApi].to[DefaultJavaAsyncCacheApi]
     ) ++ bindCache(defaultCacheName) ++ bindCaches.flatMap(bindCache)
   }
 }
@@ -237,14 +247,22 @@ private[play] class NamedJavaCacheApiProvider(key: BindingKey[CacheApi]) extends
 private[play] class NamedCachedProvider(key: BindingKey[CacheApi]) extends Provider[Cached] {
   @Inject private var injector: Injector = _
   lazy val get: Cached = {
-    new Cached(injector.instanceOf(key))
+    new Cached(injector.instanceOf(key))(injector.instanceOf[ActorSystem], injector.instanceOf[Materializer])
   }
 }
 
 private[play] case class EhCacheExistsException(msg: String, cause: Throwable) extends RuntimeException(msg, cause)
 
 @Singleton
-class EhCacheApi @Inject() (cache: Ehcache) extends CacheApi {
+class EhCacheApi @Inject() (cache: Ehcache) extends CacheApi with CacheStatistics {
+
+  private val hits = new LongAdder
+  private val misses = new LongAdder
+  private val evictions = new LongAdder
+
+  cache.getCacheEventNotificationService.registerListener(new CacheEventListenerAdapter {
+    override def notifyElementEvicted(cache: Ehcache, element: Element) = evictions.increment()
+  })
 
   def set(key: String, value: Any, expiration: Duration) = {
     val element = new Element(key, value)
@@ -264,10 +282,9 @@ class EhCacheApi @Inject() (cache: Ehcache) extends CacheApi {
   }
 
   def get[T](key: String)(implicit ct: ClassTag[T]): Option[T] = {
-    Option(cache.get(key)).map(_.getObjectValue).filter { v =>
-      Primitives.wrap(ct.runtimeClass).isInstance(v) ||
-        ct == ClassTag.Nothing || (ct == ClassTag.Unit && v == ((): Unit))
-    }.asInstanceOf[Option[T]]
+    val element = cache.get(key)
+    if (element == null) misses.increment() else hits.increment()
+    Option(element).map(_.getObjectValue).filter(CacheValues.isInstance(_, ct)).asInstanceOf[Option[T]]
   }
 
   def getOrElse[A: ClassTag](key: String, expiration: Duration)(orElse: => A) = {
@@ -281,4 +298,17 @@ class EhCacheApi @Inject() (cache: Ehcache) extends CacheApi {
   def remove(key: String) = {
     cache.remove(key)
   }
+
+  def stats = CacheStats(hits.sum, misses.sum, evictions.sum)
+}
+
+private[cache] object CacheValues {
+
+  /**
+   * Whether a cached value has the type of the given class tag.
+   */
+  def isInstance(value: Any, ct: ClassTag[_]): Boolean = {
+    Primitives.wrap(ct.runtimeClass).isInstance(value) ||
+      ct == ClassTag.Nothing || (ct == ClassTag.Unit && value == ((): Unit))
+  }
 }
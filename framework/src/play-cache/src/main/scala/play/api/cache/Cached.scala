@@ -4,21 +4,29 @@
 package play.api.cache
 
 import javax.inject.Inject
+import akka.actor.ActorSystem
+import akka.stream.Materializer
+import akka.util.ByteString
 import play.api._
 import play.api.libs.streams.Accumulator
 import play.api.mvc._
 import play.api.libs.Codecs
+import play.api.http.HttpEntity
 import play.api.http.HeaderNames.{ IF_NONE_MATCH, ETAG, EXPIRES }
 import play.api.mvc.Results.NotModified
 
 import play.core.Execution.Implicits.internalContext
 
+import scala.collection.concurrent.TrieMap
+import scala.concurrent.{ Future, Promise }
 import scala.concurrent.duration._
+import scala.util.{ Failure, Success, Try }
+import scala.util.control.NonFatal
 
 /**
  * A helper to add caching to an Action.
  */
-class Cached @Inject() (cache: CacheApi) {
+class Cached @Inject() (cache: CacheApi)(implicit actorSystem: ActorSystem, materializer: Materializer) {
 
   /**
    * Cache an action.
@@ -164,14 +172,30 @@ object Cached {
  *  - Adds an `Etag` header to the response, so clients can cache response content and ask the server for freshness ;
  *  - Cache the result on the server, so the underlying action is not computed at each call.
  *
+ * While a result is being computed, other requests for the same key wait for it, rather than also running the
+ * underlying action. Results can also be served to GET and HEAD requests for a while after they expire, while a fresh
+ * result is computed in the background, see `staleWhileRevalidate`.  Requests only wait for `leaderTimeout`, in case the
+ * request computing the result never runs the action, after which they compute the result themselves.
+ *
+ * Strict results are cached, and so are streamed results, if their length is known and is no more than
+ * `maxStreamedBodySize`. Other results are never cached.
+ *
  * @param cache The cache used for caching results
  * @param key Compute a key from the request header
  * @param caching A callback to get the number of seconds to cache results for
+ * @param staleWindow How long expired results are served for, while they are revalidated
+ * @param maxStreamedSize The largest streamed body that will be cached
+ * @param leaderTimeout How long requests wait for another request that is computing the result
  */
 final class CachedBuilder(
     cache: CacheApi,
     key: RequestHeader => String,
-    caching: PartialFunction[ResponseHeader, Duration]) {
+    caching: PartialFunction[ResponseHeader, Duration],
+    staleWindow: Duration = Duration.Zero,
+    maxStreamedSize: Long = CachedBuilder.DefaultMaxStreamedBodySize,
+    leaderTimeout: FiniteDuration = CachedBuilder.DefaultLeaderTimeout)(implicit actorSystem: ActorSystem, materializer: Materializer) {
+
+  import CachedBuilder._
 
   /**
    * Compose the cache with an action
@@ -194,15 +218,112 @@ final class CachedBuilder(
 
     notModified.orElse {
       // Otherwise try to serve the resource from the cache, if it has not yet expired
-      cache.get[SerializableResult](resultKey).map { sr: SerializableResult =>
-        Accumulator.done(sr.result)
+      cache.get[SerializableResult](resultKey).collect {
+        case sr if !sr.isStale => Accumulator.done(sr.result)
+        // Only requests without a body can revalidate in the background, other requests treat a stale result as a miss
+        case sr if request.method == "GET" || request.method == "HEAD" =>
+          revalidate(request, action, resultKey, etagKey)
+          Accumulator.done(sr.result)
       }
     }.getOrElse {
-      // The resource was not in the cache, we have to run the underlying action
-      val accumulatorResult = action(request)
+      // The resource was not in the cache, we have to run the underlying action, unless another request already is
+      val promise = Promise[Option[Result]]()
+      inFlight.putIfAbsent((cache, resultKey), promise.future) match {
+        case None =>
+          lead(request, action, resultKey, etagKey, promise)
+        case Some(leader) =>
+          Accumulator.flatten(waitFor(leader, resultKey).map {
+            case Some(result) => Accumulator.done(result)
+            case None => run(request, action, resultKey, etagKey).map(_._1)
+          }.recover {
+            // The other request failed, so try again with this one
+            case NonFatal(_) => run(request, action, resultKey, etagKey).map(_._1)
+          })
+      }
+    }
+  }
+
+  /**
+   * Run the action, and cache its result if it's cacheable.
+   *
+   * @return The result, with cache information added, and whether it was cached.
+   */
+  private def run(request: RequestHeader, action: EssentialAction, resultKey: String,
+    etagKey: String): Accumulator[ByteString, (Result, Boolean)] = {
+    action(request).mapFuture(handleResult(_, etagKey, resultKey))
+  }
 
-      // Add cache information to the response, so clients can cache its content
-      accumulatorResult.map(handleResult(_, etagKey, resultKey))
+  /**
+   * Run the action on behalf of all the requests for the result, completing the promise they wait on with the result
+   * if it was cached.
+   */
+  private def lead(request: RequestHeader, action: EssentialAction, resultKey: String, etagKey: String,
+    promise: Promise[Option[Result]]): Accumulator[ByteString, Result] = {
+
+    def complete(outcome: Try[Option[Result]]): Unit = {
+      inFlight.remove((cache, resultKey), promise.future)
+      promise.complete(outcome)
+    }
+
+    val accumulator = try {
+      run(request, action, resultKey, etagKey)
+    } catch {
+      case NonFatal(e) =>
+        // Don't leave the other requests waiting for a result that will never be computed
+        complete(Failure(e))
+        throw e
+    }
+
+    accumulator.map {
+      case (result, cached) =>
+        complete(Success(if (cached) Some(result) else None))
+        result
+    }.recoverWith {
+      case e =>
+        complete(Failure(e))
+        Future.failed(e)
+    }
+  }
+
+  /**
+   * Wait for the request that is computing the result, for at most `leaderTimeout`.
+   *
+   * If it times out, the accumulator of the leading request was probably never run, for example because a filter
+   * returned a result without running it, so it's removed to let the next request lead instead.
+   *
+   * @return The result if it was cached, or None if it wasn't cached or the wait timed out.
+   */
+  private def waitFor(leader: Future[Option[Result]], resultKey: String): Future[Option[Result]] = {
+    val timedOut = Promise[Option[Result]]()
+    val timeout = actorSystem.scheduler.scheduleOnce(leaderTimeout) {
+      if (!leader.isCompleted && inFlight.remove((cache, resultKey), leader)) {
+        logger.warn(s"Timed out waiting for the result for $resultKey to be computed by another request")
+      }
+      timedOut.trySuccess(None)
+    }
+    leader.onComplete(_ => timeout.cancel())
+    Future.firstCompletedOf(Seq(leader, timedOut.future))
+  }
+
+  /**
+   * Compute a fresh result in the background, if one isn't already being computed.
+   *
+   * The result is computed for the headers of the request that found the stale result, without a body, so only GET
+   * and HEAD requests revalidate.
+   */
+  private def revalidate(request: RequestHeader, action: EssentialAction, resultKey: String, etagKey: String): Unit = {
+    val promise = Promise[Option[Result]]()
+    if (inFlight.putIfAbsent((cache, resultKey), promise.future).isEmpty) {
+      try {
+        lead(request, action, resultKey, etagKey, promise).run().onFailure {
+          case e => logger.warn(s"Failed to revalidate the cached result for $resultKey", e)
+        }
+      } catch {
+        case NonFatal(e) =>
+          inFlight.remove((cache, resultKey), promise.future)
+          promise.failure(e)
+          logger.warn(s"Failed to revalidate the cached result for $resultKey", e)
+      }
     }
   }
 
@@ -219,23 +340,36 @@ final class CachedBuilder(
     }
   }
 
-  private def handleResult(result: Result, etagKey: String, resultKey: String): Result = {
-    cachingWithEternity.andThen { duration =>
-      // Format expiration date according to http standard
-      val expirationDate = http.dateFormat.print(System.currentTimeMillis() + duration.toMillis)
-      // Generate a fresh ETAG for it
-      // Use quoted sha1 hash of expiration date as ETAG
-      val etag = s""""${Codecs.sha1(expirationDate)}""""
-
-      val resultWithHeaders = result.withHeaders(ETAG -> etag, EXPIRES -> expirationDate)
-
-      // Cache the new ETAG of the resource
-      cache.set(etagKey, etag, duration)
-      // Cache the new Result of the resource
-      cache.set(resultKey, new SerializableResult(resultWithHeaders), duration)
+  private def handleResult(result: Result, etagKey: String, resultKey: String): Future[(Result, Boolean)] = {
+    cachingWithEternity.lift(result.header) match {
+      case Some(duration) if isCacheable(result.body) =>
+        result.body.consumeData.map { data =>
+          val now = System.currentTimeMillis()
+          // Format expiration date according to http standard
+          val expirationDate = http.dateFormat.print(now + duration.toMillis)
+          // Generate a fresh ETAG for it
+          // Use quoted sha1 hash of expiration date as ETAG
+          val etag = s""""${Codecs.sha1(expirationDate)}""""
+
+          val resultWithHeaders = result.copy(body = HttpEntity.Strict(data, result.body.contentType))
+            .withHeaders(ETAG -> etag, EXPIRES -> expirationDate)
+
+          // Cache the new ETAG of the resource
+          cache.set(etagKey, etag, duration)
+          // Cache the new Result of the resource, for long enough that it can be served while it's revalidated
+          cache.set(resultKey, new SerializableResult(resultWithHeaders, now + duration.toMillis), duration + staleWindow)
+
+          (resultWithHeaders, true)
+        }
+      case _ =>
+        Future.successful((result, false))
+    }
+  }
 
-      resultWithHeaders
-    }.applyOrElse(result.header, (_: ResponseHeader) => result)
+  private def isCacheable(body: HttpEntity): Boolean = body match {
+    case _: HttpEntity.Strict => true
+    case _: HttpEntity.Chunked => false
+    case other => other.contentLength.exists(_ <= maxStreamedSize)
   }
 
   /**
@@ -286,11 +420,77 @@ final class CachedBuilder(
   def compose(alternative: PartialFunction[ResponseHeader, Duration]): CachedBuilder = new CachedBuilder(
     cache = cache,
     key = key,
-    caching = caching.orElse(alternative)
+    caching = caching.orElse(alternative),
+    staleWindow = staleWindow,
+    maxStreamedSize = maxStreamedSize,
+    leaderTimeout = leaderTimeout
+  )
+
+  /**
+   * The returned cache will serve expired results for the given duration after they expire, while a fresh result is
+   * computed in the background.  Only GET and HEAD requests are served expired results, because the fresh result is
+   * computed without a request body.  Requests with other methods compute a fresh result instead.
+   * @param duration how long expired results may be served for
+   */
+  def staleWhileRevalidate(duration: Duration): CachedBuilder = new CachedBuilder(
+    cache = cache,
+    key = key,
+    caching = caching,
+    staleWindow = duration,
+    maxStreamedSize = maxStreamedSize,
+    leaderTimeout = leaderTimeout
+  )
+
+  /**
+   * The returned cache will cache streamed results whose length is no more than the given size
+   * @param size the largest streamed body to cache, in bytes
+   */
+  def maxStreamedBodySize(size: Long): CachedBuilder = new CachedBuilder(
+    cache = cache,
+    key = key,
+    caching = caching,
+    staleWindow = staleWindow,
+    maxStreamedSize = size,
+    leaderTimeout = leaderTimeout
+  )
+
+  /**
+   * The returned cache will only make requests wait for the given duration for another request that is computing the
+   * result, after which they compute it themselves
+   * @param duration how long requests wait for another request
+   */
+  def leaderTimeout(duration: FiniteDuration): CachedBuilder = new CachedBuilder(
+    cache = cache,
+    key = key,
+    caching = caching,
+    staleWindow = staleWindow,
+    maxStreamedSize = maxStreamedSize,
+    leaderTimeout = duration
   )
 
 }
 
+object CachedBuilder {
+
+  private val logger = Logger(classOf[CachedBuilder])
+
+  /**
+   * The largest streamed body that is cached by default, 1MB.
+   */
+  val DefaultMaxStreamedBodySize: Long = 1024 * 1024
+
+  /**
+   * How long requests wait by default for another request that is computing the result, 30 seconds.
+   */
+  val DefaultLeaderTimeout: FiniteDuration = 30.seconds
+
+  /**
+   * The results being computed, by cache and result key, so that concurrent requests for the same result share one
+   * computation of it. The future is completed with the result if it was cached.
+   */
+  private val inFlight = TrieMap.empty[(CacheApi, String), Future[Option[Result]]]
+}
+
 /**
  * Builds an action with caching behavior. Typically created with one of the methods in the `Cached`
  * companion object. Uses both server and client caches:
@@ -305,8 +505,16 @@ final class CachedBuilder(
  *
  * @param key Compute a key from the request header
  * @param caching A callback to get the number of seconds to cache results for
+ * @param staleWindow How long expired results are served for, while they are revalidated
+ * @param maxStreamedSize The largest streamed body that will be cached
+ * @param leaderTimeout How long requests wait for another request that is computing the result
  */
-class UnboundCachedBuilder(key: RequestHeader => String, caching: PartialFunction[ResponseHeader, Duration]) {
+class UnboundCachedBuilder(
+    key: RequestHeader => String,
+    caching: PartialFunction[ResponseHeader, Duration],
+    staleWindow: Duration = Duration.Zero,
+    maxStreamedSize: Long = CachedBuilder.DefaultMaxStreamedBodySize,
+    leaderTimeout: FiniteDuration = CachedBuilder.DefaultLeaderTimeout) {
   import Cached._
 
   /**
@@ -318,7 +526,7 @@ class UnboundCachedBuilder(key: RequestHeader => String, caching: PartialFunctio
    * Compose the cache with an action
    */
   def build(action: EssentialAction)(implicit app: Application): EssentialAction = {
-    new CachedBuilder(Cache.cacheApi, key, caching).build(action)
+    new CachedBuilder(Cache.cacheApi, key, caching, staleWindow, maxStreamedSize, leaderTimeout)(app.actorSystem, app.materializer).build(action)
   }
 
   /**
@@ -368,7 +576,49 @@ class UnboundCachedBuilder(key: RequestHeader => String, caching: PartialFunctio
    */
   def compose(alternative: PartialFunction[ResponseHeader, Duration]): UnboundCachedBuilder = new UnboundCachedBuilder(
     key = key,
-    caching = caching.orElse(alternative)
+    caching = caching.orElse(alternative),
+    staleWindow = staleWindow,
+    maxStreamedSize = maxStreamedSize,
+    leaderTimeout = leaderTimeout
+  )
+
+  /**
+   * The returned cache will serve expired results for the given duration after they expire, while a fresh result is
+   * computed in the background.  Only GET and HEAD requests are served expired results, because the fresh result is
+   * computed without a request body.  Requests with other methods compute a fresh result instead.
+   * @param duration how long expired results may be served for
+   */
+  def staleWhileRevalidate(duration: Duration): UnboundCachedBuilder = new UnboundCachedBuilder(
+    key = key,
+    caching = caching,
+    staleWindow = duration,
+    maxStreamedSize = maxStreamedSize,
+    leaderTimeout = leaderTimeout
+  )
+
+  /**
+   * The returned cache will cache streamed results whose length is no more than the given size
+   * @param size the largest streamed body to cache, in bytes
+   */
+  def maxStreamedBodySize(size: Long): UnboundCachedBuilder = new UnboundCachedBuilder(
+    key = key,
+    caching = caching,
+    staleWindow = staleWindow,
+    maxStreamedSize = size,
+    leaderTimeout = leaderTimeout
+  )
+
+  /**
+   * The returned cache will only make requests wait for the given duration for another request that is computing the
+   * result, after which they compute it themselves
+   * @param duration how long requests wait for another request
+   */
+  def leaderTimeout(duration: FiniteDuration): UnboundCachedBuilder = new UnboundCachedBuilder(
+    key = key,
+    caching = caching,
+    staleWindow = staleWindow,
+    maxStreamedSize = maxStreamedSize,
+    leaderTimeout = duration
   )
 
 }
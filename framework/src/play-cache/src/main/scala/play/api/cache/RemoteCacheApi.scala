@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.cache
+
+import java.io._
+import java.util.concurrent.atomic.LongAdder
+
+import scala.concurrent.{ ExecutionContext, Future }
+import scala.concurrent.duration._
+import scala.reflect.ClassTag
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+ * A client for a cache on a remote server, that stores bytes.
+ *
+ * Implement this to use a remote cache, such as memcached or redis, with `RemoteAsyncCacheApi`.
+ */
+trait RemoteCacheClient {
+
+  /**
+   * Get the value of a key.
+   */
+  def get(key: String): Future[Option[Array[Byte]]]
+
+  /**
+   * Get the values of several keys, in one round trip if the server supports it.
+   *
+   * @return The values that were found, by key.
+   */
+  def getMulti(keys: Seq[String]): Future[Map[String, Array[Byte]]]
+
+  /**
+   * Set the value of a key.
+   *
+   * @param expiration How long the value should be kept, or `Duration.Inf` to keep it until it's evicted.
+   */
+  def set(key: String, value: Array[Byte], expiration: Duration): Future[Unit]
+
+  /**
+   * Set the values of several keys, in one round trip if the server supports it.
+   */
+  def setMulti(values: Map[String, Array[Byte]], expiration: Duration): Future[Unit]
+
+  /**
+   * Remove a key.
+   */
+  def remove(key: String): Future[Unit]
+}
+
+/**
+ * An asynchronous cache API for a remote cache.
+ *
+ * Values are stored using Java serialization, so they must be serializable.  Values that can't be deserialized, for
+ * example because their class has changed, are treated as missing.
+ *
+ * @param client The client for the remote cache.
+ */
+class RemoteAsyncCacheApi(client: RemoteCacheClient)(implicit ec: ExecutionContext)
+    extends AsyncCacheApi with CacheStatistics {
+
+  private val hits = new LongAdder
+  private val misses = new LongAdder
+
+  def set(key: String, value: Any, expiration: Duration) = {
+    // A value that can't be serialized fails the future, rather than throwing
+    Future.fromTry(Try(serialize(value))).flatMap(client.set(key, _, expiration))
+  }
+
+  def setAll(values: Map[String, Any], expiration: Duration) = {
+    Future.fromTry(Try(values.map { case (key, value) => key -> serialize(value) })).flatMap(client.setMulti(_, expiration))
+  }
+
+  def remove(key: String) = client.remove(key)
+
+  def getOrElse[A: ClassTag](key: String, expiration: Duration)(orElse: => Future[A]) = {
+    get[A](key).flatMap {
+      case Some(value) => Future.successful(value)
+      case None => orElse.flatMap(value => set(key, value, expiration).map(_ => value))
+    }
+  }
+
+  def get[T](key: String)(implicit ct: ClassTag[T]) = {
+    client.get(key).map { bytes =>
+      val value = bytes.flatMap(deserialize[T])
+      if (value.isDefined) hits.increment() else misses.increment()
+      value
+    }
+  }
+
+  def getAll[T](keys: Seq[String])(implicit ct: ClassTag[T]) = {
+    client.getMulti(keys).map { found =>
+      val values = found.flatMap { case (key, bytes) => deserialize[T](bytes).map(key -> _) }
+      hits.add(values.size)
+      misses.add(keys.distinct.size - values.size)
+      values
+    }
+  }
+
+  /**
+   * Evictions happen on the remote server, so they aren't counted.
+   */
+  def stats = CacheStats(hits.sum, misses.sum, 0)
+
+  private def serialize(value: Any): Array[Byte] = {
+    val bytes = new ByteArrayOutputStream()
+    val out = new ObjectOutputStream(bytes)
+    try out.writeObject(value) finally out.close()
+    bytes.toByteArray
+  }
+
+  private def deserialize[T](bytes: Array[Byte])(implicit ct: ClassTag[T]): Option[T] = {
+    try {
+      val in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+        // Resolve classes with the context class loader, so that application classes can be found
+        override protected def resolveClass(desc: ObjectStreamClass): Class[_] = {
+          try Class.forName(desc.getName, false, Thread.currentThread.getContextClassLoader) catch {
+            case _: ClassNotFoundException => super.resolveClass(desc)
+          }
+        }
+      }
+      try {
+        Option(in.readObject()).filter(CacheValues.isInstance(_, ct)).asInstanceOf[Option[T]]
+      } finally {
+        in.close()
+      }
+    } catch {
+      case NonFatal(_) => None
+    }
+  }
+}
@@ -4,19 +4,28 @@
 package play.api.cache
 
 import java.io._
-import akka.util.ByteString
+import java.nio.{ ByteBuffer, ByteOrder }
+import java.nio.charset.StandardCharsets.UTF_8
+import akka.util.{ ByteString, ByteStringBuilder }
 import play.api.http.HttpEntity
 import play.api.mvc._
-import scala.annotation.tailrec
 
 /**
  * Wraps a Result to make it Serializable.
+ *
+ * The result is written as a single block of bytes in a compact binary encoding, see `SerializableResult.encode`.
+ *
+ * @param constructorResult The result, which must have a strict body.
+ * @param constructorFreshUntil The time, in milliseconds since the epoch, after which the result is stale.
  */
-private[play] final class SerializableResult(constructorResult: Result) extends Externalizable {
+private[play] final class SerializableResult(constructorResult: Result, constructorFreshUntil: Long)
+    extends Externalizable {
 
   assert(Option(constructorResult).forall(_.body.isInstanceOf[HttpEntity.Strict]),
     "Only strict entities can be cached, streamed entities cannot be cached")
 
+  def this(constructorResult: Result) = this(constructorResult, Long.MaxValue)
+
   /**
    * Create an empty object. Must call `readExternal` after calling
    * this method. This constructor is invoked by the Java
@@ -29,81 +38,107 @@ private[play] final class SerializableResult(constructorResult: Result) extends
    * set by `readExternal`.
    */
   private var cachedResult: Result = constructorResult
+  private var cachedFreshUntil: Long = constructorFreshUntil
 
   def result: Result = {
     assert(cachedResult != null, "Result should have been provided in constructor or when deserializing")
     cachedResult
   }
+
+  /**
+   * Whether the result should be revalidated before it's served again.
+   */
+  def isStale: Boolean = System.currentTimeMillis() > cachedFreshUntil
+
   override def readExternal(in: ObjectInput): Unit = {
-    assert(in.readByte() == SerializableResult.encodingVersion, "Result was serialised from a different version of Play")
+    val bytes = new Array[Byte](in.readInt())
+    in.readFully(bytes)
+    val (result, freshUntil) = SerializableResult.decode(bytes)
+    cachedResult = result
+    cachedFreshUntil = freshUntil
+  }
+
+  override def writeExternal(out: ObjectOutput): Unit = {
+    val bytes = SerializableResult.encode(result, cachedFreshUntil)
+    out.writeInt(bytes.length)
+    out.write(bytes.toArray)
+  }
+}
 
-    val status = in.readInt()
+private[play] object SerializableResult {
+  val encodingVersion = 3.toByte
+
+  private implicit val byteOrder = ByteOrder.BIG_ENDIAN
+
+  /**
+   * Encode a result with a strict body.
+   *
+   * The encoding is the version byte, the status, the time the result is fresh until, the headers as a count followed
+   * by length prefixed UTF-8 names and values, the content type, and the length prefixed body.
+   */
+  def encode(result: Result, freshUntil: Long): ByteString = {
+    val body = result.body match {
+      case strict: HttpEntity.Strict => strict
+      case other => throw new IllegalStateException("Non strict body cannot be materialized")
+    }
+    val builder = new ByteStringBuilder
+    builder.sizeHint(64 + body.data.length)
+    builder.putByte(encodingVersion)
+    builder.putInt(result.header.status)
+    builder.putLong(freshUntil)
+    builder.putInt(result.header.headers.size)
+    for ((name, value) <- result.header.headers) {
+      putString(builder, name)
+      putString(builder, value)
+    }
+    body.contentType match {
+      case Some(contentType) =>
+        builder.putByte(1)
+        putString(builder, contentType)
+      case None =>
+        builder.putByte(0)
+    }
+    builder.putInt(body.data.length)
+    builder ++= body.data
+    builder.result()
+  }
 
+  /**
+   * Decode a result encoded by `encode`.
+   *
+   * @return The result, and the time it is fresh until.
+   */
+  def decode(bytes: Array[Byte]): (Result, Long) = {
+    val buffer = ByteBuffer.wrap(bytes)
+    assert(buffer.get() == encodingVersion, "Result was serialised from a different version of Play")
+    val status = buffer.getInt()
+    val freshUntil = buffer.getLong()
     val headerMap = {
-      val headerLength = in.readInt()
+      val headerCount = buffer.getInt()
       val mapBuilder = Map.newBuilder[String, String]
-      for (_ <- 0 until headerLength) {
-        val name = in.readUTF()
-        val value = in.readUTF()
+      for (_ <- 0 until headerCount) {
+        val name = getString(buffer)
+        val value = getString(buffer)
         mapBuilder += ((name, value))
       }
       mapBuilder.result()
     }
-
-    val body = {
-      val hasContentType = in.readBoolean()
-      val contentType = if (hasContentType) {
-        Some(in.readUTF())
-      } else {
-        None
-      }
-      val sizeOfBody: Int = in.readInt()
-      val buffer = new Array[Byte](sizeOfBody)
-      @tailrec
-      def readBytes(offset: Int, length: Int): Unit = {
-        if (length > 0) {
-          val readLength = in.read(buffer, offset, length)
-          readBytes(offset + readLength, length - readLength)
-        }
-      }
-      readBytes(0, sizeOfBody)
-      HttpEntity.Strict(ByteString(buffer), contentType)
-    }
-
-    cachedResult = Result(
-      header = ResponseHeader(status, headerMap),
-      body = body
-    )
+    val contentType = if (buffer.get() == 1) Some(getString(buffer)) else None
+    val sizeOfBody = buffer.getInt()
+    val body = HttpEntity.Strict(ByteString.fromArray(bytes, buffer.position, sizeOfBody), contentType)
+    (Result(ResponseHeader(status, headerMap), body), freshUntil)
   }
-  override def writeExternal(out: ObjectOutput): Unit = {
-    out.writeByte(SerializableResult.encodingVersion)
-
-    out.writeInt(cachedResult.header.status)
 
-    {
-      val headerMap = cachedResult.header.headers
-      out.writeInt(headerMap.size)
-      for ((name, value) <- headerMap) {
-        out.writeUTF(name)
-        out.writeUTF(value)
-      }
-    }
-
-    {
-      out.writeBoolean(cachedResult.body.contentType.nonEmpty)
-      cachedResult.body.contentType.foreach { ct =>
-        out.writeUTF(ct)
-      }
-      val body = cachedResult.body match {
-        case HttpEntity.Strict(data, _) => data
-        case other => throw new IllegalStateException("Non strict body cannot be materialized")
-      }
-      out.writeInt(body.length)
-      out.write(body.toArray)
-    }
+  private def putString(builder: ByteStringBuilder, s: String): Unit = {
+    val bytes = s.getBytes(UTF_8)
+    builder.putInt(bytes.length)
+    builder.putBytes(bytes)
   }
-}
 
-private[play] object SerializableResult {
-  val encodingVersion = 2.toByte
+  private def getString(buffer: ByteBuffer): String = {
+    val length = buffer.getInt()
+    val s = new String(buffer.array, buffer.position, length, UTF_8)
+    buffer.position(buffer.position + length)
+    s
+  }
 }
@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.cache
+
+import java.util.concurrent.{ ConcurrentHashMap, ConcurrentLinkedQueue }
+import java.util.concurrent.atomic.{ AtomicInteger, AtomicReferenceArray, LongAdder }
+import java.util.concurrent.locks.ReentrantLock
+import javax.inject._
+
+import play.api._
+import play.api.inject.{ BindingKey, Injector, Module }
+import play.cache.{ AsyncCacheApi => JavaAsyncCacheApi, CacheApi => JavaCacheApi, DefaultAsyncCacheApi => DefaultJavaAsyncCacheApi, DefaultCacheApi => DefaultJavaCacheApi, NamedCacheImpl }
+
+import scala.concurrent.duration._
+import scala.reflect.ClassTag
+
+/**
+ * In process cache components for compile time injection
+ */
+trait TinyLfuCacheComponents {
+  def configuration: Configuration
+
+  /**
+   * Use this to create a cache with the given name.
+   */
+  def cacheApi(name: String): CacheApi = {
+    new TinyLfuCacheApi(TinyLfuCacheModule.maxEntries(configuration, name))
+  }
+
+  lazy val defaultCacheApi: CacheApi = cacheApi("play")
+  lazy val defaultAsyncCacheApi: AsyncCacheApi = new DefaultAsyncCacheApi(defaultCacheApi)
+}
+
+/**
+ * An in process cache implementation, that can be used instead of the EhCache implementation.
+ *
+ * To use it, disable `play.api.cache.EhCacheModule` and enable this module.  Each cache holds at most
+ * `play.cache.tinyLfu.maxEntries` entries, which can be overridden for a cache by setting
+ * `play.cache.tinyLfu.caches.<name>.maxEntries`.
+ */
+@Singleton
+class TinyLfuCacheModule extends Module {
+
+  import scala.collection.JavaConversions._
+
+  def bindings(environment: Environment, configuration: Configuration) = {
+    val defaultCacheName = configuration.underlying.getString("play.cache.defaultCache")
+    val bindCaches = configuration.underlying.getStringList("play.cache.bindCaches").toSeq
+
+    // bind a cache with the given name
+    def bindCache(name: String) = {
+      val namedCache = new NamedCacheImpl(name)
+      val cacheApiKey = bind[CacheApi].qualifiedWith(namedCache)
+      val asyncCacheApiKey = bind[AsyncCacheApi].qualifiedWith(namedCache)
+      Seq(
+        cacheApiKey.to(new NamedTinyLfuCacheApiProvider(TinyLfuCacheModule.maxEntries(configuration, name))),
+        asyncCacheApiKey.to(new NamedAsyncCacheApiProvider(cacheApiKey)),
+        bind[JavaCacheApi].qualifiedWith(namedCache).to(new NamedJavaCacheApiProvider(cacheApiKey)),
+        bind[JavaAsyncCacheApi].qualifiedWith(namedCache).to(new NamedJavaAsyncCacheApiProvider(asyncCacheApiKey)),
+        bind[Cached].qualifiedWith(namedCache).to(new NamedCachedProvider(cacheApiKey))
+      )
+    }
+
+    Seq(
+      // alias the default cache to the unqualified implementation
+      bind[CacheApi].to(bind[CacheApi].qualifiedWith(new NamedCacheImpl(defaultCacheName))),
+      bind[AsyncCacheApi].to(bind[AsyncCacheApi].qualifiedWith(new NamedCacheImpl(defaultCacheName))),
+      bind[JavaCacheApi].to[DefaultJavaCacheApi],
+      bind[JavaAsyncCacheApi].to[DefaultJavaAsyncCacheApi]
+    ) ++ bindCache(defaultCacheName) ++ bindCaches.flatMap(bindCache)
+  }
+}
+
+object TinyLfuCacheModule {
+  private[cache] def maxEntries(configuration: Configuration, name: String): Int = {
+    configuration.getInt(s"""play.cache.tinyLfu.caches."$name".maxEntries""")
+      .getOrElse(configuration.underlying.getInt("play.cache.tinyLfu.maxEntries"))
+  }
+}
+
+private[play] class NamedTinyLfuCacheApiProvider(maxEntries: Int) extends Provider[CacheApi] {
+  lazy val get: CacheApi = new TinyLfuCacheApi(maxEntries)
+}
+
+private[play] class NamedAsyncCacheApiProvider(key: BindingKey[CacheApi]) extends Provider[AsyncCacheApi] {
+  @Inject private var injector: Injector = _
+  lazy val get: AsyncCacheApi = {
+    new DefaultAsyncCacheApi(injector.instanceOf(key))
+  }
+}
+
+private[play] class NamedJavaAsyncCacheApiProvider(key: BindingKey[AsyncCacheApi]) extends Provider[JavaAsyncCacheApi] {
+  @Inject private var injector: Injector = _
+  lazy val get: JavaAsyncCacheApi = {
+    new DefaultJavaAsyncCacheApi(injector.instanceOf(key))
+  }
+}
+
+/**
+ * A cache API for an in process cache, that holds at most the given number of entries.
+ *
+ * Values are held in memory as they are, so they don't need to be serializable.
+ */
+class TinyLfuCacheApi(maxEntries: Int) extends CacheApi with CacheStatistics {
+
+  private[cache] val cache = new TinyLfuCache(maxEntries)
+
+  def set(key: String, value: Any, expiration: Duration) = {
+    val expiresAt = expiration match {
+      case infinite: Duration.Infinite => Long.MaxValue
+      case finite: FiniteDuration if finite.toMillis <= 0 => System.currentTimeMillis() + 1000
+      case finite: FiniteDuration => System.currentTimeMillis() + finite.toMillis
+    }
+    cache.put(key, value, expiresAt)
+  }
+
+  def get[T](key: String)(implicit ct: ClassTag[T]): Option[T] = {
+    cache.get(key).filter(CacheValues.isInstance(_, ct)).asInstanceOf[Option[T]]
+  }
+
+  def getOrElse[A: ClassTag](key: String, expiration: Duration)(orElse: => A) = {
+    get[A](key).getOrElse {
+      val value = orElse
+      set(key, value, expiration)
+      value
+    }
+  }
+
+  def remove(key: String) = {
+    cache.remove(key)
+  }
+
+  def stats = cache.stats
+}
+
+/**
+ * A bounded, concurrent, in process cache, with a W-TinyLFU eviction policy.
+ *
+ * Entries are held in a `ConcurrentHashMap`, so reads and writes of different keys don't contend with each other.  The
+ * eviction policy isn't updated by each read and write.  Instead, reads and writes are recorded in buffers, which are
+ * drained by whichever thread gets the eviction lock.  The lock is only tried, so reads and writes don't wait for it,
+ * unless so many writes are buffered that the thread draining them can't keep up.  The read buffers are striped and
+ * lossy: if a read buffer is full, the read isn't recorded.
+ *
+ * New entries are added to a small LRU window.  Entries that leave the window compete with the least recently used
+ * entry of the main space to stay in the cache, and whichever has been used less often recently, according to a
+ * frequency sketch, is evicted.  The main space is a segmented LRU, where entries that are used again move from the
+ * probation segment to the protected segment.
+ *
+ * Expired entries are removed when they are read, or evicted as other entries are added.
+ */
+private[cache] final class TinyLfuCache(maxEntries: Int) {
+
+  import TinyLfuCache._
+
+  require(maxEntries > 0, "The maximum number of entries must be positive")
+
+  private val data = new ConcurrentHashMap[String, Node]()
+
+  private val hits = new LongAdder
+  private val misses = new LongAdder
+  private val evictions = new LongAdder
+
+  // The policy is only accessed while holding the eviction lock
+  private val evictionLock = new ReentrantLock()
+  private val sketch = new FrequencySketch(maxEntries)
+  private val window = new AccessOrderDeque
+  private val probation = new AccessOrderDeque
+  private val protectedSegment = new AccessOrderDeque
+  private val maxWindow = math.max(1, maxEntries / 100)
+  private val maxProtected = (maxEntries - maxWindow) * 4 / 5
+
+  private val readBuffers = Array.fill(ReadBufferStripes)(new ReadBuffer)
+  private val writeBuffer = new ConcurrentLinkedQueue[WriteEvent]()
+  // The size of a ConcurrentLinkedQueue isn't a constant time operation, so it's counted separately
+  private val bufferedWrites = new AtomicInteger()
+
+  def get(key: String): Option[Any] = {
+    val node = data.get(key)
+    if (node == null) {
+      misses.increment()
+      None
+    } else if (node.expiresAt <= System.currentTimeMillis()) {
+      misses.increment()
+      if (data.remove(key, node)) {
+        afterWrite(Removed(node))
+      }
+      None
+    } else {
+      hits.increment()
+      afterRead(node)
+      Some(node.value)
+    }
+  }
+
+  def put(key: String, value: Any, expiresAt: Long): Unit = {
+    val node = new Node(key, value, expiresAt)
+    val prior = data.put(key, node)
+    if (prior != null) {
+      bufferWrite(Removed(prior))
+    }
+    afterWrite(Added(node))
+  }
+
+  def remove(key: String): Unit = {
+    val prior = data.remove(key)
+    if (prior != null) {
+      afterWrite(Removed(prior))
+    }
+  }
+
+  def size: Int = data.size
+
+  def stats: CacheStats = CacheStats(hits.sum, misses.sum, evictions.sum)
+
+  private def afterRead(node: Node): Unit = {
+    val buffer = readBuffers(Thread.currentThread.getId.toInt & (ReadBufferStripes - 1))
+    if (buffer.record(node) && evictionLock.tryLock()) {
+      try drainBuffers() finally evictionLock.unlock()
+    }
+  }
+
+  private def bufferWrite(event: WriteEvent): Unit = {
+    writeBuffer.add(event)
+    bufferedWrites.incrementAndGet()
+  }
+
+  private def afterWrite(event: WriteEvent): Unit = {
+    bufferWrite(event)
+    if (bufferedWrites.get > MaxBufferedWrites) {
+      // The lock holder can't keep up, so wait for the lock, to push back on the writers
+      evictionLock.lock()
+      try drainBuffers() finally evictionLock.unlock()
+    }
+    // Otherwise leave the write to the thread that holds the lock.  That thread checks the buffer again after it
+    // releases the lock, so that a write buffered just as it finished draining isn't left behind.
+    while (bufferedWrites.get > 0 && evictionLock.tryLock()) {
+      try drainBuffers() finally evictionLock.unlock()
+    }
+  }
+
+  private def drainBuffers(): Unit = {
+    readBuffers.foreach(_.drain(onAccess))
+    var event = writeBuffer.poll()
+    while (event != null) {
+      bufferedWrites.decrementAndGet()
+      event match {
+        case Added(node) => onAdd(node)
+        case Removed(node) => onRemove(node)
+      }
+      event = writeBuffer.poll()
+    }
+    evict()
+  }
+
+  private def onAccess(node: Node): Unit = {
+    if (node.queue != null) {
+      sketch.increment(node.key)
+      if (node.queue eq probation) {
+        // Entries that are used again are promoted to the protected segment
+        probation.remove(node)
+        protectedSegment.addLast(node)
+        while (protectedSegment.size > maxProtected) {
+          probation.addLast(protectedSegment.removeFirst())
+        }
+      } else {
+        node.queue.moveToLast(node)
+      }
+    }
+  }
+
+  private def onAdd(node: Node): Unit = {
+    // The entry may have been removed before its addition is processed
+    if (!node.retired) {
+      sketch.increment(node.key)
+      window.addLast(node)
+    }
+  }
+
+  private def onRemove(node: Node): Unit = {
+    node.retired = true
+    if (node.queue != null) {
+      node.queue.remove(node)
+    }
+  }
+
+  private def evict(): Unit = {
+    // Entries that leave the window become candidates to enter the main space
+    while (window.size > maxWindow) {
+      probation.addLast(window.removeFirst())
+    }
+    while (window.size + probation.size + protectedSegment.size > maxEntries) {
+      val victim = if (probation.size >= 2) {
+        val candidate = probation.last
+        val lru = probation.first
+        if (lru.expiresAt <= System.currentTimeMillis() || sketch.frequency(candidate.key) > sketch.frequency(lru.key)) {
+          lru
+        } else {
+          candidate
+        }
+      } else if (probation.size == 1) {
+        probation.first
+      } else if (protectedSegment.size > 0) {
+        protectedSegment.first
+      } else {
+        window.first
+      }
+      victim.queue.remove(victim)
+      victim.retired = true
+      if (data.remove(victim.key, victim)) {
+        evictions.increment()
+      }
+    }
+  }
+}
+
+private[cache] object TinyLfuCache {
+
+  private val ReadBufferStripes = {
+    val processors = Runtime.getRuntime.availableProcessors * 4
+    Integer.highestOneBit(processors - 1) << 1
+  }
+  private val ReadBufferSize = 16
+
+  /**
+   * The number of writes that can be buffered before writers wait for the eviction lock.
+   */
+  private val MaxBufferedWrites = 128 * ReadBufferStripes
+
+  private final class Node(val key: String, val value: Any, val expiresAt: Long) {
+    // Only accessed while holding the eviction lock
+    var queue: AccessOrderDeque = _
+    var previous: Node = _
+    var next: Node = _
+    var retired = false
+  }
+
+  private sealed trait WriteEvent
+  private case class Added(node: Node) extends WriteEvent
+  private case class Removed(node: Node) extends WriteEvent
+
+  /**
+   * A lossy ring buffer of reads.
+   */
+  private final class ReadBuffer {
+    private val nodes = new AtomicReferenceArray[Node](ReadBufferSize)
+    private val writes = new AtomicInteger()
+
+    /**
+     * Record a read, possibly overwriting a read that hasn't been drained yet.
+     *
+     * @return Whether the buffer should be drained.
+     */
+    def record(node: Node): Boolean = {
+      val index = writes.getAndIncrement()
+      nodes.lazySet(index & (ReadBufferSize - 1), node)
+      (index & (ReadBufferSize - 1)) == ReadBufferSize - 1
+    }
+
+    def drain(onAccess: Node => Unit): Unit = {
+      var i = 0
+      while (i < ReadBufferSize) {
+        val node = nodes.getAndSet(i, null)
+        if (node != null) onAccess(node)
+        i += 1
+      }
+    }
+  }
+
+  /**
+   * A doubly linked list of nodes, from least to most recently used.
+   */
+  private final class AccessOrderDeque {
+    private var head: Node = _
+    private var tail: Node = _
+    var size = 0
+
+    def first: Node = head
+    def last: Node = tail
+
+    def addLast(node: Node): Unit = {
+      node.queue = this
+      node.previous = tail
+      node.next = null
+      if (tail == null) head = node else tail.next = node
+      tail = node
+      size += 1
+    }
+
+    def remove(node: Node): Unit = {
+      if (node.previous == null) head = node.next else node.previous.next = node.next
+      if (node.next == null) tail = node.previous else node.next.previous = node.previous
+      node.queue = null
+      node.previous = null
+      node.next = null
+      size -= 1
+    }
+
+    def removeFirst(): Node = {
+      val node = head
+      remove(node)
+      node
+    }
+
+    def moveToLast(node: Node): Unit = {
+      if (node ne tail) {
+        remove(node)
+        addLast(node)
+      }
+    }
+  }
+}
+
+/**
+ * A count-min sketch of how often keys have been used recently, with 4 bit counters.
+ *
+ * The counters are halved once the number of increments reaches ten times the size of the cache, so that the sketch
+ * reflects recent use.  Not thread safe.
+ */
+private[cache] final class FrequencySketch(maxEntries: Int) {
+
+  private val Depth = 4
+  private val MaxCount = 15
+  private val Seeds = Array(0x97cb3127, 0xb492b66f, 0x9ae16a3b, 0xcbf29ce4)
+
+  private val width = Integer.highestOneBit(math.max(16, maxEntries) - 1) << 1
+  private val counters = new Array[Byte](Depth * width)
+  private val sampleSize = 10L * math.max(16, maxEntries)
+  private var additions = 0L
+
+  def frequency(key: String): Int = {
+    val hash = spread(key.hashCode)
+    var min = MaxCount
+    var i = 0
+    while (i < Depth) {
+      min = math.min(min, counters(indexOf(hash, i)).toInt)
+      i += 1
+    }
+    min
+  }
+
+  def increment(key: String): Unit = {
+    val hash = spread(key.hashCode)
+    var incremented = false
+    var i = 0
+    while (i < Depth) {
+      val index = indexOf(hash, i)
+      if (counters(index) < MaxCount) {
+        counters(index) = (counters(index) + 1).toByte
+        incremented = true
+      }
+      i += 1
+    }
+    if (incremented) {
+      additions += 1
+      if (additions >= sampleSize) reset()
+    }
+  }
+
+  private def reset(): Unit = {
+    var i = 0
+    while (i < counters.length) {
+      counters(i) = (counters(i) >>> 1).toByte
+      i += 1
+    }
+    additions /= 2
+  }
+
+  private def indexOf(hash: Int, row: Int): Int = {
+    var h = hash * Seeds(row)
+    h ^= h >>> 16
+    row * width + (h & (width - 1))
+  }
+
+  private def spread(hashCode: Int): Int = {
+    val h = hashCode * 0x9e3779b9
+    h ^ (h >>> 16)
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.cache
+
+import java.io.NotSerializableException
+import java.util.Arrays
+import java.util.concurrent.TimeUnit
+
+import play.api.inject.guice.GuiceApplicationBuilder
+import play.api.test._
+import play.api.libs.concurrent.Execution.Implicits.defaultContext
+import play.cache.{ AsyncCacheApi => JavaAsyncCacheApi }
+
+import scala.concurrent.Future
+import scala.concurrent.duration._
+
+class AsyncCacheApiSpec extends PlaySpecification {
+
+  sequential
+
+  "DefaultAsyncCacheApi" should {
+
+    "get and set values in a synchronous cache" in {
+      val cache = new DefaultAsyncCacheApi(new TinyLfuCacheApi(100))
+      await(cache.setAll(Map("foo" -> "bar", "baz" -> 1)))
+      await(cache.get[String]("foo")) must beSome("bar")
+      await(cache.getAll[String](Seq("foo", "baz", "qux"))) must_== Map("foo" -> "bar")
+      await(cache.getOrElse("qux")(Future.successful("quux"))) must_== "quux"
+      await(cache.get[String]("qux")) must beSome("quux")
+      await(cache.remove("foo"))
+      await(cache.get[String]("foo")) must beNone
+    }
+  }
+
+  "RemoteAsyncCacheApi" should {
+
+    "get and set values in a remote cache" in {
+      val cache = new RemoteAsyncCacheApi(new FakeRemoteCacheClient)
+      await(cache.set("foo", "bar"))
+      await(cache.get[String]("foo")) must beSome("bar")
+      await(cache.get[Int]("foo")) must beNone
+      await(cache.remove("foo"))
+      await(cache.get[String]("foo")) must beNone
+    }
+
+    "get and set several values in one round trip" in {
+      val client = new FakeRemoteCacheClient
+      val cache = new RemoteAsyncCacheApi(client)
+      await(cache.setAll(Map("foo" -> "bar", "baz" -> "qux", "count" -> 1)))
+      await(cache.getAll[String](Seq("foo", "baz", "count", "missing"))) must_== Map("foo" -> "bar", "baz" -> "qux")
+      client.roundTrips.get must_== 2
+      cache.stats must_== CacheStats(hitCount = 2, missCount = 2, evictionCount = 0)
+    }
+
+    "get values or else set them" in {
+      val cache = new RemoteAsyncCacheApi(new FakeRemoteCacheClient)
+      await(cache.getOrElse("foo")(Future.successful(List(1, 2)))) must_== List(1, 2)
+      await(cache.getOrElse[List[Int]]("foo")(Future.failed(new Exception("not cached")))) must_== List(1, 2)
+    }
+
+    "expire values" in {
+      val cache = new RemoteAsyncCacheApi(new FakeRemoteCacheClient)
+      await(cache.set("foo", "bar", 50.millis))
+      Thread.sleep(100)
+      await(cache.get[String]("foo")) must beNone
+    }
+
+    "treat values that can't be deserialized as missing" in {
+      val client = new FakeRemoteCacheClient
+      val cache = new RemoteAsyncCacheApi(client)
+      await(client.set("foo", Array[Byte](1, 2, 3), Duration.Inf))
+      await(cache.get[String]("foo")) must beNone
+    }
+
+    "fail the future when setting values that can't be serialized" in {
+      val cache = new RemoteAsyncCacheApi(new FakeRemoteCacheClient)
+      val unserializable = new Object
+      val set = cache.set("foo", unserializable)
+      val setAll = cache.setAll(Map("foo" -> "bar", "baz" -> unserializable))
+      await(set) must throwA[NotSerializableException]
+      await(setAll) must throwA[NotSerializableException]
+      await(cache.get[String]("foo")) must beNone
+    }
+  }
+
+  "The cache modules" should {
+
+    "bind the asynchronous cache APIs to ehcache" in new WithApplication() {
+      val cache = app.injector.instanceOf[AsyncCacheApi]
+      await(cache.set("foo", "bar"))
+      await(cache.get[String]("foo")) must beSome("bar")
+      app.injector.instanceOf[CacheApi].get[String]("foo") must beSome("bar")
+      app.injector.instanceOf[CacheApi] must beAnInstanceOf[CacheStatistics]
+    }
+
+    "bind the cache APIs to the in process cache" in new WithApplication(new GuiceApplicationBuilder()
+      .disable[EhCacheModule]
+      .bindings(new TinyLfuCacheModule)
+      .configure(
+        "play.cache.bindCaches" -> Seq("custom"),
+        "play.cache.tinyLfu.caches.custom.maxEntries" -> 10
+      ).build()) {
+      val cacheApi = app.injector.instanceOf[CacheApi]
+      cacheApi must beAnInstanceOf[TinyLfuCacheApi]
+      cacheApi.set("foo", "bar")
+      await(app.injector.instanceOf[AsyncCacheApi].get[String]("foo")) must beSome("bar")
+
+      val javaCache = app.injector.instanceOf[JavaAsyncCacheApi]
+      javaCache.set("baz", "qux").toCompletableFuture.get(5, TimeUnit.SECONDS)
+      javaCache.get[String]("baz").toCompletableFuture.get(5, TimeUnit.SECONDS) must_== "qux"
+      javaCache.getAll[String](Arrays.asList("foo", "baz")).toCompletableFuture.get(5, TimeUnit.SECONDS).size must_== 2
+
+      val custom = app.injector.instanceOf(play.api.inject.BindingKey(classOf[CacheApi]).qualifiedWith(new play.cache.NamedCacheImpl("custom")))
+      (0 until 20).foreach(i => custom.set(s"key$i", i))
+      custom.asInstanceOf[TinyLfuCacheApi].cache.size must_== 10
+    }
+  }
+}
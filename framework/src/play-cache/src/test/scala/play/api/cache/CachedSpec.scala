@@ -5,11 +5,15 @@ package play.api.cache
 
 import javax.inject._
 
+import akka.stream.scaladsl.Source
+import akka.util.ByteString
 import play.api.test._
 import java.util.concurrent.atomic.AtomicInteger
-import play.api.mvc.{ Results, Action }
+import play.api.mvc.{ Action, EssentialAction, Results }
 import play.api.http
+import play.api.http.HttpEntity
 
+import scala.concurrent.Promise
 import scala.concurrent.duration._
 import scala.util.Random
 
@@ -72,7 +76,7 @@ class CachedSpec extends PlaySpecification {
       val diskEhcache2 = cacheManager.getCache("disk")
       assert(diskEhcache2 != null)
       val diskCache = new EhCacheApi(diskEhcache2)
-      val diskCached = new Cached(diskCache)
+      val diskCached = new Cached(diskCache)(app.actorSystem, app.materializer)
       val invoked = new AtomicInteger()
       val action = diskCached(_ => "foo")(Action(Results.Ok("" + invoked.incrementAndGet())))
       val result1 = action(FakeRequest()).run()
@@ -138,6 +142,109 @@ class CachedSpec extends PlaySpecification {
       status(action(FakeRequest("GET", "/b").withHeaders(IF_NONE_MATCH -> header(ETAG, resultA).get)).run) must_== 200
       status(action(FakeRequest("GET", "/c").withHeaders(IF_NONE_MATCH -> "*")).run) must_== 200
     }
+
+    "run the action once for concurrent cache misses" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val ready = Promise[Unit]()
+      val action = Cached(_ => "concurrent")(Action.async {
+        ready.future.map(_ => Results.Ok("" + invoked.incrementAndGet()))(play.api.libs.concurrent.Execution.defaultContext)
+      })
+      val result1 = action(FakeRequest()).run()
+      val result2 = action(FakeRequest()).run()
+      ready.success(())
+      contentAsString(result1) must_== "1"
+      contentAsString(result2) must_== "1"
+      invoked.get() must_== 1
+      header(ETAG, result2) must_== header(ETAG, result1)
+    }
+
+    "run the action again for waiting requests if the result isn't cacheable" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val ready = Promise[Unit]()
+      val action = Cached.status(_ => "uncacheable", 200)(Action.async {
+        ready.future.map(_ => Results.NotFound("" + invoked.incrementAndGet()))(play.api.libs.concurrent.Execution.defaultContext)
+      })
+      val result1 = action(FakeRequest()).run()
+      val result2 = action(FakeRequest()).run()
+      ready.success(())
+      Seq(contentAsString(result1), contentAsString(result2)).sorted must_== Seq("1", "2")
+      invoked.get() must_== 2
+    }
+
+    "not make later requests wait if the action throws" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val action = Cached(_ => "throws")(EssentialAction { request =>
+        if (invoked.incrementAndGet() == 1) throw new RuntimeException("failed")
+        Action(Results.Ok("" + invoked.get()))(request)
+      })
+      action(FakeRequest()) must throwA[RuntimeException]
+      contentAsString(action(FakeRequest()).run()) must_== "2"
+    }
+
+    "stop waiting for a request that never runs the action" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val action = Cached(_ => "abandoned").leaderTimeout(100.millis)(Action {
+        Results.Ok("" + invoked.incrementAndGet())
+      })
+      // Like a filter that calls the action, and then returns a result without running it
+      action(FakeRequest())
+      contentAsString(action(FakeRequest()).run()) must_== "1"
+      // The request that stopped waiting cached the result
+      contentAsString(action(FakeRequest()).run()) must_== "1"
+      invoked.get() must_== 1
+    }
+
+    "cache streamed results with a known length" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val action = Cached(_ => "streamed")(Action {
+        val body = ByteString("" + invoked.incrementAndGet())
+        Results.Ok.sendEntity(HttpEntity.Streamed(Source.single(body), Some(body.length), Some("text/plain")))
+      })
+      contentAsString(action(FakeRequest()).run()) must_== "1"
+      val result2 = action(FakeRequest()).run()
+      contentAsString(result2) must_== "1"
+      contentType(result2) must beSome("text/plain")
+      invoked.get() must_== 1
+    }
+
+    "not cache streamed results larger than the limit" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val action = Cached(_ => "large").maxStreamedBodySize(4)(Action {
+        val body = ByteString("result " + invoked.incrementAndGet())
+        Results.Ok.sendEntity(HttpEntity.Streamed(Source.single(body), Some(body.length), None))
+      })
+      contentAsString(action(FakeRequest()).run()) must_== "result 1"
+      val result2 = action(FakeRequest()).run()
+      contentAsString(result2) must_== "result 2"
+      header(ETAG, result2) must beNone
+      invoked.get() must_== 2
+    }
+
+    "serve stale results while they are revalidated" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val action = Cached.status(_ => "stale", OK, 1).staleWhileRevalidate(1.minute)(Action {
+        Results.Ok("" + invoked.incrementAndGet())
+      })
+      contentAsString(action(FakeRequest()).run()) must_== "1"
+      Thread.sleep(1100)
+      contentAsString(action(FakeRequest()).run()) must_== "1"
+      invoked.get() must eventually(be_==(2))
+      contentAsString(action(FakeRequest()).run()) must eventually(be_==("2"))
+      invoked.get() must_== 2
+    }
+
+    "only revalidate stale results in the background for requests without a body" in new WithApplication() {
+      val invoked = new AtomicInteger()
+      val action = Cached.status(_ => "stale-post", OK, 1).staleWhileRevalidate(1.minute)(Action { request =>
+        Results.Ok(request.method + " " + invoked.incrementAndGet())
+      })
+      contentAsString(action(FakeRequest()).run()) must_== "GET 1"
+      Thread.sleep(1100)
+      // The POST computes a fresh result with its own body, instead of being served the stale result
+      contentAsString(action(FakeRequest("POST", "/")).run()) must_== "POST 2"
+      invoked.get() must_== 2
+      contentAsString(action(FakeRequest()).run()) must_== "POST 2"
+    }
   }
 
   val dummyAction = Action { request =>
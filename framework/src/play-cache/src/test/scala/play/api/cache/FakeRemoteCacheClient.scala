@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.cache
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.collection.concurrent.TrieMap
+import scala.concurrent.{ ExecutionContext, Future }
+import scala.concurrent.duration._
+
+/**
+ * A remote cache client whose server is a map in this process.
+ *
+ * Each operation completes asynchronously on the given execution context, and values are copied, as they would be if
+ * they were sent over a network.
+ */
+class FakeRemoteCacheClient(implicit ec: ExecutionContext) extends RemoteCacheClient {
+
+  private val entries = TrieMap.empty[String, (Array[Byte], Long)]
+
+  /**
+   * The number of round trips to the server.
+   */
+  val roundTrips = new AtomicInteger()
+
+  private def roundTrip[T](block: => T): Future[T] = Future {
+    roundTrips.incrementAndGet()
+    block
+  }
+
+  private def lookup(key: String): Option[Array[Byte]] = entries.get(key).collect {
+    case (value, expiresAt) if expiresAt > System.currentTimeMillis() => value.clone()
+  }
+
+  private def store(key: String, value: Array[Byte], expiration: Duration): Unit = {
+    val expiresAt = expiration match {
+      case finite: FiniteDuration => System.currentTimeMillis() + finite.toMillis
+      case _ => Long.MaxValue
+    }
+    entries.put(key, (value.clone(), expiresAt))
+  }
+
+  def get(key: String) = roundTrip(lookup(key))
+
+  def getMulti(keys: Seq[String]) = roundTrip(keys.flatMap(key => lookup(key).map(key -> _)).toMap)
+
+  def set(key: String, value: Array[Byte], expiration: Duration) = roundTrip(store(key, value, expiration))
+
+  def setMulti(values: Map[String, Array[Byte]], expiration: Duration) = roundTrip {
+    values.foreach { case (key, value) => store(key, value, expiration) }
+  }
+
+  def remove(key: String) = roundTrip(entries.remove(key)).map(_ => ())
+}
@@ -51,5 +51,16 @@ class SerializableResultSpec extends PlaySpecification {
       checkSerialization(Results.Ok("hello!").withHeaders(CONTENT_TYPE -> "text/banana"))
       checkSerialization(Results.Ok("hello!").withHeaders(CONTENT_TYPE -> "text/banana", "X-Foo" -> "bar"))
     }
+    "serialize and deserialize binary bodies and non-ASCII headers" in {
+      checkSerialization(Results.Ok(Array[Byte](0, -1, 127, -128)).withHeaders("X-Name" -> "ūnicode ✓"))
+    }
+    "keep the time results are fresh until" in {
+      val fresh = new SerializableResult(Results.Ok("fresh"), System.currentTimeMillis() + 60000)
+      val stale = new SerializableResult(Results.Ok("stale"), System.currentTimeMillis() - 1)
+      val (_, freshUntil) = SerializableResult.decode(SerializableResult.encode(fresh.result, 1234L).toArray)
+      freshUntil must_== 1234L
+      fresh.isStale must beFalse
+      stale.isStale must beTrue
+    }
   }
 }
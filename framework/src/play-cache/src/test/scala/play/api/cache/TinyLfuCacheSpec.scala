@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.cache
+
+import java.util.concurrent.{ CountDownLatch, Executors, TimeUnit }
+
+import org.specs2.mutable.Specification
+
+import scala.concurrent.duration._
+
+class TinyLfuCacheSpec extends Specification {
+
+  "TinyLfuCacheApi" should {
+
+    "get, set and remove values" in {
+      val cache = new TinyLfuCacheApi(100)
+      cache.set("foo", "bar")
+      cache.get[String]("foo") must beSome("bar")
+      cache.remove("foo")
+      cache.get[String]("foo") must beNone
+    }
+
+    "not give values of the wrong type" in {
+      val cache = new TinyLfuCacheApi(100)
+      cache.set("foo", 1)
+      cache.get[String]("foo") must beNone
+      cache.get[Int]("foo") must beSome(1)
+    }
+
+    "expire values" in {
+      val cache = new TinyLfuCacheApi(100)
+      cache.set("foo", "bar", 50.millis)
+      cache.get[String]("foo") must beSome("bar")
+      Thread.sleep(100)
+      cache.get[String]("foo") must beNone
+      cache.cache.size must_== 0
+    }
+
+    "get values or else set them" in {
+      val cache = new TinyLfuCacheApi(100)
+      cache.getOrElse("foo")("bar") must_== "bar"
+      cache.getOrElse("foo")("baz") must_== "bar"
+    }
+
+    "keep statistics" in {
+      val cache = new TinyLfuCacheApi(100)
+      cache.set("foo", "bar")
+      cache.get[String]("foo")
+      cache.get[String]("foo")
+      cache.get[String]("baz")
+      cache.stats must_== CacheStats(hitCount = 2, missCount = 1, evictionCount = 0)
+      cache.stats.hitRate must_== 2.0 / 3
+    }
+  }
+
+  "TinyLfuCache" should {
+
+    "hold at most the maximum number of entries" in {
+      val cache = new TinyLfuCache(100)
+      (0 until 1000).foreach(i => cache.put(s"key$i", i, Long.MaxValue))
+      cache.size must_== 100
+      cache.stats.evictionCount must_== 900
+    }
+
+    "keep frequently used entries when others are added once" in {
+      val cache = new TinyLfuCache(100)
+      val hot = (0 until 50).map(i => s"hot$i")
+      hot.foreach(key => cache.put(key, key, Long.MaxValue))
+      for (_ <- 0 until 5; key <- hot) cache.get(key)
+      // A scan of entries that are never used again shouldn't flush the frequently used ones
+      (0 until 1000).foreach(i => cache.put(s"scan$i", i, Long.MaxValue))
+      for (_ <- 0 until 5; key <- hot) cache.get(key)
+      hot.count(key => cache.get(key).isDefined) must be_>=(45)
+    }
+
+    "replace values" in {
+      val cache = new TinyLfuCache(10)
+      cache.put("foo", 1, Long.MaxValue)
+      cache.put("foo", 2, Long.MaxValue)
+      cache.get("foo") must beSome(2)
+      (0 until 9).foreach(i => cache.put(s"key$i", i, Long.MaxValue))
+      cache.stats.evictionCount must_== 0
+    }
+
+    "stay bounded when used concurrently" in {
+      val cache = new TinyLfuCache(1000)
+      val threads = 8
+      val executor = Executors.newFixedThreadPool(threads)
+      val done = new CountDownLatch(threads)
+      try {
+        (0 until threads).foreach { t =>
+          executor.execute(new Runnable {
+            def run() = {
+              try {
+                for (i <- 0 until 20000) {
+                  val key = s"key${(i * 31 + t) % 5000}"
+                  if (cache.get(key).isEmpty) cache.put(key, i, Long.MaxValue)
+                }
+              } finally {
+                done.countDown()
+              }
+            }
+          })
+        }
+        done.await(30, TimeUnit.SECONDS) must beTrue
+        cache.size must be_<=(1000)
+      } finally {
+        executor.shutdown()
+      }
+    }
+  }
+
+  "FrequencySketch" should {
+
+    "estimate how often keys have been used" in {
+      val sketch = new FrequencySketch(100)
+      (0 until 5).foreach(_ => sketch.increment("foo"))
+      sketch.increment("bar")
+      sketch.frequency("foo") must_== 5
+      sketch.frequency("bar") must_== 1
+      sketch.frequency("baz") must_== 0
+    }
+
+    "age counts so that they reflect recent use" in {
+      val sketch = new FrequencySketch(16)
+      (0 until 10).foreach(_ => sketch.increment("foo"))
+      (0 until 200).foreach(i => sketch.increment(s"key$i"))
+      sketch.frequency("foo") must be_<(10)
+    }
+  }
+}
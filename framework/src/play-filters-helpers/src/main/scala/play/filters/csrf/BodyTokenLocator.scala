@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.filters.csrf
+
+import java.net.URLDecoder
+
+import akka.util.{ ByteString, ByteStringBuilder }
+import play.core.parsers.Multipart.FileInfoMatcher
+
+import scala.annotation.tailrec
+import scala.util.control.NonFatal
+
+/**
+ * Looks for the CSRF token in a request body, a chunk at a time.
+ *
+ * This allows the token to be found without parsing the whole body, so that the body only needs to be buffered until
+ * the token is found, and only needs to be parsed once, by the action.
+ */
+private[csrf] trait BodyTokenLocator {
+
+  /**
+   * Scan the next chunk of the body.
+   *
+   * @return The token, if it has been found.
+   */
+  def scan(chunk: ByteString): Option[String]
+
+  /**
+   * Called when no more of the body will be scanned.
+   *
+   * @return The token, if it ends the scanned part of the body.
+   */
+  def finish(): Option[String]
+}
+
+/**
+ * Locates a token in an application/x-www-form-urlencoded body.
+ *
+ * Only the current name or value is kept, so each byte of the body is looked at once.
+ */
+private[csrf] class FormUrlEncodedTokenLocator(tokenName: String, charset: String) extends BodyTokenLocator {
+
+  // Names longer than the token name with every byte percent encoded can't be the token name
+  private val maxNameLength = tokenName.getBytes(charset).length * 3
+
+  private val name = new ByteStringBuilder
+  private val value = new ByteStringBuilder
+  private var nameTooLong = false
+  private var inValue = false
+  private var isToken = false
+
+  def scan(chunk: ByteString) = {
+    val bytes = chunk.iterator
+    var token: Option[String] = None
+    while (token.isEmpty && bytes.hasNext) {
+      val byte = bytes.next()
+      if (byte == '&') {
+        token = finish()
+        nextPair()
+      } else if (inValue) {
+        if (isToken) value += byte
+      } else if (byte == '=') {
+        inValue = true
+        isToken = !nameTooLong && decode(name.result()).exists(_ == tokenName)
+      } else if (name.length < maxNameLength) {
+        name += byte
+      } else {
+        nameTooLong = true
+      }
+    }
+    token
+  }
+
+  def finish() = if (isToken) decode(value.result()) else None
+
+  private def nextPair(): Unit = {
+    name.clear()
+    value.clear()
+    nameTooLong = false
+    inValue = false
+    isToken = false
+  }
+
+  private def decode(bytes: ByteString): Option[String] = {
+    try {
+      Some(URLDecoder.decode(bytes.decodeString(charset), charset))
+    } catch {
+      case NonFatal(_) => None
+    }
+  }
+}
+
+/**
+ * Locates a token in a multipart/form-data body.
+ *
+ * Only the bytes of the current part headers, or of the token part, are kept.  The bytes of other parts are
+ * discarded as soon as they have been searched for the next delimiter.
+ */
+private[csrf] class MultipartTokenLocator(boundary: String, tokenName: String) extends BodyTokenLocator {
+
+  import MultipartTokenLocator._
+
+  private val firstDelimiter = ByteString("--" + boundary)
+  private val delimiter = ByteString("\r\n--" + boundary)
+
+  // The bytes that haven't been consumed yet, and where to continue searching them
+  private var pending = ByteString.empty
+  private var searchFrom = 0
+  private var state: State = Preamble
+
+  def scan(chunk: ByteString) = {
+    pending = (pending ++ chunk).compact
+    locate()
+  }
+
+  // The token part must be ended by a delimiter
+  def finish() = None
+
+  @tailrec
+  private def locate(): Option[String] = state match {
+    case Preamble =>
+      search(firstDelimiter) match {
+        case -1 => None
+        case i =>
+          consume(i + firstDelimiter.length, AfterDelimiter)
+          locate()
+      }
+
+    case AfterDelimiter =>
+      if (pending.length < 2) {
+        None
+      } else if (pending(0) == '-' && pending(1) == '-') {
+        // The close delimiter, so there are no more parts
+        consume(pending.length, End)
+        None
+      } else {
+        search(Crlf) match {
+          case -1 => None
+          case i =>
+            // Keep the CRLF, so that empty headers are followed by a blank line
+            consume(i, Headers)
+            locate()
+        }
+      }
+
+    case Headers =>
+      search(HeadersEnd) match {
+        case -1 if pending.length > MaxHeaderBuffer =>
+          consume(pending.length, End)
+          None
+        case -1 => None
+        case i =>
+          val isToken = partName(pending.take(i)).exists(_ == tokenName)
+          consume(i + HeadersEnd.length, Body(isToken))
+          locate()
+      }
+
+    case Body(isToken) =>
+      search(delimiter) match {
+        case -1 =>
+          if (!isToken) {
+            // Keep only the bytes that could be the start of the delimiter
+            consume(searchFrom, state)
+          }
+          None
+        case i if isToken =>
+          Some(pending.take(i).utf8String)
+        case i =>
+          consume(i + delimiter.length, AfterDelimiter)
+          locate()
+      }
+
+    case End =>
+      pending = ByteString.empty
+      None
+  }
+
+  private def consume(length: Int, next: State): Unit = {
+    pending = pending.drop(length)
+    searchFrom = 0
+    state = next
+  }
+
+  /**
+   * Search the pending bytes for the given bytes.
+   *
+   * If they aren't found, the next search starts from where they could start in the pending bytes.
+   */
+  private def search(bytes: ByteString): Int = {
+    val index = pending.indexOfSlice(bytes, searchFrom)
+    if (index == -1) {
+      searchFrom = math.max(0, pending.length - bytes.length + 1)
+    }
+    index
+  }
+
+  private def partName(headerBytes: ByteString): Option[String] = {
+    val headers = headerBytes.utf8String.split("\r\n").flatMap { header =>
+      header.split(":", 2) match {
+        case Array(key, value) => Some(key.trim.toLowerCase(java.util.Locale.ENGLISH) -> value.trim)
+        case _ => None
+      }
+    }.toMap
+
+    // File parts can't hold the token
+    if (FileInfoMatcher.unapply(headers).isDefined) {
+      None
+    } else {
+      headers.get("content-disposition").flatMap { disposition =>
+        disposition.split(";").map(_.trim).collectFirst {
+          case NameParameter(name) => name
+        }
+      }
+    }
+  }
+}
+
+private[csrf] object MultipartTokenLocator {
+
+  private sealed trait State
+  private case object Preamble extends State
+  private case object AfterDelimiter extends State
+  private case object Headers extends State
+  private case class Body(isToken: Boolean) extends State
+  private case object End extends State
+
+  private val Crlf = ByteString("\r\n")
+  private val HeadersEnd = ByteString("\r\n\r\n")
+  private val MaxHeaderBuffer = 4 * 1024
+  private val NameParameter = """^name="?(.*?)"?$""".r
+}
@@ -4,14 +4,14 @@
 package play.filters.csrf
 
 import akka.stream.Materializer
+import akka.stream.scaladsl.{ Flow, Keep, Sink, Source }
+import akka.stream.stage.{ Context, PushPullStage, SyncDirective, TerminationDirective }
 import akka.util.ByteString
-import play.api.libs.streams.{ Streams, Accumulator }
+import play.api.libs.streams.Accumulator
 import play.api.mvc._
 import play.api.http.HeaderNames._
 import play.filters.csrf.CSRF._
-import play.api.libs.iteratee._
-import play.api.mvc.BodyParsers.parse._
-import scala.concurrent.Future
+import scala.concurrent.{ Future, Promise }
 
 /**
  * An action that provides CSRF protection.
@@ -29,10 +29,6 @@ class CSRFAction(next: EssentialAction,
   import CSRFAction._
   import play.api.libs.iteratee.Execution.Implicits.trampoline
 
-  // An iteratee that returns a forbidden result saying the CSRF check failed
-  private def checkFailedIteratee(req: RequestHeader, msg: String): Iteratee[ByteString, Result] =
-    Iteratee.flatten(clearTokenIfInvalid(req, config, errorHandler, msg).map(r => Done(r)))
-
   private def checkFailed(req: RequestHeader, msg: String): Accumulator[ByteString, Result] =
     Accumulator.done(clearTokenIfInvalid(req, config, errorHandler, msg))
 
@@ -66,12 +62,10 @@ class CSRFAction(next: EssentialAction,
 
             // Check the body
             request.contentType match {
-              case Some("application/x-www-form-urlencoded") => Streams.iterateeToAccumulator(
+              case Some("application/x-www-form-urlencoded") =>
                 checkFormBody(request, headerToken, config.tokenName, next)
-              )
-              case Some("multipart/form-data") => Streams.iterateeToAccumulator(
+              case Some("multipart/form-data") =>
                 checkMultipartBody(request, headerToken, config.tokenName, next)
-              )
               // No way to extract token from other content types
               case Some(content) =>
                 filterLogger.trace(s"[CSRF] Check failed because $content request")
@@ -107,40 +101,51 @@ class CSRFAction(next: EssentialAction,
     }
   }
 
-  private def checkFormBody = checkBody[Map[String, Seq[String]]](tolerantFormUrlEncoded, identity) _
-  private def checkMultipartBody = checkBody[MultipartFormData[Unit]](multipartFormData[Unit]({
-    case _ => Iteratee.ignore[ByteString].map(_ => MultipartFormData.FilePart("", "", None, ()))
-  }), _.dataParts) _
-
-  private def checkBody[T](parser: BodyParser[T], extractor: (T => Map[String, Seq[String]]))(request: RequestHeader, tokenFromHeader: String, tokenName: String, next: EssentialAction) = {
-    // Take up to 100kb of the body
-    val firstPartOfBody: Iteratee[ByteString, ByteString] =
-      Traversable.take[ByteString](config.postBodyBuffer.asInstanceOf[Int]) &>> Iteratee.consume[ByteString]()
-
-    firstPartOfBody.flatMap { bytes: ByteString =>
-      // Parse the first 100kb
-      val parsedBody = Enumerator(bytes) |>>> Streams.accumulatorToIteratee(parser(request))
-
-      Iteratee.flatten(parsedBody.map { parseResult =>
-        val validToken = parseResult.fold(
-          // error parsing the body, we couldn't find a valid token
-          _ => false,
-          // extract the token and verify
-          body => (for {
-            values <- extractor(body).get(tokenName)
-            token <- values.headOption
-          } yield tokenProvider.compareTokens(token, tokenFromHeader)).getOrElse(false)
-        )
-
-        if (validToken) {
-          // Feed the buffered bytes into the next request, and return the iteratee
-          filterLogger.trace("[CSRF] Valid token found in body")
-          Iteratee.flatten(Enumerator(bytes) |>> Streams.accumulatorToIteratee(next(request)))
-        } else {
-          filterLogger.trace("[CSRF] Check failed because no or invalid token found in body")
-          checkFailedIteratee(request, "Invalid CSRF token found in form body")
+  private def checkFormBody(request: RequestHeader, tokenFromHeader: String, tokenName: String, next: EssentialAction) = {
+    val locator = new FormUrlEncodedTokenLocator(tokenName, request.charset.getOrElse("utf-8"))
+    checkBody(locator)(request, tokenFromHeader, next)
+  }
+
+  private def checkMultipartBody(request: RequestHeader, tokenFromHeader: String, tokenName: String, next: EssentialAction) = {
+    val boundary = for {
+      mt <- request.mediaType
+      (_, value) <- mt.parameters.find(_._1.equalsIgnoreCase("boundary"))
+      boundary <- value
+    } yield boundary
+
+    boundary.map { boundary =>
+      checkBody(new MultipartTokenLocator(boundary, tokenName))(request, tokenFromHeader, next)
+    } getOrElse {
+      filterLogger.trace("[CSRF] Check failed because multipart body has no boundary")
+      checkFailed(request, "No CSRF token found in multipart body without boundary")
+    }
+  }
+
+  /**
+   * Look for the token in the body as it arrives, buffering the body until the token is found.
+   *
+   * Once a valid token is found, the buffered bytes are fed to the next action, followed by the rest of the body.
+   */
+  private def checkBody(locator: BodyTokenLocator)(request: RequestHeader, tokenFromHeader: String, next: EssentialAction): Accumulator[ByteString, Result] = {
+    val token = Promise[Option[String]]()
+    // The first element is the buffered body, which is only emitted once the token has been looked for
+    val bufferedAndRest = Flow[ByteString]
+      .transform(() => new BufferUntilToken(locator, config.postBodyBuffer, token))
+      .prefixAndTail(1)
+      .toMat(Sink.head)(Keep.right)
+
+    Accumulator(bufferedAndRest).mapFuture {
+      case (buffered, rest) =>
+        token.future.flatMap { found =>
+          if (found.exists(tokenProvider.compareTokens(_, tokenFromHeader))) {
+            filterLogger.trace("[CSRF] Valid token found in body")
+            next(request).run(Source(buffered.filter(_.nonEmpty).toList) ++ rest)
+          } else {
+            filterLogger.trace("[CSRF] Check failed because no or invalid token found in body")
+            rest.runWith(Sink.cancelled)
+            clearTokenIfInvalid(request, config, errorHandler, "Invalid CSRF token found in form body")
+          }
         }
-      })
     }
   }
 
@@ -211,6 +216,61 @@ object CSRFAction {
   private[csrf] def isCached(result: Result): Boolean =
     result.header.headers.get(CACHE_CONTROL).fold(false)(!_.contains("no-cache"))
 
+  /**
+   * Buffers the body until the token is found, the buffer is full, or the body ends, and then emits the buffered bytes
+   * as one element, followed by the rest of the body as it arrives.
+   *
+   * Only the first `bufferSize` bytes are scanned for the token.  The token that was found, if any, completes the
+   * promise before the buffered bytes are emitted.
+   */
+  private class BufferUntilToken(locator: BodyTokenLocator, bufferSize: Long, token: Promise[Option[String]])
+      extends PushPullStage[ByteString, ByteString] {
+
+    private var buffered = ByteString.empty
+    private var scanned = false
+
+    override def onPush(chunk: ByteString, ctx: Context[ByteString]): SyncDirective = {
+      if (scanned) {
+        ctx.push(chunk)
+      } else {
+        val found = locator.scan(chunk.take((bufferSize - buffered.length).toInt))
+        buffered ++= chunk
+        if (found.isDefined) {
+          emitBuffered(found, ctx)
+        } else if (buffered.length >= bufferSize) {
+          emitBuffered(locator.finish(), ctx)
+        } else {
+          ctx.pull()
+        }
+      }
+    }
+
+    override def onPull(ctx: Context[ByteString]): SyncDirective = {
+      if (ctx.isFinishing) {
+        if (scanned) ctx.finish()
+        else {
+          scanned = true
+          token.success(locator.finish())
+          ctx.pushAndFinish(buffered)
+        }
+      } else {
+        ctx.pull()
+      }
+    }
+
+    override def onUpstreamFinish(ctx: Context[ByteString]): TerminationDirective = {
+      if (scanned) ctx.finish() else ctx.absorbTermination()
+    }
+
+    private def emitBuffered(found: Option[String], ctx: Context[ByteString]): SyncDirective = {
+      scanned = true
+      token.success(found)
+      val bytes = buffered
+      buffered = ByteString.empty
+      ctx.push(bytes)
+    }
+  }
+
   private[csrf] def clearTokenIfInvalid(request: RequestHeader, config: CSRFConfig, errorHandler: ErrorHandler, msg: String): Future[Result] = {
     import play.api.libs.iteratee.Execution.Implicits.trampoline
 
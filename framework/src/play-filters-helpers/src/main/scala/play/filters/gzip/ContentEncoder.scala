@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.filters.gzip
+
+import java.nio.ByteOrder
+import java.util.zip.{ CRC32, Deflater }
+
+import akka.stream.scaladsl.Flow
+import akka.util.ByteString
+import play.api.libs.streams.GzipFlow
+
+/**
+ * A content coding that the gzip filter can compress responses with.
+ *
+ * Encoders for the gzip and deflate codings are built in.  Other codings, such as Brotli, can be supported by
+ * implementing this trait, for example by delegating to a native library, and adding the encoder to the encoders of
+ * the filter configuration.
+ */
+trait ContentEncoder {
+
+  /**
+   * The name of the content coding, as used in the Accept-Encoding and Content-Encoding headers, eg `br`.
+   */
+  def name: String
+
+  /**
+   * The compression level to use when none is configured.
+   */
+  def defaultLevel: Int
+
+  /**
+   * Whether the given compression level is supported by this encoder.
+   */
+  def isValidLevel(level: Int): Boolean
+
+  /**
+   * Compress the given body in memory.
+   *
+   * @param data The body to compress.
+   * @param level The compression level.
+   * @param bufferSize The size of the buffer to use for compressing.
+   */
+  def compress(data: ByteString, level: Int, bufferSize: Int): ByteString
+
+  /**
+   * A flow that compresses a body as it is streamed.  Each element should be flushed when it is compressed, so that
+   * chunks can be sent as soon as they are produced.
+   *
+   * @param level The compression level.
+   * @param bufferSize The size of the buffer to use for compressing.
+   */
+  def flow(level: Int, bufferSize: Int): Flow[ByteString, ByteString, _]
+}
+
+object ContentEncoder {
+
+  /**
+   * An encoder for the gzip coding.
+   *
+   * Bodies compressed in memory reuse pooled deflaters.
+   */
+  lazy val gzip: ContentEncoder = new GzipEncoder(new DeflaterPool(Runtime.getRuntime.availableProcessors, true))
+
+  /**
+   * An encoder for the deflate coding, which is the zlib format, as specified by RFC 7230.
+   *
+   * Bodies compressed in memory reuse pooled deflaters.
+   */
+  lazy val deflate: ContentEncoder = new DeflateEncoder(new DeflaterPool(Runtime.getRuntime.availableProcessors, false))
+
+  /**
+   * The built in encoders, by name.
+   */
+  lazy val builtIn: Map[String, ContentEncoder] = Seq(gzip, deflate).map(e => e.name -> e).toMap
+
+  private abstract class PooledDeflateEncoder(pool: DeflaterPool) extends ContentEncoder {
+    def defaultLevel = Deflater.DEFAULT_COMPRESSION
+    def isValidLevel(level: Int) = DeflaterPool.isValidLevel(level)
+  }
+
+  private class GzipEncoder(pool: DeflaterPool) extends PooledDeflateEncoder(pool) {
+
+    // The magic number, the deflate method, and no flags, modification time or extra flags, as GZIPOutputStream writes
+    private val Header = Array[Byte](0x1f, 0x8b.toByte, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0)
+
+    def name = "gzip"
+
+    def compress(data: ByteString, level: Int, bufferSize: Int) = {
+      implicit val byteOrder = ByteOrder.LITTLE_ENDIAN
+      val input = data.toArray
+      val crc = new CRC32
+      crc.update(input)
+
+      val builder = ByteString.newBuilder
+      builder.putBytes(Header)
+      pool.deflate(input, level, bufferSize, builder)
+      // The trailer is the CRC of the data, followed by its length modulo 2^32
+      builder.putInt(crc.getValue.toInt)
+      builder.putInt(input.length)
+      builder.result()
+    }
+
+    def flow(level: Int, bufferSize: Int) = GzipFlow.gzip(bufferSize, level)
+  }
+
+  private class DeflateEncoder(pool: DeflaterPool) extends PooledDeflateEncoder(pool) {
+
+    def name = "deflate"
+
+    def compress(data: ByteString, level: Int, bufferSize: Int) = {
+      val builder = ByteString.newBuilder
+      pool.deflate(data.toArray, level, bufferSize, builder)
+      builder.result()
+    }
+
+    def flow(level: Int, bufferSize: Int) = GzipFlow.deflate(bufferSize, level)
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.filters.gzip
+
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.{ AtomicInteger, LongAdder }
+import java.util.zip.Deflater
+
+import akka.util.{ ByteString, ByteStringBuilder }
+import play.utils.SizeBoundedCache
+
+/**
+ * Counters for the work done by a gzip filter.
+ */
+final class GzipFilterStats private[gzip] () {
+
+  private[gzip] val hits = new LongAdder
+  private[gzip] val misses = new LongAdder
+  private[gzip] val compressions = new LongAdder
+  private[gzip] val compressionNanos = new LongAdder
+
+  /**
+   * The number of bodies that were served from the compression cache.
+   */
+  def cacheHits: Long = hits.sum()
+
+  /**
+   * The number of bodies that were looked up in the compression cache, but weren't found.
+   */
+  def cacheMisses: Long = misses.sum()
+
+  /**
+   * The number of bodies that were compressed in memory.
+   */
+  def compressionCount: Long = compressions.sum()
+
+  /**
+   * The total time spent compressing bodies in memory, in nanoseconds.
+   */
+  def compressionTimeNanos: Long = compressionNanos.sum()
+
+  override def toString =
+    s"GzipFilterStats(cacheHits=$cacheHits, cacheMisses=$cacheMisses, compressionCount=$compressionCount, " +
+      s"compressionTimeNanos=$compressionTimeNanos)"
+}
+
+/**
+ * A pool of deflaters, by compression level.
+ *
+ * A deflater holds native zlib state, which is costly to allocate and is only freed when the deflater is ended or
+ * finalized. Pooling them lets each compression reuse that state rather than allocating its own.
+ *
+ * @param maxIdle The maximum number of idle deflaters to keep for each compression level.
+ * @param nowrap Whether the deflaters produce raw deflate data, rather than the zlib format.
+ */
+private[gzip] class DeflaterPool(maxIdle: Int, nowrap: Boolean) {
+
+  // Compression levels range from -1 (the default level) to 9
+  private val idle = Array.fill(11)(new ConcurrentLinkedQueue[Deflater])
+  private val idleCounts = Array.fill(11)(new AtomicInteger)
+
+  def acquire(level: Int): Deflater = {
+    val deflater = idle(level + 1).poll()
+    if (deflater == null) {
+      new Deflater(level, nowrap)
+    } else {
+      idleCounts(level + 1).decrementAndGet()
+      deflater
+    }
+  }
+
+  def release(level: Int, deflater: Deflater): Unit = {
+    if (idleCounts(level + 1).incrementAndGet() <= maxIdle) {
+      deflater.reset()
+      idle(level + 1).offer(deflater)
+    } else {
+      idleCounts(level + 1).decrementAndGet()
+      deflater.end()
+    }
+  }
+
+  /**
+   * Deflate the given data in memory, using a deflater from the pool.
+   *
+   * @param input The data to deflate.
+   * @param level The compression level.
+   * @param bufferSize The size of the buffer to deflate into.
+   * @param builder The builder to write the deflated data to.
+   */
+  def deflate(input: Array[Byte], level: Int, bufferSize: Int, builder: ByteStringBuilder): Unit = {
+    val deflater = acquire(level)
+    try {
+      deflater.setInput(input)
+      deflater.finish()
+      val buffer = new Array[Byte](bufferSize)
+      while (!deflater.finished()) {
+        val length = deflater.deflate(buffer)
+        builder.putBytes(buffer, 0, length)
+      }
+    } finally {
+      release(level, deflater)
+    }
+  }
+}
+
+private[gzip] object DeflaterPool {
+  def isValidLevel(level: Int): Boolean = level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION
+}
+
+/**
+ * A cache of compressed bodies, keyed by a SHA-256 digest of the uncompressed body, and the coding and level it was
+ * compressed with.
+ *
+ * The cache is bounded by the total size of the compressed bodies it holds, and evicts the least recently used bodies
+ * first. Bodies that are larger than the cache on their own are never cached.
+ *
+ * @param maxSize The maximum total size of the compressed bodies, in bytes.
+ */
+private[gzip] class GzipCache(maxSize: Long) extends SizeBoundedCache[GzipCache.Key, ByteString](maxSize, _.length) {
+
+  def key(data: ByteString, coding: String, level: Int): GzipCache.Key = {
+    val digest = MessageDigest.getInstance("SHA-256")
+    data.asByteBuffers.foreach(digest.update)
+    GzipCache.Key(ByteString(digest.digest()), data.length, coding, level)
+  }
+}
+
+private[gzip] object GzipCache {
+  case class Key(digest: ByteString, length: Int, coding: String, level: Int)
+}
@@ -3,38 +3,49 @@
  */
 package play.filters.gzip
 
-import java.util.zip.GZIPOutputStream
+import java.util.Locale
 import javax.inject.{ Provider, Inject, Singleton }
 
 import akka.stream.Materializer
 import akka.stream.scaladsl._
 import akka.util.ByteString
-import com.typesafe.config.ConfigMemorySize
+import com.typesafe.config.{ Config, ConfigMemorySize }
 import play.api.inject.Module
-import play.api.libs.streams.GzipFlow
-import play.api.{ Environment, PlayConfig, Configuration }
+import play.api.{ Environment, Logger, PlayConfig, Configuration }
 import play.api.mvc._
 import scala.concurrent.Future
 import play.api.mvc.RequestHeader.acceptHeader
 import play.api.http.{ HttpChunk, HttpEntity, Status }
 import play.api.libs.concurrent.Execution.Implicits._
+import scala.collection.JavaConverters._
 
 /**
  * A gzip filter.
  *
- * This filter may gzip the responses for any requests that aren't HEAD requests and specify an accept encoding of gzip.
+ * This filter may compress the responses for any requests that aren't HEAD requests and accept one of the configured
+ * content codings, only gzip by default.  The coding with the highest qvalue in the Accept-Encoding header of the
+ * request is used, ties being broken by the order that the codings are configured in.  Deflate is built in too, but
+ * has to be enabled, and further codings, such as Brotli, can be added by implementing a [[ContentEncoder]].
  *
- * It won't gzip under the following conditions:
+ * It won't compress under the following conditions:
  *
  * - The response code is 204 or 304 (these codes MUST NOT contain a body, and an empty gzipped response is 20 bytes
  * long)
  * - The response already defines a Content-Encoding header
+ * - The response defines a content length that is less than the configured minimum size
  * - A custom shouldGzip function is supplied and it returns false
  *
  * Since gzipping changes the content length of the response, this filter may do some buffering - it will buffer any
  * streamed responses that define a content length less than the configured chunked threshold.  Responses that are
  * greater in length, or that don't define a content length, will not be buffered, but will be sent as chunked
  * responses.
+ *
+ * Strict and buffered responses are compressed in memory, using pooled deflaters.  If the compression cache is
+ * enabled, the compressed bodies are cached by a hash of their content, so byte identical responses are only
+ * compressed once.  Counters for the cache and for in memory compression are available from `stats`.
+ *
+ * The compression level may be configured per content type, and overridden per request.  A level of -1 selects the
+ * default level of each content coding.
  */
 @Singleton
 class GzipFilter @Inject() (config: GzipFilterConfig)(implicit mat: Materializer) extends EssentialFilter {
@@ -46,36 +57,65 @@ class GzipFilter @Inject() (config: GzipFilterConfig)(implicit mat: Materializer
     shouldGzip: (RequestHeader, Result) => Boolean = (_, _) => true)(implicit mat: Materializer) =
     this(GzipFilterConfig(bufferSize, chunkedThreshold, shouldGzip))
 
+  private val contentTypeLevels = config.contentTypeLevels.map {
+    case (contentType, level) => contentType.toLowerCase(Locale.ENGLISH) -> level
+  }
+
+  (config.compressionLevel +: contentTypeLevels.values.toSeq).foreach { level =>
+    config.encoders.foreach { encoder =>
+      require(level == -1 || encoder.isValidLevel(level), s"Invalid compression level for ${encoder.name}: $level")
+    }
+  }
+
+  private val logger = Logger(classOf[GzipFilter])
+
+  private val cache = if (config.cacheMaxSize > 0) Some(new GzipCache(config.cacheMaxSize)) else None
+
+  /**
+   * The counters for this filter.
+   */
+  val stats: GzipFilterStats = new GzipFilterStats
+
   def apply(next: EssentialAction) = new EssentialAction {
     def apply(request: RequestHeader) = {
-      if (mayCompress(request)) {
-        next(request).mapFuture(result => handleResult(request, result))
-      } else {
-        next(request)
+      preferredEncoder(request) match {
+        case Some(encoder) => next(request).mapFuture(result => handleResult(request, result, encoder))
+        case None => next(request)
       }
     }
   }
 
-  private def handleResult(request: RequestHeader, result: Result): Future[Result] = {
+  private def handleResult(request: RequestHeader, result: Result, encoder: ContentEncoder): Future[Result] = {
     if (shouldCompress(result) && config.shouldGzip(request, result)) {
-      val header = result.header.copy(headers = setupHeader(result.header.headers))
+      val header = result.header.copy(headers = setupHeader(result.header.headers, encoder))
+      lazy val level = compressionLevel(request, result, encoder)
 
       result.body match {
 
         case HttpEntity.Strict(data, contentType) =>
-          Future.successful(Result(header, compressStrictEntity(data, contentType)))
+          Future.successful(Result(header, compressStrictEntity(data, contentType, encoder, level)))
 
         case entity @ HttpEntity.Streamed(_, Some(contentLength), contentType) if contentLength <= config.chunkedThreshold =>
           // It's below the chunked threshold, so buffer then compress and send
           entity.consumeData.map { data =>
-            Result(header, compressStrictEntity(data, contentType))
+            Result(header, compressStrictEntity(data, contentType, encoder, level))
           }
 
         case HttpEntity.Streamed(data, _, contentType) =>
-          // It's above the chunked threshold, compress through the gzip flow, and send as chunked
-          val gzipped = data via GzipFlow.gzip(config.bufferSize) map (d => HttpChunk.Chunk(d))
+          // It's above the chunked threshold, compress through the encoder's flow, and send as chunked
+          val gzipped = data via encoder.flow(level, config.bufferSize) map (d => HttpChunk.Chunk(d))
           Future.successful(Result(header, HttpEntity.Chunked(gzipped, contentType)))
 
+        case entity @ HttpEntity.FileRegion(_, _, length, contentType) if length <= config.chunkedThreshold =>
+          entity.consumeData.map { data =>
+            Result(header, compressStrictEntity(data, contentType, encoder, level))
+          }
+
+        case entity: HttpEntity.FileRegion =>
+          // The compressed data can't be sent straight from the file, so stream it like any other entity
+          val gzipped = entity.dataStream via encoder.flow(level, config.bufferSize) map (d => HttpChunk.Chunk(d))
+          Future.successful(Result(header, HttpEntity.Chunked(gzipped, entity.contentType)))
+
         case HttpEntity.Chunked(chunks, contentType) =>
           val gzipFlow = Flow() { implicit builder =>
             import FlowGraph.Implicits._
@@ -88,9 +128,9 @@ class GzipFilter @Inject() (config: GzipFilterConfig)(implicit mat: Materializer
             val concat = builder.add(Concat[HttpChunk]())
 
             // Broadcast the stream through two separate flows, one that collects chunks and turns them into
-            // ByteStrings, sends those ByteStrings through the Gzip flow, and then turns them back into chunks,
+            // ByteStrings, sends those ByteStrings through the encoder's flow, and then turns them back into chunks,
             // the other that just allows the last chunk through. Then concat those two flows together.
-            broadcast.out(0) ~> extractChunks ~> GzipFlow.gzip(config.bufferSize) ~> createChunks ~> concat.in(0)
+            broadcast.out(0) ~> extractChunks ~> encoder.flow(level, config.bufferSize) ~> createChunks ~> concat.in(0)
             broadcast.out(1) ~> filterLastChunk ~> concat.in(1)
 
             (broadcast.in, concat.out)
@@ -103,27 +143,82 @@ class GzipFilter @Inject() (config: GzipFilterConfig)(implicit mat: Materializer
     }
   }
 
-  private def compressStrictEntity(data: ByteString, contentType: Option[String]) = {
-    val builder = ByteString.newBuilder
-    val gzipOs = new GZIPOutputStream(builder.asOutputStream, config.bufferSize, true)
-    gzipOs.write(data.toArray)
-    gzipOs.close()
-    HttpEntity.Strict(builder.result(), contentType)
+  private def compressStrictEntity(data: ByteString, contentType: Option[String], encoder: ContentEncoder,
+    level: Int) = {
+    val compressed = cache match {
+      case Some(c) =>
+        val key = c.key(data, encoder.name, level)
+        c.get(key) match {
+          case Some(cached) =>
+            stats.hits.increment()
+            cached
+          case None =>
+            stats.misses.increment()
+            val compressedData = compress(data, encoder, level)
+            c.put(key, compressedData)
+            compressedData
+        }
+      case None => compress(data, encoder, level)
+    }
+    HttpEntity.Strict(compressed, contentType)
+  }
+
+  private def compress(data: ByteString, encoder: ContentEncoder, level: Int): ByteString = {
+    val start = System.nanoTime()
+    val compressed = encoder.compress(data, level, config.bufferSize)
+    stats.compressionNanos.add(System.nanoTime() - start)
+    stats.compressions.increment()
+    compressed
   }
 
   /**
-   * Whether this request may be compressed.
+   * The compression level for the given response.  The level may be overridden for particular routes, falling back to
+   * the level configured for the content type of the response, and then to the configured compression level.
+   *
+   * The configured levels are validated when the filter is created, but route levels can only be validated here, so an
+   * invalid route level is logged and ignored rather than failing the response.
    */
-  private def mayCompress(request: RequestHeader) =
-    request.method != "HEAD" && gzipIsAcceptedAndPreferredBy(request)
+  private def compressionLevel(request: RequestHeader, result: Result, encoder: ContentEncoder): Int = {
+    val routeLevel = config.routeCompressionLevel(request, result).filter { level =>
+      val valid = level == -1 || encoder.isValidLevel(level)
+      if (!valid) {
+        logger.warn(s"Ignoring invalid compression level for ${encoder.name} from routeCompressionLevel: $level")
+      }
+      valid
+    }
+    val level = routeLevel
+      .orElse(result.body.contentType.flatMap(contentTypeLevel))
+      .getOrElse(config.compressionLevel)
+    if (level == -1) encoder.defaultLevel else level
+  }
 
-  private def gzipIsAcceptedAndPreferredBy(request: RequestHeader) = {
-    val codings = acceptHeader(request.headers, ACCEPT_ENCODING)
-    def explicitQValue(coding: String) = codings collectFirst { case (q, c) if c equalsIgnoreCase coding => q }
-    def defaultQValue(coding: String) = if (coding == "identity") 0.001d else 0d
-    def qvalue(coding: String) = explicitQValue(coding) orElse explicitQValue("*") getOrElse defaultQValue(coding)
+  /**
+   * The level configured for the given content type, either for its media type, or for all subtypes of its type.
+   */
+  private def contentTypeLevel(contentType: String): Option[Int] = {
+    val mediaType = contentType.takeWhile(_ != ';').trim.toLowerCase(Locale.ENGLISH)
+    contentTypeLevels.get(mediaType) orElse contentTypeLevels.get(mediaType.takeWhile(_ != '/') + "/*")
+  }
 
-    qvalue("gzip") > 0d && qvalue("gzip") >= qvalue("identity")
+  /**
+   * The encoder to compress the response to this request with, if it may be compressed.
+   */
+  private def preferredEncoder(request: RequestHeader): Option[ContentEncoder] = {
+    if (request.method == "HEAD") {
+      None
+    } else {
+      val codings = acceptHeader(request.headers, ACCEPT_ENCODING)
+      def explicitQValue(coding: String) = codings collectFirst { case (q, c) if c equalsIgnoreCase coding => q }
+      def defaultQValue(coding: String) = if (coding == "identity") 0.001d else 0d
+      def qvalue(coding: String) = explicitQValue(coding) orElse explicitQValue("*") getOrElse defaultQValue(coding)
+
+      val identity = qvalue("identity")
+      val accepted = config.encoders.map(e => e -> qvalue(e.name)).filter {
+        case (_, q) => q > 0d && q >= identity
+      }
+      // maxBy keeps the first of several equally preferred encoders, so ties go to the configured order
+      if (accepted.isEmpty) None else Some(accepted.maxBy(_._2)._1)
+    }
   }
 
   /**
@@ -133,7 +228,8 @@ class GzipFilter @Inject() (config: GzipFilterConfig)(implicit mat: Materializer
    */
   private def shouldCompress(result: Result) = isAllowedContent(result.header) &&
     isNotAlreadyCompressed(result.header) &&
-    !result.body.isKnownEmpty
+    !result.body.isKnownEmpty &&
+    isNotTooSmall(result.body)
 
   /**
    * Certain response codes are forbidden by the HTTP spec to contain content, but a gzipped response always contains
@@ -146,8 +242,13 @@ class GzipFilter @Inject() (config: GzipFilterConfig)(implicit mat: Materializer
    */
   private def isNotAlreadyCompressed(header: ResponseHeader) = header.headers.get(CONTENT_ENCODING).isEmpty
 
-  private def setupHeader(header: Map[String, String]): Map[String, String] = {
-    header + (CONTENT_ENCODING -> "gzip") + addToVaryHeader(header, VARY, ACCEPT_ENCODING)
+  /**
+   * Small bodies gain little from compression, and may even get bigger
+   */
+  private def isNotTooSmall(body: HttpEntity) = body.contentLength.forall(_ >= config.minimumSize)
+
+  private def setupHeader(header: Map[String, String], encoder: ContentEncoder): Map[String, String] = {
+    header + (CONTENT_ENCODING -> encoder.name) + addToVaryHeader(header, VARY, ACCEPT_ENCODING)
   }
 
   /**
@@ -169,10 +270,29 @@ class GzipFilter @Inject() (config: GzipFilterConfig)(implicit mat: Materializer
  * @param chunkedThreshold The content length threshold, after which the filter will switch to chunking the result.
  * @param shouldGzip Whether the given request/result should be gzipped.  This can be used, for example, to implement
  *                   black/white lists for gzipping by content type.
+ * @param compressionLevel The compression level, or -1 for the default level of each content coding.  For gzip and
+ *                         deflate, levels range from 0 to 9.
+ * @param routeCompressionLevel The compression level to use for the given request/result, if it should differ from
+ *                              the configured level.  This can be used, for example, to compress a route's responses
+ *                              harder by matching on the `Router.Tags.RoutePattern` tag of the request.
+ * @param cacheMaxSize The maximum total size of the compressed bodies held by the compression cache, in bytes.  If
+ *                     zero, the cache is disabled.
+ * @param encoders The content codings that responses may be compressed with, in order of preference.
+ * @param contentTypeLevels Compression levels by content type, overriding the compression level.  The keys are either
+ *                          media types, such as `application/json`, or a type with a wildcard subtype, such as
+ *                          `text/&#42;`.
+ * @param minimumSize The content length below which responses aren't compressed.  Responses that don't define a
+ *                    content length are always compressed.
  */
 case class GzipFilterConfig(bufferSize: Int = 8192,
     chunkedThreshold: Int = 102400,
-    shouldGzip: (RequestHeader, Result) => Boolean = (_, _) => true) {
+    shouldGzip: (RequestHeader, Result) => Boolean = (_, _) => true,
+    compressionLevel: Int = -1,
+    routeCompressionLevel: (RequestHeader, Result) => Option[Int] = (_, _) => None,
+    cacheMaxSize: Long = 0,
+    encoders: Seq[ContentEncoder] = Seq(ContentEncoder.gzip),
+    contentTypeLevels: Map[String, Int] = Map.empty,
+    minimumSize: Long = 0) {
 }
 
 object GzipFilterConfig {
@@ -181,7 +301,16 @@ object GzipFilterConfig {
 
     GzipFilterConfig(
       bufferSize = config.get[ConfigMemorySize]("bufferSize").toBytes.toInt,
-      chunkedThreshold = config.get[ConfigMemorySize]("chunkedThreshold").toBytes.toInt
+      chunkedThreshold = config.get[ConfigMemorySize]("chunkedThreshold").toBytes.toInt,
+      compressionLevel = config.get[Int]("compressionLevel"),
+      cacheMaxSize = if (config.get[Boolean]("cache.enabled")) config.get[ConfigMemorySize]("cache.maxSize").toBytes else 0,
+      encoders = config.get[Seq[String]]("encodings").map { name =>
+        ContentEncoder.builtIn.getOrElse(name, throw config.reportError("encodings", s"Unknown content coding: $name"))
+      },
+      contentTypeLevels = config.get[Config]("contentTypeLevels").root.asScala.map {
+        case (contentType, level) => contentType -> level.atKey("level").getInt("level")
+      }.toMap,
+      minimumSize = config.get[ConfigMemorySize]("minimumSize").toBytes
     )
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.filters.csrf
+
+import akka.util.ByteString
+import org.specs2.mutable.Specification
+
+object BodyTokenLocatorSpec extends Specification {
+
+  // Scan the body in chunks of every size, to check that the token is found wherever the chunks are split
+  def locate(locator: => BodyTokenLocator, body: String): Set[Option[String]] = {
+    (1 to body.length).map { size =>
+      val l = locator
+      ByteString(body).grouped(size).foldLeft(Option.empty[String]) { (token, chunk) =>
+        token orElse l.scan(chunk)
+      } orElse l.finish()
+    }.toSet
+  }
+
+  "FormUrlEncodedTokenLocator" should {
+    def form = new FormUrlEncodedTokenLocator("csrfToken", "utf-8")
+
+    "find the token" in {
+      locate(form, "foo=bar&csrfToken=abc&baz=qux") must_== Set(Some("abc"))
+    }
+    "find the token at the end of the body" in {
+      locate(form, "foo=bar&csrfToken=abc") must_== Set(Some("abc"))
+    }
+    "decode the token name and value" in {
+      locate(form, "foo=bar&csrf%54oken=a+b%2Fc") must_== Set(Some("a b/c"))
+    }
+    "not find the token in values or other names" in {
+      locate(form, "foo=csrfToken%3Dabc&xcsrfToken=abc&csrfTokenx=abc") must_== Set(None)
+    }
+  }
+
+  "MultipartTokenLocator" should {
+    def multipart = new MultipartTokenLocator("boundary", "csrfToken")
+    def part(headers: String, value: String) = s"--boundary\r\n$headers\r\n\r\n$value\r\n"
+
+    "find the token" in {
+      locate(multipart, "preamble\r\n" +
+        part("Content-Disposition: form-data; name=\"foo\"", "bar") +
+        part("Content-Disposition: form-data; name=\"csrfToken\"", "abc") +
+        "--boundary--\r\n") must_== Set(Some("abc"))
+    }
+    "find the token after a file" in {
+      locate(multipart,
+        part("Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\nContent-Type: text/plain", "--bound\r\n") +
+          part("content-disposition: form-data; name=csrfToken", "abc") +
+          "--boundary--\r\n") must_== Set(Some("abc"))
+    }
+    "not find the token in files" in {
+      locate(multipart,
+        part("Content-Disposition: form-data; name=\"csrfToken\"; filename=\"csrfToken\"", "abc") +
+          "--boundary--\r\n") must_== Set(None)
+    }
+    "not find a token that isn't followed by a delimiter" in {
+      locate(multipart, part("Content-Disposition: form-data; name=\"csrfToken\"", "abc")) must_== Set(None)
+    }
+    "not find the token after the close delimiter" in {
+      locate(multipart, "--boundary--\r\n" +
+        part("Content-Disposition: form-data; name=\"csrfToken\"", "abc") +
+        "--boundary--\r\n") must_== Set(None)
+    }
+  }
+}
@@ -38,14 +38,13 @@ trait CSRFCommonSpecs extends Specification with PlaySpecification {
         .post(Map("foo" -> "bar", TokenName -> token))
       )(_.status must_== OK)
     }
-    /* TODO: write multipart/form-data Writable
-    "accept requests with a session token and token in multipart body" in {
+    "accept requests with token in multipart body" in {
       lazy val token = generate
-      makeRequest(_.withSession(TokenName -> token)
-        .post(Map("foo" -> "bar", TokenName -> token))
-      ).status must_== OK
+      csrfCheckRequest(req => addToken(req, token)
+        .withHeaders(CONTENT_TYPE -> MultipartContentType)
+        .post(multipartBody("foo" -> "bar", TokenName -> token))
+      )(_.status must_== OK)
     }
-    */
     "accept requests with token in header" in {
       lazy val token = generate
       csrfCheckRequest(req => addToken(req, token)
@@ -68,6 +67,12 @@ trait CSRFCommonSpecs extends Specification with PlaySpecification {
         .post(Map("foo" -> "bar", TokenName -> generate))
       )(_.status must_== errorStatusCode)
     }
+    "reject requests with different token in multipart body" in {
+      csrfCheckRequest(req => addToken(req, generate)
+        .withHeaders(CONTENT_TYPE -> MultipartContentType)
+        .post(multipartBody("foo" -> "bar", TokenName -> generate))
+      )(_.status must_== errorStatusCode)
+    }
     "reject requests with token in session but none elsewhere" in {
       csrfCheckRequest(req => addToken(req, generate)
         .post(Map("foo" -> "bar"))
@@ -231,6 +236,13 @@ trait CSRFCommonSpecs extends Specification with PlaySpecification {
     }
   }
 
+  val MultipartBoundary = "csrf-multipart-boundary"
+  val MultipartContentType = s"multipart/form-data; boundary=$MultipartBoundary"
+
+  def multipartBody(fields: (String, String)*): String = fields.map {
+    case (name, value) => s"--$MultipartBoundary\r\nContent-Disposition: form-data; name=" + '"' + name + '"' + s"\r\n\r\n$value\r\n"
+  }.mkString + s"--$MultipartBoundary--\r\n"
+
   implicit def simpleFormWriteable: Writeable[Map[String, String]] = Writeable.writeableOf_urlEncodedForm.map[Map[String, String]](_.mapValues(v => Seq(v)))
   implicit def simpleFormContentType: ContentTypeOf[Map[String, String]] = ContentTypeOf[Map[String, String]](Some(ContentTypes.FORM))
 
@@ -80,6 +80,42 @@ object CSRFFilterSpec extends CSRFCommonSpecs {
       }
     }
 
+    "feed a multipart body once a check has been done and passes" in {
+      withServer(Seq(
+        "play.http.filters" -> classOf[CsrfFilters].getName
+      )) {
+        case _ => Action(
+          _.body.asMultipartFormData
+            .flatMap(_.dataParts.get("foo"))
+            .flatMap(_.headOption)
+            .map(Results.Ok(_))
+            .getOrElse(Results.NotFound))
+      } {
+        val token = Crypto.generateSignedToken
+        import play.api.Play.current
+        await(WS.url("http://localhost:" + testServerPort).withSession(TokenName -> token)
+          .withHeaders(CONTENT_TYPE -> MultipartContentType)
+          .post(multipartBody(TokenName -> token, "foo" -> "bar"))).body must_== "bar"
+      }
+    }
+    "feed the rest of a body that is larger than the buffer once the token is found" in {
+      withServer(Seq(
+        "play.http.filters" -> classOf[CsrfFilters].getName,
+        "play.filters.csrf.body.bufferSize" -> "100"
+      )) {
+        case _ => Action(BodyParsers.parse.tolerantFormUrlEncoded(1024 * 1024))(
+          _.body.get("foo")
+            .flatMap(_.headOption)
+            .map(foo => Results.Ok(foo.length.toString))
+            .getOrElse(Results.NotFound))
+      } {
+        val token = Crypto.generateSignedToken
+        import play.api.Play.current
+        await(WS.url("http://localhost:" + testServerPort).withSession(TokenName -> token)
+          .post(Map(TokenName -> token, "foo" -> "x" * 100000))).body must_== "100000"
+      }
+    }
+
     val notBufferedFakeApp = FakeApplication(
       additionalConfiguration = Map(
         "play.crypto.secret" -> "foobar",
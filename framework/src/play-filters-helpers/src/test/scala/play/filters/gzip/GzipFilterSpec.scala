@@ -6,7 +6,7 @@ package play.filters.gzip
 import javax.inject.Inject
 
 import akka.stream.Materializer
-import akka.stream.scaladsl.Source
+import akka.stream.scaladsl.{ Flow, Source }
 import akka.util.ByteString
 import play.api.http.{ HttpEntity, HttpFilters }
 import play.api.inject._
@@ -15,7 +15,7 @@ import play.api.routing.Router
 import play.api.test._
 import play.api.mvc.{ Action, Result }
 import play.api.mvc.Results._
-import java.util.zip.GZIPInputStream
+import java.util.zip.{ GZIPInputStream, InflaterInputStream }
 import java.io.ByteArrayInputStream
 import org.apache.commons.io.IOUtils
 import scala.concurrent.Future
@@ -71,6 +71,7 @@ object GzipFilterSpec extends PlaySpecification with DataTables {
         "gzip;q=0.5, identity;q=1" !! plain |
         "gzip;q=0.6, identity;q=0.5" !! gzipped |
         "*;q=0.7, gzip;q=0.6, identity;q=0.4" !! gzipped |
+        "deflate;q=0.5, gzip;q=0.6, identity;q=0.4" !! gzipped |
         "" !! plain |> {
 
           (codings, expectedEncoding) =>
@@ -136,24 +137,168 @@ object GzipFilterSpec extends PlaySpecification with DataTables {
       checkGzipped(result)
       header(VARY, result) must beSome.which(header => header.split(",").filter(_.toLowerCase(java.util.Locale.ENGLISH) == ACCEPT_ENCODING.toLowerCase(java.util.Locale.ENGLISH)).size == 1)
     }
+
+    "gzip at the configured compression level" in withApplication(Ok(body * 10), config = Seq(
+      "play.filters.gzip.compressionLevel" -> 0)) { implicit mat =>
+      val result = makeGzipRequest
+      checkGzippedBody(result, body * 10)
+      contentAsBytes(result).length must be_>(body.getBytes("UTF-8").length * 10)
+    }
+
+    "not cache compressed responses by default" in withFilter(Ok("hello")) { (filter, mat) =>
+      implicit val materializer = mat
+      checkGzippedBody(makeGzipRequest, "hello")
+      checkGzippedBody(makeGzipRequest, "hello")
+      val stats = filter.stats
+      stats.compressionCount must_== 2
+      stats.cacheHits must_== 0
+      stats.cacheMisses must_== 0
+    }
+
+    "serve repeated responses from the compression cache when enabled" in withFilter(Ok(body), config = Seq(
+      "play.filters.gzip.cache.enabled" -> true)) { (filter, mat) =>
+      implicit val materializer = mat
+      checkGzippedBody(makeGzipRequest, body)
+      checkGzippedBody(makeGzipRequest, body)
+      checkGzippedBody(makeGzipRequest, body)
+      val stats = filter.stats
+      stats.compressionCount must_== 1
+      stats.cacheMisses must_== 1
+      stats.cacheHits must_== 2
+      stats.compressionTimeNanos must be_>(0L)
+    }
+
+    val withDeflate = Seq("play.filters.gzip.encodings" -> Seq("gzip", "deflate"))
+
+    "deflate responses when deflate is enabled and preferred" in withApplication(Ok("hello"), config = withDeflate) { implicit mat =>
+      val result = requestAccepting("gzip;q=0.5, deflate")
+      header(CONTENT_ENCODING, result) must beSome("deflate")
+      inflate(contentAsBytes(result)) must_== "hello"
+    }
+
+    "prefer the first configured coding when codings are equally preferred" in withApplication(Ok("hello"), config = withDeflate) { implicit mat =>
+      header(CONTENT_ENCODING, requestAccepting("deflate, gzip")) must beSome("gzip")
+      header(CONTENT_ENCODING, requestAccepting("*")) must beSome("gzip")
+    }
+
+    "deflate chunked responses" in withApplication(Ok.chunked(Source(List("foo", "bar"))), config = withDeflate) { implicit mat =>
+      val result = requestAccepting("deflate")
+      header(CONTENT_ENCODING, result) must beSome("deflate")
+      inflate(contentAsBytes(result)) must_== "foobar"
+    }
+
+    "not deflate responses by default" in withApplication(Ok("hello")) { implicit mat =>
+      checkNotGzipped(requestAccepting("deflate"), "hello")
+    }
+
+    "not compress responses smaller than the minimum size" in withApplication(Ok("hello"), config = Seq(
+      "play.filters.gzip.minimumSize" -> 6)) { implicit mat =>
+      checkNotGzipped(makeGzipRequest, "hello")
+    }
+
+    "compress responses of the minimum size" in withApplication(Ok("hello"), config = Seq(
+      "play.filters.gzip.minimumSize" -> 5)) { implicit mat =>
+      checkGzippedBody(makeGzipRequest, "hello")
+    }
+
+    "compress at the level configured for the content type" in withApplication(Ok(body * 10), config = Seq(
+      "play.filters.gzip.contentTypeLevels.\"text/*\"" -> 0)) { implicit mat =>
+      val result = makeGzipRequest
+      checkGzippedBody(result, body * 10)
+      contentAsBytes(result).length must be_>(body.getBytes("UTF-8").length * 10)
+    }
+
+    "ignore invalid route compression levels" in withApplication(Ok("hello")) { implicit mat =>
+      val filter = new GzipFilter(GzipFilterConfig(routeCompressionLevel = (_, _) => Some(42)))
+      checkGzippedBody(call(filter(Action(Ok("hello"))), gzipRequest), "hello")
+    }
+
+    "compress with custom encoders" in withApplication(Ok("hello")) { implicit mat =>
+      val reverse = new ContentEncoder {
+        def name = "reverse"
+        def defaultLevel = 0
+        def isValidLevel(level: Int) = level == 0
+        def compress(data: ByteString, level: Int, bufferSize: Int) = data.reverse
+        def flow(level: Int, bufferSize: Int) = Flow[ByteString].map(_.reverse)
+      }
+      val filter = new GzipFilter(GzipFilterConfig(encoders = Seq(ContentEncoder.gzip, reverse)))
+      val result = call(filter(Action(Ok("hello"))), FakeRequest().withHeaders(ACCEPT_ENCODING -> "reverse"))
+      header(CONTENT_ENCODING, result) must beSome("reverse")
+      contentAsString(result) must_== "olleh"
+    }
+  }
+
+  "The GzipCache" should {
+
+    "evict the least recently used bodies once it exceeds its maximum size" in {
+      val cache = new GzipCache(10)
+      def key(data: String) = cache.key(ByteString(data), "gzip", -1)
+      val (a, b, c) = (key("a"), key("b"), key("c"))
+      cache.put(a, ByteString("aaaa"))
+      cache.put(b, ByteString("bbbb"))
+      cache.get(a) must beSome(ByteString("aaaa"))
+      cache.put(c, ByteString("cccc"))
+      cache.get(b) must beNone
+      cache.get(a) must beSome(ByteString("aaaa"))
+      cache.get(c) must beSome(ByteString("cccc"))
+      cache.currentSize must_== 8
+    }
+
+    "key bodies by their content, coding and compression level" in {
+      val cache = new GzipCache(10)
+      cache.key(ByteString("a") ++ ByteString("b"), "gzip", -1) must_== cache.key(ByteString("ab"), "gzip", -1)
+      cache.key(ByteString("ab"), "gzip", -1) must_!= cache.key(ByteString("ab"), "gzip", 9)
+      cache.key(ByteString("ab"), "gzip", -1) must_!= cache.key(ByteString("ab"), "deflate", -1)
+      cache.key(ByteString("ab"), "gzip", -1) must_!= cache.key(ByteString("ba"), "gzip", -1)
+    }
+
+    "not cache bodies larger than its maximum size" in {
+      val cache = new GzipCache(3)
+      val key = cache.key(ByteString("a"), "gzip", -1)
+      cache.put(key, ByteString("aaaa"))
+      cache.get(key) must beNone
+    }
+  }
+
+  "The built in encoders" should {
+
+    val data = ByteString(Random.nextString(5000), "UTF-8")
+
+    "gzip data with reused deflaters" in {
+      gunzip(ContentEncoder.gzip.compress(data, -1, 512)) must_== data.utf8String
+      gunzip(ContentEncoder.gzip.compress(ByteString("hello"), -1, 512)) must_== "hello"
+      gunzip(ContentEncoder.gzip.compress(ByteString.empty, 9, 512)) must_== ""
+    }
+
+    "deflate data with reused deflaters" in {
+      inflate(ContentEncoder.deflate.compress(data, -1, 512)) must_== data.utf8String
+      inflate(ContentEncoder.deflate.compress(ByteString("hello"), -1, 512)) must_== "hello"
+      inflate(ContentEncoder.deflate.compress(ByteString.empty, 9, 512)) must_== ""
+    }
   }
 
   class Filters @Inject() (gzipFilter: GzipFilter) extends HttpFilters {
     def filters = Seq(gzipFilter)
   }
 
-  def withApplication[T](result: Result, chunkedThreshold: Int = 1024)(block: Materializer => T): T = {
+  def withApplication[T](result: Result, chunkedThreshold: Int = 1024,
+    config: Seq[(String, Any)] = Nil)(block: Materializer => T): T = {
+    withFilter(result, chunkedThreshold, config)((_, mat) => block(mat))
+  }
+
+  def withFilter[T](result: Result, chunkedThreshold: Int = 1024,
+    config: Seq[(String, Any)] = Nil)(block: (GzipFilter, Materializer) => T): T = {
     val application = new GuiceApplicationBuilder()
       .configure(
         "play.filters.gzip.chunkedThreshold" -> chunkedThreshold,
         "play.filters.gzip.bufferSize" -> 512
-      ).overrides(
+      ).configure(config: _*).overrides(
           bind[Router].to(Router.from {
             case _ => Action(result)
           }),
           bind[HttpFilters].to[Filters]
         ).build
-    running(application)(block(application.materializer))
+    running(application)(block(application.injector.instanceOf[GzipFilter], application.materializer))
   }
 
   def gzipRequest = FakeRequest().withHeaders(ACCEPT_ENCODING -> "gzip")
@@ -169,6 +314,13 @@ object GzipFilterSpec extends PlaySpecification with DataTables {
     result
   }
 
+  def inflate(bytes: ByteString): String = {
+    val is = new InflaterInputStream(new ByteArrayInputStream(bytes.toArray))
+    val result = IOUtils.toString(is, "UTF-8")
+    is.close()
+    result
+  }
+
   def checkGzipped(result: Future[Result]) = {
     header(CONTENT_ENCODING, result) aka "Content encoding header" must beSome("gzip")
   }
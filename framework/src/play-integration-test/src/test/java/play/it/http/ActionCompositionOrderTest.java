@@ -11,6 +11,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ActionCompositionOrderTest {
 
@@ -57,4 +58,33 @@ public class ActionCompositionOrderTest {
             return delegate.call(ctx.withRequest(ctx.request().withUsername(configuration.value())));
         }
     }
-}
\ No newline at end of file
+
+    @With(StatefulAction.class)
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Stateful {}
+
+    static class StatefulAction extends Action<Stateful> {
+        static final AtomicInteger instances = new AtomicInteger();
+        private final int instance = instances.incrementAndGet();
+        @Override
+        public F.Promise<Result> call(Http.Context ctx) {
+            return F.Promise.pure(Results.ok(String.valueOf(instance)));
+        }
+    }
+
+    @With(SingletonAction.class)
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface SingletonScoped {}
+
+    @javax.inject.Singleton
+    static class SingletonAction extends Action<SingletonScoped> {
+        static final AtomicInteger instances = new AtomicInteger();
+        private final int instance = instances.incrementAndGet();
+        @Override
+        public F.Promise<Result> call(Http.Context ctx) {
+            return F.Promise.pure(Results.ok(String.valueOf(instance)));
+        }
+    }
+}
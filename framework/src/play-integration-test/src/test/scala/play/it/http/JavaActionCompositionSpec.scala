@@ -3,12 +3,16 @@ package play.it.http
 import play.api.Application
 import play.api.libs.ws.WSResponse
 import play.api.test.{ WsTestClient, TestServer, FakeApplication, PlaySpecification }
-import play.it.http.ActionCompositionOrderTest.{ WithUsername, ActionAnnotation, ControllerAnnotation }
+import play.it.http.ActionCompositionOrderTest.{ WithUsername, ActionAnnotation, ControllerAnnotation, Stateful, StatefulAction, SingletonScoped, SingletonAction }
 import play.mvc.{ Results, Result }
 
 object JavaActionCompositionSpec extends PlaySpecification with WsTestClient {
 
   def makeRequest[T](controller: MockController, configuration: Map[String, _ <: Any] = Map.empty)(block: WSResponse => T) = {
+    makeRequests(controller, 1, configuration)(responses => block(responses.head))
+  }
+
+  def makeRequests[T](controller: MockController, count: Int, configuration: Map[String, _ <: Any] = Map.empty)(block: Seq[WSResponse] => T) = {
     implicit val port = testServerPort
     lazy val app: Application = FakeApplication(
       withRoutes = {
@@ -18,8 +22,8 @@ object JavaActionCompositionSpec extends PlaySpecification with WsTestClient {
     )
 
     running(TestServer(port, app)) {
-      val response = await(wsUrl("/").get())
-      block(response)
+      val responses = (0 until count).map(_ => await(wsUrl("/").get()))
+      block(responses)
     }
   }
 
@@ -68,6 +72,22 @@ object JavaActionCompositionSpec extends PlaySpecification with WsTestClient {
     }) { response =>
       response.body must_== "foo"
     }
+
+    "create actions for each request" in makeRequests(new MockController {
+      @Stateful
+      def action = Results.ok()
+    }, 2) { responses =>
+      val first = StatefulAction.instances.get
+      responses.map(_.body) must_== Seq(first - 1, first).map(_.toString)
+    }
+
+    "create singleton actions for each request" in makeRequests(new MockController {
+      @SingletonScoped
+      def action = Results.ok()
+    }, 2) { responses =>
+      val first = SingletonAction.instances.get
+      responses.map(_.body) must_== Seq(first - 1, first).map(_.toString)
+    }
   }
 
 }
@@ -60,6 +60,37 @@ class JavaRequestsSpec extends PlaySpecification with Mockito {
       cookieList(0).value must be equalTo "value1"
     }
 
+    "create a request with memoized read-only views of the headers and query string" in {
+      val requestHeader: RequestHeader = FakeRequest("GET", "/?a=1&a=2&b=3").withHeaders("X-Foo" -> "bar")
+      val javaRequest: Http.Request = new RequestImpl(requestHeader)
+
+      javaRequest.headers() must beTheSameAs(javaRequest.headers())
+      javaRequest.queryString() must beTheSameAs(javaRequest.queryString())
+      javaRequest.queryString().get("a") must_== Array("1", "2")
+      javaRequest.getQueryString("a") must_== "1"
+      javaRequest.getQueryString("c") must beNull
+      javaRequest.hasHeader("x-foo") must beTrue
+      javaRequest.headers().put("X-Bar", Array("baz")) must throwA[UnsupportedOperationException]
+      javaRequest.queryString().remove("a") must throwA[UnsupportedOperationException]
+    }
+
+    "create a context that only copies the session and flash back to the result when they are modified" in new WithApplication() {
+      val requestHeader: Request[Http.RequestBody] = Request[Http.RequestBody](
+        FakeRequest().withSession("user" -> "foo").withFlash("message" -> "hello"), new RequestBody())
+      val javaContext: Context = JavaHelpers.createJavaContext(requestHeader)
+
+      javaContext._isSessionDirty must beFalse
+      JavaHelpers.createResult(javaContext, play.mvc.Results.ok()).header.headers.get(SET_COOKIE) must beNone
+
+      javaContext.session().get("user") must_== "foo"
+      javaContext._isSessionDirty must beFalse
+      javaContext.flash().put("message", "goodbye")
+      javaContext._isFlashDirty must beTrue
+      val result = JavaHelpers.createResult(javaContext, play.mvc.Results.ok())
+      result.header.headers.get(SET_COOKIE) must beSome(contain("PLAY_FLASH"))
+      result.header.headers.get(SET_COOKIE) must beSome(not(contain("PLAY_SESSION")))
+    }
+
   }
 
 }
@@ -10,7 +10,7 @@ import play.api.libs.ws.WSResponse
 import play.it._
 import play.libs.EventSource
 import play.libs.EventSource.Event
-import play.mvc.Results
+import play.mvc.{ RangeResults, Results }
 import play.mvc.Results.Chunks
 import scala.util.{ Failure, Success, Try }
 
@@ -55,6 +55,14 @@ trait JavaResultsHandlingSpec extends PlaySpecification with WsTestClient with S
       response.body must_== "Hello world"
     }
 
+    "send range results" in makeRequest(new MockController {
+      def action = RangeResults.ofBytes("Hello world".getBytes("UTF-8"), "text/plain")
+    }) { response =>
+      response.header(ACCEPT_RANGES) must beSome("bytes")
+      response.header(CONTENT_LENGTH) must beSome("11")
+      response.body must_== "Hello world"
+    }
+
     "chunk results that are streamed" in makeRequest(new MockController {
       def action = {
         Results.ok(new Results.StringChunks() {
@@ -3,7 +3,7 @@
  */
 package play.it.http
 
-import akka.stream.scaladsl.Sink
+import akka.stream.scaladsl.{ Flow, Keep, Sink }
 import akka.util.ByteString
 import play.api.libs.streams.{ Streams, Accumulator }
 import play.api.mvc._
@@ -47,6 +47,32 @@ trait RequestBodyHandlingSpec extends PlaySpecification with ServerIntegrationSp
       responses(1).status must_== 200
     }
 
+    "pass the whole body to the accumulator" in withServer(EssentialAction { rh =>
+      Accumulator(Sink.fold[ByteString, ByteString](ByteString.empty)(_ ++ _)).map(body => Results.Ok(body.utf8String))
+    }) { port =>
+      val body = new String(Random.alphanumeric.take(50 * 1024).toArray)
+      val responses = BasicHttpClient.makeRequests(port, trickleFeed = Some(100L))(
+        BasicRequest("POST", "/", "HTTP/1.1", Map("Content-Length" -> body.length.toString), body)
+      )
+      responses.length must_== 1
+      responses(0).status must_== 200
+      responses(0).body must beLeft(body)
+    }
+
+    "gracefully handle early cancellation of the body" in withServer(EssentialAction { rh =>
+      Accumulator(Flow[ByteString].take(1).toMat(Sink.fold(())((_, _) => ()))(Keep.right)).map(_ => Results.Ok)
+    }) { port =>
+      val body = new String(Random.alphanumeric.take(50 * 1024).toArray)
+      val responses = BasicHttpClient.makeRequests(port, trickleFeed = Some(100L))(
+        BasicRequest("POST", "/", "HTTP/1.1", Map("Content-Length" -> body.length.toString), body),
+        // Second request ensures that Play switches back to its normal handler
+        BasicRequest("GET", "/", "HTTP/1.1", Map(), "")
+      )
+      responses.length must_== 2
+      responses(0).status must_== 200
+      responses(1).status must_== 200
+    }
+
     "gracefully handle early body parser termination" in withServer(EssentialAction { rh =>
       Streams.iterateeToAccumulator(
         Traversable.takeUpTo[ByteString](20 * 1024) &>> Iteratee.ignore[ByteString].map(_ => Results.Ok)
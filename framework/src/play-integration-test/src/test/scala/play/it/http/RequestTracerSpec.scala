@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.it.http
+
+import java.util.concurrent.{ LinkedBlockingQueue, TimeUnit }
+import javax.inject.Singleton
+
+import akka.stream.scaladsl.Source
+import akka.util.ByteString
+import play.api.Application
+import play.api.http.HttpEntity
+import play.api.mvc._
+import play.api.test._
+import play.core.server.{ HistogramRequestTracer, RequestTimings, RequestTracer }
+import play.it._
+
+object NettyRequestTracerSpec extends RequestTracerSpec with NettyIntegrationSpecification
+object AkkaHttpRequestTracerSpec extends RequestTracerSpec with AkkaHttpIntegrationSpecification
+
+@Singleton
+class RecordingRequestTracer extends RequestTracer {
+  val completed = new LinkedBlockingQueue[(RequestHeader, RequestTimings)]
+  def requestCompleted(request: RequestHeader, timings: RequestTimings) = completed.add((request, timings))
+  def next(): (RequestHeader, RequestTimings) = completed.poll(10, TimeUnit.SECONDS)
+}
+
+trait RequestTracerSpec extends PlaySpecification with ServerIntegrationSpecification {
+
+  sequential
+
+  "Play request tracing" should {
+
+    def withServer[T](tracer: Class[_ <: RequestTracer])(block: (Port, Application) => T) = {
+      val port = testServerPort
+      val app = FakeApplication(
+        additionalConfiguration = Map("play.server.requestTracer" -> tracer.getName),
+        withRoutes = {
+          case ("GET", "/streamed") => Action {
+            Results.Ok.sendEntity(HttpEntity.Streamed(Source(List("a", "bc", "def").map(ByteString(_))), None, None))
+          }
+          case _ => Action(BodyParsers.parse.raw) { request =>
+            Results.Ok("received " + request.body.size)
+          }
+        }
+      )
+      running(TestServer(port, app)) {
+        block(port, app)
+      }
+    }
+
+    def recordedBy(app: Application) = app.injector.instanceOf[RecordingRequestTracer]
+
+    "report the timings of a request" in withServer(classOf[RecordingRequestTracer]) { (port, app) =>
+      val body = "x" * 1000
+      val responses = BasicHttpClient.makeRequests(port)(
+        BasicRequest("POST", "/upload", "HTTP/1.1", Map("Content-Length" -> body.length.toString), body)
+      )
+      responses(0).body must beLeft("received 1000")
+
+      val (request, timings) = recordedBy(app).next()
+      request.path must_== "/upload"
+      timings.status must_== 200
+      timings.requestBytes must_== 1000
+      timings.responseBytes must_== "received 1000".length
+      timings.received must be_<=(timings.routed)
+      timings.routed must be_<=(timings.invoked)
+      timings.invoked must be_<=(timings.bodyReceived)
+      timings.bodyReceived must be_<=(timings.resultReady)
+      timings.resultReady must be_<=(timings.responseSent)
+      timings.phases.map(_._1) must_== RequestTimings.Phases
+    }
+
+    "count the bytes of a streamed response" in withServer(classOf[RecordingRequestTracer]) { (port, app) =>
+      val responses = BasicHttpClient.makeRequests(port)(
+        BasicRequest("GET", "/streamed", "HTTP/1.1", Map(), "")
+      )
+      responses(0).body must beLeft("abcdef")
+
+      val (_, timings) = recordedBy(app).next()
+      timings.responseBytes must_== 6
+      timings.resultReady must be_<=(timings.responseSent)
+    }
+
+    "record the timings in histograms" in withServer(classOf[HistogramRequestTracer]) { (port, app) =>
+      BasicHttpClient.makeRequests(port)(
+        BasicRequest("GET", "/", "HTTP/1.1", Map(), ""),
+        BasicRequest("GET", "/", "HTTP/1.1", Map(), "")
+      )
+      val tracer = app.injector.instanceOf[HistogramRequestTracer]
+      // The timings are reported once the response has been sent, which may be after the client has received it
+      val deadline = System.currentTimeMillis + 10000
+      while (tracer.histogram(RequestTimings.Total).count < 2 && System.currentTimeMillis < deadline) Thread.sleep(10)
+      tracer.histogram(RequestTimings.Total).count must_== 2
+      tracer.report() must contain("total")
+    }
+  }
+}
@@ -44,6 +44,16 @@ trait ScalaResultsHandlingSpec extends PlaySpecification with WsTestClient with
       }
     }
 
+    def withTempFile[T](content: String)(block: java.io.File => T) = {
+      val file = java.io.File.createTempFile("file-region", ".txt")
+      try {
+        java.nio.file.Files.write(file.toPath, content.getBytes("US-ASCII"))
+        block(file)
+      } finally {
+        file.delete()
+      }
+    }
+
     "add Date header" in makeRequest(Results.Ok("Hello world")) { response =>
       response.header(DATE) must beSome
     }
@@ -61,6 +71,20 @@ trait ScalaResultsHandlingSpec extends PlaySpecification with WsTestClient with
         response.body must_== "abcdefghi"
       }
 
+    "send file regions with a Content-Length" in withTempFile("0123456789") { file =>
+      makeRequest(Results.Ok.sendEntity(HttpEntity.FileRegion(file.toPath, 2, 5, Some("text/plain")))) { response =>
+        response.header(CONTENT_LENGTH) must beSome("5")
+        response.body must_== "23456"
+      }
+    }
+
+    "send file regions that are larger than a chunk" in withTempFile("0123456789" * 10000) { file =>
+      makeRequest(Results.Ok.sendEntity(HttpEntity.FileRegion(file.toPath, 0, file.length, None))) { response =>
+        response.header(CONTENT_LENGTH) must beSome("100000")
+        response.body must_== "0123456789" * 10000
+      }
+    }
+
     "chunk results for chunked streaming strategy" in makeRequest(
       Results.Ok.chunked(Enumerator("a", "b", "c"))
     ) { response =>
@@ -48,6 +48,47 @@ trait AssetsSpec extends PlaySpecification
       result.header(CACHE_CONTROL) must_== defaultCacheControl
     }
 
+    "serve an asset with its content length" in withServer { client =>
+      val result = await(client.url("/bar.txt").get())
+
+      result.status must_== OK
+      result.header(CONTENT_LENGTH) must beSome("21")
+      result.body must_== "This is a test asset."
+    }
+
+    "serve a range of an asset" in withServer { client =>
+      val result = await(client.url("/bar.txt").withHeaders(RANGE -> "bytes=10-13").get())
+
+      result.status must_== PARTIAL_CONTENT
+      result.header(CONTENT_RANGE) must beSome("bytes 10-13/21")
+      result.header(CONTENT_LENGTH) must beSome("4")
+      result.header(ETAG) must beSome(matching(etagPattern))
+      result.body must_== "test"
+    }
+
+    "serve a range of an asset when If-Range matches its etag" in withServer { client =>
+      val etag = await(client.url("/bar.txt").get()).header(ETAG).get
+      val result = await(client.url("/bar.txt").withHeaders(RANGE -> "bytes=-6", IF_RANGE -> etag).get())
+
+      result.status must_== PARTIAL_CONTENT
+      result.body must_== "asset."
+    }
+
+    "serve the whole asset when If-Range doesn't match" in withServer { client =>
+      val result = await(client.url("/bar.txt").withHeaders(RANGE -> "bytes=-6", IF_RANGE -> "\"foo\"").get())
+
+      result.status must_== OK
+      result.header(ACCEPT_RANGES) must beSome("bytes")
+      result.body must_== "This is a test asset."
+    }
+
+    "return requested range not satisfiable for ranges after the end of an asset" in withServer { client =>
+      val result = await(client.url("/bar.txt").withHeaders(RANGE -> "bytes=100-").get())
+
+      result.status must_== REQUESTED_RANGE_NOT_SATISFIABLE
+      result.header(CONTENT_RANGE) must beSome("bytes */21")
+    }
+
     "serve an asset in a subdirectory" in withServer { client =>
       val result = await(client.url("/subdir/baz.txt").get())
 
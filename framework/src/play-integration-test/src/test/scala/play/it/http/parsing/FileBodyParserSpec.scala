@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.it.http.parsing
+
+import java.io.File
+
+import akka.stream.Materializer
+import akka.stream.scaladsl.Source
+import akka.util.ByteString
+import org.apache.commons.io.FileUtils
+import play.api.test._
+import play.api.mvc.BodyParsers
+
+object FileBodyParserSpec extends PlaySpecification {
+
+  "The file body parser" should {
+
+    def parse(file: File, chunks: String*)(implicit mat: Materializer) = {
+      await(
+        BodyParsers.parse.file(file)(FakeRequest())
+          .run(Source(chunks.map(ByteString.apply).toList))
+      )
+    }
+
+    "write the body to the file" in new WithApplication() {
+      val file = File.createTempFile("FileBodyParserSpec", ".txt")
+      try {
+        parse(file, "foo", "bar") must beRight(file)
+        FileUtils.readFileToString(file, "utf-8") must_== "foobar"
+      } finally {
+        file.delete()
+      }
+    }
+
+    "write an empty file for an empty body" in new WithApplication() {
+      val file = File.createTempFile("FileBodyParserSpec", ".txt")
+      try {
+        FileUtils.writeStringToFile(file, "previous content")
+        parse(file) must beRight(file)
+        file.length must_== 0
+      } finally {
+        file.delete()
+      }
+    }
+
+  }
+}
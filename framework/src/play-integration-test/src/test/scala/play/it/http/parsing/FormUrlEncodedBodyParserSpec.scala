@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.it.http.parsing
+
+import akka.stream.Materializer
+import akka.stream.scaladsl.Source
+import akka.util.ByteString
+import play.api.test._
+import play.api.mvc.{ BodyParser, BodyParsers }
+
+object FormUrlEncodedBodyParserSpec extends PlaySpecification {
+
+  "The form url encoded body parser" should {
+
+    def parse(chunks: Seq[ByteString], contentType: Option[String] = Some("application/x-www-form-urlencoded"),
+      bodyParser: BodyParser[Map[String, Seq[String]]] = BodyParsers.parse.urlFormEncoded)(implicit mat: Materializer) = {
+      await(
+        bodyParser(FakeRequest().withHeaders(contentType.map(CONTENT_TYPE -> _).toSeq: _*))
+          .run(Source(chunks.toList))
+      )
+    }
+
+    "parse form url encoded bodies" in new WithApplication() {
+      parse(Seq(ByteString("foo=bar&foo=baz&a%20b=c+d"))) must beRight(
+        Map("foo" -> Seq("bar", "baz"), "a b" -> Seq("c d")))
+    }
+
+    "parse bodies split into chunks" in new WithApplication() {
+      parse(ByteString("foo=bar&x=%C3%A9").grouped(2).toSeq) must beRight(Map("foo" -> Seq("bar"), "x" -> Seq("é")))
+    }
+
+    "honour the declared charset" in new WithApplication() {
+      parse(Seq(ByteString("x=%E9")), Some("application/x-www-form-urlencoded; charset=iso-8859-1")) must beRight(
+        Map("x" -> Seq("é")))
+    }
+
+    "return bad request for malformed bodies" in new WithApplication() {
+      parse(Seq(ByteString("foo=%zz"))) must beLeft.like {
+        case error => error.header.status must_== BAD_REQUEST
+      }
+    }
+
+    "return entity too large for bodies longer than the max length" in new WithApplication() {
+      parse(Seq(ByteString("foo=bar"), ByteString("&foo=baz")), bodyParser = BodyParsers.parse.urlFormEncoded(10)) must beLeft.like {
+        case error => error.header.status must_== REQUEST_ENTITY_TOO_LARGE
+      }
+    }
+
+    "return bad request for bodies with too many fields" in new WithApplication(FakeApplication(
+      additionalConfiguration = Map("play.http.parser.maxFormFields" -> "2")
+    )) {
+      parse(Seq(ByteString("a=1&b=2&c=3"))) must beLeft.like {
+        case error => error.header.status must_== BAD_REQUEST
+      }
+    }
+
+    "reject non form url encoded content types" in new WithApplication() {
+      parse(Seq(ByteString("foo=bar")), Some("text/plain")) must beLeft
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.it.http.parsing
+
+import akka.stream.Materializer
+import akka.stream.scaladsl.Source
+import akka.util.ByteString
+import play.api.libs.JsonStream
+import play.api.libs.json._
+import play.api.test._
+import play.api.mvc.BodyParsers
+
+object JsonStreamBodyParserSpec extends PlaySpecification {
+
+  "The JSON stream body parser" should {
+
+    def values(chunks: Seq[String], contentType: Option[String], maxElementLength: Int = 1024)(implicit mat: Materializer) = {
+      val source = await(
+        BodyParsers.parse.jsonStream(maxElementLength)(FakeRequest().withHeaders(contentType.map(CONTENT_TYPE -> _).toSeq: _*))
+          .run(Source(chunks.map(ByteString(_)).toList))
+      ).right.get
+      await(source.runFold(Seq.empty[JsValue])(_ :+ _))
+    }
+
+    "parse the elements of a JSON array" in new WithApplication() {
+      values(Seq("""[{"a":1}, "b"""", """, [2]]"""), Some("application/json")) must_== Seq(Json.obj("a" -> 1), JsString("b"), Json.arr(2))
+    }
+
+    "parse newline delimited JSON" in new WithApplication() {
+      values(Seq("{\"a\":1}\n\"b", "\"\n[2]\n"), Some("application/x-ndjson")) must_== Seq(Json.obj("a" -> 1), JsString("b"), Json.arr(2))
+    }
+
+    "fail the source for invalid JSON" in new WithApplication() {
+      values(Seq("""[{"a":1}, """, """{"b" 2}]"""), Some("application/json")) must throwA[Exception]
+    }
+
+    "fail the source for elements that are too long" in new WithApplication() {
+      values(Seq("""["abcdef", "ab""", """cdefghijklmnop"]"""), Some("application/json"), maxElementLength = 10) must throwA[JsonStream.JsonFramingException]
+    }
+
+  }
+}
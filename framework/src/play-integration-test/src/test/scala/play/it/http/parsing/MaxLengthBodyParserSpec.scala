@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.it.http.parsing
+
+import akka.stream.Materializer
+import akka.stream.scaladsl.Source
+import akka.util.ByteString
+import play.api.test._
+import play.api.mvc.{ BodyParser, BodyParsers, MaxSizeExceeded, Results }
+
+import scala.concurrent.Future
+
+object MaxLengthBodyParserSpec extends PlaySpecification {
+
+  "The maxLength body parser" should {
+
+    def parse[A](maxLength: Long, parser: BodyParser[A], chunks: String*)(implicit mat: Materializer) = {
+      await(
+        BodyParsers.parse.maxLength(maxLength, parser).apply(FakeRequest())
+          .run(Source(chunks.map(ByteString.apply).toList))
+      )
+    }
+
+    "pass bodies within the limit to the wrapped parser" in new WithApplication() {
+      parse(10, BodyParsers.parse.tolerantText, "foo", "bar") must beRight(Right("foobar"))
+    }
+
+    "return max size exceeded for bodies over the limit" in new WithApplication() {
+      parse(5, BodyParsers.parse.tolerantText, "foo", "bar") must beRight(Left(MaxSizeExceeded(5)))
+    }
+
+    "return max size exceeded even if the wrapped parser has its own limit" in new WithApplication() {
+      parse(5, BodyParsers.parse.tolerantText(3), "foo", "bar") must beRight(Left(MaxSizeExceeded(5)))
+    }
+
+    "return the result of the wrapped parser when it fails" in new WithApplication() {
+      parse(10, BodyParsers.parse.error[String](Future.successful(Results.BadRequest)), "foo") must beLeft.like {
+        case result => result.header.status must_== BAD_REQUEST
+      }
+    }
+
+  }
+}
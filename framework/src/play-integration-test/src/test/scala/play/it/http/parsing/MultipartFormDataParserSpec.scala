@@ -6,8 +6,10 @@ package play.it.http.parsing
 import akka.stream.scaladsl.Source
 import akka.util.ByteString
 import play.api.libs.Files.TemporaryFile
+import play.api.libs.streams.Accumulator
 import play.api.mvc.{ Result, MultipartFormData, BodyParsers }
 import play.api.test._
+import play.core.parsers.Multipart
 import play.core.parsers.Multipart.FileInfoMatcher
 import play.utils.PlayIO
 
@@ -120,6 +122,55 @@ object MultipartFormDataParserSpec extends PlaySpecification {
       checkResult(result)
     }
 
+    "parse content split into small chunks" in new WithApplication() {
+      val parser = parse.multipartFormData.apply(FakeRequest().withHeaders(
+        CONTENT_TYPE -> "multipart/form-data; boundary=aabbccddee"
+      ))
+
+      val chunks = ByteString(body).grouped(3).toList
+      val result = await(parser.run(Source(chunks)))
+
+      checkResult(result)
+    }
+
+    "ignore a preamble and an epilogue" in new WithApplication() {
+      val parser = parse.multipartFormData.apply(FakeRequest().withHeaders(
+        CONTENT_TYPE -> "multipart/form-data; boundary=aabbccddee"
+      ))
+
+      val result = await(parser.run(Source.single(ByteString("This is a preamble" + body + "This is an epilogue"))))
+
+      checkResult(result)
+    }
+
+    "skip the data of file parts that the handler doesn't consume" in new WithApplication() {
+      val handler = Multipart.handleFilePart(info => Accumulator.done(info.fileName))
+      val parser = parse.multipartFormData(handler).apply(FakeRequest().withHeaders(
+        CONTENT_TYPE -> "multipart/form-data; boundary=aabbccddee"
+      ))
+
+      val chunks = ByteString(body).grouped(3).toList
+      val result = await(parser.run(Source(chunks)))
+
+      result must beRight.like {
+        case parts =>
+          parts.dataParts.get("text2:colon") must beSome(Seq("the second text field"))
+          parts.files.map(_.ref) must_== Seq("file1.txt", "file2.txt")
+      }
+    }
+
+    "return bad request for a truncated body" in new WithApplication() {
+      val parser = parse.multipartFormData.apply(FakeRequest().withHeaders(
+        CONTENT_TYPE -> "multipart/form-data; boundary=aabbccddee"
+      ))
+
+      val result = await(parser.run(Source.single(ByteString(body.dropRight(20)))))
+
+      result must beLeft.like {
+        case error => error.header.status must_== BAD_REQUEST
+      }
+    }
+
     "parse headers with semicolon inside quotes" in {
       val result = FileInfoMatcher.unapply(Map("content-disposition" -> """form-data; name="document"; filename="semicolon;inside.jpg"""", "content-type" -> "image/jpeg"))
       result must not(beEmpty)
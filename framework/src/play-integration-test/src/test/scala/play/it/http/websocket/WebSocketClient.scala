@@ -31,7 +31,7 @@ trait WebSocketClient {
    *
    * @return A future that will be redeemed when the connection is closed.
    */
-  def connect(url: URI, version: WebSocketVersion = WebSocketVersion.V13)(onConnect: Handler): Future[Unit]
+  def connect(url: URI, version: WebSocketVersion = WebSocketVersion.V13, headers: Map[String, String] = Map.empty)(onConnect: Handler): Future[Unit]
 
   /**
    * Shutdown the client and release all associated resources.
@@ -89,7 +89,7 @@ object WebSocketClient {
     /**
      * Connect to the given URI
      */
-    def connect(url: URI, version: WebSocketVersion)(onConnected: (Enumerator[WebSocketFrame], Iteratee[WebSocketFrame, _]) => Unit) = {
+    def connect(url: URI, version: WebSocketVersion, headers: Map[String, String])(onConnected: (Enumerator[WebSocketFrame], Iteratee[WebSocketFrame, _]) => Unit) = {
 
       val normalized = url.normalize()
       val tgt = if (normalized.getPath == null || normalized.getPath.trim().isEmpty) {
@@ -99,7 +99,7 @@ object WebSocketClient {
       val disconnected = Promise[Unit]()
 
       bootstrap.connect(new InetSocketAddress(tgt.getHost, tgt.getPort)).toScala.map { channel =>
-        val handshaker = new WebSocketClientHandshakerFactory().newHandshaker(tgt, version, null, false, Map.empty[String, String])
+        val handshaker = new WebSocketClientHandshakerFactory().newHandshaker(tgt, version, null, true, headers)
         channel.getPipeline.addLast("supervisor", new WebSocketSupervisor(disconnected, handshaker, onConnected))
         handshaker.handshake(channel)
       }.onFailure {
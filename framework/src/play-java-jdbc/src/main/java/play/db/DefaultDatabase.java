@@ -5,11 +5,14 @@ package play.db;
 
 import java.sql.Connection;
 import java.util.Map;
+import java.util.Optional;
 import javax.sql.DataSource;
 
 import play.Configuration;
+import play.api.db.PoolStatistics;
 
 import com.typesafe.config.ConfigFactory;
+import scala.compat.java8.OptionConverters;
 
 /**
  * Default delegating implementation of the database API.
@@ -97,6 +100,11 @@ public class DefaultDatabase implements Database {
         return db.withTransaction(DB.connectionFunction(block));
     }
 
+    @Override
+    public Optional<PoolStatistics> getPoolStatistics() {
+        return OptionConverters.toJava(db.poolStatistics());
+    }
+
     @Override
     public void shutdown() {
         db.shutdown();
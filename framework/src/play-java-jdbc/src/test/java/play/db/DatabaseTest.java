@@ -16,6 +16,7 @@ import org.junit.Rule;
 import org.junit.rules.ExpectedException;
 import org.junit.Test;
 
+import play.api.db.PoolStatistics;
 import play.api.libs.JNDI;
 
 import static org.hamcrest.CoreMatchers.*;
@@ -178,6 +179,19 @@ public class DatabaseTest {
         db.shutdown();
     }
 
+    @Test
+    public void providePoolStatistics() throws Exception {
+        Database db = Databases.inMemory("test-poolStatistics", ImmutableMap.of("hikaricp.registerMbeans", "true"));
+
+        db.withConnection(c -> {
+            PoolStatistics stats = db.getPoolStatistics().get();
+            assertThat(stats.active(), equalTo(1));
+            assertThat(stats.pending(), equalTo(0));
+        });
+
+        db.shutdown();
+    }
+
     @Test
     public void notSupplyConnectionsAfterShutdown() throws Exception {
         Database db = Databases.inMemory("test-shutdown");
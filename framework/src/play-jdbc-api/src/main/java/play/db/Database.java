@@ -4,8 +4,11 @@
 package play.db;
 
 import java.sql.Connection;
+import java.util.Optional;
 import javax.sql.DataSource;
 
+import play.api.db.PoolStatistics;
+
 /**
  * Database API for managing data sources and connections.
  */
@@ -111,6 +114,14 @@ public interface Database {
 	 */
 	public <A> A withTransaction(ConnectionCallable<A> block);
 
+	/**
+	 * The current statistics of the connection pool of this database, if the
+	 * pool provides them.
+	 */
+	public default Optional<PoolStatistics> getPoolStatistics() {
+		return Optional.empty();
+	}
+
 	/**
 	 * Shutdown this database, closing the underlying data source.
 	 */
@@ -168,6 +179,11 @@ public interface Database {
 				return Database.this.withTransaction(block::apply);
 			}
 
+			@Override
+			public scala.Option<PoolStatistics> poolStatistics() {
+				return scala.Option.apply(Database.this.getPoolStatistics().orElse(null));
+			}
+
 		};
 	}
 }
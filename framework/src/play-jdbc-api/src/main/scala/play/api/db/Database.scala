@@ -76,6 +76,11 @@ trait Database {
    */
   def withTransaction[A](block: Connection => A): A
 
+  /**
+   * The current statistics of the connection pool of this database, if the pool provides them.
+   */
+  def poolStatistics: Option[PoolStatistics] = None
+
   /**
    * Shutdown this database, closing the underlying data source.
    */
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.db
+
+/**
+ * The statistics of a connection pool at a point in time.
+ *
+ * @param active The number of connections that are in use.
+ * @param idle The number of connections that are waiting in the pool to be used.
+ * @param total The number of connections in the pool, whether active or idle.
+ * @param pending The number of threads that are waiting for a connection.
+ */
+case class PoolStatistics(active: Int, idle: Int, total: Int, pending: Int)
+
+/**
+ * Receives metrics about the connections and transactions of a database.
+ *
+ * Reporters are called by the threads that use the database, so they should record metrics without blocking, for
+ * example by updating a histogram.  Durations are in nanoseconds.
+ *
+ * Reporters are configured for each database with `metrics.reporter`.  This can be implemented in Java.
+ */
+trait DatabaseMetricsReporter {
+
+  /**
+   * A connection was acquired from the pool.
+   *
+   * @param database The name of the database.
+   * @param waitNanos How long it took to acquire the connection.
+   */
+  def connectionAcquired(database: String, waitNanos: Long): Unit
+
+  /**
+   * A connection couldn't be acquired from the pool, for example because the pool was exhausted.
+   *
+   * @param database The name of the database.
+   * @param waitNanos How long was spent waiting for a connection.
+   * @param cause Why the connection couldn't be acquired.
+   */
+  def connectionFailed(database: String, waitNanos: Long, cause: Throwable): Unit
+
+  /**
+   * A connection that was acquired for a `withConnection` or `withTransaction` block was released.
+   *
+   * @param database The name of the database.
+   * @param holdNanos How long the connection was held by the block.
+   */
+  def connectionReleased(database: String, holdNanos: Long): Unit
+
+  /**
+   * A transaction took longer than the `metrics.slowTransactionThreshold` of the database.
+   *
+   * @param database The name of the database.
+   * @param durationNanos How long the transaction took.
+   * @param committed Whether the transaction was committed, rather than rolled back.
+   */
+  def slowTransaction(database: String, durationNanos: Long, committed: Boolean): Unit
+}
@@ -31,6 +31,13 @@ trait ConnectionPool {
    */
   def close(dataSource: DataSource): Unit
 
+  /**
+   * The current statistics of the pool of the given data source, if the pool provides them.
+   *
+   * @param dataSource a data source created by this pool
+   */
+  def statistics(dataSource: DataSource): Option[PoolStatistics] = None
+
 }
 
 object ConnectionPool {
@@ -67,7 +67,7 @@ class DBApiProvider @Inject() (environment: Environment, configuration: Configur
     val configs = if (config.hasPath(dbKey)) {
       PlayConfig(config).getPrototypedMap(dbKey, "play.db.prototype").mapValues(_.underlying)
     } else Map.empty[String, Config]
-    val db = new DefaultDBApi(configs, pool, environment)
+    val db = new DefaultDBApi(configs, pool, environment, injector)
     lifecycle.addStopHook { () => Future.successful(db.shutdown()) }
     db.connect(logConnection = environment.mode != Mode.Test)
     db
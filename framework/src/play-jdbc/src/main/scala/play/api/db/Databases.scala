@@ -10,8 +10,10 @@ import org.jdbcdslog.LogSqlDataSource
 import play.utils.{ ProxyDriver, Reflect }
 
 import com.typesafe.config.Config
+import scala.concurrent.duration.FiniteDuration
 import scala.util.control.{ NonFatal, ControlThrowable }
 import play.api.{ Environment, Configuration, PlayConfig }
+import play.api.inject.{ Injector, NewInstanceInjector }
 
 /**
  * Creation helpers for manually instantiating databases.
@@ -103,6 +105,15 @@ abstract class DefaultDatabase(val name: String, configuration: Config, environm
 
   def closeDataSource(dataSource: DataSource): Unit
 
+  // metrics
+
+  /**
+   * The reporter that the metrics of this database are reported to, if any.
+   */
+  def metricsReporter: Option[DatabaseMetricsReporter] = None
+
+  private lazy val slowTransactionThreshold = config.get[FiniteDuration]("metrics.slowTransactionThreshold").toNanos
+
   // driver registration
 
   lazy val driver: Option[Driver] = {
@@ -140,7 +151,20 @@ abstract class DefaultDatabase(val name: String, configuration: Config, environm
   }
 
   def getConnection(autocommit: Boolean): Connection = {
-    val connection = dataSource.getConnection
+    val connection = metricsReporter match {
+      case Some(reporter) =>
+        val start = System.nanoTime
+        try {
+          val acquired = dataSource.getConnection
+          reporter.connectionAcquired(name, System.nanoTime - start)
+          acquired
+        } catch {
+          case NonFatal(e) =>
+            reporter.connectionFailed(name, System.nanoTime - start, e)
+            throw e
+        }
+      case None => dataSource.getConnection
+    }
     connection.setAutoCommit(autocommit)
     connection
   }
@@ -151,25 +175,35 @@ abstract class DefaultDatabase(val name: String, configuration: Config, environm
 
   def withConnection[A](autocommit: Boolean)(block: Connection => A): A = {
     val connection = getConnection(autocommit)
+    val acquired = if (metricsReporter.isDefined) System.nanoTime else 0L
     try {
       block(connection)
     } finally {
       connection.close()
+      metricsReporter.foreach(_.connectionReleased(name, System.nanoTime - acquired))
     }
   }
 
   def withTransaction[A](block: Connection => A): A = {
     withConnection(autocommit = false) { connection =>
+      val start = if (metricsReporter.isDefined) System.nanoTime else 0L
+      def completed(committed: Boolean) = metricsReporter.foreach { reporter =>
+        val duration = System.nanoTime - start
+        if (duration > slowTransactionThreshold) reporter.slowTransaction(name, duration, committed)
+      }
       try {
         val r = block(connection)
         connection.commit()
+        completed(committed = true)
         r
       } catch {
         case e: ControlThrowable =>
           connection.commit()
+          completed(committed = true)
           throw e
         case e: Throwable =>
           connection.rollback()
+          completed(committed = false)
           throw e
       }
     }
@@ -191,9 +225,14 @@ abstract class DefaultDatabase(val name: String, configuration: Config, environm
 /**
  * Default implementation of the database API using a connection pool.
  */
-class PooledDatabase(name: String, configuration: Config, environment: Environment, pool: ConnectionPool)
+class PooledDatabase(name: String, configuration: Config, environment: Environment, pool: ConnectionPool,
+  override val metricsReporter: Option[DatabaseMetricsReporter])
     extends DefaultDatabase(name, configuration, environment) {
 
+  def this(name: String, configuration: Config, environment: Environment, pool: ConnectionPool) =
+    this(name, configuration, environment, pool,
+      DatabaseMetrics.reporterFromConfig(configuration, NewInstanceInjector, environment))
+
   def this(name: String, configuration: Configuration) = this(name, configuration.underlying, Environment.simple(), new HikariCPConnectionPool(Environment.simple()))
 
   def createDataSource(): DataSource = {
@@ -214,4 +253,23 @@ class PooledDatabase(name: String, configuration: Config, environment: Environme
     }
   }
 
+  override def poolStatistics: Option[PoolStatistics] = {
+    dataSource match {
+      case ds: LogSqlDataSource => pool.statistics(ds.getTargetDatasource)
+      case _ => pool.statistics(dataSource)
+    }
+  }
+
+}
+
+private[db] object DatabaseMetrics {
+
+  /**
+   * Load the metrics reporter configured for a database, if any.
+   */
+  def reporterFromConfig(configuration: Config, injector: Injector, environment: Environment): Option[DatabaseMetricsReporter] = {
+    PlayConfig(configuration).get[Option[String]]("metrics.reporter").map { fqcn =>
+      injector.instanceOf(Reflect.getClass[DatabaseMetricsReporter](fqcn, environment.classLoader))
+    }
+  }
 }
\ No newline at end of file
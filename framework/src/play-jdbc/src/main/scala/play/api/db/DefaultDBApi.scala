@@ -23,7 +23,8 @@ class DefaultDBApi(
     configuration.map {
       case (name, config) =>
         val pool = ConnectionPool.fromConfig(config.getString("pool"), injector, environment, defaultConnectionPool)
-        new PooledDatabase(name, config, environment, pool)
+        val metricsReporter = DatabaseMetrics.reporterFromConfig(config, injector, environment)
+        new PooledDatabase(name, config, environment, pool, metricsReporter)
     }.toSeq
   }
 
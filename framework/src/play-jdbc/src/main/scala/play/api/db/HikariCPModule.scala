@@ -3,7 +3,9 @@
  */
 package play.api.db
 
+import java.lang.management.ManagementFactory
 import javax.inject.{ Inject, Singleton }
+import javax.management.{ JMX, ObjectName }
 import javax.sql.DataSource
 
 import com.typesafe.config.Config
@@ -15,6 +17,7 @@ import scala.concurrent.duration.{ FiniteDuration, Duration }
 import scala.util.{ Success, Try, Failure }
 
 import com.zaxxer.hikari.{ HikariDataSource, HikariConfig }
+import com.zaxxer.hikari.pool.HikariPoolMXBean
 
 /**
  * HikariCP runtime inject module.
@@ -82,6 +85,24 @@ class HikariCPConnectionPool @Inject() (environment: Environment) extends Connec
       case _ => sys.error("Unable to close data source: not a HikariDataSource")
     }
   }
+
+  /**
+   * The statistics of the pool, which HikariCP only exposes through JMX, so `hikaricp.registerMbeans` must be
+   * enabled.
+   */
+  override def statistics(dataSource: DataSource) = {
+    dataSource match {
+      case ds: HikariDataSource if ds.isRegisterMbeans =>
+        val server = ManagementFactory.getPlatformMBeanServer
+        val name = new ObjectName(s"com.zaxxer.hikari:type=Pool (${ds.getPoolName})")
+        if (server.isRegistered(name)) {
+          val pool = JMX.newMXBeanProxy(server, name, classOf[HikariPoolMXBean])
+          Some(PoolStatistics(pool.getActiveConnections, pool.getIdleConnections, pool.getTotalConnections,
+            pool.getThreadsAwaitingConnection))
+        } else None
+      case _ => None
+    }
+  }
 }
 
 /**
@@ -140,6 +140,54 @@ object DatabasesSpec extends Specification {
       db.getConnection.close() must throwA[SQLException]
     }
 
+    "report connection metrics" in new WithDatabase {
+      val db = Databases.inMemory(name = "test-metrics", config = Map("metrics.reporter" -> classOf[RecordingReporter].getName))
+      val reporter = db.asInstanceOf[DefaultDatabase].metricsReporter.get.asInstanceOf[RecordingReporter]
+
+      db.withConnection(_.createStatement.execute("select 1"))
+      reporter.events must_== List("acquired", "released")
+    }
+
+    "report slow transactions" in new WithDatabase {
+      val db = Databases.inMemory(name = "test-slowTransaction", config = Map(
+        "metrics.reporter" -> classOf[RecordingReporter].getName,
+        "metrics.slowTransactionThreshold" -> "0 seconds"
+      ))
+      val reporter = db.asInstanceOf[DefaultDatabase].metricsReporter.get.asInstanceOf[RecordingReporter]
+
+      db.withTransaction(_.createStatement.execute("select 1"))
+      db.withTransaction[Unit] { c =>
+        throw new RuntimeException("boom")
+      } must throwA[RuntimeException]
+      reporter.events must_== List("acquired", "slow committed", "released", "acquired", "slow rolled back", "released")
+    }
+
+    "report connections that couldn't be acquired" in {
+      val db = Databases.inMemory(name = "test-connectionFailed", config = Map("metrics.reporter" -> classOf[RecordingReporter].getName))
+      val reporter = db.asInstanceOf[DefaultDatabase].metricsReporter.get.asInstanceOf[RecordingReporter]
+      db.getConnection.close()
+      db.shutdown()
+      db.getConnection must throwA[SQLException]
+      reporter.events must_== List("acquired", "failed")
+    }
+
+    "provide pool statistics when HikariCP registers mbeans" in new WithDatabase {
+      val db = Databases.inMemory(name = "test-poolStatistics", config = Map("hikaricp.registerMbeans" -> "true"))
+      db.withConnection { c =>
+        db.poolStatistics must beSome.like {
+          case stats =>
+            stats.active must_== 1
+            stats.pending must_== 0
+            stats.total must_== stats.active + stats.idle
+        }
+      }
+    }
+
+    "not provide pool statistics when HikariCP doesn't register mbeans" in new WithDatabase {
+      val db = Databases.inMemory(name = "test-noPoolStatistics")
+      db.poolStatistics must beNone
+    }
+
   }
 
   trait WithDatabase extends After {
@@ -148,3 +196,14 @@ object DatabasesSpec extends Specification {
   }
 
 }
+
+class RecordingReporter extends DatabaseMetricsReporter {
+  @volatile var events = List.empty[String]
+  private def record(event: String) = synchronized(events :+= event)
+  def connectionAcquired(database: String, waitNanos: Long) = record("acquired")
+  def connectionFailed(database: String, waitNanos: Long, cause: Throwable) = record("failed")
+  def connectionReleased(database: String, holdNanos: Long) = record("released")
+  def slowTransaction(database: String, durationNanos: Long, committed: Boolean) = {
+    record(if (committed) "slow committed" else "slow rolled back")
+  }
+}
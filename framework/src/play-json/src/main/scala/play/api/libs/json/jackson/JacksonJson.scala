@@ -3,7 +3,7 @@
  */
 package play.api.libs.json.jackson
 
-import java.io.InputStream
+import java.io.{ ByteArrayOutputStream, InputStream, OutputStream }
 
 import com.fasterxml.jackson.core._
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter
@@ -201,7 +201,7 @@ private[jackson] class PlaySerializers extends Serializers.Base {
   }
 }
 
-private[json] object JacksonJson {
+private[play] object JacksonJson {
 
   private val mapper = (new ObjectMapper).registerModule(PlayJsonModule)
 
@@ -241,6 +241,27 @@ private[json] object JacksonJson {
     sw.getBuffer.toString
   }
 
+  /**
+   * Write a JsValue as UTF-8 straight to an output stream, without building an intermediate String.
+   *
+   * The generator is closed, so that its buffers are returned to be recycled, but the stream is left open for the
+   * caller.
+   */
+  def writeJsValue(jsValue: JsValue, out: OutputStream): Unit = {
+    val gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+    try {
+      mapper.writeValue(gen, jsValue)
+    } finally {
+      gen.close()
+    }
+  }
+
+  def generateBytesFromJsValue(jsValue: JsValue): Array[Byte] = {
+    val out = new ByteArrayOutputStream
+    writeJsValue(jsValue, out)
+    out.toByteArray
+  }
+
   def prettyPrint(jsValue: JsValue): String = {
     val sw = new java.io.StringWriter
     val gen = stringJsonGenerator(sw).setPrettyPrinter(
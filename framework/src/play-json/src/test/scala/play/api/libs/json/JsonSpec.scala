@@ -387,6 +387,26 @@ object JsonSpec extends org.specs2.mutable.Specification {
       Json.asciiStringify(js) must beEqualTo("""{"key1":"ab\n\tcd","key2":"\"\r"}""")
     }
 
+    "toBytes should generate UTF-8 encoded json" in {
+      val js = Json.obj(
+        "key1" -> "value1",
+        "key2" -> "\u00E1\u6837\u54C1",
+        "key3" -> Json.arr(1, 2.5, JsNull)
+      )
+      new String(Json.toBytes(js), "UTF-8") must beEqualTo(Json.stringify(js))
+    }
+
+    "write json to a stream without closing it" in {
+      var closed = false
+      val out = new java.io.ByteArrayOutputStream {
+        override def close() = closed = true
+      }
+      val js = Json.obj("key" -> "\u00E1\u6837\u54C1")
+      jackson.JacksonJson.writeJsValue(js, out)
+      closed must beFalse
+      new String(out.toByteArray, "UTF-8") must beEqualTo(Json.stringify(js))
+    }
+
     "parse from InputStream" in {
       val js = Json.obj(
         "key1" -> "value1",
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.parsers
+
+import java.util.concurrent.TimeUnit
+
+import akka.actor.ActorSystem
+import akka.stream.{ ActorMaterializer, Materializer }
+import akka.stream.scaladsl.{ Sink, Source }
+import akka.util.ByteString
+import org.openjdk.jmh.annotations._
+import play.api.libs.streams.Accumulator
+import play.api.test.FakeRequest
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+/**
+ * Measures how fast multipart bodies are parsed, from the bytes of the body to the parts handed to the handlers.
+ *
+ * The file parts are counted rather than written to disk, so that only the parser is measured.
+ *
+ * {{{
+ * sbt "Play-Microbenchmark/jmh:run .*MultipartBenchmark"
+ * }}}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+class MultipartBenchmark {
+
+  /**
+   * The size of the chunks that the body is received in.
+   */
+  @Param(Array("1024", "8192", "65536"))
+  var chunkSize: Int = _
+
+  /**
+   * The size of each file part.
+   */
+  @Param(Array("1024", "1048576"))
+  var fileSize: Int = _
+
+  private var system: ActorSystem = _
+  private implicit var materializer: Materializer = _
+  private var chunks: List[ByteString] = _
+
+  private val boundary = "----PlayMultipartBenchmarkBoundary"
+  private val request = FakeRequest().withHeaders("Content-Type" -> s"multipart/form-data; boundary=$boundary")
+  private val parser = Multipart.multipartParser(Int.MaxValue, Multipart.handleFilePart { _ =>
+    Accumulator(Sink.fold[Long, ByteString](0L)(_ + _.length))
+  })
+
+  @Setup
+  def setup(): Unit = {
+    system = ActorSystem("multipart-benchmark")
+    materializer = ActorMaterializer()(system)
+
+    def dataPart(name: String, value: String) = ByteString(
+      s"""--$boundary\r\nContent-Disposition: form-data; name="$name"\r\n\r\n$value\r\n""")
+    def filePart(name: String) = ByteString(
+      s"""--$boundary\r\nContent-Disposition: form-data; name="$name"; filename="$name.bin"\r\n""" +
+        "Content-Type: application/octet-stream\r\n\r\n") ++
+      ByteString(Array.tabulate[Byte](fileSize)(i => (i % 251).toByte)) ++ ByteString("\r\n")
+
+    val body = dataPart("title", "A benchmark") ++ dataPart("description", "Some files to parse") ++
+      filePart("first") ++ filePart("second") ++ ByteString(s"--$boundary--\r\n")
+    chunks = body.grouped(chunkSize).map(_.compact).toList
+  }
+
+  @TearDown
+  def tearDown(): Unit = {
+    system.shutdown()
+    system.awaitTermination()
+  }
+
+  @Benchmark
+  def parse(): Any = {
+    Await.result(parser(request).run(Source(chunks)), 10.seconds)
+  }
+}
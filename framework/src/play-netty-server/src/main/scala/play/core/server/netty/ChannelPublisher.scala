@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.netty
+
+import java.util.ArrayDeque
+
+import org.jboss.netty.channel.Channel
+import org.reactivestreams.{ Publisher, Subscriber, Subscription }
+
+/**
+ * Publishes elements received from a channel, only as fast as they are requested.
+ *
+ * Elements are pushed by the Netty IO thread, and requested by the subscriber from any thread.  Only one thread
+ * emits signals at a time, the other threads just leave their updates for it.  When there is no demand for more
+ * elements than are buffered, the channel stops reading, so the client is backpressured by TCP.
+ *
+ * Once the subscriber has cancelled, the channel keeps reading, and the pushed elements are discarded.
+ *
+ * @param channel The channel that the elements are received from.
+ * @param description A description of the elements, for the error given to a second subscriber.
+ */
+private[netty] class ChannelPublisher[A](channel: Channel, description: String) extends Publisher[A] with Subscription {
+
+  import ChannelPublisher._
+
+  private var subscriber: Subscriber[_ >: A] = null
+  private val buffered = new ArrayDeque[A]
+  private var demand = 0L
+  private var completed = false
+  private var finished = false
+  private var failure: Throwable = null
+  private var emitting = false
+  private var readable = true
+
+  def subscribe(s: Subscriber[_ >: A]): Unit = {
+    val accepted = synchronized {
+      if (subscriber == null) {
+        subscriber = s
+        true
+      } else false
+    }
+    if (accepted) {
+      s.onSubscribe(this)
+      emit()
+    } else {
+      s.onSubscribe(CancelledSubscription)
+      s.onError(new IllegalStateException(description + " can only be subscribed to once"))
+    }
+  }
+
+  def request(n: Long): Unit = {
+    if (n <= 0) {
+      // Signalled by the emitting thread, like the other signals, so that it isn't emitted concurrently with an element
+      synchronized {
+        if (!finished && failure == null) {
+          failure = new IllegalArgumentException("Rule 3.9: requested elements must be positive")
+          buffered.clear()
+        }
+      }
+      emit()
+    } else {
+      synchronized {
+        demand += n
+        if (demand < 0) demand = Long.MaxValue
+      }
+      emit()
+    }
+  }
+
+  def cancel(): Unit = {
+    synchronized {
+      finished = true
+      buffered.clear()
+    }
+    updateReadable()
+  }
+
+  /**
+   * Push an element received from the channel.
+   */
+  def push(element: A): Unit = {
+    synchronized {
+      if (!finished) buffered.add(element)
+    }
+    emit()
+  }
+
+  /**
+   * Complete the subscriber, once it has consumed the buffered elements.
+   */
+  def complete(): Unit = {
+    synchronized {
+      completed = true
+    }
+    emit()
+  }
+
+  private def emit(): Unit = {
+    val canEmit = synchronized {
+      if (emitting || subscriber == null) false else {
+        emitting = true
+        true
+      }
+    }
+    if (canEmit) {
+      var signal: Signal = Next(null)
+      while (signal.isInstanceOf[Next]) {
+        signal = synchronized {
+          if (!finished && failure != null) {
+            finished = true
+            emitting = false
+            Error(failure)
+          } else if (!finished && demand > 0 && !buffered.isEmpty) {
+            demand -= 1
+            Next(buffered.poll())
+          } else {
+            emitting = false
+            if (!finished && completed && buffered.isEmpty) {
+              finished = true
+              Complete
+            } else Idle
+          }
+        }
+        signal match {
+          case Next(element) => subscriber.onNext(element.asInstanceOf[A])
+          case Complete => subscriber.onComplete()
+          case Error(error) => subscriber.onError(error)
+          case Idle =>
+        }
+      }
+    }
+    // Also updated before there is a subscriber, so that elements don't pile up while waiting for one
+    updateReadable()
+  }
+
+  /**
+   * Only read from the channel while there is demand for more elements than are buffered.
+   */
+  private def updateReadable(): Unit = synchronized {
+    // Updated while synchronized, so that concurrent updates can't be applied out of order
+    val shouldRead = finished || failure != null || completed || demand > buffered.size
+    if (shouldRead != readable && channel.isOpen) {
+      readable = shouldRead
+      channel.setReadable(shouldRead)
+    }
+  }
+}
+
+private[netty] object ChannelPublisher {
+
+  private sealed trait Signal
+  private case class Next(element: Any) extends Signal
+  private case object Complete extends Signal
+  private case class Error(error: Throwable) extends Signal
+  private case object Idle extends Signal
+
+  private[netty] object CancelledSubscription extends Subscription {
+    def request(n: Long) = ()
+    def cancel() = ()
+  }
+}
@@ -17,9 +17,12 @@ import org.jboss.netty.buffer.ChannelBuffers
 import org.jboss.netty.channel._
 import org.jboss.netty.handler.codec.http.{ HttpChunk => NettyChunk, _ }
 import org.jboss.netty.handler.codec.http.HttpHeaders.Values._
+import org.jboss.netty.handler.ssl.SslHandler
 import com.typesafe.netty.http.pipelining.{ OrderedDownstreamChannelEvent, OrderedUpstreamMessageEvent }
 import scala.concurrent.Future
-import scala.util.{ Failure, Success }
+import java.nio.channels.FileChannel
+import java.nio.file.{ Path, StandardOpenOption }
+import scala.util.{ Failure, Success, Try }
 import scala.util.control.NonFatal
 
 import play.api.libs.iteratee.Execution.Implicits.trampoline
@@ -99,6 +102,14 @@ object NettyResultStreamer {
             Streams.publisherToEnumerator(chunks.runWith(Sink.publisher)) |>>>
               nettyChunkedIteratee(response, startSequence, connectionHeader.willClose)
 
+          case HttpEntity.FileRegion(path, offset, length, _) if ctx.getPipeline.get(classOf[SslHandler]) == null =>
+            // Without TLS, the region can be sent straight from the file to the socket
+            sendFileRegion(response, path, offset, length, startSequence, connectionHeader.willClose)
+
+          case entity: HttpEntity.FileRegion =>
+            Streams.publisherToEnumerator(entity.dataStream.runWith(Sink.publisher)) |>>>
+              nettyStreamIteratee(response, startSequence, connectionHeader.willClose)
+
         }
     }
 
@@ -120,6 +131,19 @@ object NettyResultStreamer {
     sentResponse
   }
 
+  // Send the response, followed by a file region that Netty transfers from the file to the socket, using sendfile where
+  // the platform supports it.
+  private def sendFileRegion(nettyResponse: HttpResponse, path: Path, offset: Long, length: Long, startSequence: Int,
+    closeConnection: Boolean)(implicit ctx: ChannelHandlerContext, e: OrderedUpstreamMessageEvent): Future[ChannelStatus] = {
+    Future.fromTry(Try(FileChannel.open(path, StandardOpenOption.READ))).flatMap { fileChannel =>
+      val region = new DefaultFileRegion(fileChannel, offset, length, true)
+      sendDownstream(startSequence, false, nettyResponse)
+      val channelStatus = new ChannelStatus(closeConnection, startSequence + 1)
+      sendDownstream(startSequence + 1, !closeConnection, region).toScala
+        .map(_ => channelStatus).recover { case _ => channelStatus }
+    }
+  }
+
   // Construct an iteratee for the purposes of streaming responses to a downstream handler.
   private def nettyStreamIteratee(nettyResponse: HttpResponse, startSequence: Int, closeConnection: Boolean)(implicit ctx: ChannelHandlerContext, e: OrderedUpstreamMessageEvent): Iteratee[ByteString, ChannelStatus] = {
 
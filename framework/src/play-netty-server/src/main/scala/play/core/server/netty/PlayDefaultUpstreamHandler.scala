@@ -3,7 +3,9 @@
  */
 package play.core.server.netty
 
+import akka.actor.ActorSystem
 import akka.stream.Materializer
+import akka.stream.scaladsl.Source
 import akka.util.ByteString
 import org.jboss.netty.buffer.ChannelBuffers
 import org.jboss.netty.channel._
@@ -16,13 +18,15 @@ import org.jboss.netty.handler.ssl._
 import org.jboss.netty.channel.group._
 import play.api._
 import play.api.http.{ HttpErrorHandler, DefaultHttpErrorHandler }
+import play.api.http.websocket.WebSocketConfiguration
 import play.api.libs.streams.{ Streams, Accumulator }
 import play.api.mvc._
 import play.api.libs.iteratee._
 import play.api.libs.iteratee.Input._
-import play.core.server.{ NettyServer, Server }
+import play.core.server.{ NettyServer, RequestTrace, Server }
 import play.core.server.common.{ ForwardedHeaderHandler, ServerRequestUtils, ServerResultUtils }
 import play.core.system.RequestIdProvider
+import play.core.utils.IndexedHeaders
 import play.core.websocket._
 import scala.collection.JavaConverters._
 import scala.util.control.Exception
@@ -86,6 +90,7 @@ private[play] class PlayDefaultUpstreamHandler(server: NettyServer, allChannels:
 
       case nettyHttpRequest: HttpRequest =>
 
+        val received = System.nanoTime
         logger.trace("Http request received by netty: " + nettyHttpRequest)
         val websocketableRequest = websocketable(nettyHttpRequest)
         var nettyVersion = nettyHttpRequest.getProtocolVersion
@@ -159,7 +164,7 @@ private[play] class PlayDefaultUpstreamHandler(server: NettyServer, allChannels:
                 case error => app.errorHandler.onServerError(requestHeader, error)
               }
             }
-            handleAction(a, Some(app))
+            handleAction(a, Some(app), server.traceRequest(app, received))
 
           case Right((ws @ WebSocket(f), app)) if websocketableRequest.check =>
             logger.trace("Serving this request with: " + ws)
@@ -171,7 +176,7 @@ private[play] class PlayDefaultUpstreamHandler(server: NettyServer, allChannels:
               case Left(result) =>
                 // WebSocket was rejected, send result
                 val a = EssentialAction(_ => Accumulator.done(result))
-                handleAction(a, Some(app))
+                handleAction(a, Some(app), None)
               case Right(socket) =>
                 val bufferLimit = app.configuration.getBytes("play.websocket.buffer.limit").getOrElse(65536L)
 
@@ -181,39 +186,132 @@ private[play] class PlayDefaultUpstreamHandler(server: NettyServer, allChannels:
               case error =>
                 app.errorHandler.onServerError(requestHeader, error).map { result =>
                   val a = EssentialAction(_ => Accumulator.done(result))
-                  handleAction(a, Some(app))
+                  handleAction(a, Some(app), None)
+                }
+            }
+
+          case Right((ws @ FlowWebSocket(f), app)) if websocketableRequest.check =>
+            logger.trace("Serving this request with: " + ws)
+
+            val executed = Future(f(requestHeader))(play.api.libs.concurrent.Execution.defaultContext)
+
+            import play.api.libs.iteratee.Execution.Implicits.trampoline
+            executed.flatMap(identity).map {
+              case Left(result) =>
+                // WebSocket was rejected, send result
+                val a = EssentialAction(_ => Accumulator.done(result))
+                handleAction(a, Some(app), None)
+              case Right(flow) =>
+                val config = WebSocketConfiguration.fromConfiguration(app.configuration)
+                websocketFlowHandshake(ctx, nettyHttpRequest, config)(flow)(app.materializer)
+            }.recover {
+              case error =>
+                app.errorHandler.onServerError(requestHeader, error).map { result =>
+                  val a = EssentialAction(_ => Accumulator.done(result))
+                  handleAction(a, Some(app), None)
                 }
             }
 
           //handle bad websocket request
-          case Right((WebSocket(_), app)) =>
+          case Right((WebSocket(_) | FlowWebSocket(_), app)) =>
             logger.trace("Bad websocket request")
             val a = EssentialAction(_ => Accumulator.done(Results.BadRequest))
-            handleAction(a, Some(app))
+            handleAction(a, Some(app), None)
 
           case Left(e) =>
             logger.trace("No handler, got direct result: " + e)
             val a = EssentialAction(_ => Accumulator.done(e))
-            handleAction(a, None)
+            handleAction(a, None, None)
 
         }
 
-        def handleAction(action: EssentialAction, app: Option[Application]) {
+        def handleAction(action: EssentialAction, app: Option[Application], trace: Option[RequestTrace]) {
           logger.trace("Serving this request with: " + action)
 
           val actorSystem = app.fold(server.actorSystem)(_.actorSystem)
           implicit val mat: Materializer = app.fold(server.materializer)(_.materializer)
-          val bodyParser = Iteratee.flatten(
-            Future(Streams.accumulatorToIteratee(action(requestHeader)))(actorSystem.dispatcher)
-          )
 
           import play.api.libs.iteratee.Execution.Implicits.trampoline
 
           val expectContinue: Option[_] = requestHeader.headers.get("Expect").filter(_.equalsIgnoreCase("100-continue"))
 
-          // Regardless of whether the client is expecting 100 continue or not, we need to feed the body here in the
-          // Netty thread, so that the handler is replaced in this thread, so that if the client does start sending
-          // body chunks (which it might according to the HTTP spec if we're slow to respond), we can handle them.
+          // An iteratee containing the result and the sequence number.
+          // Sequence number will be 1 if a 100 continue response has been sent, otherwise 0.
+          val eventuallyResultWithSequence: Future[(Result, Int)] = expectContinue match {
+            case Some(_) => handleExpectContinue(action, app, actorSystem, trace)
+            case None => handleBody(action, actorSystem, trace).map((_, 0))
+          }
+
+          val sent = eventuallyResultWithSequence.recoverWith {
+            case error =>
+              logger.error("Cannot invoke the action", error)
+              e.getChannel.setReadable(true)
+              errorHandler(app).onServerError(requestHeader, error)
+                .map((_, 0))
+          }.flatMap {
+            case (result, sequence) =>
+              val cleanedResult = ServerResultUtils.cleanFlashCookie(requestHeader, result)
+              val tracedResult = trace.fold(cleanedResult)(_.traceResult(requestHeader, cleanedResult, sentWhenStreamed = false))
+              NettyResultStreamer.sendResult(requestHeader, tracedResult, nettyVersion, sequence)
+          }
+          trace.foreach { t =>
+            sent.onComplete(_ => t.responseSent(requestHeader))
+          }
+
+        }
+
+        def invoke(action: EssentialAction, trace: Option[RequestTrace]): Accumulator[ByteString, Result] = {
+          val accumulator = action(requestHeader)
+          trace.foreach(_.actionInvoked())
+          accumulator
+        }
+
+        /**
+         * Run the action with the body streamed to its accumulator.
+         *
+         * The body is fed here in the Netty thread, so that the handler is replaced in this thread, so that the body
+         * chunks can be handled as soon as they're received.
+         */
+        def handleBody(action: EssentialAction, actorSystem: ActorSystem, trace: Option[RequestTrace])(implicit mat: Materializer): Future[Result] = {
+          import play.api.libs.iteratee.Execution.Implicits.trampoline
+
+          val (body, bodyPublisher) = if (nettyHttpRequest.isChunked) {
+            val pipeline = ctx.getChannel.getPipeline
+            val publisher = newRequestBodyPublisher(ctx.getChannel, { handler =>
+              pipeline.replace("handler", "handler", handler)
+            }, {
+              pipeline.replace("handler", "handler", this)
+            })
+            (Source(publisher), Some(publisher))
+          } else {
+            val content = nettyHttpRequest.getContent
+            val body = if (content.readable) Source.single(ByteString(content.toByteBuffer)) else Source.empty
+            (body, None)
+          }
+
+          val tracedBody = trace.fold(body)(_.traceBody(body))
+          val result = Future(invoke(action, trace))(actorSystem.dispatcher).flatMap(_.run(tracedBody))
+          // If the action failed before it could consume the body, discard the rest of it
+          bodyPublisher.foreach { publisher =>
+            result.onFailure { case _ => publisher.cancel() }
+          }
+          result
+        }
+
+        /**
+         * Run the action as an iteratee, since whether a 100 continue response is sent depends on whether it's done
+         * before it has consumed the body.
+         */
+        def handleExpectContinue(action: EssentialAction, app: Option[Application], actorSystem: ActorSystem, trace: Option[RequestTrace])(implicit mat: Materializer): Future[(Result, Int)] = {
+          val bodyParser = Iteratee.flatten(
+            Future(Streams.accumulatorToIteratee(invoke(action, trace)))(actorSystem.dispatcher)
+          )
+
+          import play.api.libs.iteratee.Execution.Implicits.trampoline
+
+          // Even though the client is expecting 100 continue, we need to feed the body here in the Netty thread, so
+          // that the handler is replaced in this thread, so that if the client does start sending body chunks (which
+          // it might according to the HTTP spec if we're slow to respond), we can handle them.
 
           // We also need to ensure that we only invoke fold on the iteratee once, since a stateful iteratee may have
           // problems with a second invocation of fold. Later on we need to know if the iteratee is in Cont or Done,
@@ -250,43 +348,24 @@ private[play] class PlayDefaultUpstreamHandler(server: NettyServer, allChannels:
             }
           }
 
-          // An iteratee containing the result and the sequence number.
-          // Sequence number will be 1 if a 100 continue response has been sent, otherwise 0.
-          val eventuallyResultWithSequence: Future[(Result, Int)] = expectContinue match {
-            case Some(_) =>
-              bodyParserState.flatMap {
-                case Step.Cont(_) =>
-                  sendDownstream(0, false, new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE))
-                  eventuallyResult.map((_, 1))
-                case Step.Done(result, _) => {
-                  // Return the result immediately, and ensure that the connection is set to close
-                  // Connection must be set to close because whatever comes next in the stream is either the request
-                  // body, because the client waited too long for our response, or the next request, and there's no way
-                  // for us to know which.  See RFC2616 Section 8.2.3.
-                  Future.successful((result.withHeaders(Names.CONNECTION -> "close"), 0))
-                }
-                case Step.Error(msg, _) => {
-                  e.getChannel.setReadable(true)
-                  val error = new RuntimeException("Body parser iteratee in error: " + msg)
-                  val result = errorHandler(app).onServerError(requestHeader, error)
-                  result.map(r => (r, 0))
-                }
-              }
-            case None => eventuallyResult.map((_, 0))
-          }
-
-          val sent = eventuallyResultWithSequence.recoverWith {
-            case error =>
-              logger.error("Cannot invoke the action", error)
+          bodyParserState.flatMap {
+            case Step.Cont(_) =>
+              sendDownstream(0, false, new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE))
+              eventuallyResult.map((_, 1))
+            case Step.Done(result, _) => {
+              // Return the result immediately, and ensure that the connection is set to close
+              // Connection must be set to close because whatever comes next in the stream is either the request
+              // body, because the client waited too long for our response, or the next request, and there's no way
+              // for us to know which.  See RFC2616 Section 8.2.3.
+              Future.successful((result.withHeaders(Names.CONNECTION -> "close"), 0))
+            }
+            case Step.Error(msg, _) => {
               e.getChannel.setReadable(true)
-              errorHandler(app).onServerError(requestHeader, error)
-                .map((_, 0))
-          }.flatMap {
-            case (result, sequence) =>
-              val cleanedResult = ServerResultUtils.cleanFlashCookie(requestHeader, result)
-              NettyResultStreamer.sendResult(requestHeader, cleanedResult, nettyVersion, sequence)
+              val error = new RuntimeException("Body parser iteratee in error: " + msg)
+              val result = errorHandler(app).onServerError(requestHeader, error)
+              result.map(r => (r, 0))
+            }
           }
-
         }
 
       case unexpected => logger.error("Oops, unexpected message received in NettyServer (please report this problem): " + unexpected)
@@ -326,8 +405,13 @@ private[play] class PlayDefaultUpstreamHandler(server: NettyServer, allChannels:
   }
 
   def getHeaders(nettyRequest: HttpRequest): Headers = {
-    val pairs = nettyRequest.headers().entries().asScala.map(h => h.getKey -> h.getValue)
-    new Headers(pairs)
+    val builder = new IndexedHeaders.Builder(16)
+    val entries = nettyRequest.headers().iterator()
+    while (entries.hasNext) {
+      val entry = entries.next()
+      builder.add(entry.getKey, entry.getValue)
+    }
+    new Headers(builder.result())
   }
 
   def sendDownstream(subSequence: Int, last: Boolean, message: Object)(implicit ctx: ChannelHandlerContext, oue: OrderedUpstreamMessageEvent) = {
@@ -137,6 +137,55 @@ private[server] trait RequestBodyHandler {
     bodyHandlerResult.future.flatMap(_.run)
   }
 
+  /**
+   * Creates a new upstream handler that publishes the chunks of a chunked request, for an Akka Streams source.
+   *
+   * Chunks are only read as fast as they are requested.  If the subscriber cancels before the last chunk, the rest
+   * of the body is read and discarded.
+   *
+   * @param channel the channel that the request is received from.
+   * @param replaceHandler a function to handle the registration of a new handler. A handler is passed as a param.
+   * @param handlerFinished a function to handle the de-registration of the handler i.e. when the chunked request is complete.
+   * @return a publisher of the chunks of the body.
+   */
+  def newRequestBodyPublisher(channel: Channel,
+    replaceHandler: ChannelUpstreamHandler => Unit,
+    handlerFinished: => Unit): ChannelPublisher[ByteString] = {
+
+    val publisher = new ChannelPublisher[ByteString](channel, "The body of a request")
+
+    replaceHandler(new SimpleChannelUpstreamHandler {
+      override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
+        e.getMessage match {
+
+          case chunk: HttpChunk if !chunk.isLast =>
+            publisher.push(ByteString(chunk.getContent.toByteBuffer))
+
+          case chunk: HttpChunk if chunk.isLast =>
+            publisher.complete()
+            handlerFinished
+
+          case unexpected =>
+            logger.error("Oops, unexpected message received in NettyServer/RequestBodyHandler" +
+              " (please report this problem): " + unexpected)
+
+        }
+      }
+
+      override def exceptionCaught(ctx: ChannelHandlerContext, e: ExceptionEvent) {
+        logger.error("Exception caught in RequestBodyHandler", e.getCause)
+        e.getChannel.close()
+      }
+
+      override def channelDisconnected(ctx: ChannelHandlerContext, e: ChannelStateEvent) {
+        publisher.complete()
+      }
+
+    })
+
+    publisher
+  }
+
   /**
    * Ignores the body, but calls finish when finished.
    */
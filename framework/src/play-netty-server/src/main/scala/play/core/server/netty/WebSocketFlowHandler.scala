@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.netty
+
+import java.nio.ByteBuffer
+import java.nio.charset.{ CharacterCodingException, StandardCharsets }
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.zip.DataFormatException
+
+import akka.util.ByteString
+import org.jboss.netty.buffer.{ ChannelBuffer, ChannelBuffers }
+import org.jboss.netty.channel._
+import org.jboss.netty.handler.codec.http.websocketx._
+import org.reactivestreams.{ Publisher, Subscriber, Subscription }
+import play.api.Logger
+import play.api.http.websocket._
+import play.core.server.websocket.PerMessageDeflate
+
+/**
+ * Handles the frames of a WebSocket for an Akka Streams flow of messages.
+ *
+ * Received messages are published by `publisher` only as fast as they are requested.  When there is no demand, the
+ * channel stops reading, so the client is backpressured by TCP.  Messages to send are consumed by `subscriber`, which
+ * requests more messages as frames are written.
+ *
+ * @param channel The channel of the WebSocket.
+ * @param config The WebSocket configuration.
+ * @param deflate Whether permessage-deflate has been negotiated.
+ */
+private[netty] class WebSocketFlowHandler(channel: Channel, config: WebSocketConfiguration, deflate: Boolean)
+    extends SimpleChannelUpstreamHandler {
+
+  import WebSocketFlowHandler._
+
+  def publisher: Publisher[Message] = inbound
+  def subscriber: Subscriber[Message] = outbound
+
+  private val inbound = new ChannelPublisher[Message](channel, "The messages of a WebSocket")
+  private val closeSent = new AtomicBoolean()
+
+  // The fragments of the message that is being received.  Only accessed by the Netty IO thread.
+  private var fragments: Option[Fragments] = None
+
+  override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent): Unit = {
+    (e.getMessage, fragments) match {
+
+      case (frame: ContinuationWebSocketFrame, Some(previous)) =>
+        receivedFragment(previous.append(bytes(frame.getBinaryData)), frame.isFinalFragment)
+
+      // The common case of a text message in a single frame, which can be decoded directly
+      case (frame: TextWebSocketFrame, None) if frame.isFinalFragment && !isCompressed(frame) =>
+        receivedText(frame.getBinaryData.toByteBuffer)
+
+      case (frame: TextWebSocketFrame, None) =>
+        receivedFragment(Fragments(text = true, isCompressed(frame), bytes(frame.getBinaryData)), frame.isFinalFragment)
+
+      case (frame: BinaryWebSocketFrame, None) =>
+        receivedFragment(Fragments(text = false, isCompressed(frame), bytes(frame.getBinaryData)), frame.isFinalFragment)
+
+      case (frame: CloseWebSocketFrame, _) =>
+        val statusCode = frame.getStatusCode
+        close(if (statusCode == -1) CloseCodes.NoStatus else statusCode, "")
+
+      case (frame: PingWebSocketFrame, _) =>
+        channel.write(new PongWebSocketFrame(frame.getBinaryData))
+
+      case (frame: PongWebSocketFrame, _) => // ignore
+
+      case (frame: WebSocketFrame, _) =>
+        close(CloseCodes.ProtocolError, "Unexpected frame")
+
+      case _ => //
+    }
+  }
+
+  override def exceptionCaught(ctx: ChannelHandlerContext, e: ExceptionEvent): Unit = {
+    logger.trace("Exception caught in WebSocket", e.getCause)
+    channel.close()
+  }
+
+  override def channelDisconnected(ctx: ChannelHandlerContext, e: ChannelStateEvent): Unit = {
+    inbound.complete()
+    outbound.cancel()
+    logger.trace("disconnected socket")
+  }
+
+  private def isCompressed(frame: WebSocketFrame) = deflate && (frame.getRsv & Rsv1) != 0
+
+  // The only copy of the payload, as the decoder passes on slices of the buffer it reads frames from
+  private def bytes(buffer: ChannelBuffer) = ByteString(buffer.toByteBuffer)
+
+  private def receivedFragment(current: Fragments, finalFragment: Boolean): Unit = {
+    if (current.data.length > config.bufferLimit) {
+      fragments = None
+      close(CloseCodes.TooBig, "Message too long, configured limit is " + config.bufferLimit)
+    } else if (finalFragment) {
+      fragments = None
+      val data = if (current.compressed) {
+        try PerMessageDeflate.decompress(current.data, config.bufferLimit) catch {
+          case e: DataFormatException =>
+            close(CloseCodes.InconsistentData, "Invalid compressed message")
+            return
+        }
+      } else {
+        Some(current.data)
+      }
+      data match {
+        case Some(message) if current.text => receivedText(message.asByteBuffer)
+        case Some(message) => receivedMessage(BinaryMessage(message))
+        case None => close(CloseCodes.TooBig, "Message too long, configured limit is " + config.bufferLimit)
+      }
+    } else {
+      fragments = Some(current)
+    }
+  }
+
+  private def receivedMessage(message: Message): Unit = inbound.push(message)
+
+  // The text of frames compressed with permessage-deflate can only be validated once it has been decompressed
+  private def receivedText(data: ByteBuffer): Unit = {
+    try {
+      receivedMessage(TextMessage(StandardCharsets.UTF_8.newDecoder.decode(data).toString))
+    } catch {
+      case e: CharacterCodingException =>
+        close(CloseCodes.InconsistentData, "Invalid UTF-8 in text message")
+    }
+  }
+
+  /**
+   * Close the WebSocket, if it hasn't already been closed.
+   */
+  private def close(statusCode: Int, reason: String): Unit = {
+    if (!reason.isEmpty) {
+      logger.trace("Closing WebSocket because " + reason)
+    }
+    inbound.complete()
+    if (closeSent.compareAndSet(false, true) && channel.isOpen) {
+      val frame = if (statusCode == CloseCodes.NoStatus) new CloseWebSocketFrame() else new CloseWebSocketFrame(statusCode, reason)
+      channel.write(frame).addListener(ChannelFutureListener.CLOSE)
+    }
+  }
+
+  /**
+   * Writes the messages to send.
+   *
+   * Up to `MaxInFlight` messages are requested at a time, each written message requests one more.
+   */
+  private object outbound extends Subscriber[Message] {
+
+    private var subscription: Subscription = null
+    private var cancelled = false
+
+    // Requests the next message when a frame has been written
+    private val requestNext = new ChannelFutureListener {
+      def operationComplete(future: ChannelFuture) = {
+        if (future.isSuccess) subscription.request(1) else cancel()
+      }
+    }
+
+    def onSubscribe(s: Subscription): Unit = {
+      val accepted = synchronized {
+        if (subscription == null && !cancelled) {
+          subscription = s
+          true
+        } else false
+      }
+      if (accepted) s.request(MaxInFlight) else s.cancel()
+    }
+
+    def onNext(message: Message): Unit = message match {
+      case TextMessage(text) if deflate && text.length >= config.deflate.threshold =>
+        val compressed = PerMessageDeflate.compress(ByteString(text, "UTF-8"))
+        write(new TextWebSocketFrame(true, Rsv1, buffer(compressed)))
+      case TextMessage(text) =>
+        write(new TextWebSocketFrame(true, 0, text))
+      case BinaryMessage(data) if deflate && data.length >= config.deflate.threshold =>
+        write(new BinaryWebSocketFrame(true, Rsv1, buffer(PerMessageDeflate.compress(data))))
+      case BinaryMessage(data) =>
+        write(new BinaryWebSocketFrame(true, 0, buffer(data)))
+      case PingMessage(data) =>
+        write(new PingWebSocketFrame(buffer(data)))
+      case PongMessage(data) =>
+        write(new PongWebSocketFrame(buffer(data)))
+      case CloseMessage(statusCode, reason) =>
+        cancel()
+        close(statusCode.getOrElse(CloseCodes.NoStatus), reason)
+    }
+
+    def onError(t: Throwable): Unit = t match {
+      case WebSocketCloseException(CloseMessage(statusCode, reason)) =>
+        close(statusCode.getOrElse(CloseCodes.NoStatus), reason)
+      case other =>
+        logger.error("WebSocket flow failed", other)
+        close(CloseCodes.UnexpectedCondition, "")
+    }
+
+    def onComplete(): Unit = close(CloseCodes.Regular, "")
+
+    def cancel(): Unit = {
+      val toCancel = synchronized {
+        cancelled = true
+        subscription
+      }
+      if (toCancel != null) toCancel.cancel()
+    }
+
+    private def write(frame: WebSocketFrame): Unit = {
+      channel.write(frame).addListener(requestNext)
+    }
+
+    // Wraps the bytes without copying them
+    private def buffer(data: ByteString): ChannelBuffer = {
+      ChannelBuffers.wrappedBuffer(data.asByteBuffers.toSeq: _*)
+    }
+  }
+}
+
+private[netty] object WebSocketFlowHandler {
+
+  private val logger = Logger(classOf[WebSocketFlowHandler])
+
+  /**
+   * The RSV1 bit of a frame, which is set on the first frame of messages compressed with permessage-deflate.
+   */
+  private val Rsv1 = 4
+
+  /**
+   * The maximum number of messages to be sent that are being written at a time.
+   */
+  private val MaxInFlight = 16
+
+  private case class Fragments(text: Boolean, compressed: Boolean, data: ByteString) {
+    def append(more: ByteString) = copy(data = data ++ more)
+  }
+}
@@ -5,13 +5,16 @@ package play.core.server.netty
 
 import scala.language.reflectiveCalls
 
+import akka.stream.Materializer
+import akka.stream.scaladsl.{ Flow, Sink, Source }
 import org.jboss.netty.channel._
 import org.jboss.netty.handler.codec.http._
 import org.jboss.netty.handler.codec.http.websocketx._
 import play.core._
 import play.core.websocket._
-import play.core.server.websocket.WebSocketHandshake
+import play.core.server.websocket.{ PerMessageDeflate, WebSocketHandshake }
 import play.api._
+import play.api.http.websocket.{ Message, WebSocketConfiguration }
 import play.api.mvc.WebSocket.FrameFormatter
 import play.api.libs.iteratee._
 import play.api.libs.iteratee.Input._
@@ -243,6 +246,27 @@ private[server] trait WebSocketHandler {
     enumerator
   }
 
+  /**
+   * Shake hands, and handle the WebSocket with the given flow.
+   *
+   * permessage-deflate is used if it's enabled and the client asks for it.
+   */
+  def websocketFlowHandshake(ctx: ChannelHandlerContext, req: HttpRequest, config: WebSocketConfiguration)(flow: Flow[Message, Message, _])(implicit mat: Materializer): Unit = {
+
+    val extensions = for {
+      header <- Option(req.headers.get(WebSocketHandshake.SecWebSocketExtensions))
+      if config.deflate.enabled && req.headers.get(HttpHeaders.Names.SEC_WEBSOCKET_VERSION) == WebSocketVersion.V13.toHttpHeaderValue
+      response <- PerMessageDeflate.negotiate(header)
+    } yield response
+
+    val handler = new WebSocketFlowHandler(ctx.getChannel, config, extensions.isDefined)
+    val p: ChannelPipeline = ctx.getChannel.getPipeline
+    p.replace("handler", "handler", handler)
+
+    WebSocketHandshake.shake(ctx, req, config.maxFrameLength, extensions)
+    Source(handler.publisher).via(flow).runWith(Sink(handler.subscriber))
+  }
+
   def websocketable(req: HttpRequest) = new server.WebSocketable {
     def check = HttpHeaders.Values.WEBSOCKET.equalsIgnoreCase(req.headers().get(HttpHeaders.Names.UPGRADE))
     def getHeader(header: String) = req.headers().get(header)
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.websocket
+
+import java.util.zip.{ DataFormatException, Deflater, Inflater }
+
+import akka.util.{ ByteString, ByteStringBuilder }
+
+/**
+ * The permessage-deflate WebSocket extension, as defined by RFC 7692.
+ *
+ * No context takeover is negotiated in either direction, so each message is compressed independently.  This means
+ * the deflaters and inflaters don't need to be kept for each WebSocket, so one is kept for each thread instead.
+ */
+private[server] object PerMessageDeflate {
+
+  val ExtensionName = "permessage-deflate"
+
+  /**
+   * The response to a negotiation that has been accepted.
+   */
+  val Response = s"$ExtensionName; server_no_context_takeover; client_no_context_takeover"
+
+  // The bytes that end a deflate block that was flushed, which are removed from messages
+  private val Tail = ByteString(Array[Byte](0x00, 0x00, -1, -1))
+
+  private val BufferSize = 8192
+
+  private val deflaters = new ThreadLocal[Deflater] {
+    override def initialValue() = new Deflater(Deflater.DEFAULT_COMPRESSION, true)
+  }
+  private val inflaters = new ThreadLocal[Inflater] {
+    override def initialValue() = new Inflater(true)
+  }
+  private val buffers = new ThreadLocal[Array[Byte]] {
+    override def initialValue() = new Array[Byte](BufferSize)
+  }
+
+  /**
+   * Negotiate permessage-deflate, given the value of the Sec-WebSocket-Extensions header of the request.
+   *
+   * @return The value of the Sec-WebSocket-Extensions header of the response if one of the offers of the client was
+   *         accepted.
+   */
+  def negotiate(extensionsHeader: String): Option[String] = {
+    val offers = extensionsHeader.split(",").map(_.split(";").map(_.trim).toList)
+    offers.collectFirst {
+      case ExtensionName :: parameters if parameters.forall(acceptable) => Response
+    }
+  }
+
+  private def acceptable(parameter: String): Boolean = {
+    parameter.split("=", 2).map(_.trim) match {
+      case Array("server_no_context_takeover") | Array("client_no_context_takeover") => true
+      // We can't reduce the window of the deflater, so only the default window is acceptable
+      case Array("server_max_window_bits", bits) => bits.stripPrefix("\"").stripSuffix("\"") == "15"
+      // We don't have to reduce the window of the client
+      case Array("client_max_window_bits") | Array("client_max_window_bits", _) => true
+      case _ => false
+    }
+  }
+
+  /**
+   * Compress a message.
+   */
+  def compress(data: ByteString): ByteString = {
+    val deflater = deflaters.get()
+    val buffer = buffers.get()
+    val compressed = new ByteStringBuilder
+    deflater.reset()
+    deflater.setInput(data.toArray)
+    var length = 0
+    do {
+      length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH)
+      compressed.putBytes(buffer, 0, length)
+    } while (length == buffer.length)
+    val result = compressed.result()
+    if (result.endsWith(Tail)) result.dropRight(Tail.length) else result
+  }
+
+  /**
+   * Decompress a message.
+   *
+   * @param maxLength The maximum length of the decompressed message.
+   * @return The message, or None if it's longer than the maximum length.
+   * @throws DataFormatException If the message isn't valid compressed data.
+   */
+  def decompress(data: ByteString, maxLength: Long): Option[ByteString] = {
+    val inflater = inflaters.get()
+    val buffer = buffers.get()
+    val decompressed = new ByteStringBuilder
+    inflater.reset()
+    inflater.setInput((data ++ Tail).toArray)
+    do {
+      val length = inflater.inflate(buffer)
+      decompressed.putBytes(buffer, 0, length)
+    } while (decompressed.length <= maxLength && !inflater.needsInput && !inflater.finished)
+    if (decompressed.length <= maxLength) Some(decompressed.result()) else None
+  }
+}
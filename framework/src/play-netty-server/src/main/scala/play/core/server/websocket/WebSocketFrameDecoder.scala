@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.websocket
+
+import org.jboss.netty.buffer.{ ChannelBuffer, ChannelBuffers }
+import org.jboss.netty.channel.{ Channel, ChannelFutureListener, ChannelHandlerContext }
+import org.jboss.netty.handler.codec.frame.FrameDecoder
+import org.jboss.netty.handler.codec.http.websocketx._
+import play.api.http.websocket.CloseCodes
+
+/**
+ * Decodes the frames sent by a client that has negotiated permessage-deflate.
+ *
+ * The Netty decoder validates the payload of text frames as UTF-8, which fails for compressed text frames.  This
+ * decoder leaves text validation to the handler, once a message has been aggregated and decompressed.  Fragmentation
+ * is also checked by the handler.
+ *
+ * @param maxFramePayloadLength The maximum length of the payload of a frame.
+ */
+private[server] class WebSocketFrameDecoder(maxFramePayloadLength: Long) extends FrameDecoder {
+
+  import WebSocketFrameDecoder._
+
+  private var closed = false
+
+  override protected def decode(ctx: ChannelHandlerContext, channel: Channel, buffer: ChannelBuffer): AnyRef = {
+    if (closed) {
+      buffer.skipBytes(buffer.readableBytes)
+      return null
+    }
+    if (buffer.readableBytes < 2) return null
+
+    val start = buffer.readerIndex
+    val b0 = buffer.getByte(start)
+    val b1 = buffer.getByte(start + 1)
+    val finalFragment = (b0 & 0x80) != 0
+    val rsv = (b0 & 0x70) >> 4
+    val opcode = b0 & 0x0f
+    val masked = (b1 & 0x80) != 0
+    val shortLength = b1 & 0x7f
+    val lengthBytes = shortLength match {
+      case 126 => 2
+      case 127 => 8
+      case _ => 0
+    }
+    val headerLength = 2 + lengthBytes + 4
+    if (buffer.readableBytes < headerLength) return null
+
+    val payloadLength = lengthBytes match {
+      case 2 => buffer.getUnsignedShort(start + 2).toLong
+      case 8 => buffer.getLong(start + 2)
+      case _ => shortLength.toLong
+    }
+
+    if (!masked) {
+      violation(channel, buffer, CloseCodes.ProtocolError, "Received an unmasked frame")
+    } else if ((rsv & ~Rsv1) != 0) {
+      violation(channel, buffer, CloseCodes.ProtocolError, "Received a frame with unknown reserved bits")
+    } else if (opcode >= Close && (!finalFragment || payloadLength > 125 || rsv != 0 || opcode > Pong)) {
+      violation(channel, buffer, CloseCodes.ProtocolError, "Received an invalid control frame")
+    } else if (opcode > Binary && opcode < Close) {
+      violation(channel, buffer, CloseCodes.ProtocolError, "Received a frame with an unknown opcode")
+    } else if (payloadLength < 0 || payloadLength > maxFramePayloadLength) {
+      violation(channel, buffer, CloseCodes.TooBig, "Max frame length of " + maxFramePayloadLength + " has been exceeded")
+    } else if (buffer.readableBytes < headerLength + payloadLength) {
+      null
+    } else {
+      val maskOffset = start + 2 + lengthBytes
+      val mask = Array(buffer.getByte(maskOffset), buffer.getByte(maskOffset + 1), buffer.getByte(maskOffset + 2),
+        buffer.getByte(maskOffset + 3))
+      buffer.skipBytes(headerLength)
+      // Unmask the payload in place, and pass on a slice of the buffer rather than a copy.  Frames are handled before
+      // this buffer is read again, and the handler copies the payload once, into the message it builds.
+      val payloadStart = buffer.readerIndex
+      val length = payloadLength.toInt
+      var i = 0
+      while (i < length) {
+        buffer.setByte(payloadStart + i, buffer.getByte(payloadStart + i) ^ mask(i & 3))
+        i += 1
+      }
+      val data = buffer.readSlice(length)
+
+      opcode match {
+        case Continuation => new ContinuationWebSocketFrame(finalFragment, rsv, data)
+        case Text => new TextWebSocketFrame(finalFragment, rsv, data)
+        case Binary => new BinaryWebSocketFrame(finalFragment, rsv, data)
+        case Close =>
+          closed = true
+          new CloseWebSocketFrame(finalFragment, rsv, data)
+        // The payload of a ping is echoed by a pong that is written later, so it can't share the buffer
+        case Ping => new PingWebSocketFrame(finalFragment, rsv, ChannelBuffers.copiedBuffer(data))
+        case Pong => new PongWebSocketFrame(finalFragment, rsv, data)
+      }
+    }
+  }
+
+  private def violation(channel: Channel, buffer: ChannelBuffer, statusCode: Int, reason: String): AnyRef = {
+    closed = true
+    buffer.skipBytes(buffer.readableBytes)
+    if (channel.isOpen) {
+      channel.write(new CloseWebSocketFrame(statusCode, reason)).addListener(ChannelFutureListener.CLOSE)
+    }
+    null
+  }
+}
+
+private[server] object WebSocketFrameDecoder {
+
+  private val Rsv1 = 4
+
+  private val Continuation = 0x0
+  private val Text = 0x1
+  private val Binary = 0x2
+  private val Close = 0x8
+  private val Ping = 0x9
+  private val Pong = 0xa
+}
@@ -30,16 +30,40 @@ import java.nio.charset.Charset
 import java.security.MessageDigest
 
 object WebSocketHandshake {
+
+  val SecWebSocketExtensions = "Sec-WebSocket-Extensions"
+
   protected def getWebSocketLocation(request: HttpRequest) = "ws://" + request.headers.get(HttpHeaders.Names.HOST) + request.getUri()
 
   def shake(ctx: ChannelHandlerContext, req: HttpRequest, bufferLimit: Long): Unit = {
+    shake(ctx, req, bufferLimit, None)
+  }
+
+  /**
+   * Shake hands, sending the given Sec-WebSocket-Extensions header if any extensions were negotiated.
+   *
+   * Extensions can only be negotiated with version 13 of the protocol, which is the version that has been
+   * standardised.
+   */
+  def shake(ctx: ChannelHandlerContext, req: HttpRequest, maxFramePayloadLength: Long, extensions: Option[String]): Unit = {
     val factory = new WebSocketServerHandshakerFactory(getWebSocketLocation(req),
       "*", /* wildcard to accept all subprotocols */
       true /* allowExtensions */ ,
-      bufferLimit
+      maxFramePayloadLength
     )
 
-    val shaker = factory.newHandshaker(req)
+    val shaker = extensions match {
+      case Some(header) if req.headers.get(SEC_WEBSOCKET_VERSION) == WebSocketVersion.V13.toHttpHeaderValue =>
+        new WebSocketServerHandshaker13(getWebSocketLocation(req), "*", true, maxFramePayloadLength) {
+          override protected def writeHandshakeResponse(channel: Channel, res: HttpResponse, encoder: ChannelHandler,
+            decoder: ChannelHandler) = {
+            res.headers.set(SecWebSocketExtensions, header)
+            // Compressed text frames fail the UTF-8 validation of the Netty decoder
+            super.writeHandshakeResponse(channel, res, encoder, new WebSocketFrameDecoder(maxFramePayloadLength))
+          }
+        }
+      case _ => factory.newHandshaker(req)
+    }
 
     // HACK ALERT: the netty websocket handshaker wants to remove
     // an HttpChunkAggregator and throws an exception when it
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.netty4
+
+import io.netty.channel.{ ChannelDuplexHandler, ChannelHandlerContext, ChannelPromise }
+
+/**
+ * Coalesces flushes, so that many small writes are sent to the socket with one system call.
+ *
+ * Flushes requested while the channel is reading are deferred until the read completes, for example so that the
+ * responses to pipelined requests are sent together.  Flushes requested at other times, for example while a body is
+ * being streamed, are deferred to a task on the event loop, so that all the flushes requested before that task runs
+ * are done as one.
+ *
+ * This must be added to the pipeline on the socket side of the handlers that flush.
+ */
+private[netty4] class FlushCoalescingHandler extends ChannelDuplexHandler {
+
+  private var reading = false
+  private var flushPending = false
+  private var flushScheduled = false
+
+  private var context: ChannelHandlerContext = _
+
+  private val flushTask = new Runnable {
+    def run() = {
+      flushScheduled = false
+      flushIfPending(context)
+    }
+  }
+
+  override def handlerAdded(ctx: ChannelHandlerContext) = {
+    context = ctx
+  }
+
+  override def channelRead(ctx: ChannelHandlerContext, msg: Object) = {
+    reading = true
+    ctx.fireChannelRead(msg)
+  }
+
+  override def channelReadComplete(ctx: ChannelHandlerContext) = {
+    reading = false
+    flushIfPending(ctx)
+    ctx.fireChannelReadComplete()
+  }
+
+  override def flush(ctx: ChannelHandlerContext) = {
+    flushPending = true
+    if (!reading && !flushScheduled) {
+      flushScheduled = true
+      ctx.executor.execute(flushTask)
+    }
+  }
+
+  override def channelWritabilityChanged(ctx: ChannelHandlerContext) = {
+    // Once the outbound buffer is full, nothing more can be written until it has been flushed
+    if (!ctx.channel.isWritable) {
+      flushIfPending(ctx)
+    }
+    ctx.fireChannelWritabilityChanged()
+  }
+
+  override def exceptionCaught(ctx: ChannelHandlerContext, cause: Throwable) = {
+    flushIfPending(ctx)
+    ctx.fireExceptionCaught(cause)
+  }
+
+  override def disconnect(ctx: ChannelHandlerContext, promise: ChannelPromise) = {
+    flushIfPending(ctx)
+    ctx.disconnect(promise)
+  }
+
+  override def close(ctx: ChannelHandlerContext, promise: ChannelPromise) = {
+    flushIfPending(ctx)
+    ctx.close(promise)
+  }
+
+  override def handlerRemoved(ctx: ChannelHandlerContext) = {
+    flushIfPending(ctx)
+  }
+
+  private def flushIfPending(ctx: ChannelHandlerContext): Unit = {
+    if (flushPending) {
+      flushPending = false
+      ctx.flush()
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.netty4
+
+import akka.actor.ActorSystem
+import akka.stream.Materializer
+import com.typesafe.config.{ Config, ConfigValue }
+import com.typesafe.netty.http.HttpStreamsServerHandler
+import io.netty.bootstrap.ServerBootstrap
+import io.netty.buffer.PooledByteBufAllocator
+import io.netty.channel._
+import io.netty.channel.epoll.{ Epoll, EpollEventLoopGroup, EpollServerSocketChannel }
+import io.netty.channel.group.DefaultChannelGroup
+import io.netty.channel.nio.NioEventLoopGroup
+import io.netty.channel.socket.SocketChannel
+import io.netty.channel.socket.nio.NioServerSocketChannel
+import io.netty.handler.codec.http._
+import io.netty.handler.logging.{ LogLevel, LoggingHandler }
+import io.netty.handler.ssl.SslHandler
+import io.netty.util.concurrent.{ DefaultThreadFactory, GlobalEventExecutor }
+import java.net.InetSocketAddress
+import play.api._
+import play.core.ApplicationProvider
+import play.core.server._
+import play.core.server.common.ForwardedHeaderHandler
+import play.core.server.ssl.ServerSSLEngine
+import play.server.SSLEngineProvider
+import scala.collection.JavaConverters._
+import scala.concurrent.{ Await, Future }
+import scala.concurrent.duration.Duration
+import scala.util.control.NonFatal
+
+/**
+ * Starts a Play server using Netty 4.
+ *
+ * Buffers are allocated from Netty's pooled allocator, and the native epoll transport is used on Linux when it's
+ * available.  Request and response bodies are streamed to and from Netty as Reactive Streams.
+ */
+class Netty4Server(
+    config: ServerConfig,
+    val applicationProvider: ApplicationProvider,
+    stopHook: () => Future[Unit],
+    val actorSystem: ActorSystem,
+    val materializer: Materializer) extends Server {
+
+  import Netty4Server._
+
+  private val nettyConfig = PlayConfig(config.configuration).get[PlayConfig]("play.server.netty4")
+  private val maxInitialLineLength = nettyConfig.get[Int]("maxInitialLineLength")
+  private val maxHeaderSize = nettyConfig.get[Int]("maxHeaderSize")
+  private val maxChunkSize = nettyConfig.get[Int]("maxChunkSize")
+  private val logWire = nettyConfig.get[Boolean]("log.wire")
+
+  def mode = config.mode
+
+  private val transport: Transport = nettyConfig.get[String]("transport") match {
+    case "native" if Epoll.isAvailable => Transport.Epoll
+    case "native" =>
+      logger.debug("The native transport is not available, falling back to NIO: " + Epoll.unavailabilityCause)
+      Transport.Nio
+    case "nio" => Transport.Nio
+    case other => throw nettyConfig.reportError("transport", s"Unknown transport '$other', expected native or nio")
+  }
+
+  private val eventLoop: EventLoopGroup = {
+    val threads = nettyConfig.get[Int]("eventLoopThreads")
+    val threadFactory = new DefaultThreadFactory("netty-event-loop")
+    transport match {
+      case Transport.Epoll => new EpollEventLoopGroup(threads, threadFactory)
+      case Transport.Nio => new NioEventLoopGroup(threads, threadFactory)
+    }
+  }
+
+  // Keep a reference on all opened channels (useful to close everything properly, especially in DEV mode)
+  private val allChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE)
+
+  // Lazy, because the forwarded header configuration is read from the application, which in dev mode is only
+  // available once the first request has been received
+  private[netty4] lazy val modelConversion: NettyModelConversion = {
+    val forwardedHeaderHandler = new ForwardedHeaderHandler(
+      ForwardedHeaderHandler.ForwardedHeaderHandlerConfig(applicationProvider.get.toOption.map(_.configuration)))
+    new NettyModelConversion(forwardedHeaderHandler)
+  }
+
+  private lazy val sslEngineProvider: Option[SSLEngineProvider] = //the sslContext should be reused on each connection
+    try {
+      Some(ServerSSLEngine.createSSLEngineProvider(config, applicationProvider))
+    } catch {
+      case NonFatal(e) =>
+        logger.error(s"cannot load SSL context", e)
+        None
+    }
+
+  private class PlayChannelInitializer(secure: Boolean) extends ChannelInitializer[SocketChannel] {
+    def initChannel(channel: SocketChannel) = {
+      allChannels.add(channel)
+      val pipeline = channel.pipeline()
+      if (secure) {
+        sslEngineProvider.foreach { sslEngineProvider =>
+          val sslEngine = sslEngineProvider.createSSLEngine()
+          sslEngine.setUseClientMode(false)
+          pipeline.addLast("ssl", new SslHandler(sslEngine))
+        }
+      }
+      pipeline.addLast("flush-coalescing", new FlushCoalescingHandler)
+      pipeline.addLast("decoder", new HttpRequestDecoder(maxInitialLineLength, maxHeaderSize, maxChunkSize))
+      pipeline.addLast("encoder", new HttpResponseEncoder())
+      pipeline.addLast("decompressor", new HttpContentDecompressor())
+      if (logWire) {
+        pipeline.addLast("logging", new LoggingHandler(LogLevel.DEBUG))
+      }
+      // The request handler holds the state of the connection, so each connection gets its own
+      val requestHandler = new PlayRequestHandler(Netty4Server.this)
+      pipeline.addLast("http-streams", new HttpStreamsServerHandler(Seq[ChannelHandler](requestHandler).asJava))
+      pipeline.addLast("handler", requestHandler)
+    }
+  }
+
+  private def bind(port: Int, secure: Boolean): Channel = {
+    val bootstrap = new ServerBootstrap()
+      .group(eventLoop)
+      .channel(transport.serverChannelClass)
+      .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+      .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+      // Reads are requested by the request handler, so that a connection only reads the next request once the
+      // response to the previous one has been sent
+      .childOption(ChannelOption.AUTO_READ, java.lang.Boolean.FALSE)
+      .childHandler(new PlayChannelInitializer(secure))
+
+    setOptions(nettyConfig.get[Config]("option"), bootstrap)
+
+    val channel = bootstrap.bind(new InetSocketAddress(config.address, port)).sync().channel()
+    allChannels.add(channel)
+    channel
+  }
+
+  private def setOptions(options: Config, bootstrap: ServerBootstrap): Unit = {
+    def unwrap(value: ConfigValue): AnyRef = value.unwrapped() match {
+      case "true" | "yes" => java.lang.Boolean.TRUE
+      case "false" | "no" => java.lang.Boolean.FALSE
+      case string: String => try Integer.valueOf(string) catch {
+        case e: NumberFormatException => string
+      }
+      case other => other
+    }
+
+    options.entrySet().asScala.foreach { entry =>
+      val value = unwrap(entry.getValue)
+      entry.getKey.split('.') match {
+        case Array("child", name) => bootstrap.childOption(ChannelOption.valueOf[AnyRef](name), value)
+        case Array(name) => bootstrap.option(ChannelOption.valueOf[AnyRef](name), value)
+        case _ => throw nettyConfig.reportError("option." + entry.getKey, "Unknown Netty option " + entry.getKey)
+      }
+    }
+  }
+
+  // The HTTP server channel
+  private val httpChannel = config.port.map(bind(_, secure = false))
+
+  // Maybe the HTTPS server channel
+  private val httpsChannel = config.sslPort.map(bind(_, secure = true))
+
+  mode match {
+    case Mode.Test =>
+    case _ =>
+      httpChannel.foreach { http =>
+        logger.info(s"Listening for HTTP on ${http.localAddress} using the ${transport.name} transport")
+      }
+      httpsChannel.foreach { https =>
+        logger.info(s"Listening for HTTPS on ${https.localAddress} using the ${transport.name} transport")
+      }
+  }
+
+  override def stop() {
+
+    applicationProvider.current.foreach(Play.stop)
+
+    try {
+      super.stop()
+    } catch {
+      case NonFatal(e) => logger.error("Error while stopping logger", e)
+    }
+
+    mode match {
+      case Mode.Test =>
+      case _ => logger.info("Stopping server...")
+    }
+
+    // First, close all opened sockets
+    allChannels.close().awaitUninterruptibly()
+
+    // Then release the event loop threads
+    eventLoop.shutdownGracefully().awaitUninterruptibly()
+
+    // Call provided hook
+    // Do this last because the hooks were created before the server,
+    // so the server might need them to run until the last moment.
+    Await.result(stopHook(), Duration.Inf)
+  }
+
+  override lazy val mainAddress = {
+    (httpChannel orElse httpsChannel).get.localAddress.asInstanceOf[InetSocketAddress]
+  }
+
+  def httpPort = httpChannel map (_.localAddress.asInstanceOf[InetSocketAddress].getPort)
+
+  def httpsPort = httpsChannel map (_.localAddress.asInstanceOf[InetSocketAddress].getPort)
+}
+
+object Netty4Server {
+
+  private val logger = Logger(classOf[Netty4Server])
+
+  /**
+   * A ServerProvider for creating a Netty4Server.
+   */
+  implicit val provider = new Netty4ServerProvider
+
+  private sealed abstract class Transport(val name: String, val serverChannelClass: Class[_ <: ServerChannel])
+
+  private object Transport {
+    case object Epoll extends Transport("native epoll", classOf[EpollServerSocketChannel])
+    case object Nio extends Transport("NIO", classOf[NioServerSocketChannel])
+  }
+}
+
+/**
+ * Knows how to create a Netty4Server.
+ */
+class Netty4ServerProvider extends ServerProvider {
+  def createServer(context: ServerProvider.Context) =
+    new Netty4Server(context.config, context.appProvider, context.stopHook, context.actorSystem, context.materializer)
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.netty4
+
+import akka.stream.Materializer
+import akka.stream.scaladsl.{ Sink, Source }
+import akka.util.ByteString
+import com.typesafe.netty.http.{ DefaultStreamedHttpResponse, StreamedHttpRequest }
+import io.netty.buffer.{ ByteBuf, Unpooled }
+import io.netty.channel.Channel
+import io.netty.handler.codec.http._
+import io.netty.handler.ssl.SslHandler
+import java.net.{ InetSocketAddress, URI }
+import play.api.Logger
+import play.api.http.{ HttpChunk, HttpEntity, Status }
+import play.api.http.HeaderNames._
+import play.api.mvc._
+import play.core.server.common.{ ForwardedHeaderHandler, ServerRequestUtils, ServerResultUtils }
+import play.core.system.RequestIdProvider
+import play.core.utils.IndexedHeaders
+import scala.collection.JavaConverters._
+import scala.util.Try
+import scala.util.control.NonFatal
+
+/**
+ * Conversions between Netty's and Play's HTTP model objects.
+ */
+private[netty4] class NettyModelConversion(forwardedHeaderHandler: ForwardedHeaderHandler) {
+
+  private val logger = Logger(classOf[NettyModelConversion])
+
+  /**
+   * Convert a Netty request to a Play `RequestHeader`.
+   *
+   * Fails if the URI of the request can't be parsed.
+   */
+  def convertRequest(channel: Channel, request: HttpRequest): Try[RequestHeader] = Try {
+    val uri = new QueryStringDecoder(request.getUri)
+    val parameters: Map[String, Seq[String]] = {
+      val decoded = uri.parameters
+      if (decoded.isEmpty) Map.empty else decoded.asScala.map { case (k, v) => k -> v.asScala }.toMap
+    }
+    // wrapping into URI to handle absoluteURI
+    val path = new URI(uri.path).getRawPath
+    createRequestHeader(channel, request, path, parameters)
+  }
+
+  /**
+   * Convert a Netty request to a Play `RequestHeader`, without parsing its URI.
+   *
+   * This is used to handle requests whose URIs can't be parsed.
+   */
+  def createUnparsedRequestHeader(channel: Channel, request: HttpRequest): RequestHeader = {
+    createRequestHeader(channel, request, request.getUri.takeWhile(_ != '?'), Map.empty)
+  }
+
+  private def createRequestHeader(channel: Channel, request: HttpRequest, parsedPath: String,
+    parameters: Map[String, Seq[String]]): RequestHeader = {
+    val remoteAddressArg = channel.remoteAddress.asInstanceOf[InetSocketAddress]
+    val secureProtocol = channel.pipeline.get(classOf[SslHandler]) != null
+    val rHeaders = convertRequestHeaders(request)
+
+    new RequestHeader {
+      override val id = RequestIdProvider.requestIDs.incrementAndGet
+      // Send a tag so our tests can tell which kind of server we're using.
+      override val tags = Map("HTTP_SERVER" -> "netty4")
+      override def uri = request.getUri
+      override def path = parsedPath
+      override def method = request.getMethod.name
+      override def version = request.getProtocolVersion.text
+      override def queryString = parameters
+      override def headers = rHeaders
+      override lazy val remoteAddress = ServerRequestUtils.findRemoteAddress(
+        forwardedHeaderHandler,
+        rHeaders,
+        remoteAddressArg
+      )
+      override lazy val secure = ServerRequestUtils.findSecureProtocol(
+        forwardedHeaderHandler,
+        rHeaders,
+        secureProtocol
+      )
+    }
+  }
+
+  private def convertRequestHeaders(request: HttpRequest): Headers = {
+    val builder = new IndexedHeaders.Builder(16)
+    val entries = request.headers.iterator
+    while (entries.hasNext) {
+      val entry = entries.next()
+      builder.add(entry.getKey, entry.getValue)
+    }
+    new Headers(builder.result())
+  }
+
+  /**
+   * Convert the body of a Netty request to a `Source`.
+   *
+   * The body is subscribed to directly from Netty, so it is only read from the socket as it is demanded.
+   */
+  def convertRequestBody(request: HttpRequest): Source[ByteString, Any] = {
+    request match {
+      case streamed: StreamedHttpRequest =>
+        Source(streamed).map(httpContentToByteString)
+      case full: FullHttpRequest =>
+        val body = httpContentToByteString(full)
+        if (body.isEmpty) Source.empty else Source.single(body)
+      case _ =>
+        Source.empty
+    }
+  }
+
+  /**
+   * Copy the content into a `ByteString`, and release the buffer back to Netty's pool.
+   */
+  private def httpContentToByteString(content: HttpContent): ByteString = {
+    try {
+      val buffer = content.content
+      if (buffer.isReadable) ByteString(buffer.nioBuffer) else ByteString.empty
+    } finally {
+      content.release()
+    }
+  }
+
+  /**
+   * Convert a Play `Result` to a Netty response.
+   *
+   * Strict bodies are wrapped rather than copied, and streamed bodies are published to Netty, which subscribes to them
+   * as the socket becomes writable.
+   */
+  def convertResult(requestHeader: RequestHeader, unvalidated: Result, httpVersion: HttpVersion)(implicit mat: Materializer): HttpResponse = {
+
+    val result = ServerResultUtils.validateResult(requestHeader, unvalidated)
+    val connectionHeader = ServerResultUtils.determineConnectionHeader(requestHeader, result)
+    val skipEntity = requestHeader.method == HttpMethod.HEAD.name
+
+    val responseStatus = result.header.reasonPhrase match {
+      case Some(phrase) => new HttpResponseStatus(result.header.status, phrase)
+      case None => HttpResponseStatus.valueOf(result.header.status)
+    }
+
+    val response: HttpResponse = result.body match {
+      case any if skipEntity =>
+        ServerResultUtils.cancelEntity(any)
+        new DefaultFullHttpResponse(httpVersion, responseStatus, Unpooled.EMPTY_BUFFER)
+
+      case HttpEntity.Strict(data, _) =>
+        new DefaultFullHttpResponse(httpVersion, responseStatus, byteStringToByteBuf(data))
+
+      case HttpEntity.Streamed(data, _, _) =>
+        streamedResponse(httpVersion, responseStatus, data)
+
+      case entity: HttpEntity.FileRegion =>
+        // The streams handler only writes HTTP messages and their contents, so file regions are streamed rather than
+        // sent with a Netty FileRegion
+        streamedResponse(httpVersion, responseStatus, entity.dataStream)
+
+      case HttpEntity.Chunked(chunks, _) =>
+        val contents = chunks.map {
+          case HttpChunk.Chunk(bytes) =>
+            new DefaultHttpContent(byteStringToByteBuf(bytes)): HttpContent
+          case HttpChunk.LastChunk(trailers) =>
+            val lastContent = new DefaultLastHttpContent()
+            trailers.headers.foreach {
+              case (name, value) => lastContent.trailingHeaders.add(name, value)
+            }
+            lastContent
+        }
+        val response = new DefaultStreamedHttpResponse(httpVersion, responseStatus, contents.runWith(Sink.publisher))
+        HttpHeaders.setTransferEncodingChunked(response)
+        response
+    }
+
+    try {
+      setResponseHeaders(response, result, connectionHeader.header)
+      response
+    } catch {
+      case NonFatal(e) =>
+        if (logger.isErrorEnabled) {
+          val prettyHeaders = result.header.headers.map { case (name, value) => s"$name -> $value" }.mkString("[", ",", "]")
+          val msg = s"Exception occurred while setting response's headers to $prettyHeaders. Action taken is to set the response's status to ${HttpResponseStatus.INTERNAL_SERVER_ERROR} and discard all headers."
+          logger.error(msg, e)
+        }
+        ServerResultUtils.cancelEntity(result.body)
+        val errorResponse = new DefaultFullHttpResponse(httpVersion, HttpResponseStatus.INTERNAL_SERVER_ERROR,
+          Unpooled.EMPTY_BUFFER)
+        HttpHeaders.setContentLength(errorResponse, 0)
+        errorResponse.headers.add(DATE, dateHeader)
+        errorResponse.headers.add(CONNECTION, HttpHeaders.Values.CLOSE)
+        errorResponse
+    }
+  }
+
+  private def streamedResponse(httpVersion: HttpVersion, status: HttpResponseStatus, data: Source[ByteString, _])(
+    implicit mat: Materializer): HttpResponse = {
+    val contents = data.map(bytes => new DefaultHttpContent(byteStringToByteBuf(bytes)): HttpContent)
+    new DefaultStreamedHttpResponse(httpVersion, status, contents.runWith(Sink.publisher))
+  }
+
+  private def setResponseHeaders(response: HttpResponse, result: Result, connectionHeader: Option[String]): Unit = {
+    val nettyHeaders = response.headers
+
+    ServerResultUtils.splitSetCookieHeaders(result.header.headers).foreach {
+      case (name, value) => nettyHeaders.add(name, value)
+    }
+
+    // Content type and length
+    if (mayHaveContentLength(result.header.status)) {
+      result.body.contentLength.foreach { contentLength =>
+        if (nettyHeaders.contains(CONTENT_LENGTH)) {
+          logger.warn("Content-Length header was set manually in the header, ignoring manual header")
+        }
+        nettyHeaders.set(CONTENT_LENGTH, contentLength)
+      }
+    }
+    result.body.contentType.foreach { contentType =>
+      if (nettyHeaders.contains(CONTENT_TYPE)) {
+        logger.warn(s"Content-Type set both in header (${nettyHeaders.get(CONTENT_TYPE)}) and attached to entity ($contentType), ignoring content type from entity. To remove this warning, use Result.as(...) to set the content type, rather than setting the header manually.")
+      } else {
+        nettyHeaders.add(CONTENT_TYPE, contentType)
+      }
+    }
+
+    connectionHeader.foreach { headerValue =>
+      nettyHeaders.set(CONNECTION, headerValue)
+    }
+
+    // Netty doesn't add the required Date header for us, so make sure there is one here
+    if (!nettyHeaders.contains(DATE)) {
+      nettyHeaders.add(DATE, dateHeader)
+    }
+  }
+
+  private def byteStringToByteBuf(bytes: ByteString): ByteBuf = {
+    if (bytes.isEmpty) Unpooled.EMPTY_BUFFER else Unpooled.wrappedBuffer(bytes.asByteBuffer)
+  }
+
+  private def mayHaveContentLength(status: Int) =
+    status != Status.NO_CONTENT && status != Status.NOT_MODIFIED
+
+  // cache the date header of the last response so we only need to compute it every second
+  private[this] var cachedDateHeader: (Long, String) = (Long.MinValue, null)
+  private[this] def dateHeader: String = {
+    val currentTimeMillis = System.currentTimeMillis()
+    val currentTimeSeconds = currentTimeMillis / 1000
+    cachedDateHeader match {
+      case (cachedSeconds, dateHeaderString) if cachedSeconds == currentTimeSeconds =>
+        dateHeaderString
+      case _ =>
+        val dateHeaderString = ResponseHeader.httpDateFormat.print(currentTimeMillis)
+        cachedDateHeader = currentTimeSeconds -> dateHeaderString
+        dateHeaderString
+    }
+  }
+}
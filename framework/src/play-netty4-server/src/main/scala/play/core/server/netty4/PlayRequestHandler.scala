@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.netty4
+
+import akka.stream.Materializer
+import akka.util.ByteString
+import io.netty.buffer.Unpooled
+import io.netty.channel._
+import io.netty.handler.codec.TooLongFrameException
+import io.netty.handler.codec.http._
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicBoolean
+import play.api._
+import play.api.http.{ DefaultHttpErrorHandler, HttpErrorHandler }
+import play.api.libs.iteratee.Execution.Implicits.trampoline
+import play.api.libs.streams.Accumulator
+import play.api.mvc._
+import play.core.server.common.ServerResultUtils
+import scala.concurrent.{ Future, Promise }
+import scala.util.{ Failure, Success }
+
+/**
+ * Handles the requests of one connection.
+ *
+ * Requests are received from an `HttpStreamsServerHandler`, so the bodies of requests are streamed, and the responses
+ * are written, as Reactive Streams.  Only one request is read at a time: the next request is only read once the
+ * response to the previous one has been written.
+ */
+private[netty4] class PlayRequestHandler(server: Netty4Server) extends ChannelInboundHandlerAdapter {
+
+  import PlayRequestHandler._
+
+  // Only accessed from the event loop of the channel
+  private var requestsInFlight = 0
+  private var lastResponseSent: Future[Unit] = Future.successful(())
+
+  override def channelActive(ctx: ChannelHandlerContext): Unit = {
+    // Auto read is off, so the first read must be requested explicitly
+    ctx.read()
+    ctx.fireChannelActive()
+  }
+
+  override def channelRead(ctx: ChannelHandlerContext, msg: Object): Unit = msg match {
+    case request: HttpRequest =>
+      logger.trace("Http request received by netty: " + request)
+      requestsInFlight += 1
+      val response = handle(ctx.channel, request)
+      // Responses must be written in the order that their requests were received
+      lastResponseSent = lastResponseSent.flatMap { _ =>
+        response.flatMap(writeResponse(ctx, _))
+      }
+    case unexpected =>
+      logger.error("Oops, unexpected message received in Netty4Server (please report this problem): " + unexpected)
+  }
+
+  override def channelReadComplete(ctx: ChannelHandlerContext): Unit = {
+    // Don't read the next request until the responses to the previous ones have been written, so that the number of
+    // requests in flight is limited by pushing back on the TCP stream
+    if (requestsInFlight == 0) {
+      ctx.read()
+    }
+    ctx.fireChannelReadComplete()
+  }
+
+  override def exceptionCaught(ctx: ChannelHandlerContext, cause: Throwable): Unit = {
+    cause match {
+      // IO exceptions happen all the time, it usually just means that the client has closed the connection before fully
+      // sending/receiving the response.
+      case e: IOException =>
+        logger.trace("Benign IO exception caught in Netty", e)
+        ctx.channel.close()
+      case e =>
+        logger.error("Exception caught in Netty", e)
+        ctx.channel.close()
+    }
+  }
+
+  private def writeResponse(ctx: ChannelHandlerContext, response: HttpResponse): Future[Unit] = {
+    val promise = Promise[Unit]()
+    // Always write in a new event loop task.  The previous response may have just been written from within a flush of
+    // the channel, and the channel ignores flushes that are requested during a flush.
+    ctx.executor.execute(new Runnable {
+      def run() = ctx.writeAndFlush(response).addListener(new ChannelFutureListener {
+        def operationComplete(future: ChannelFuture) = {
+          if (!future.isSuccess) {
+            logger.debug("Error while sending response.", future.cause)
+            ctx.channel.close()
+          } else if (!HttpHeaders.isKeepAlive(response)) {
+            ctx.channel.close()
+          }
+          requestsInFlight -= 1
+          // Since the response has been written, read the next request, in case an earlier read complete was ignored
+          if (requestsInFlight == 0) {
+            ctx.read()
+          }
+          promise.success(())
+        }
+      })
+    })
+    promise.future
+  }
+
+  private def handle(channel: Channel, request: HttpRequest): Future[HttpResponse] = {
+    val conversion = server.modelConversion
+
+    if (request.getDecoderResult.isFailure) {
+      // The request couldn't be decoded, so there is no request header to pass to an error handler
+      val status = request.getDecoderResult.cause match {
+        case e: TooLongFrameException =>
+          logger.warn("Handling TooLongFrameException", e)
+          HttpResponseStatus.REQUEST_URI_TOO_LONG
+        case e =>
+          logger.debug("Handling request decoding error", e)
+          HttpResponseStatus.BAD_REQUEST
+      }
+      Future.successful(simpleErrorResponse(status))
+    } else {
+      conversion.convertRequest(channel, request) match {
+        case Failure(e) =>
+          val requestHeader = conversion.createUnparsedRequestHeader(channel, request)
+          val result = Future
+            .successful(()) // Create a dummy future
+            .flatMap { _ =>
+              // Call errorHandler in another context, don't block here
+              errorHandler(server.applicationProvider.get.toOption).onClientError(requestHeader, 400, e.getMessage)
+            }
+          handleAction(request, requestHeader, EssentialAction(_ => Accumulator.done(result)), None)
+
+        case Success(untaggedRequestHeader) =>
+          server.getHandlerFor(untaggedRequestHeader) match {
+            case Left(directResult) =>
+              logger.trace("No handler, got direct result: " + directResult)
+              handleAction(request, untaggedRequestHeader, EssentialAction(_ => Accumulator.done(directResult)), None)
+
+            case Right((requestHeader, action: EssentialAction, app)) =>
+              val actionWithErrorHandling = EssentialAction { rh =>
+                action(rh).recoverWith {
+                  case error => app.errorHandler.onServerError(requestHeader, error)
+                }
+              }
+              handleAction(request, requestHeader, actionWithErrorHandling, Some(app))
+
+            case Right((requestHeader, WebSocket(_) | FlowWebSocket(_), app)) =>
+              // WebSockets aren't supported by this backend yet, so reject them with a response that says so
+              logWebSocketsUnsupported()
+              val result = Results.NotImplemented("WebSockets are not supported by the Netty 4 server")
+              handleAction(request, requestHeader, EssentialAction(_ => Accumulator.done(result)), Some(app))
+
+            case Right((requestHeader, unhandled, app)) =>
+              logger.trace("Unsupported handler: " + unhandled)
+              val error = new UnsupportedOperationException(s"Netty4Server doesn't handle Handlers of this type: $unhandled")
+              val result = app.errorHandler.onServerError(requestHeader, error)
+              handleAction(request, requestHeader, EssentialAction(_ => Accumulator.done(result)), Some(app))
+          }
+      }
+    }
+  }
+
+  private def handleAction(request: HttpRequest, requestHeader: RequestHeader, action: EssentialAction,
+    app: Option[Application]): Future[HttpResponse] = {
+    logger.trace("Serving this request with: " + action)
+
+    val actorSystem = app.fold(server.actorSystem)(_.actorSystem)
+    implicit val mat: Materializer = app.fold(server.materializer)(_.materializer)
+
+    // Body bytes are only read from the socket once the accumulator demands them, which is also when a 100 Continue
+    // response is sent if the client expects one
+    val body = server.modelConversion.convertRequestBody(request)
+
+    // Actions are run off the event loop, so that they can't block it
+    val resultFuture: Future[Result] = Future(action(requestHeader))(actorSystem.dispatcher)
+      .flatMap(_.run(body))
+      .recoverWith {
+        case error =>
+          logger.error("Cannot invoke the action", error)
+          errorHandler(app).onServerError(requestHeader, error)
+      }
+
+    resultFuture.map { result =>
+      val cleanedResult = ServerResultUtils.cleanFlashCookie(requestHeader, result)
+      server.modelConversion.convertResult(requestHeader, cleanedResult, request.getProtocolVersion)
+    }
+  }
+
+  private def errorHandler(app: Option[Application]): HttpErrorHandler =
+    app.fold[HttpErrorHandler](DefaultHttpErrorHandler)(_.errorHandler)
+
+  /**
+   * A simple response with no body, that closes the connection.
+   */
+  private def simpleErrorResponse(status: HttpResponseStatus): HttpResponse = {
+    val response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER)
+    response.headers.set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE)
+    response.headers.set(HttpHeaders.Names.CONTENT_LENGTH, "0")
+    response
+  }
+}
+
+private[netty4] object PlayRequestHandler {
+  private val logger = Logger(classOf[PlayRequestHandler])
+
+  private val webSocketsUnsupportedLogged = new AtomicBoolean()
+
+  /**
+   * Log that WebSockets aren't supported, the first time that a WebSocket is requested.
+   */
+  private def logWebSocketsUnsupported(): Unit = {
+    if (webSocketsUnsupportedLogged.compareAndSet(false, true)) {
+      logger.warn("A WebSocket was requested, but WebSockets are not supported by the Netty 4 server. WebSocket " +
+        "requests are answered with 501 Not Implemented, use the default Netty server to serve WebSockets.")
+    }
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server.netty4
+
+import akka.stream.scaladsl.{ Flow, Source }
+import akka.util.ByteString
+import java.net.Socket
+import play.api.http.HttpEntity
+import play.api.libs.ws._
+import play.api.mvc._
+import play.api.mvc.BodyParsers.parse
+import play.api.mvc.Results._
+import play.api.test._
+import scala.concurrent.Future
+
+object Netty4ServerSpec extends PlaySpecification with WsTestClient {
+
+  sequential
+
+  def requestFromServer[T](path: String)(exec: WSRequest => Future[WSResponse])(
+    routes: PartialFunction[(String, String), Handler])(check: WSResponse => T): T = {
+    running(TestServer(testServerPort, FakeApplication(withRoutes = routes), serverProvider = Some(Netty4Server.provider))) {
+      val response = await(exec(wsUrl(path)(testServerPort)))
+      check(response)
+    }
+  }
+
+  "Netty4Server" should {
+
+    "send hello world" in {
+      requestFromServer("/hello") { request =>
+        request.get()
+      } {
+        case ("GET", "/hello") => Action(Ok("greetings"))
+      } { response =>
+        response.status must_== 200
+        response.header(CONTENT_TYPE) must_== Some("text/plain; charset=utf-8")
+        response.header(CONTENT_LENGTH) must_== Some("9")
+        response.header(TRANSFER_ENCODING) must_== None
+        response.header(DATE) must beSome
+        response.body must_== "greetings"
+      }
+    }
+
+    "send chunked responses" in {
+      requestFromServer("/chunked") { request =>
+        request.get()
+      } {
+        case ("GET", "/chunked") => Action {
+          Ok.chunked(Source(List("a", "b", "c")))
+        }
+      } { response =>
+        response.status must_== 200
+        response.header(TRANSFER_ENCODING) must_== Some("chunked")
+        response.body must_== "abc"
+      }
+    }
+
+    "send streamed responses with a Content-Length" in {
+      requestFromServer("/streamed") { request =>
+        request.get()
+      } {
+        case ("GET", "/streamed") => Action {
+          Ok.sendEntity(HttpEntity.Streamed(Source(List("ab", "cd").map(ByteString(_))), Some(4), None))
+        }
+      } { response =>
+        response.status must_== 200
+        response.header(CONTENT_LENGTH) must_== Some("4")
+        response.body must_== "abcd"
+      }
+    }
+
+    "not send a body in response to HEAD requests" in {
+      requestFromServer("/hello") { request =>
+        request.head()
+      } {
+        case ("HEAD", "/hello") => Action(Ok("greetings"))
+      } { response =>
+        response.status must_== 200
+        response.header(CONTENT_LENGTH) must_== Some("9")
+        response.body must_== ""
+      }
+    }
+
+    "pass request headers and query strings to Actions" in {
+      requestFromServer("/abc?a=1&a=2") { request =>
+        request.withHeaders(ACCEPT_LANGUAGE -> "en-NZ").get()
+      } {
+        case ("GET", "/abc") => Action { request =>
+          Ok(s"${request.path} ${request.queryString("a").mkString(",")} ${request.headers.get(ACCEPT_LANGUAGE).get}")
+        }
+      } { response =>
+        response.body must_== "/abc 1,2 en-NZ"
+      }
+    }
+
+    "stream POST request bodies to Actions" in {
+      val body = "x" * 100000
+      requestFromServer("/echo") { request =>
+        request.post(body)
+      } {
+        case ("POST", "/echo") => Action(parse.text(200000)) { request =>
+          Ok(request.body.length.toString)
+        }
+      } { response =>
+        response.status must_== 200
+        response.body must_== "100000"
+      }
+    }
+
+    "send response status" in {
+      requestFromServer("/def") { request =>
+        request.get()
+      } {
+        case ("GET", "/abc") => Action(Ok)
+      } { response =>
+        response.status must_== 404
+      }
+    }
+
+    "pass tag of HTTP_SERVER->netty4 to Actions" in {
+      requestFromServer("/httpServerTag") { request =>
+        request.get()
+      } {
+        case ("GET", "/httpServerTag") => Action { request =>
+          Ok(request.tags.get("HTTP_SERVER").toString)
+        }
+      } { response =>
+        response.body must_== "Some(netty4)"
+      }
+    }
+
+    "answer WebSocket requests with 501 Not Implemented" in {
+      requestFromServer("/ws") { request =>
+        request.withHeaders(CONNECTION -> "Upgrade", UPGRADE -> "websocket").get()
+      } {
+        case ("GET", "/ws") => WebSocket.accept[String, String](_ => Flow[String])
+      } { response =>
+        response.status must_== NOT_IMPLEMENTED
+        response.body must contain("WebSockets are not supported")
+      }
+    }
+
+    "send responses to pipelined requests in order" in {
+      val app = FakeApplication(withRoutes = {
+        case ("GET", "/slow") => Action.async {
+          Future(Ok("slow"))(play.api.libs.concurrent.Execution.defaultContext)
+        }
+        case ("GET", "/fast") => Action(Ok("fast"))
+      })
+      running(TestServer(testServerPort, app, serverProvider = Some(Netty4Server.provider))) {
+        val socket = new Socket("localhost", testServerPort)
+        try {
+          val requests = "GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n" +
+            "GET /fast HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+          socket.getOutputStream.write(requests.getBytes("US-ASCII"))
+          socket.getOutputStream.flush()
+          // The server closes the connection after the second response
+          val responses = scala.io.Source.fromInputStream(socket.getInputStream, "US-ASCII").mkString
+          "HTTP/1.1 200 OK".r.findAllIn(responses).length must_== 2
+          responses.indexOf("slow") must be_<(responses.indexOf("fast"))
+        } finally {
+          socket.close()
+        }
+      }
+    }
+
+    "start and stop cleanly" in {
+      PlayRunners.mutex.synchronized {
+        def testStartAndStop(i: Int) = {
+          val resultString = s"result-$i"
+          val app = FakeApplication(withRoutes = {
+            case ("GET", "/") => Action(Ok(resultString))
+          })
+          val server = TestServer(testServerPort, app, serverProvider = Some(Netty4Server.provider))
+          server.start()
+          try {
+            val response = await(wsUrl("/")(testServerPort).get())
+            response.body must_== resultString
+          } finally {
+            server.stop()
+          }
+        }
+        (0 until 5) must contain { (i: Int) => testStartAndStop(i) }
+      }
+    }
+
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server
+
+import java.util.concurrent.atomic.{ AtomicLong, AtomicLongArray }
+import javax.inject.Singleton
+
+import play.api.mvc.RequestHeader
+
+import scala.annotation.tailrec
+
+/**
+ * A request tracer that records how long each phase of handling requests takes in a histogram, in memory.
+ *
+ * To use it, set `play.server.requestTracer = "play.core.server.HistogramRequestTracer"`.  It's a singleton, so it
+ * can be injected into a controller to expose the percentiles:
+ *
+ * {{{
+ * class Metrics @Inject() (tracer: HistogramRequestTracer) extends Controller {
+ *   def requests = Action(Ok(tracer.report()))
+ * }
+ * }}}
+ */
+@Singleton
+class HistogramRequestTracer extends RequestTracer {
+
+  private val histograms: Map[String, LatencyHistogram] =
+    RequestTimings.Phases.map(phase => phase -> new LatencyHistogram).toMap
+
+  def requestCompleted(request: RequestHeader, timings: RequestTimings): Unit = {
+    timings.phases.foreach {
+      case (phase, nanos) => histograms(phase).record(nanos)
+    }
+  }
+
+  /**
+   * The histogram of the durations of the given phase.
+   *
+   * @param phase The name of the phase, one of `RequestTimings.Phases`.
+   */
+  def histogram(phase: String): LatencyHistogram = histograms(phase)
+
+  /**
+   * Describe the percentiles of the durations of each phase, in milliseconds, as a table.
+   *
+   * @param percentiles The percentiles to describe.
+   */
+  def report(percentiles: Seq[Double] = Seq(50, 90, 99, 99.9)): String = {
+    val header = ("phase" +: "count" +: percentiles.map(p => "p" + formatPercentile(p)) :+ "max").map(pad)
+    val rows = RequestTimings.Phases.map { phase =>
+      val histogram = histograms(phase)
+      val values = percentiles.map(histogram.percentile) :+ histogram.max
+      (phase +: histogram.count.toString +: values.map(formatMillis)).map(pad)
+    }
+    (header +: rows).map(_.mkString.trim).mkString("\n")
+  }
+
+  /**
+   * Clear all the histograms.
+   */
+  def reset(): Unit = histograms.values.foreach(_.reset())
+
+  private def formatPercentile(p: Double) = if (p == p.toLong) p.toLong.toString else p.toString
+
+  private def formatMillis(nanos: Long) = "%.3f".format(nanos / 1000000.0)
+
+  private def pad(column: String) = column.padTo(12, ' ')
+}
+
+/**
+ * A histogram of durations in nanoseconds, that can be updated concurrently without locking.
+ *
+ * Durations are counted in buckets whose width is at most 1/64 of the durations they count, so percentiles are
+ * accurate to within 2%, and the histogram takes the same amount of memory however many durations it records.
+ * Durations below 128 nanoseconds are counted exactly.
+ */
+final class LatencyHistogram {
+
+  import LatencyHistogram._
+
+  private val counts = new AtomicLongArray(BucketCount)
+  private val total = new AtomicLong
+  private val maximum = new AtomicLong
+
+  /**
+   * Record a duration.  Negative durations are ignored.
+   */
+  def record(nanos: Long): Unit = {
+    if (nanos >= 0) {
+      counts.incrementAndGet(bucket(nanos))
+      total.incrementAndGet()
+      updateMax(nanos)
+    }
+  }
+
+  /**
+   * The number of recorded durations.
+   */
+  def count: Long = total.get
+
+  /**
+   * The longest recorded duration, or 0 if none have been recorded.
+   */
+  def max: Long = maximum.get
+
+  /**
+   * The duration that the given percentage of the recorded durations are shorter than or equal to, or 0 if none have
+   * been recorded.
+   *
+   * @param percentile The percentile, between 0 and 100.
+   */
+  def percentile(percentile: Double): Long = {
+    val recorded = count
+    if (recorded == 0) 0 else {
+      val rank = math.max(1L, math.ceil(recorded * percentile / 100).toLong)
+      var seen = 0L
+      var i = 0
+      while (i < BucketCount - 1 && seen + counts.get(i) < rank) {
+        seen += counts.get(i)
+        i += 1
+      }
+      math.min(upperBound(i), max)
+    }
+  }
+
+  /**
+   * Clear the recorded durations.
+   *
+   * Durations that are recorded while the histogram is being cleared may or may not be cleared.
+   */
+  def reset(): Unit = {
+    (0 until BucketCount).foreach(i => counts.set(i, 0))
+    total.set(0)
+    maximum.set(0)
+  }
+
+  @tailrec
+  private def updateMax(nanos: Long): Unit = {
+    val current = maximum.get
+    if (nanos > current && !maximum.compareAndSet(current, nanos)) updateMax(nanos)
+  }
+}
+
+private object LatencyHistogram {
+
+  // Durations from 2^n to 2^(n+1) are split into this many buckets
+  private val SubBuckets = 64
+  private val SubBucketBits = 6
+  private val ExactBuckets = 2 * SubBuckets
+  private val BucketCount = (64 - SubBucketBits) * SubBuckets
+
+  private def bucket(nanos: Long): Int = {
+    if (nanos < ExactBuckets) nanos.toInt else {
+      val shift = 63 - java.lang.Long.numberOfLeadingZeros(nanos) - SubBucketBits
+      shift * SubBuckets + (nanos >> shift).toInt
+    }
+  }
+
+  private def upperBound(bucket: Int): Long = {
+    if (bucket < ExactBuckets) bucket else {
+      val shift = bucket / SubBuckets - 1
+      val subBucket = bucket % SubBuckets + SubBuckets
+      ((subBucket + 1).toLong << shift) - 1
+    }
+  }
+}
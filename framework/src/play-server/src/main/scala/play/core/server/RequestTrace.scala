@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import akka.stream.scaladsl.Source
+import akka.stream.stage.{ Context, PushStage, SyncDirective }
+import akka.util.ByteString
+import play.api.Logger
+import play.api.http.{ HttpChunk, HttpEntity }
+import play.api.mvc.{ RequestHeader, Result }
+
+import scala.util.control.NonFatal
+
+/**
+ * Records when each phase of handling a request ends, and reports the timings to the tracer once the response has
+ * been sent.
+ *
+ * The trace is started once the handler for the request has been found, and the phases are then recorded by different
+ * threads, one after the other.
+ *
+ * @param tracer The tracer to report the timings to.
+ * @param received When the server started handling the request.
+ */
+private[server] final class RequestTrace(tracer: RequestTracer, received: Long) {
+
+  import RequestTrace._
+
+  private val routed = System.nanoTime
+  @volatile private var invoked = -1L
+  @volatile private var bodyReceived = -1L
+  @volatile private var resultReady = -1L
+  @volatile private var status = 0
+  @volatile private var requestBytes = 0L
+  @volatile private var responseBytes = 0L
+  private val completed = new AtomicBoolean()
+
+  def actionInvoked(): Unit = invoked = System.nanoTime
+
+  /**
+   * Count the bytes of the request body as the body parser consumes them, and record when it stops consuming them.
+   */
+  def traceBody[Mat](body: Source[ByteString, Mat]): Source[ByteString, Mat] = {
+    body.transform(() => new CountBytes[ByteString](_.size, requestBytes += _, bodyReceived = System.nanoTime))
+  }
+
+  /**
+   * Record that the result is ready, and count the bytes of its body as they're sent.
+   *
+   * @param request The request that the result is for.
+   * @param sentWhenStreamed Whether the response is sent once its body has been streamed, rather than when the
+   *                         server calls `responseSent`.
+   */
+  def traceResult(request: RequestHeader, result: Result, sentWhenStreamed: Boolean): Result = {
+    resultReady = System.nanoTime
+    status = result.header.status
+    def onTermination(): Unit = if (sentWhenStreamed) responseSent(request)
+    val body = result.body match {
+      case strict: HttpEntity.Strict =>
+        responseBytes = strict.data.size
+        onTermination()
+        strict
+      case HttpEntity.Streamed(data, contentLength, contentType) =>
+        HttpEntity.Streamed(countBytes(data, onTermination), contentLength, contentType)
+      case HttpEntity.Chunked(chunks, contentType) =>
+        val counted = chunks.transform(() => new CountBytes[HttpChunk]({
+          case HttpChunk.Chunk(data) => data.size
+          case _ => 0
+        }, responseBytes += _, onTermination()))
+        HttpEntity.Chunked(counted, contentType)
+      case region: HttpEntity.FileRegion if sentWhenStreamed =>
+        HttpEntity.Streamed(countBytes(region.dataStream, onTermination), Some(region.length), region.contentType)
+      case region: HttpEntity.FileRegion =>
+        // Sent by the server without being streamed
+        responseBytes = region.length
+        region
+    }
+    result.copy(body = body)
+  }
+
+  private def countBytes(data: Source[ByteString, _], onTermination: () => Unit): Source[ByteString, _] = {
+    data.transform(() => new CountBytes[ByteString](_.size, responseBytes += _, onTermination()))
+  }
+
+  /**
+   * Record that the response has been sent, and report the timings to the tracer.
+   */
+  def responseSent(request: RequestHeader): Unit = {
+    if (resultReady >= 0 && completed.compareAndSet(false, true)) {
+      val timings = RequestTimings(
+        received = received,
+        routed = routed,
+        invoked = invoked,
+        bodyReceived = bodyReceived,
+        resultReady = resultReady,
+        responseSent = System.nanoTime,
+        status = status,
+        requestBytes = requestBytes,
+        responseBytes = responseBytes
+      )
+      try {
+        tracer.requestCompleted(request, timings)
+      } catch {
+        case NonFatal(e) => logger.error("Error while tracing request " + request, e)
+      }
+    }
+  }
+}
+
+private[server] object RequestTrace {
+
+  private val logger = Logger(classOf[RequestTrace])
+
+  /**
+   * Counts the bytes of the elements that pass through, and calls back once the stream has terminated.
+   *
+   * The stream is only consumed by one thread at a time, so the count doesn't need to be atomic.
+   */
+  private class CountBytes[A](size: A => Int, count: Int => Unit, onTermination: => Unit) extends PushStage[A, A] {
+    override def onPush(elem: A, ctx: Context[A]): SyncDirective = {
+      count(size(elem))
+      ctx.push(elem)
+    }
+
+    override def postStop(): Unit = onTermination
+  }
+}
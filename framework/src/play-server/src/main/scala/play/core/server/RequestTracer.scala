@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server
+
+import play.api.mvc.RequestHeader
+
+/**
+ * Receives the timings of every request handled by an action, once its response has been sent.
+ *
+ * Tracers are called by the threads that handle the requests, so they should record the timings without blocking,
+ * for example by updating a histogram.
+ *
+ * The tracer is configured with `play.server.requestTracer`, and is created by the injector of the application, so a
+ * tracer that is a singleton can also be injected into the application, for example to expose what it has recorded.
+ * This can be implemented in Java.
+ */
+trait RequestTracer {
+
+  /**
+   * A request was handled, and its response has been sent.
+   *
+   * @param request The request, as it was passed to the action.
+   * @param timings When each phase of handling the request ended, and how many bytes were transferred.
+   */
+  def requestCompleted(request: RequestHeader, timings: RequestTimings): Unit
+}
+
+/**
+ * When each phase of handling a request ended, as given by `System.nanoTime`, and how many bytes were transferred.
+ *
+ * Phases that a request didn't go through, such as the body phase of a request whose body parser didn't consume
+ * the body, are -1.
+ *
+ * @param received When the server started handling the request, once its headers had been parsed.
+ * @param routed When the handler for the request was found.
+ * @param invoked When the action was invoked, which runs the filters up to the point where they call the action, and
+ *                selects the body parser.
+ * @param bodyReceived When the body parser consumed the last byte of the request body.
+ * @param resultReady When the result of the action, after it passed through the filters, was ready.
+ * @param responseSent When the last byte of the response was written.  On Akka HTTP, this is when the last byte was
+ *                     handed to Akka HTTP.
+ * @param status The status of the response.
+ * @param requestBytes The number of bytes of the request body that were consumed.
+ * @param responseBytes The number of bytes of the response body that were sent.
+ */
+case class RequestTimings(
+    received: Long,
+    routed: Long,
+    invoked: Long,
+    bodyReceived: Long,
+    resultReady: Long,
+    responseSent: Long,
+    status: Int,
+    requestBytes: Long,
+    responseBytes: Long) {
+
+  /**
+   * How long it took to find the handler for the request, in nanoseconds.
+   */
+  def routingNanos: Long = routed - received
+
+  /**
+   * How long it took to invoke the action, in nanoseconds.
+   */
+  def invocationNanos: Long = invoked - routed
+
+  /**
+   * How long it took to receive and parse the request body, in nanoseconds, or -1 if it wasn't consumed.
+   */
+  def bodyNanos: Long = if (bodyReceived < 0) -1 else bodyReceived - invoked
+
+  /**
+   * How long it took to produce the result once the body had been parsed, in nanoseconds.
+   */
+  def actionNanos: Long = resultReady - (if (bodyReceived < 0) invoked else bodyReceived)
+
+  /**
+   * How long it took to send the response, in nanoseconds.
+   */
+  def sendNanos: Long = responseSent - resultReady
+
+  /**
+   * How long it took to handle the request, in nanoseconds.
+   */
+  def totalNanos: Long = responseSent - received
+
+  /**
+   * The duration of each phase that the request went through, in nanoseconds, by the name of the phase.
+   */
+  def phases: Seq[(String, Long)] = {
+    val all = Seq(
+      RequestTimings.Routing -> routingNanos,
+      RequestTimings.Invocation -> invocationNanos,
+      RequestTimings.Body -> bodyNanos,
+      RequestTimings.Action -> actionNanos,
+      RequestTimings.Send -> sendNanos,
+      RequestTimings.Total -> totalNanos
+    )
+    all.filter(_._2 >= 0)
+  }
+}
+
+object RequestTimings {
+
+  val Routing = "routing"
+  val Invocation = "invocation"
+  val Body = "body"
+  val Action = "action"
+  val Send = "send"
+  val Total = "total"
+
+  /**
+   * The names of the phases, in the order they happen.
+   */
+  val Phases: Seq[String] = Seq(Routing, Invocation, Body, Action, Send, Total)
+}
@@ -12,6 +12,7 @@ import scala.language.postfixOps
 import play.api._
 import play.api.mvc._
 import play.core.{ DefaultWebCommands, ApplicationProvider }
+import play.utils.Reflect
 
 import scala.util.{ Try, Success, Failure }
 import scala.concurrent.Future
@@ -65,6 +66,28 @@ trait Server extends ServerWithStop {
 
   def applicationProvider: ApplicationProvider
 
+  // The request tracer of the last application that handled a request, which only changes when the application is
+  // reloaded
+  @volatile private var requestTracerOfApplication: (Application, Option[RequestTracer]) = (null, None)
+
+  /**
+   * Start tracing a request that is handled by the given application, if it has a request tracer.
+   *
+   * @param application The application that the handler for the request was found in.
+   * @param received When the server started handling the request, as given by `System.nanoTime`.
+   */
+  private[server] def traceRequest(application: Application, received: Long): Option[RequestTrace] = {
+    val (cachedApplication, cachedTracer) = requestTracerOfApplication
+    val tracer = if (cachedApplication eq application) cachedTracer else {
+      val loaded = PlayConfig(application.configuration).get[Option[String]]("play.server.requestTracer").map { fqcn =>
+        application.injector.instanceOf(Reflect.getClass[RequestTracer](fqcn, application.classloader))
+      }
+      requestTracerOfApplication = (application, loaded)
+      loaded
+    }
+    tracer.map(new RequestTrace(_, received))
+  }
+
   def stop() {
     Logger.shutdown()
   }
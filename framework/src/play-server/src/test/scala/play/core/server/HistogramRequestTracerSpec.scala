@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.server
+
+import org.specs2.mock.Mockito
+import org.specs2.mutable.Specification
+import play.api.mvc.RequestHeader
+
+object HistogramRequestTracerSpec extends Specification with Mockito {
+
+  "a latency histogram" should {
+
+    "count short durations exactly" in {
+      val histogram = new LatencyHistogram
+      (1 to 100).foreach(i => histogram.record(i))
+      histogram.count must_== 100
+      histogram.percentile(50) must_== 50
+      histogram.percentile(99) must_== 99
+      histogram.percentile(100) must_== 100
+      histogram.max must_== 100
+    }
+
+    "give percentiles of long durations to within 2%" in {
+      val histogram = new LatencyHistogram
+      (1 to 10000).foreach(i => histogram.record(i * 1000L))
+      forall(Seq(1.0, 50.0, 90.0, 99.0, 99.9)) { p =>
+        val expected = (p * 100).toLong * 1000L
+        histogram.percentile(p) must beBetween(expected, (expected * 1.02).toLong)
+      }
+      histogram.percentile(100) must_== 10000000L
+    }
+
+    "handle the longest durations" in {
+      val histogram = new LatencyHistogram
+      histogram.record(Long.MaxValue)
+      histogram.percentile(50) must_== Long.MaxValue
+    }
+
+    "ignore negative durations" in {
+      val histogram = new LatencyHistogram
+      histogram.record(-1)
+      histogram.count must_== 0
+      histogram.percentile(50) must_== 0
+    }
+
+    "be reset" in {
+      val histogram = new LatencyHistogram
+      histogram.record(1000)
+      histogram.reset()
+      histogram.count must_== 0
+      histogram.max must_== 0
+    }
+  }
+
+  "a histogram request tracer" should {
+
+    def timings(bodyReceived: Long) = RequestTimings(
+      received = 0, routed = 10, invoked = 30, bodyReceived = bodyReceived, resultReady = 100, responseSent = 120,
+      status = 200, requestBytes = 0, responseBytes = 0)
+
+    "record the duration of each phase" in {
+      val tracer = new HistogramRequestTracer
+      tracer.requestCompleted(mock[RequestHeader], timings(bodyReceived = 60))
+      tracer.histogram(RequestTimings.Routing).max must_== 10
+      tracer.histogram(RequestTimings.Invocation).max must_== 20
+      tracer.histogram(RequestTimings.Body).max must_== 30
+      tracer.histogram(RequestTimings.Action).max must_== 40
+      tracer.histogram(RequestTimings.Send).max must_== 20
+      tracer.histogram(RequestTimings.Total).max must_== 120
+    }
+
+    "not record the body phase of requests whose body wasn't consumed" in {
+      val tracer = new HistogramRequestTracer
+      tracer.requestCompleted(mock[RequestHeader], timings(bodyReceived = -1))
+      tracer.histogram(RequestTimings.Body).count must_== 0
+      tracer.histogram(RequestTimings.Action).max must_== 70
+    }
+
+    "report the percentiles of each phase" in {
+      val tracer = new HistogramRequestTracer
+      tracer.requestCompleted(mock[RequestHeader], timings(bodyReceived = 60))
+      val lines = tracer.report(Seq(50, 99.9)).split("\n").map(_.split(" +").toList).toList
+      lines.head must_== List("phase", "count", "p50", "p99.9", "max")
+      lines.map(_.head).tail must_== RequestTimings.Phases.toList
+      lines.last must_== List("total", "1", "0.000", "0.000", "0.000")
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.libs.streams
+
+import java.util.concurrent.{ ConcurrentHashMap, ConcurrentLinkedQueue }
+import java.util.concurrent.atomic.{ AtomicInteger, AtomicLong, AtomicReference }
+
+import akka.stream.scaladsl.Source
+import org.reactivestreams.{ Publisher, Subscriber, Subscription }
+import play.api.libs.iteratee.{ Concurrent, Enumerator, Input }
+
+import scala.annotation.tailrec
+
+/**
+ * Broadcasts elements to many subscribers.
+ *
+ * Unlike `Concurrent.broadcast`, pushing an element never waits for the subscribers.  Each subscriber has its own
+ * bounded buffer, which it consumes at its own pace, and the overflow strategy decides what happens when a subscriber
+ * is too slow to keep up.  Neither pushing, subscribing nor unsubscribing take locks, and subscribers are added and
+ * removed in constant time, so a hub can serve many thousands of subscribers, such as the clients of a server-sent
+ * events feed.
+ *
+ * Subscribers only receive the elements that are pushed after they subscribe.  Subscribers that subscribe after the
+ * hub has been completed or failed are completed or failed straight away.
+ *
+ * The hub is also a `Channel`, so it can be used in place of the channel of `Concurrent.broadcast`.  Pushing an EOF
+ * or ending the channel completes the hub.
+ *
+ * {{{
+ * val hub = BroadcastHub[String](bufferSize = 64, BroadcastHub.DropOldest)
+ * hub.source.runForeach(println)
+ * hub.push("Hello world!")
+ * }}}
+ *
+ * @param bufferSize The number of elements that are buffered for each subscriber.
+ * @param overflowStrategy What to do when the buffer of a subscriber is full.
+ */
+final class BroadcastHub[E] private (bufferSize: Int, overflowStrategy: BroadcastHub.OverflowStrategy)
+    extends Concurrent.Channel[E] {
+
+  import BroadcastHub._
+
+  require(bufferSize > 0, "bufferSize must be positive")
+
+  private val subscriptions = ConcurrentHashMap.newKeySet[HubSubscription[E]]()
+  // Set once, when the hub is completed or failed
+  private val terminated = new AtomicReference[Terminated[E]]()
+
+  /**
+   * A publisher of the elements pushed to the hub.  It can be subscribed to any number of times.
+   */
+  val publisher: Publisher[E] = new Publisher[E] {
+    def subscribe(subscriber: Subscriber[_ >: E]) = {
+      val subscription = new HubSubscription[E](subscriber, bufferSize, overflowStrategy, BroadcastHub.this)
+      subscriber.onSubscribe(subscription)
+      register(subscription)
+    }
+  }
+
+  /**
+   * A source of the elements pushed to the hub.  Each materialization subscribes to the hub.
+   */
+  def source: Source[E, Unit] = Source(publisher)
+
+  /**
+   * An enumerator of the elements pushed to the hub.  Each iteratee applied to it subscribes to the hub.
+   */
+  def enumerator: Enumerator[E] = Streams.publisherToEnumerator(publisher)
+
+  /**
+   * The number of subscribers of the hub.
+   */
+  def subscriberCount: Int = if (terminated.get == null) subscriptions.size else 0
+
+  /**
+   * Push an element to every subscriber.
+   */
+  override def push(element: E): Unit = {
+    if (terminated.get == null) {
+      // The iterator is weakly consistent, so subscriptions may be added and removed while it iterates
+      val iterator = subscriptions.iterator
+      while (iterator.hasNext) iterator.next().offer(element)
+    }
+  }
+
+  def push(chunk: Input[E]): Unit = chunk match {
+    case Input.El(element) => push(element)
+    case Input.EOF => complete()
+    case Input.Empty =>
+  }
+
+  /**
+   * Complete every subscriber, once it has consumed the elements buffered for it.
+   */
+  def complete(): Unit = terminate(Completed)
+
+  /**
+   * Fail every subscriber with the given error.
+   */
+  def fail(error: Throwable): Unit = terminate(Failed(error))
+
+  def end(): Unit = complete()
+
+  def end(error: Throwable): Unit = fail(error)
+
+  private def terminate(termination: Terminated[E]): Unit = {
+    if (terminated.compareAndSet(null, termination)) {
+      val iterator = subscriptions.iterator
+      while (iterator.hasNext) {
+        iterator.next().terminate(termination)
+        iterator.remove()
+      }
+    }
+  }
+
+  private def register(subscription: HubSubscription[E]): Unit = {
+    subscriptions.add(subscription)
+    // Either the hub terminates this subscription, or it was terminated before the subscription was added
+    val termination = terminated.get
+    if (termination != null) {
+      subscriptions.remove(subscription)
+      subscription.terminate(termination)
+    }
+  }
+
+  private[streams] def unregister(subscription: HubSubscription[E]): Unit = subscriptions.remove(subscription)
+}
+
+object BroadcastHub {
+
+  /**
+   * Create a hub.
+   *
+   * @param bufferSize The number of elements that are buffered for each subscriber.
+   * @param overflowStrategy What to do when the buffer of a subscriber is full.
+   */
+  def apply[E](bufferSize: Int, overflowStrategy: OverflowStrategy = DropOldest): BroadcastHub[E] = {
+    new BroadcastHub[E](bufferSize, overflowStrategy)
+  }
+
+  /**
+   * What to do with an element pushed to a subscriber whose buffer is full.
+   */
+  sealed trait OverflowStrategy
+
+  /**
+   * Drop the oldest buffered element to make room for the new element.
+   */
+  case object DropOldest extends OverflowStrategy
+
+  /**
+   * Drop the new element.
+   */
+  case object DropNew extends OverflowStrategy
+
+  /**
+   * Fail the subscriber with a `BufferOverflowException`, and stop pushing elements to it.
+   */
+  case object Disconnect extends OverflowStrategy
+
+  /**
+   * The error that subscribers are failed with when they are disconnected because they're too slow.
+   */
+  class BufferOverflowException(message: String) extends RuntimeException(message)
+
+  private sealed trait Terminated[+E]
+  private case object Completed extends Terminated[Nothing]
+  private case class Failed(error: Throwable) extends Terminated[Nothing]
+
+  /**
+   * The subscription of a subscriber to a hub.
+   *
+   * Elements are offered by the threads that push to the hub, and requested by the subscriber.  Signals are emitted
+   * by whichever thread drains the buffer, and only one thread drains it at a time.
+   */
+  private[streams] final class HubSubscription[E](subscriber: Subscriber[_ >: E], bufferSize: Int,
+      overflowStrategy: OverflowStrategy, hub: BroadcastHub[E]) extends Subscription {
+
+    private val buffer = new ConcurrentLinkedQueue[E]
+    // The size of a ConcurrentLinkedQueue isn't a constant time operation, so it's counted separately
+    private val buffered = new AtomicInteger()
+    private val requested = new AtomicLong()
+    private val draining = new AtomicInteger()
+    @volatile private var terminated: Terminated[E] = null
+    @volatile private var cancelled = false
+
+    def offer(element: E): Unit = {
+      if (buffered.incrementAndGet() <= bufferSize) {
+        buffer.offer(element)
+      } else overflowStrategy match {
+        case DropOldest =>
+          buffer.offer(element)
+          if (buffer.poll() != null) buffered.decrementAndGet()
+        case DropNew =>
+          buffered.decrementAndGet()
+        case Disconnect =>
+          buffered.decrementAndGet()
+          hub.unregister(this)
+          terminate(Failed(new BufferOverflowException("Subscriber couldn't keep up with the buffer of " + bufferSize + " elements")))
+      }
+      drain()
+    }
+
+    def terminate(terminated: Terminated[E]): Unit = {
+      if (this.terminated == null) {
+        this.terminated = terminated
+        drain()
+      }
+    }
+
+    def request(n: Long): Unit = {
+      if (n <= 0) {
+        // Signalled by the drain, like other terminations, so that it isn't emitted concurrently with an element
+        hub.unregister(this)
+        terminated = Failed(new IllegalArgumentException("Rule 3.9: requested elements must be positive"))
+        drain()
+      } else {
+        addRequested(n)
+        drain()
+      }
+    }
+
+    def cancel(): Unit = {
+      cancelled = true
+      hub.unregister(this)
+      drain()
+    }
+
+    @tailrec
+    private def addRequested(n: Long): Unit = {
+      val current = requested.get
+      val updated = if (current + n < 0) Long.MaxValue else current + n
+      if (!requested.compareAndSet(current, updated)) addRequested(n)
+    }
+
+    /**
+     * Emit buffered elements while there is demand, and the termination once they've all been emitted.
+     *
+     * A thread that finds another thread draining leaves it to that thread, which drains again before it stops.
+     */
+    private def drain(): Unit = {
+      if (draining.getAndIncrement() == 0) {
+        var missed = 1
+        do {
+          if (cancelled) {
+            buffer.clear()
+          } else {
+            val demand = requested.get
+            var emitted = 0L
+            var idle = false
+            while (!idle && emitted < demand && !cancelled) {
+              val element = buffer.poll()
+              if (element == null) {
+                idle = true
+              } else {
+                buffered.decrementAndGet()
+                subscriber.onNext(element)
+                emitted += 1
+              }
+            }
+            if (emitted > 0 && demand != Long.MaxValue) requested.addAndGet(-emitted)
+
+            terminated match {
+              case Failed(error) if !cancelled =>
+                cancelled = true
+                buffer.clear()
+                subscriber.onError(error)
+              case Completed if !cancelled && buffer.isEmpty =>
+                cancelled = true
+                subscriber.onComplete()
+              case _ =>
+            }
+          }
+          missed = draining.addAndGet(-missed)
+        } while (missed != 0)
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package play.api.libs.streams
 
-import java.util.zip.GZIPOutputStream
+import java.io.OutputStream
+import java.util.zip.{ Deflater, DeflaterOutputStream, GZIPOutputStream }
 
 import akka.stream.scaladsl.Flow
 import akka.stream.stage.{ Context, PushPullStage }
@@ -16,21 +17,52 @@ object GzipFlow {
   /**
    * Create a Gzip Flow with the given buffer size.
    */
-  def gzip(bufferSize: Int = 512): Flow[ByteString, ByteString, _] = {
-    Flow[ByteString].transform(() => new GzipStage(bufferSize))
+  def gzip(bufferSize: Int = 512): Flow[ByteString, ByteString, _] = gzip(bufferSize, Deflater.DEFAULT_COMPRESSION)
+
+  /**
+   * Create a Gzip Flow with the given buffer size and compression level.
+   *
+   * @param level The deflate compression level, from 0 to 9, or -1 for the default level.
+   */
+  def gzip(bufferSize: Int, level: Int): Flow[ByteString, ByteString, _] = {
+    Flow[ByteString].transform(() => new CompressionStage({ os =>
+      new GZIPOutputStream(os, bufferSize, true) {
+        `def`.setLevel(level)
+      }
+    }))
+  }
+
+  /**
+   * Create a Flow that compresses to the zlib format used by the deflate HTTP content coding.
+   *
+   * Like the gzip flow, each chunk is compressed and flushed separately.
+   *
+   * @param level The deflate compression level, from 0 to 9, or -1 for the default level.
+   */
+  def deflate(bufferSize: Int = 512, level: Int = Deflater.DEFAULT_COMPRESSION): Flow[ByteString, ByteString, _] = {
+    Flow[ByteString].transform(() => new CompressionStage({ os =>
+      val deflater = new Deflater(level)
+      new DeflaterOutputStream(os, deflater, bufferSize, true) {
+        // The stream doesn't end deflaters that it was given, so end it once the stream is closed
+        override def close() = {
+          try super.close() finally deflater.end()
+        }
+      }
+    }))
   }
 
-  private class GzipStage(bufferSize: Int) extends PushPullStage[ByteString, ByteString] {
+  private class CompressionStage(createStream: OutputStream => DeflaterOutputStream)
+      extends PushPullStage[ByteString, ByteString] {
 
     val builder = ByteString.newBuilder
     // Uses syncFlush mode
-    val gzipOs = new GZIPOutputStream(builder.asOutputStream, bufferSize, true)
+    val compressingOs = createStream(builder.asOutputStream)
 
     def onPush(elem: ByteString, ctx: Context[ByteString]) = {
-      // For each chunk, we write it to the gzip output stream, flush which forces it to be entirely written to the
-      // underlying ByteString builder, then we create the ByteString and clear the builder.
-      gzipOs.write(elem.toArray)
-      gzipOs.flush()
+      // For each chunk, we write it to the compressing output stream, flush which forces it to be entirely written to
+      // the underlying ByteString builder, then we create the ByteString and clear the builder.
+      compressingOs.write(elem.toArray)
+      compressingOs.flush()
       val result = builder.result()
       builder.clear()
       ctx.push(result)
@@ -47,14 +79,14 @@ object GzipFlow {
     }
 
     override def onUpstreamFinish(ctx: Context[ByteString]) = {
-      // Absorb termination, so we can send the last chunk out of the gzip output stream on the next pull
-      gzipOs.close()
+      // Absorb termination, so we can send the last chunk out of the compressing output stream on the next pull
+      compressingOs.close()
       ctx.absorbTermination()
     }
 
     override def postStop() = {
       // Close in case it's not already closed to release native deflate resources
-      gzipOs.close()
+      compressingOs.close()
       builder.clear()
     }
   }
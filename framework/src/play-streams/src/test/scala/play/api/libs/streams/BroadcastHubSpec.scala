@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.libs.streams
+
+import java.util.concurrent.{ CountDownLatch, LinkedBlockingQueue, TimeUnit }
+import java.util.concurrent.atomic.AtomicBoolean
+
+import akka.actor.ActorSystem
+import akka.stream.{ ActorMaterializer, Materializer }
+import akka.stream.scaladsl.Sink
+import org.reactivestreams.{ Subscriber, Subscription }
+import org.specs2.mutable.Specification
+import play.api.libs.iteratee.Iteratee
+
+import scala.concurrent.{ Await, Future }
+import scala.concurrent.duration._
+import scala.concurrent.ExecutionContext.Implicits.global
+
+object BroadcastHubSpec extends Specification {
+
+  import BroadcastHub._
+
+  def withMaterializer[T](block: Materializer => T) = {
+    val system = ActorSystem("test")
+    try {
+      block(ActorMaterializer()(system))
+    } finally {
+      system.shutdown()
+      system.awaitTermination()
+    }
+  }
+
+  def await[T](f: Future[T]) = Await.result(f, 10.seconds)
+
+  /**
+   * A subscriber that records the signals it receives, and only requests elements when told to.
+   */
+  class RecordingSubscriber[E] extends Subscriber[E] {
+    val events = new LinkedBlockingQueue[Any]
+    @volatile var subscription: Subscription = null
+    def onSubscribe(s: Subscription) = subscription = s
+    def onNext(element: E) = events.add(element)
+    def onError(t: Throwable) = events.add(t)
+    def onComplete() = events.add("complete")
+    def request(n: Long) = subscription.request(n)
+    def received: List[Any] = {
+      val all = new java.util.ArrayList[Any]
+      events.drainTo(all)
+      all.toArray.toList
+    }
+  }
+
+  def subscribe[E](hub: BroadcastHub[E]) = {
+    val subscriber = new RecordingSubscriber[E]
+    hub.publisher.subscribe(subscriber)
+    subscriber
+  }
+
+  "a broadcast hub" should {
+
+    "push elements to every subscriber" in {
+      val hub = BroadcastHub[Int](8)
+      val s1 = subscribe(hub)
+      val s2 = subscribe(hub)
+      s1.request(10)
+      s2.request(10)
+      hub.push(1)
+      hub.push(2)
+      hub.complete()
+      s1.received must_== List(1, 2, "complete")
+      s2.received must_== List(1, 2, "complete")
+    }
+
+    "only push elements that were pushed after subscribing" in {
+      val hub = BroadcastHub[Int](8)
+      hub.push(1)
+      val s = subscribe(hub)
+      s.request(10)
+      hub.push(2)
+      s.received must_== List(2)
+    }
+
+    "buffer elements until they are requested" in {
+      val hub = BroadcastHub[Int](8)
+      val s = subscribe(hub)
+      hub.push(1)
+      hub.push(2)
+      hub.complete()
+      s.received must beEmpty
+      s.request(1)
+      s.received must_== List(1)
+      s.request(1)
+      s.received must_== List(2, "complete")
+    }
+
+    "not wait for slow subscribers" in {
+      val hub = BroadcastHub[Int](2)
+      val slow = subscribe(hub)
+      val fast = subscribe(hub)
+      fast.request(10)
+      (1 to 5).foreach(hub.push)
+      fast.received must_== List(1, 2, 3, 4, 5)
+    }
+
+    "drop the oldest elements when a buffer overflows" in {
+      val hub = BroadcastHub[Int](2, DropOldest)
+      val s = subscribe(hub)
+      (1 to 5).foreach(hub.push)
+      s.request(10)
+      s.received must_== List(4, 5)
+    }
+
+    "drop new elements when a buffer overflows" in {
+      val hub = BroadcastHub[Int](2, DropNew)
+      val s = subscribe(hub)
+      (1 to 5).foreach(hub.push)
+      s.request(10)
+      s.received must_== List(1, 2)
+    }
+
+    "disconnect subscribers whose buffer overflows" in {
+      val hub = BroadcastHub[Int](2, Disconnect)
+      val slow = subscribe(hub)
+      val fast = subscribe(hub)
+      fast.request(10)
+      (1 to 3).foreach(hub.push)
+      slow.received must beLike {
+        case List(e: BufferOverflowException) => ok
+      }
+      hub.subscriberCount must_== 1
+      fast.received must_== List(1, 2, 3)
+    }
+
+    "fail subscribers" in {
+      val hub = BroadcastHub[Int](8)
+      val s = subscribe(hub)
+      val error = new RuntimeException("failed")
+      hub.fail(error)
+      s.received must_== List(error)
+    }
+
+    "complete subscribers that subscribe after it has been completed" in {
+      val hub = BroadcastHub[Int](8)
+      hub.complete()
+      subscribe(hub).received must_== List("complete")
+    }
+
+    "remove subscribers that cancel" in {
+      val hub = BroadcastHub[Int](8)
+      val s = subscribe(hub)
+      hub.subscriberCount must_== 1
+      s.subscription.cancel()
+      hub.subscriberCount must_== 0
+      hub.push(1)
+      s.request(1)
+      s.received must beEmpty
+    }
+
+    "reject requests for no elements" in {
+      val hub = BroadcastHub[Int](8)
+      val s = subscribe(hub)
+      s.request(0)
+      s.received must beLike {
+        case List(e: IllegalArgumentException) => ok
+      }
+      hub.subscriberCount must_== 0
+    }
+
+    "not signal the error of a request for no elements while an element is being emitted" in {
+      val hub = BroadcastHub[Int](8)
+      val emitting = new AtomicBoolean()
+      val overlapped = new AtomicBoolean()
+      val inOnNext = new CountDownLatch(1)
+      val s = new RecordingSubscriber[Int] {
+        override def onNext(element: Int) = {
+          emitting.set(true)
+          inOnNext.countDown()
+          Thread.sleep(50)
+          emitting.set(false)
+          super.onNext(element)
+        }
+        override def onError(t: Throwable) = {
+          if (emitting.get) overlapped.set(true)
+          super.onError(t)
+        }
+      }
+      hub.publisher.subscribe(s)
+      s.request(1)
+      val pushed = Future(hub.push(1))
+      inOnNext.await(10, TimeUnit.SECONDS)
+      s.request(0)
+      await(pushed)
+      overlapped.get must beFalse
+      s.received must beLike {
+        case List(1, e: IllegalArgumentException) => ok
+      }
+    }
+
+    "remove subscribers that cancel while elements are pushed" in {
+      val hub = BroadcastHub[Int](8)
+      val subscribers = (1 to 1000).map(_ => subscribe(hub))
+      val (cancelling, remaining) = subscribers.splitAt(500)
+      await(Future.sequence(Seq(
+        Future((1 to 100).foreach(hub.push)),
+        Future(cancelling.foreach(_.subscription.cancel()))
+      )))
+      hub.subscriberCount must_== 500
+      hub.push(101)
+      remaining.head.request(Long.MaxValue)
+      remaining.head.received.last must_== 101
+    }
+
+    "deliver elements pushed concurrently" in {
+      val hub = BroadcastHub[Int](10000)
+      val subscribers = (1 to 10).map(_ => subscribe(hub))
+      subscribers.foreach(_.request(Long.MaxValue))
+      await(Future.sequence((0 until 4).map { t =>
+        Future((0 until 1000).foreach(i => hub.push(t * 1000 + i)))
+      }))
+      hub.complete()
+      forall(subscribers) { s =>
+        val received = s.received
+        received.last must_== "complete"
+        received.init.collect { case i: Int => i }.sorted must_== (0 until 4000).toList
+      }
+    }
+
+    "be usable as a source" in withMaterializer { implicit m =>
+      val hub = BroadcastHub[Int](8)
+      val result = hub.source.runWith(Sink.fold[List[Int], Int](Nil)((list, i) => i :: list))
+      // The source subscribes when it's materialized, which may take a moment
+      while (hub.subscriberCount == 0) Thread.sleep(10)
+      (1 to 3).foreach(hub.push)
+      hub.complete()
+      await(result).reverse must_== List(1, 2, 3)
+    }
+
+    "be usable as an enumerator" in {
+      val hub = BroadcastHub[Int](8)
+      val result = hub.enumerator |>>> Iteratee.getChunks[Int]
+      while (hub.subscriberCount == 0) Thread.sleep(10)
+      (1 to 3).foreach(hub.push)
+      hub.eofAndEnd()
+      await(result) must_== List(1, 2, 3)
+    }
+  }
+}
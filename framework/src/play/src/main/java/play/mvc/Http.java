@@ -69,8 +69,12 @@ public class Http {
         private final play.api.mvc.RequestHeader header;
         private final Request request;
         private final Response response;
-        private final Session session;
-        private final Flash flash;
+        private final Map<String,String> sessionData;
+        private final Map<String,String> flashData;
+
+        // Created from the session and flash data when they're first used
+        private Session session;
+        private Flash flash;
 
         private Lang lang = null;
 
@@ -93,8 +97,8 @@ public class Http {
             this.header = request._underlyingHeader();
             this.id = header.id();
             this.response = new Response();
-            this.session = new Session(JavaConversions.mapAsJavaMap(header.session().data()));
-            this.flash = new Flash(JavaConversions.mapAsJavaMap(header.flash().data()));
+            this.sessionData = JavaConversions.mapAsJavaMap(header.session().data());
+            this.flashData = JavaConversions.mapAsJavaMap(header.flash().data());
             this.args = new HashMap<String,Object>();
             this.args.putAll(JavaConversions.mapAsJavaMap(header.tags()));
         }
@@ -102,6 +106,8 @@ public class Http {
         /**
          * Creates a new HTTP context.
          *
+         * The session and flash data are only read when the session and flash scope are first used.
+         *
          * @param request the HTTP request
          * @param sessionData the session data extracted from the session cookie
          * @param flashData the flash data extracted from the flash cookie
@@ -111,8 +117,8 @@ public class Http {
             this.header = header;
             this.request = request;
             this.response = new Response();
-            this.session = new Session(sessionData);
-            this.flash = new Flash(flashData);
+            this.sessionData = sessionData;
+            this.flashData = flashData;
             this.args = new HashMap<String,Object>(args);
         }
 
@@ -141,6 +147,9 @@ public class Http {
          * Returns the current session.
          */
         public Session session() {
+            if (session == null) {
+                session = new Session(sessionData);
+            }
             return session;
         }
 
@@ -148,6 +157,9 @@ public class Http {
          * Returns the current flash scope.
          */
         public Flash flash() {
+            if (flash == null) {
+                flash = new Flash(flashData);
+            }
             return flash;
         }
 
@@ -159,6 +171,22 @@ public class Http {
             return header;
         }
 
+        /**
+         * Whether the session has been modified, without creating it if it hasn't been used.
+         * For internal usage only.
+         */
+        public boolean _isSessionDirty() {
+            return session != null && session.isDirty;
+        }
+
+        /**
+         * Whether the flash scope has been modified, without creating it if it hasn't been used.
+         * For internal usage only.
+         */
+        public boolean _isFlashDirty() {
+            return flash != null && flash.isDirty;
+        }
+
         /**
          * @return the current lang
          */
@@ -330,7 +358,10 @@ public class Http {
          * @return The new context.
          */
         public Context withRequest(Request request) {
-            return new Context(id, header, request, session, flash, args);
+            // Copy the session and flash scope as they are now, without creating them if they haven't been used
+            Map<String,String> currentSession = session != null ? new HashMap<String,String>(session) : sessionData;
+            Map<String,String> currentFlash = flash != null ? new HashMap<String,String>(flash) : flashData;
+            return new Context(id, header, request, currentSession, currentFlash, args);
         }
     }
 
@@ -380,6 +411,16 @@ public class Http {
             return wrapped._requestHeader();
         }
 
+        @Override
+        public boolean _isSessionDirty() {
+            return wrapped._isSessionDirty();
+        }
+
+        @Override
+        public boolean _isFlashDirty() {
+            return wrapped._isFlashDirty();
+        }
+
         @Override
         public Lang lang() {
             return wrapped.lang();
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.mvc;
+
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import play.api.mvc.RangeResult;
+import scala.Option;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static play.mvc.Http.HeaderNames.RANGE;
+
+/**
+ * Results for requests for byte ranges of an entity, as specified by the Range header of the current request.
+ *
+ * If the Range header is absent or can't be parsed, the whole entity is sent with a 200 status.  If none of the
+ * ranges can be satisfied, a 416 status is returned.  Otherwise, the ranges are sent with a 206 status.
+ *
+ * @see play.api.mvc.RangeResult
+ */
+public class RangeResults {
+
+    private static Option<String> rangeHeader() {
+        return Option.apply(Http.Context.current().request().getHeader(RANGE));
+    }
+
+    /**
+     * Generates a result for the requested ranges of a file.
+     */
+    public static Result ofPath(Path path) {
+        return RangeResult.ofPath(path, rangeHeader(), Option.<String>empty()).asJava();
+    }
+
+    /**
+     * Generates a result for the requested ranges of a file, with the given content type.
+     */
+    public static Result ofPath(Path path, String contentType) {
+        return RangeResult.ofPath(path, rangeHeader(), Option.apply(contentType)).asJava();
+    }
+
+    /**
+     * Generates a result for the requested ranges of a file.
+     */
+    public static Result ofFile(File file) {
+        return RangeResult.ofFile(file, rangeHeader(), Option.<String>empty()).asJava();
+    }
+
+    /**
+     * Generates a result for the requested ranges of a file, with the given content type.
+     */
+    public static Result ofFile(File file, String contentType) {
+        return RangeResult.ofFile(file, rangeHeader(), Option.apply(contentType)).asJava();
+    }
+
+    /**
+     * Generates a result for the requested ranges of a stream of the given length.
+     *
+     * The bytes before each range are read from the stream and discarded.
+     */
+    public static Result ofSource(long entityLength, Source<ByteString, ?> source, String contentType) {
+        return RangeResult.ofSource(entityLength, source.asScala(), rangeHeader(), Option.apply(contentType)).asJava();
+    }
+
+    /**
+     * Generates a result for the requested ranges of some bytes.
+     */
+    public static Result ofBytes(byte[] bytes, String contentType) {
+        return RangeResult.ofBytes(ByteString.fromArray(bytes), rangeHeader(), Option.apply(contentType)).asJava();
+    }
+}
@@ -1,13 +1,15 @@
 package play.mvc;
 
+import akka.stream.scaladsl.Flow;
 import akka.stream.javadsl.Source;
 import akka.util.ByteString;
 import akka.util.ByteString$;
 import akka.util.ByteStringBuilder;
-import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import play.api.libs.JsonStream;
 import play.api.libs.streams.Streams;
 import play.http.HttpEntity;
 import play.libs.Json;
@@ -239,16 +241,54 @@ public class StatusHeader extends Result {
             throw new NullPointerException("Null content");
         }
 
+        return new Result(status(), new HttpEntity.Strict(jsonToByteString(json, charset),
+                Optional.of("application/json;charset=" + charset)));
+    }
+
+    /**
+     * Send a stream of json values as a json array, using chunked transfer encoding.
+     *
+     * Each value is serialized as it's sent, so the whole array is never held in memory.
+     *
+     * @param content The values of the array.
+     */
+    public Result chunkedJson(Source<JsonNode, ?> content) {
+        return sendJsonStream(content, JsonStream.arrayFraming(), "application/json;charset=utf-8");
+    }
+
+    /**
+     * Send a stream of json values as newline delimited json, one value per line, using chunked transfer encoding.
+     *
+     * @param content The values.
+     */
+    public Result chunkedJsonLines(Source<JsonNode, ?> content) {
+        return sendJsonStream(content, JsonStream.linesFraming(), JsonStream.NDJSON());
+    }
+
+    private Result sendJsonStream(Source<JsonNode, ?> content, Flow<ByteString, ByteString, ?> framing,
+                                  String contentType) {
+        return new Result(status(), HttpEntity.chunked(
+                content.map(json -> jsonToByteString(json, "utf-8")).via(framing), Optional.of(contentType)));
+    }
+
+    /**
+     * Serialize the json with the mapper of {@link Json}, straight into a ByteString.
+     */
+    private static ByteString jsonToByteString(JsonNode json, String charset) {
         ObjectMapper mapper = Json.mapper();
         ByteStringBuilder builder = ByteString$.MODULE$.newBuilder();
 
         try {
-            JsonGenerator jgen = new JsonFactory(mapper)
-                    .createGenerator(new OutputStreamWriter(builder.asOutputStream(), charset));
+            JsonGenerator jgen;
+            if (charset.equalsIgnoreCase("utf-8")) {
+                // Jackson encodes UTF-8 itself, which saves going through a Writer
+                jgen = mapper.getFactory().createGenerator(builder.asOutputStream(), JsonEncoding.UTF8);
+            } else {
+                jgen = mapper.getFactory().createGenerator(new OutputStreamWriter(builder.asOutputStream(), charset));
+            }
 
             mapper.writeValue(jgen, json);
-            return new Result(status(), new HttpEntity.Strict(builder.result(),
-                    Optional.of("application/json;charset=" + charset)));
+            return builder.result();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -3,6 +3,7 @@
  */
 package controllers
 
+import akka.stream.scaladsl.FlattenStrategy
 import akka.util.ByteString
 import play.api._
 import play.api.libs.streams.Streams
@@ -13,7 +14,7 @@ import java.io._
 import java.net.{ URL, URLConnection, JarURLConnection }
 import org.joda.time.format.{ DateTimeFormatter, DateTimeFormat }
 import org.joda.time.DateTimeZone
-import play.utils.{ Resources, InvalidUriEncodingException, UriEncoding }
+import play.utils.{ Resources, InvalidUriEncodingException, SizeBoundedCache, UriEncoding }
 import scala.concurrent.{ ExecutionContext, Promise, Future, blocking }
 import scala.util.control.NonFatal
 import scala.util.{ Success, Failure }
@@ -67,6 +68,13 @@ private class SelfPopulatingMap[K, V] {
   }
 }
 
+/*
+ * A cache of the bytes of assets, keyed by the URL of the asset, so that small assets can be served from memory.
+ *
+ * The cache is bounded by the total size of the assets it holds, and evicts the least recently used assets first.
+ */
+private[controllers] class AssetBytesCache(maxSize: Long) extends SizeBoundedCache[String, ByteString](maxSize, _.length)
+
 /*
  * Retains meta information regarding an asset that can be readily cached.
  */
@@ -205,7 +213,8 @@ private[controllers] class AssetInfo(
  *
  * Resources are searched in the classpath.
  *
- * It handles Last-Modified and ETag header automatically.
+ * It handles Last-Modified and ETag header automatically, and serves byte ranges requested with the Range and
+ * If-Range headers.
  * If a gzipped version of a resource is found (Same resource name with the .gz suffix), it is served instead. If a
  * digest file is available for a given asset then its contents are read and used to supply a digest value. This value will be used for
  * serving up ETag values and for the purposes of reverse routing. For example given "a.js", if there is an "a.js.md5"
@@ -222,6 +231,15 @@ private[controllers] class AssetInfo(
  * "assets.digest.algorithm" = "sha1"
  * }}}
  *
+ * Assets that are no larger than `assets.memoryCache.maxEntrySize` are served from memory, and outside of dev mode, are
+ * cached in memory up to a total of `assets.memoryCache.maxSize`. Larger assets on the file system are sent straight
+ * from the file by servers that support it:
+ *
+ * {{{
+ * assets.memoryCache.maxSize = 10m
+ * assets.memoryCache.maxEntrySize = 256k
+ * }}}
+ *
  * You can set a custom Cache directive for a particular resource if needed. For example in your application.conf file:
  *
  * {{{
@@ -280,6 +298,12 @@ object Assets extends AssetsBuilder(LazyHttpErrorHandler) {
 
   private[controllers] lazy val assetInfoCache = new SelfPopulatingMap[String, AssetInfo]()
 
+  lazy val memoryCacheMaxSize = config(_.getBytes("assets.memoryCache.maxSize")).getOrElse(10L * 1024 * 1024)
+
+  lazy val memoryCacheMaxEntrySize = config(_.getBytes("assets.memoryCache.maxEntrySize")).getOrElse(256L * 1024)
+
+  private[controllers] lazy val assetBytesCache = new AssetBytesCache(memoryCacheMaxSize)
+
   private def assetInfoFromResource(name: String): Option[AssetInfo] = {
     blocking {
       for {
@@ -299,6 +323,71 @@ object Assets extends AssetsBuilder(LazyHttpErrorHandler) {
     }
   }
 
+  /*
+   * The entity for the asset at the given URL, or None if the URL is a directory.
+   *
+   * Small assets are read into memory, and unless in dev mode, cached. Larger assets on the file system are served as
+   * file regions, and any others are streamed.
+   */
+  private[controllers] def assetEntity(url: URL, mimeType: String): Option[HttpEntity] = {
+    val key = url.toExternalForm
+
+    def inMemory(bytes: ByteString): HttpEntity = {
+      if (!isDev) assetBytesCache.put(key, bytes)
+      HttpEntity.Strict(bytes, Some(mimeType))
+    }
+
+    assetBytesCache.get(key).map(bytes => HttpEntity.Strict(bytes, Some(mimeType))).orElse(blocking {
+      url.getProtocol match {
+        case "file" =>
+          val file = new File(url.toURI)
+          if (file.isDirectory) {
+            None
+          } else if (file.length <= memoryCacheMaxEntrySize) {
+            Some(inMemory(ByteString(java.nio.file.Files.readAllBytes(file.toPath))))
+          } else {
+            Some(HttpEntity.FileRegion(file.toPath, 0, file.length, Some(mimeType)))
+          }
+        case _ =>
+          val connection = url.openConnection()
+          // Make sure it's not a directory
+          if (Resources.isUrlConnectionADirectory(connection)) {
+            Resources.closeUrlConnection(connection)
+            None
+          } else {
+            val length = connection.getContentLengthLong
+            if (length >= 0 && length <= memoryCacheMaxEntrySize) {
+              val stream = connection.getInputStream
+              try {
+                Some(inMemory(readFully(stream)))
+              } finally {
+                stream.close()
+              }
+            } else {
+              Resources.closeUrlConnection(connection)
+              // The resource is only opened once the entity is consumed, so that nothing is left open if it isn't
+              val data = akka.stream.scaladsl.Source.single(url).map { url =>
+                val resourceData = Enumerator.fromStream(url.openStream)(Implicits.defaultExecutionContext)
+                akka.stream.scaladsl.Source(Streams.enumeratorToPublisher(resourceData)).map(ByteString.apply)
+              }.flatten(FlattenStrategy.concat)
+              Some(HttpEntity.Streamed(data, Some(length).filter(_ >= 0), Some(mimeType)))
+            }
+          }
+      }
+    })
+  }
+
+  private def readFully(stream: InputStream): ByteString = {
+    val builder = ByteString.newBuilder
+    val buffer = new Array[Byte](8192)
+    var len = stream.read(buffer)
+    while (len != -1) {
+      builder.putBytes(buffer, 0, len)
+      len = stream.read(buffer)
+    }
+    builder.result()
+  }
+
   private[controllers] def assetInfoForRequest(request: RequestHeader, name: String): Future[Option[(AssetInfo, Boolean)]] = {
     val gzipRequested = request.headers.get(ACCEPT_ENCODING).exists(_.split(',').exists(_.trim == "gzip"))
     assetInfo(name).map(_.map(_ -> gzipRequested))(Implicits.trampoline)
@@ -380,22 +469,26 @@ class AssetsBuilder(errorHandler: HttpErrorHandler) extends Controller {
     r2.withHeaders(CACHE_CONTROL -> assetInfo.cacheControl(aggressiveCaching))
   }
 
+  /*
+   * The Range header of the request, unless it has an If-Range header that doesn't match the asset. The ETag of an
+   * If-Range header must be a strong match, and the date must be the exact last modified date of the asset.
+   */
+  private def rangeHeader(request: RequestHeader, assetInfo: AssetInfo): Option[String] = {
+    request.headers.get(RANGE).filter { _ =>
+      request.headers.get(IF_RANGE).map(_.trim).forall {
+        case etag if etag.startsWith("\"") || etag.startsWith("W/") => assetInfo.etag.contains(etag)
+        case date => parseModifiedDate(date).exists(date => assetInfo.parsedLastModified.contains(date))
+      }
+    }
+  }
+
   private def result(file: String,
-    length: Long,
-    mimeType: String,
-    resourceData: Enumerator[Array[Byte]],
+    entity: HttpEntity,
+    rangeHeader: Option[String],
     gzipRequested: Boolean,
     gzipAvailable: Boolean): Result = {
 
-    val response = if (length > 0) {
-      Ok.sendEntity(HttpEntity.Streamed(
-        akka.stream.scaladsl.Source(Streams.enumeratorToPublisher(resourceData)).map(ByteString.apply),
-        Some(length),
-        Some(mimeType)
-      ))
-    } else {
-      Ok.sendEntity(HttpEntity.Strict(ByteString.empty, Some(mimeType)))
-    }
+    val response = RangeResult.ofEntity(entity, rangeHeader)
     if (gzipRequested && gzipAvailable) {
       response.withHeaders(VARY -> ACCEPT_ENCODING, CONTENT_ENCODING -> "gzip")
     } else if (gzipAvailable) {
@@ -447,23 +540,19 @@ class AssetsBuilder(errorHandler: HttpErrorHandler) extends Controller {
 
     val pendingResult: Future[Result] = assetInfoFuture.flatMap {
       case Some((assetInfo, gzipRequested)) =>
-        val connection = assetInfo.url(gzipRequested).openConnection()
-        // Make sure it's not a directory
-        if (Resources.isUrlConnectionADirectory(connection)) {
-          Resources.closeUrlConnection(connection)
-          notFound
-        } else {
-          val stream = connection.getInputStream
-          val length = stream.available
-          val resourceData = Enumerator.fromStream(stream)(Implicits.defaultExecutionContext)
-
-          Future.successful(maybeNotModified(request, assetInfo, aggressiveCaching).getOrElse {
-            cacheableResult(
-              assetInfo,
-              aggressiveCaching,
-              result(file, length, assetInfo.mimeType, resourceData, gzipRequested, assetInfo.gzipUrl.isDefined)
-            )
-          })
+        // Answer conditional requests before reading the asset
+        maybeNotModified(request, assetInfo, aggressiveCaching) match {
+          case Some(notModified) => Future.successful(notModified)
+          case None =>
+            assetEntity(assetInfo.url(gzipRequested), assetInfo.mimeType) match {
+              case None => notFound
+              case Some(entity) =>
+                Future.successful(cacheableResult(
+                  assetInfo,
+                  aggressiveCaching,
+                  result(file, entity, rangeHeader(request, assetInfo), gzipRequested, assetInfo.gzipUrl.isDefined)
+                ))
+            }
         }
       case None => notFound
     }
@@ -61,10 +61,11 @@ case class CookiesConfiguration(
  * @param maxAge The max age of the session, none, use "session" sessions
  * @param httpOnly Whether the HTTP only attribute of the cookie should be set
  * @param domain The domain to set for the session cookie, if defined
+ * @param decodedCacheSize The number of verified session cookies to remember, so they're not verified again
  */
 case class SessionConfiguration(cookieName: String = "PLAY_SESSION", secure: Boolean = false,
   maxAge: Option[FiniteDuration] = None, httpOnly: Boolean = true,
-  domain: Option[String] = None)
+  domain: Option[String] = None, decodedCacheSize: Int = 1000)
 
 /**
  * The flash configuration
@@ -80,10 +81,14 @@ case class FlashConfiguration(cookieName: String = "PLAY_FLASH", secure: Boolean
  *
  * @param maxMemoryBuffer The maximum size that a request body that should be buffered in memory.
  * @param maxDiskBuffer The maximum size that a request body should be buffered on disk.
+ * @param maxFormFields The maximum number of fields in a form url encoded body.
+ * @param maxFormKeyLength The maximum length of a key in a form url encoded body, in bytes.
  */
 case class ParserConfiguration(
   maxMemoryBuffer: Int = 102400,
-  maxDiskBuffer: Long = 10485760)
+  maxDiskBuffer: Long = 10485760,
+  maxFormFields: Int = 10000,
+  maxFormKeyLength: Int = 1024)
 
 /**
  * Configuration for action composition.
@@ -115,7 +120,9 @@ object HttpConfiguration {
       parser = ParserConfiguration(
         maxMemoryBuffer = config.getDeprecated[ConfigMemorySize]("play.http.parser.maxMemoryBuffer", "parsers.text.maxLength")
           .toBytes.toInt,
-        maxDiskBuffer = config.get[ConfigMemorySize]("play.http.parser.maxDiskBuffer").toBytes
+        maxDiskBuffer = config.get[ConfigMemorySize]("play.http.parser.maxDiskBuffer").toBytes,
+        maxFormFields = config.get[Int]("play.http.parser.maxFormFields"),
+        maxFormKeyLength = config.get[Int]("play.http.parser.maxFormKeyLength")
       ),
       actionComposition = ActionCompositionConfiguration(
         controllerAnnotationsFirst = config.get[Boolean]("play.http.actionComposition.controllerAnnotationsFirst")
@@ -128,7 +135,8 @@ object HttpConfiguration {
         secure = config.getDeprecated[Boolean]("play.http.session.secure", "session.secure"),
         maxAge = config.getDeprecated[Option[FiniteDuration]]("play.http.session.maxAge", "session.maxAge"),
         httpOnly = config.getDeprecated[Boolean]("play.http.session.httpOnly", "session.httpOnly"),
-        domain = config.getDeprecated[Option[String]]("play.http.session.domain", "session.domain")
+        domain = config.getDeprecated[Option[String]]("play.http.session.domain", "session.domain"),
+        decodedCacheSize = config.get[Int]("play.http.session.decodedCacheSize")
       ),
       flash = FlashConfiguration(
         cookieName = config.getDeprecated[String]("play.http.flash.cookieName", "flash.cookieName"),
@@ -2,7 +2,12 @@ package play.api.http
 
 import akka.stream.Materializer
 import akka.stream.scaladsl.Source
+import akka.stream.stage.{ Context, PushPullStage }
 import akka.util.ByteString
+import java.io.EOFException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.{ Path, StandardOpenOption }
 import play.api.mvc.Headers
 import play.http.{ HttpEntity => JHttpEntity }
 
@@ -12,7 +17,8 @@ import scala.concurrent.Future
 /**
  * An HTTP entity.
  *
- * HTTP entities come in three flavors, [[HttpEntity.Strict]], [[HttpEntity.Streamed]] and [[HttpEntity.Chunked]].
+ * HTTP entities come in four flavors, [[HttpEntity.Strict]], [[HttpEntity.Streamed]], [[HttpEntity.Chunked]] and
+ * [[HttpEntity.FileRegion]].
  */
 sealed trait HttpEntity {
 
@@ -115,6 +121,67 @@ object HttpEntity {
     def asJava = new JHttpEntity.Chunked(chunks.asJava, OptionConverters.toJava(contentType))
     def as(contentType: String) = copy(contentType = Some(contentType))
   }
+
+  /**
+   * A file region entity.
+   *
+   * The data is a region of a file.  Servers that support it send the region straight from the file to the socket, for
+   * example using sendfile, without copying it into the JVM.  Otherwise, the region is read from a `FileChannel` as a
+   * stream.
+   *
+   * @param path The path of the file.
+   * @param offset The offset of the start of the region in the file.
+   * @param length The length of the region.
+   * @param contentType The content type, if known.
+   */
+  final case class FileRegion(path: Path, offset: Long, length: Long, contentType: Option[String]) extends HttpEntity {
+    def isKnownEmpty = length == 0
+    def contentLength = Some(length)
+    def dataStream: Source[ByteString, _] = {
+      if (length == 0) Source.empty[ByteString]
+      else Source.repeat(()).transform(() => new FileRegionReader(path, offset, length))
+    }
+    def asJava = new JHttpEntity.Streamed(dataStream.asJava,
+      OptionConverters.toJava(contentLength.asInstanceOf[Option[java.lang.Long]]),
+      OptionConverters.toJava(contentType))
+    def as(contentType: String) = copy(contentType = Some(contentType))
+  }
+
+  /**
+   * Reads a region of a file, a chunk for each element pulled from upstream.
+   *
+   * The file is opened when the first chunk is read, and closed when the stage stops.
+   */
+  private class FileRegionReader(path: Path, offset: Long, length: Long) extends PushPullStage[Unit, ByteString] {
+
+    private val ChunkSize = 8192
+
+    private var channel: FileChannel = null
+    private var position = offset
+    private val end = offset + length
+
+    def onPush(elem: Unit, ctx: Context[ByteString]) = {
+      if (channel == null) {
+        channel = FileChannel.open(path, StandardOpenOption.READ)
+      }
+      val buffer = ByteBuffer.allocate(math.min(ChunkSize.toLong, end - position).toInt)
+      while (buffer.hasRemaining && channel.read(buffer, position + buffer.position) >= 0) {}
+      if (buffer.hasRemaining) {
+        ctx.fail(new EOFException(s"$path ended before the end of the region at $end"))
+      } else {
+        buffer.flip()
+        position += buffer.remaining
+        val chunk = ByteString(buffer)
+        if (position >= end) ctx.pushAndFinish(chunk) else ctx.push(chunk)
+      }
+    }
+
+    def onPull(ctx: Context[ByteString]) = ctx.pull()
+
+    override def postStop() = {
+      if (channel != null) channel.close()
+    }
+  }
 }
 
 /**
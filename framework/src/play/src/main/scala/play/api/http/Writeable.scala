@@ -6,6 +6,7 @@ package play.api.http
 import akka.util.ByteString
 import play.api.mvc._
 import play.api.libs.json._
+import play.api.libs.json.jackson.JacksonJson
 import scala.annotation._
 
 /**
@@ -92,7 +93,16 @@ trait DefaultWriteables extends LowPriorityWriteables {
    * `Writeable` for `JsValue` values - Json
    */
   implicit def writeableOf_JsValue(implicit codec: Codec): Writeable[JsValue] = {
-    Writeable(a => codec.encode(Json.stringify(a)))
+    if (codec.charset.equalsIgnoreCase("utf-8")) {
+      // Generate the bytes straight into the ByteString, rather than building a String and then encoding it
+      Writeable { a =>
+        val builder = ByteString.newBuilder
+        JacksonJson.writeJsValue(a, builder.asOutputStream)
+        builder.result()
+      }
+    } else {
+      Writeable(a => codec.encode(Json.stringify(a)))
+    }
   }
 
   /**
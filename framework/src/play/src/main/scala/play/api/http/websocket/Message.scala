@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.http.websocket
+
+import akka.util.ByteString
+import com.typesafe.config.ConfigMemorySize
+import play.api.{ Configuration, PlayConfig }
+
+/**
+ * A WebSocket message.
+ *
+ * Fragmented messages are aggregated by the server, so a message is always complete.
+ */
+sealed trait Message
+
+/**
+ * A text message.
+ */
+case class TextMessage(data: String) extends Message
+
+/**
+ * A binary message.
+ */
+case class BinaryMessage(data: ByteString) extends Message
+
+/**
+ * A close message.
+ *
+ * Sending a close message closes the WebSocket with the given status code and reason.
+ *
+ * @param statusCode The status code, if any.
+ * @param reason The reason, which must be empty if there is no status code.
+ */
+case class CloseMessage(statusCode: Option[Int] = Some(CloseCodes.Regular), reason: String = "") extends Message
+
+object CloseMessage {
+  def apply(statusCode: Int): CloseMessage = CloseMessage(Some(statusCode))
+  def apply(statusCode: Int, reason: String): CloseMessage = CloseMessage(Some(statusCode), reason)
+}
+
+/**
+ * A ping message.
+ *
+ * Pings received from the client are answered by the server, so they are never passed to the application.
+ */
+case class PingMessage(data: ByteString) extends Message
+
+/**
+ * A pong message.
+ */
+case class PongMessage(data: ByteString) extends Message
+
+/**
+ * The close codes of WebSockets, as defined by RFC 6455.
+ */
+object CloseCodes {
+  val Regular = 1000
+  val GoingAway = 1001
+  val ProtocolError = 1002
+  val Unacceptable = 1003
+  val NoStatus = 1005
+  val ConnectionAbort = 1006
+  val InconsistentData = 1007
+  val PolicyViolated = 1008
+  val TooBig = 1009
+  val ClientRejectsExtension = 1010
+  val UnexpectedCondition = 1011
+  val TLSHandshakeFailure = 1015
+}
+
+/**
+ * The WebSocket configuration.
+ *
+ * @param bufferLimit The maximum length of a message, once fragments have been aggregated and it has been decompressed.
+ * @param maxFrameLength The maximum length of a single frame.
+ * @param deflate The permessage-deflate configuration.
+ */
+case class WebSocketConfiguration(
+  bufferLimit: Long = 65536,
+  maxFrameLength: Long = 65536,
+  deflate: DeflateConfiguration = DeflateConfiguration())
+
+/**
+ * The permessage-deflate configuration.
+ *
+ * permessage-deflate is an extension that compresses messages, defined by RFC 7692.  When it's enabled, it's used if
+ * the client asks for it.  Each message is compressed independently, so that no compression state is kept for each
+ * WebSocket.
+ *
+ * @param enabled Whether permessage-deflate should be used if the client asks for it.  Disabled by default.
+ * @param threshold Messages shorter than this are sent uncompressed.
+ */
+case class DeflateConfiguration(
+  enabled: Boolean = false,
+  threshold: Int = 256)
+
+object WebSocketConfiguration {
+
+  def fromConfiguration(configuration: Configuration): WebSocketConfiguration = {
+    val config = PlayConfig(configuration).get[PlayConfig]("play.websocket")
+    WebSocketConfiguration(
+      bufferLimit = config.get[ConfigMemorySize]("buffer.limit").toBytes,
+      maxFrameLength = config.get[ConfigMemorySize]("frame.maxLength").toBytes,
+      deflate = DeflateConfiguration(
+        enabled = config.get[Boolean]("deflate.enabled"),
+        threshold = config.get[ConfigMemorySize]("deflate.threshold").toBytes.toInt
+      )
+    )
+  }
+}
+
+/**
+ * An exception that, when it fails the flow handling a WebSocket, closes the WebSocket with the given close message.
+ */
+case class WebSocketCloseException(message: CloseMessage) extends RuntimeException(message.reason, null, false, false)
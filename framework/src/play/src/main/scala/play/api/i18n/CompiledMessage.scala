@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.i18n
+
+import java.text.MessageFormat
+import java.util.Locale
+
+import scala.collection.mutable.ArrayBuffer
+
+/**
+ * A message pattern, compiled for a particular locale.
+ *
+ * Compiled messages are thread safe, and format their arguments exactly as `java.text.MessageFormat` does.
+ */
+private[i18n] sealed abstract class CompiledMessage {
+  def format(args: Seq[Any]): String
+}
+
+private[i18n] object CompiledMessage {
+
+  /**
+   * Compile the given pattern.
+   *
+   * Patterns without arguments are formatted once, up front.  Patterns whose arguments are all simple `{n}` references
+   * are split into literal text and argument references, so they can be formatted without a `MessageFormat` unless one
+   * of the arguments needs locale specific formatting.  Any other pattern is formatted by a copy of a `MessageFormat`
+   * that is parsed once.
+   *
+   * Invalid patterns fail with the same exception as `MessageFormat`, but only when they're formatted.
+   */
+  def apply(pattern: String, locale: Locale): CompiledMessage = {
+    try {
+      val format = new MessageFormat(pattern, locale)
+      segments(pattern) match {
+        case Some(segments) if segments.forall(_.isInstanceOf[String]) => Constant(segments.mkString.intern())
+        case Some(segments) => new Simple(segments.toArray, format)
+        case None => new Formatted(format)
+      }
+    } catch {
+      case e: IllegalArgumentException => new Invalid(e)
+    }
+  }
+
+  /**
+   * Split a pattern into literal strings and argument indexes, if it has no arguments other than `{n}` references.
+   */
+  private def segments(pattern: String): Option[Seq[AnyRef]] = {
+    val segments = ArrayBuffer.empty[AnyRef]
+    val literal = new java.lang.StringBuilder
+    var inQuote = false
+    var i = 0
+    while (i < pattern.length) {
+      val c = pattern.charAt(i)
+      if (c == '\'') {
+        // Two quotes are a literal quote, whether quoted or not, a single quote starts or ends quoted text
+        if (i + 1 < pattern.length && pattern.charAt(i + 1) == '\'') {
+          literal.append('\'')
+          i += 2
+        } else {
+          inQuote = !inQuote
+          i += 1
+        }
+      } else if (c == '{' && !inQuote) {
+        val end = pattern.indexOf('}', i + 1)
+        val index = if (end < 0) "" else pattern.substring(i + 1, end)
+        if (index.isEmpty || index.length > 4 || !index.forall(d => d >= '0' && d <= '9')) {
+          return None
+        }
+        if (literal.length > 0) {
+          segments += literal.toString
+          literal.setLength(0)
+        }
+        segments += Integer.valueOf(index.toInt)
+        i = end + 1
+      } else {
+        literal.append(c)
+        i += 1
+      }
+    }
+    if (literal.length > 0 || segments.isEmpty) {
+      segments += literal.toString
+    }
+    Some(segments)
+  }
+
+  private case class Constant(text: String) extends CompiledMessage {
+    def format(args: Seq[Any]) = text
+  }
+
+  private class Formatted(prototype: MessageFormat) extends CompiledMessage {
+    // MessageFormat isn't thread safe, but copying one is much cheaper than parsing its pattern again
+    def format(args: Seq[Any]) = {
+      prototype.clone().asInstanceOf[MessageFormat].format(args.map(_.asInstanceOf[java.lang.Object]).toArray)
+    }
+  }
+
+  private class Simple(segments: Array[AnyRef], prototype: MessageFormat) extends Formatted(prototype) {
+    override def format(args: Seq[Any]) = {
+      val builder = new java.lang.StringBuilder
+      var i = 0
+      var simple = true
+      while (simple && i < segments.length) {
+        segments(i) match {
+          case literal: String => builder.append(literal)
+          case index: Integer if index >= args.length => builder.append('{').append(index).append('}')
+          case index: Integer => args(index) match {
+            // Numbers and dates are formatted for the locale
+            case _: Number | _: java.util.Date => simple = false
+            case arg => builder.append(String.valueOf(arg))
+          }
+        }
+        i += 1
+      }
+      if (simple) builder.toString else super.format(args)
+    }
+  }
+
+  private class Invalid(error: IllegalArgumentException) extends CompiledMessage {
+    def format(args: Seq[Any]) = throw new IllegalArgumentException(error.getMessage, error)
+  }
+}
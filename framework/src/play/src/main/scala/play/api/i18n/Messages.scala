@@ -6,6 +6,7 @@ package play.api.i18n
 import javax.inject.{ Inject, Singleton }
 
 import play.api.inject.Module
+import play.api.http.HeaderNames
 import play.api.mvc.{ DiscardingCookie, Cookie, Result, RequestHeader, Session }
 import play.mvc.Http
 
@@ -470,21 +471,60 @@ class DefaultMessagesApi @Inject() (environment: Environment, configuration: Con
 
   private val config = PlayConfig(configuration)
 
-  import java.text._
-
   protected val messagesPrefix =
     config.getDeprecated[Option[String]]("play.i18n.path", "messages.path")
   val messages: Map[String, Map[String, String]] = loadAllMessages
 
+  /**
+   * The messages of each available lang, including the messages that it falls back to, compiled for the lang's
+   * locale.  Keyed by lang code.
+   */
+  private lazy val compiledMessages: Map[String, Map[String, CompiledMessage]] = {
+    langs.availables.map { lang =>
+      val patterns = langsToTry(lang).reverse.foldLeft(Map.empty[String, String]) { (patterns, lang) =>
+        patterns ++ messages.getOrElse(lang.code, Map.empty)
+      }
+      lang.code -> patterns.map {
+        case (key, pattern) => key -> CompiledMessage(pattern, lang.toLocale)
+      }
+    }.toMap
+  }
+
+  /**
+   * The preferred langs for the Accept-Language headers that have been seen, so that the header doesn't need to be
+   * parsed and matched against the available langs on every request.  Cleared when it gets full, since the headers
+   * are supplied by clients.
+   */
+  private val preferredLangs = new java.util.concurrent.ConcurrentHashMap[String, Lang]()
+  private val PreferredLangsMaxSize = 1024
+
   def preferred(candidates: Seq[Lang]) = Messages(langs.preferred(candidates), this)
 
   def preferred(request: RequestHeader) = {
     val maybeLangFromCookie = request.cookies.get(langCookieName)
       .flatMap(c => Lang.get(c.value))
-    val lang = langs.preferred(maybeLangFromCookie.toSeq ++ request.acceptLanguages)
+    val lang = maybeLangFromCookie match {
+      case Some(langFromCookie) => langs.preferred(langFromCookie +: request.acceptLanguages)
+      case None => preferredForAcceptLanguage(request)
+    }
     Messages(lang, this)
   }
 
+  private def preferredForAcceptLanguage(request: RequestHeader): Lang = {
+    val acceptLanguage = request.headers.get(HeaderNames.ACCEPT_LANGUAGE).getOrElse("")
+    val cached = preferredLangs.get(acceptLanguage)
+    if (cached != null) {
+      cached
+    } else {
+      val lang = langs.preferred(request.acceptLanguages)
+      if (preferredLangs.size >= PreferredLangsMaxSize) {
+        preferredLangs.clear()
+      }
+      preferredLangs.put(acceptLanguage, lang)
+      lang
+    }
+  }
+
   def preferred(request: Http.RequestHeader) = preferred(request._underlyingHeader())
 
   def setLang(result: Result, lang: Lang) = result.withCookies(Cookie(langCookieName, lang.code, path = Session.path, domain = Session.domain,
@@ -506,22 +546,31 @@ class DefaultMessagesApi @Inject() (environment: Environment, configuration: Con
 
   private def noMatch(key: String, args: Seq[Any]) = key
 
+  private def langsToTry(lang: Lang): List[Lang] =
+    List(lang, Lang(lang.language, ""), Lang("default", ""), Lang("default.play", ""))
+
   def translate(key: String, args: Seq[Any])(implicit lang: Lang): Option[String] = {
-    val langsToTry: List[Lang] =
-      List(lang, Lang(lang.language, ""), Lang("default", ""), Lang("default.play", ""))
-    val pattern: Option[String] =
-      langsToTry.foldLeft[Option[String]](None)((res, lang) =>
-        res.orElse(messages.get(lang.code).flatMap(_.get(key))))
-    pattern.map(pattern =>
-      new MessageFormat(pattern, lang.toLocale).format(args.map(_.asInstanceOf[java.lang.Object]).toArray))
+    compiledMessages.get(lang.code) match {
+      case Some(compiled) =>
+        compiled.get(key).map(_.format(args))
+      case None =>
+        // Not an available lang, so its messages haven't been compiled
+        val pattern: Option[String] =
+          langsToTry(lang).foldLeft[Option[String]](None)((res, lang) =>
+            res.orElse(messages.get(lang.code).flatMap(_.get(key))))
+        pattern.map(pattern => CompiledMessage(pattern, lang.toLocale).format(args))
+    }
   }
 
   def isDefinedAt(key: String)(implicit lang: Lang): Boolean = {
-    val langsToTry: List[Lang] = List(lang, Lang(lang.language, ""), Lang("default", ""), Lang("default.play", ""))
-
-    langsToTry.foldLeft[Boolean](false)({ (acc, lang) =>
-      acc || messages.get(lang.code).map(_.isDefinedAt(key)).getOrElse(false)
-    })
+    compiledMessages.get(lang.code) match {
+      case Some(compiled) =>
+        compiled.contains(key)
+      case None =>
+        langsToTry(lang).foldLeft[Boolean](false)({ (acc, lang) =>
+          acc || messages.get(lang.code).map(_.isDefinedAt(key)).getOrElse(false)
+        })
+    }
   }
 
   private def joinPaths(first: Option[String], second: String) = first match {
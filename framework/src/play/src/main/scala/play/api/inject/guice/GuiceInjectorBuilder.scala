@@ -340,4 +340,36 @@ class GuiceInjector @Inject() (injector: com.google.inject.Injector) extends Pla
    * Get an instance bound to the given binding key.
    */
   def instanceOf[T](key: BindingKey[T]) = injector.getInstance(GuiceKey(key))
+
+  /**
+   * Get a provider of instances of the given class, so that they can be created without looking up their binding.
+   */
+  private[play] def providerOf[T](clazz: Class[T]): javax.inject.Provider[T] = injector.getProvider(clazz)
+
+  /**
+   * Get a provider of new instances of the given class, whatever scope the class is annotated with.
+   *
+   * The instances are created with the constructor Guice would use, and their members are injected, but they aren't
+   * looked up through the binding of the class, so a class that is annotated as a singleton gets a new instance each
+   * time too.
+   */
+  private[play] def unscopedProviderOf[T](clazz: Class[T]): javax.inject.Provider[T] = {
+    import scala.collection.JavaConverters._
+    val injectionPoint = com.google.inject.spi.InjectionPoint.forConstructorOf(clazz)
+    val constructor = injectionPoint.getMember.asInstanceOf[java.lang.reflect.Constructor[T]]
+    constructor.setAccessible(true)
+    val parameters = injectionPoint.getDependencies.asScala.map(dependency => injector.getProvider(dependency.getKey)).toArray
+    val members = injector.getMembersInjector(clazz)
+    new javax.inject.Provider[T] {
+      def get = {
+        val instance = try {
+          constructor.newInstance(parameters.map(_.get.asInstanceOf[AnyRef]): _*)
+        } catch {
+          case e: java.lang.reflect.InvocationTargetException => throw e.getCause
+        }
+        members.injectMembers(instance)
+        instance
+      }
+    }
+  }
 }
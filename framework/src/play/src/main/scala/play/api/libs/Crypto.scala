@@ -35,12 +35,11 @@ object Crypto {
   class CryptoException(val message: String = null, val throwable: Throwable = null) extends RuntimeException(message, throwable)
 
   private val cryptoCache = Application.instanceCache[Crypto]
-  private def crypto = {
-    Play.maybeApplication.fold(
-      new Crypto(new CryptoConfigParser(
-        Environment.simple(), Configuration.from(Map("play.crypto.aes.transformation" -> "AES/CTR/NoPadding"))
-      ).get)
-    )(cryptoCache)
+  private lazy val defaultCrypto = new Crypto(new CryptoConfigParser(
+    Environment.simple(), Configuration.from(Map("play.crypto.aes.transformation" -> "AES/CTR/NoPadding"))
+  ).get)
+  private[play] def crypto = {
+    Play.maybeApplication.fold(defaultCrypto)(cryptoCache)
   }
 
   /**
@@ -283,6 +282,32 @@ class Crypto @Inject() (config: CryptoConfig) {
 
   private val random = new SecureRandom()
 
+  /*
+   * Looking up a Mac or Cipher from the provider, keying a Mac and deriving the AES key from the secret all cost more
+   * than signing or encrypting a cookie sized value, so these are done once per thread, or once per instance for the
+   * derived key, rather than on every call.  Mac and Cipher instances aren't thread safe, hence the thread locals.
+   */
+
+  private val secretMac = new ThreadLocal[Mac] {
+    override def initialValue() = {
+      val mac = newMac()
+      mac.init(new SecretKeySpec(config.secret.getBytes("utf-8"), "HmacSHA1"))
+      mac
+    }
+  }
+
+  private val unkeyedMac = new ThreadLocal[Mac] {
+    override def initialValue() = newMac()
+  }
+
+  private val aesCipher = new ThreadLocal[Cipher] {
+    override def initialValue() = getCipherWithConfiguredProvider(config.aesTransformation)
+  }
+
+  private lazy val secretAesKey = secretKeyWithSha256(config.secret, "AES")
+
+  private def newMac(): Mac = config.provider.fold(Mac.getInstance("HmacSHA1"))(p => Mac.getInstance("HmacSHA1", p))
+
   /**
    * Signs the given String with HMAC-SHA1 using the given key.
    *
@@ -294,7 +319,7 @@ class Crypto @Inject() (config: CryptoConfig) {
    * @return A hexadecimal encoded signature.
    */
   def sign(message: String, key: Array[Byte]): String = {
-    val mac = config.provider.fold(Mac.getInstance("HmacSHA1"))(p => Mac.getInstance("HmacSHA1", p))
+    val mac = unkeyedMac.get()
     mac.init(new SecretKeySpec(key, "HmacSHA1"))
     Codecs.toHexString(mac.doFinal(message.getBytes("utf-8")))
   }
@@ -309,7 +334,8 @@ class Crypto @Inject() (config: CryptoConfig) {
    * @return A hexadecimal encoded signature.
    */
   def sign(message: String): String = {
-    sign(message, config.secret.getBytes("utf-8"))
+    // doFinal resets the Mac, keeping its key, so it's ready for the next message
+    Codecs.toHexString(secretMac.get().doFinal(message.getBytes("utf-8")))
   }
 
   /**
@@ -425,8 +451,8 @@ class Crypto @Inject() (config: CryptoConfig) {
    * @return A Base64 encrypted string.
    */
   def encryptAES(value: String, privateKey: String): String = {
-    val skeySpec = secretKeyWithSha256(privateKey, "AES")
-    val cipher = getCipherWithConfiguredProvider(config.aesTransformation)
+    val skeySpec = aesKey(privateKey)
+    val cipher = aesCipher.get()
     cipher.init(Cipher.ENCRYPT_MODE, skeySpec)
     val encryptedValue = cipher.doFinal(value.getBytes("utf-8"))
     // return a formatted, versioned encrypted string
@@ -438,6 +464,13 @@ class Crypto @Inject() (config: CryptoConfig) {
     }
   }
 
+  /**
+   * The AES SecretKeySpec for the given private key, which is only derived once for the application's secret.
+   */
+  private def aesKey(privateKey: String): SecretKeySpec = {
+    if (privateKey == config.secret) secretAesKey else secretKeyWithSha256(privateKey, "AES")
+  }
+
   /**
    * Generates the SecretKeySpec, given the private key and the algorithm.
    */
@@ -526,8 +559,8 @@ class Crypto @Inject() (config: CryptoConfig) {
   /** V1 decryption algorithm (No IV). */
   private def decryptAESVersion1(value: String, privateKey: String): String = {
     val data = Base64.decodeBase64(value)
-    val skeySpec = secretKeyWithSha256(privateKey, "AES")
-    val cipher = getCipherWithConfiguredProvider(config.aesTransformation)
+    val skeySpec = aesKey(privateKey)
+    val cipher = aesCipher.get()
     cipher.init(Cipher.DECRYPT_MODE, skeySpec)
     new String(cipher.doFinal(data), "utf-8")
   }
@@ -535,8 +568,8 @@ class Crypto @Inject() (config: CryptoConfig) {
   /** V2 decryption algorithm (IV present). */
   private def decryptAESVersion2(value: String, privateKey: String): String = {
     val data = Base64.decodeBase64(value)
-    val skeySpec = secretKeyWithSha256(privateKey, "AES")
-    val cipher = getCipherWithConfiguredProvider(config.aesTransformation)
+    val skeySpec = aesKey(privateKey)
+    val cipher = aesCipher.get()
     val blockSize = cipher.getBlockSize
     val iv = data.slice(0, blockSize)
     val payload = data.slice(blockSize, data.size)
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.libs
+
+import akka.stream.io.Framing
+import akka.stream.scaladsl.Flow
+import akka.stream.stage.{ Context, PushPullStage, SyncDirective, TerminationDirective }
+import akka.util.ByteString
+import play.api.http.Writeable
+import play.api.libs.json.{ JsValue, Json }
+import play.api.mvc.Codec
+
+/**
+ * Helps you stream JSON values, without holding the whole document in memory.
+ *
+ * Each value is serialized as it's emitted, so the stream is backpressured by the client.
+ *
+ * {{{
+ *   val rows: Source[JsValue, _] = ???
+ *   Ok.chunkedJson(rows)
+ * }}}
+ *
+ * Streams of JSON values can be parsed the same way, each value is parsed as soon as all of its bytes have arrived.
+ *
+ * {{{
+ *   val bytes: Source[ByteString, _] = ???
+ *   bytes.via(JsonStream.parseArray(maxElementLength = 64 * 1024))
+ * }}}
+ */
+object JsonStream {
+
+  /**
+   * The MIME type of newline delimited JSON.
+   */
+  val NDJSON = "application/x-ndjson"
+
+  /**
+   * A flow that serializes JSON values into the elements of a JSON array.
+   *
+   * The output is a well formed JSON array, even if the stream is empty.
+   */
+  def array: Flow[JsValue, ByteString, Unit] = Flow[JsValue].map(toByteString).via(arrayFraming)
+
+  /**
+   * A flow that serializes JSON values as newline delimited JSON, one value per line.
+   */
+  def lines: Flow[JsValue, ByteString, Unit] = Flow[JsValue].map(toByteString).via(linesFraming)
+
+  /**
+   * A flow that frames already serialized JSON values as the elements of a JSON array.
+   */
+  def arrayFraming: Flow[ByteString, ByteString, Unit] = Flow[ByteString].transform(() => new ArrayFraming)
+
+  /**
+   * A flow that frames already serialized JSON values as newline delimited JSON.
+   *
+   * The values must not contain newlines, which is the case for JSON that isn't pretty printed.
+   */
+  def linesFraming: Flow[ByteString, ByteString, Unit] = Flow[ByteString].map(_ ++ Newline)
+
+  /**
+   * A flow that parses the elements of a JSON array, as they arrive.
+   *
+   * The bytes must be UTF-8 encoded.  Only one element is buffered at a time, so arrays of any size can be parsed,
+   * but the stream fails if an element is longer than `maxElementLength` bytes, or if the JSON is invalid.
+   *
+   * @param maxElementLength The maximum length of an element, in bytes.
+   */
+  def parseArray(maxElementLength: Int): Flow[ByteString, JsValue, Unit] =
+    arrayElementFraming(maxElementLength).map(parse)
+
+  /**
+   * A flow that parses newline delimited JSON, one value per line, as the lines arrive.
+   *
+   * Blank lines are skipped.  The stream fails if a line is longer than `maxLineLength` bytes, or if a line isn't
+   * valid JSON.
+   *
+   * @param maxLineLength The maximum length of a line, in bytes.
+   */
+  def parseLines(maxLineLength: Int): Flow[ByteString, JsValue, Unit] =
+    Framing.delimiter(Newline, maxLineLength, allowTruncation = true)
+      .filter(line => !line.forall(isWhitespace))
+      .map(parse)
+
+  /**
+   * A flow that splits the bytes of a JSON array into the bytes of its elements, without parsing them.
+   *
+   * @param maxElementLength The maximum length of an element, in bytes.
+   */
+  def arrayElementFraming(maxElementLength: Int): Flow[ByteString, ByteString, Unit] =
+    Flow[ByteString].transform(() => new ArrayElementFraming(maxElementLength))
+
+  /**
+   * The error that a stream of JSON fails with when it isn't a well formed JSON array, or an element is too long.
+   */
+  class JsonFramingException(message: String) extends RuntimeException(message)
+
+  private def parse(bytes: ByteString): JsValue = Json.parse(bytes.iterator.asInputStream)
+
+  private def isWhitespace(b: Byte) = b == ' ' || b == '\n' || b == '\r' || b == '\t'
+
+  private val toByteString: JsValue => ByteString = Writeable.writeableOf_JsValue(Codec.utf_8).transform
+
+  private val Open = ByteString("[")
+  private val Separator = ByteString(",")
+  private val Close = ByteString("]")
+  private val EmptyArray = ByteString("[]")
+  private val Newline = ByteString("\n")
+
+  /**
+   * Prefixes the first element with the opening bracket and the others with a separator, and emits the closing
+   * bracket when the upstream finishes.
+   */
+  private class ArrayFraming extends PushPullStage[ByteString, ByteString] {
+    private var started = false
+
+    override def onPush(elem: ByteString, ctx: Context[ByteString]): SyncDirective = {
+      val prefix = if (started) Separator else Open
+      started = true
+      ctx.push(prefix ++ elem)
+    }
+
+    override def onPull(ctx: Context[ByteString]): SyncDirective = {
+      if (ctx.isFinishing) {
+        ctx.pushAndFinish(if (started) Close else EmptyArray)
+      } else {
+        ctx.pull()
+      }
+    }
+
+    override def onUpstreamFinish(ctx: Context[ByteString]): TerminationDirective = ctx.absorbTermination()
+  }
+
+  // The states of the array element framing
+  private val BeforeArray = 0
+  private val BeforeFirstElement = 1
+  private val BeforeElement = 2
+  private val InElement = 3
+  private val AfterElement = 4
+  private val AfterArray = 5
+
+  /**
+   * Scans the bytes of a JSON array, and emits the bytes of each element once it's complete.
+   *
+   * Only the structure of the array is checked, the elements are checked when they're parsed.  Structural characters
+   * can't occur inside multi-byte UTF-8 sequences, so the bytes can be scanned without decoding them.
+   */
+  private class ArrayElementFraming(maxElementLength: Int) extends PushPullStage[ByteString, ByteString] {
+
+    // The bytes from the start of the current element, or from the end of the last element
+    private var buffer = ByteString.empty
+    private var elementStart = 0
+    private var state = BeforeArray
+    private var depth = 0
+    private var inString = false
+    private var escaped = false
+    private val frames = new java.util.ArrayDeque[ByteString]
+
+    override def onPush(chunk: ByteString, ctx: Context[ByteString]): SyncDirective = {
+      val offset = buffer.length
+      buffer ++= chunk
+      try {
+        val bytes = chunk.iterator
+        var index = offset
+        while (bytes.hasNext) {
+          val b = bytes.next()
+          // A byte that ends a value is scanned again, as the first byte after the value
+          while (!scan(b, index)) {}
+          index += 1
+        }
+        if (state == InElement) {
+          if (buffer.length - elementStart > maxElementLength) {
+            throw new JsonFramingException("JSON array element is longer than " + maxElementLength + " bytes")
+          }
+          buffer = buffer.drop(elementStart)
+          elementStart = 0
+        } else {
+          buffer = ByteString.empty
+        }
+      } catch {
+        case e: JsonFramingException => return ctx.fail(e)
+      }
+      emit(ctx)
+    }
+
+    override def onPull(ctx: Context[ByteString]): SyncDirective = emit(ctx)
+
+    override def onUpstreamFinish(ctx: Context[ByteString]): TerminationDirective = ctx.absorbTermination()
+
+    private def emit(ctx: Context[ByteString]): SyncDirective = {
+      if (!frames.isEmpty) {
+        ctx.push(frames.poll())
+      } else if (ctx.isFinishing) {
+        if (state == AfterArray) ctx.finish()
+        else ctx.fail(new JsonFramingException("Unexpected end of JSON array"))
+      } else {
+        ctx.pull()
+      }
+    }
+
+    /**
+     * Scan a byte.
+     *
+     * @return Whether the byte was consumed, or should be scanned again in the new state.
+     */
+    private def scan(b: Byte, index: Int): Boolean = state match {
+      case BeforeArray =>
+        if (b == '[') state = BeforeFirstElement
+        else if (!isWhitespace(b)) unexpected(b)
+        true
+      case BeforeFirstElement if b == ']' =>
+        state = AfterArray
+        true
+      case BeforeFirstElement | BeforeElement =>
+        if (!isWhitespace(b)) {
+          if (b == ',' || b == ']') unexpected(b)
+          state = InElement
+          elementStart = index
+          depth = 0
+          false
+        } else true
+      case InElement =>
+        scanElement(b, index)
+      case AfterElement =>
+        if (b == ',') state = BeforeElement
+        else if (b == ']') state = AfterArray
+        else if (!isWhitespace(b)) unexpected(b)
+        true
+      case AfterArray =>
+        if (!isWhitespace(b)) unexpected(b)
+        true
+    }
+
+    private def scanElement(b: Byte, index: Int): Boolean = {
+      if (inString) {
+        if (escaped) escaped = false
+        else if (b == '\\') escaped = true
+        else if (b == '"') {
+          inString = false
+          if (depth == 0) endElement(index + 1)
+        }
+        true
+      } else if (b == '"') {
+        inString = true
+        true
+      } else if (b == '{' || b == '[') {
+        depth += 1
+        true
+      } else if (b == '}' || b == ']') {
+        if (depth == 0) {
+          // The end of the array, after a number or a literal
+          endElement(index)
+          false
+        } else {
+          depth -= 1
+          if (depth == 0) endElement(index + 1)
+          true
+        }
+      } else if (depth == 0 && (b == ',' || isWhitespace(b))) {
+        endElement(index)
+        false
+      } else true
+    }
+
+    private def endElement(end: Int): Unit = {
+      if (end - elementStart > maxElementLength) {
+        throw new JsonFramingException("JSON array element is longer than " + maxElementLength + " bytes")
+      }
+      frames.add(buffer.slice(elementStart, end))
+      state = AfterElement
+    }
+
+    private def unexpected(b: Byte): Nothing = {
+      throw new JsonFramingException("Unexpected character '" + b.toChar + "' in JSON array")
+    }
+  }
+}
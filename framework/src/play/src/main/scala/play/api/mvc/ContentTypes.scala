@@ -5,7 +5,7 @@ package play.api.mvc
 
 import akka.util.ByteString
 import play.api.data.Form
-import play.api.libs.streams.{ Streams, Accumulator }
+import play.api.libs.streams.Accumulator
 import play.core.parsers.Multipart
 import scala.language.reflectiveCalls
 import java.io._
@@ -13,18 +13,20 @@ import scala.concurrent.Future
 import scala.xml._
 import play.api._
 import play.api.libs.json._
-import play.api.libs.iteratee._
-import play.api.libs.iteratee.Input._
 import play.api.libs.Files.TemporaryFile
+import play.api.libs.JsonStream
 import MultipartFormData._
+import java.nio.charset.Charset
 import java.util.Locale
+import java.util.concurrent.atomic.AtomicBoolean
 import scala.util.control.NonFatal
+import scala.util.{ Failure, Success, Try }
 import play.api.http.{ LazyHttpErrorHandler, ParserConfiguration, HttpConfiguration, HttpVerbs }
 import play.utils.PlayIO
 import play.api.http.Status._
 import akka.stream.Materializer
-import akka.stream.scaladsl.{ Keep, Flow, Sink }
-import akka.stream.stage.{ Context, PushStage, SyncDirective, TerminationDirective }
+import akka.stream.scaladsl.{ Keep, Flow, Sink, Source }
+import akka.stream.stage.{ Context, LifecycleContext, PushStage, SyncDirective, TerminationDirective }
 
 /**
  * A request body that adapts automatically according the request Content-Type.
@@ -402,6 +404,35 @@ trait BodyParsers {
      */
     def json: BodyParser[JsValue] = json(DefaultMaxTextLength)
 
+    /**
+     * Parse the body as a stream of Json values, without buffering it.
+     *
+     * If the Content-Type is application/x-ndjson, the values are the lines of the body, otherwise they're the
+     * elements of a Json array.  The values are parsed as they arrive, so bodies of any size can be parsed, as long as
+     * no single value is longer than `maxElementLength`.
+     *
+     * This body parser completes as soon as the request starts, with a source of the values.  The source can only be
+     * run once, and should be run by the action, since the body is only read as fast as the source is consumed.  If
+     * the body isn't valid Json, the source fails.
+     *
+     * @param maxElementLength Max length allowed for a value, after which the source fails.
+     */
+    def jsonStream(maxElementLength: Int): BodyParser[Source[JsValue, _]] =
+      BodyParser("jsonStream, maxElementLength=" + maxElementLength) { request =>
+        val parsing = if (request.contentType.exists(_.equalsIgnoreCase(JsonStream.NDJSON))) {
+          JsonStream.parseLines(maxElementLength)
+        } else {
+          JsonStream.parseArray(maxElementLength)
+        }
+        val sink = parsing.toMat(Sink.publisher[JsValue])(Keep.right)
+        Accumulator(sink.mapMaterializedValue(values => Future.successful(Right(Source(values)))))
+      }
+
+    /**
+     * Parse the body as a stream of Json values, without buffering it.
+     */
+    def jsonStream: BodyParser[Source[JsValue, _]] = jsonStream(DefaultMaxTextLength)
+
     /**
      * Parse the body as Json if the Content-Type is text/json or application/json,
      * validating the result with the Json reader.
@@ -463,8 +494,8 @@ trait BodyParsers {
      */
     def empty: BodyParser[Unit] = ignore(Unit)
 
-    def ignore[A](body: A): BodyParser[A] = BodyParser.iteratee("ignore") { request =>
-      Done(Right(body), Empty)
+    def ignore[A](body: A): BodyParser[A] = BodyParser("ignore") { request =>
+      Accumulator.done(Right(body))
     }
 
     // -- XML parser
@@ -530,15 +561,10 @@ trait BodyParsers {
      *
      * @param to The file used to store the content.
      */
-    def file(to: File): BodyParser[File] = BodyParser.iteratee("file, to=" + to) { request =>
-      import play.core.Execution.Implicits.internalContext
-      Iteratee.fold[ByteString, FileOutputStream](new FileOutputStream(to)) { (os, data) =>
-        os.write(data.toArray)
-        os
-      }.map { os =>
-        os.close()
-        Right(to)
-      }
+    def file(to: File): BodyParser[File] = BodyParser("file, to=" + to) { request =>
+      import play.api.libs.iteratee.Execution.Implicits.trampoline
+      val writeToFile = Flow[ByteString].transform { () => new BodyParsers.WriteToFile(to) }
+      Accumulator(writeToFile.toMat(Sink.fold(())((_, _) => ()))(Keep.right)).map(_ => Right(to))
     }
 
     /**
@@ -557,10 +583,33 @@ trait BodyParsers {
      * @param maxLength Max length allowed or returns EntityTooLarge HTTP response.
      */
     def tolerantFormUrlEncoded(maxLength: Int): BodyParser[Map[String, Seq[String]]] =
-      tolerantBodyParser("urlFormEncoded", maxLength, "Error parsing application/x-www-form-urlencoded") { (request, bytes) =>
-        import play.core.parsers._
-        FormUrlEncodedParser.parse(bytes.decodeString(request.charset.getOrElse("utf-8")),
-          request.charset.getOrElse("utf-8"))
+      BodyParser("urlFormEncoded, maxLength=" + maxLength) { request =>
+        import play.core.Execution.Implicits.internalContext
+        import play.core.parsers.FormUrlEncodedParser
+
+        val errorMessage = "Error parsing application/x-www-form-urlencoded"
+        def badResult(e: Throwable) = {
+          logger.debug(errorMessage, e)
+          createBadResult(errorMessage + ": " + e.getMessage)(request).map(Left(_))
+        }
+
+        Try(Charset.forName(request.charset.getOrElse("utf-8"))) match {
+          case Success(charset) =>
+            Accumulator {
+              // The body is decoded as it arrives, rather than being buffered first
+              val decoder = new FormUrlEncodedParser.Decoder(charset, config.maxFormFields, config.maxFormKeyLength)
+              val takeUpToFlow = Flow[ByteString].transform { () => new BodyParsers.TakeUpTo(maxLength) }
+              val sink = takeUpToFlow.toMat(
+                Sink.fold(decoder) { (d, bytes) => d.feed(bytes); d }
+              )(Keep.right)
+              sink.mapMaterializedValue { f =>
+                checkForMaxLengthAttained(request, f.map(_.result())).recoverWith {
+                  case NonFatal(e) => badResult(e)
+                }
+              }
+            }
+          case Failure(e) => Accumulator.done(badResult(e))
+        }
       }
 
     /**
@@ -661,20 +710,13 @@ trait BodyParsers {
      * @param filePartHandler Handles file parts.
      */
     def multipartFormData[A](filePartHandler: Multipart.PartHandler[FilePart[A]], maxLength: Long = DefaultMaxDiskLength): BodyParser[MultipartFormData[A]] = {
-      BodyParser.iteratee("multipartFormData") { request =>
+      BodyParser("multipartFormData") { request =>
         import play.api.libs.iteratee.Execution.Implicits.trampoline
 
-        val parser = Traversable.takeUpTo[ByteString](maxLength).transform(
-          Multipart.multipartParser(DefaultMaxTextLength, filePartHandler)(request)
-        ).flatMap {
-            case d @ Left(r) => Iteratee.eofOrElse(r)(d)
-            case d => checkForEof(request)(d)
-          }
-
-        parser.map {
-          case Left(tooLarge) => Left(tooLarge)
-          case Right(Left(badResult)) => Left(badResult)
-          case Right(Right(body)) => Right(body)
+        val takeUpToFlow = Flow[ByteString].transform { () => new BodyParsers.TakeUpTo(maxLength) }
+        Multipart.multipartParser(DefaultMaxTextLength, filePartHandler)(request).through(takeUpToFlow).recoverWith {
+          case _: BodyParsers.MaxLengthLimitAttained =>
+            createBadResult("Request Entity Too Large", REQUEST_ENTITY_TOO_LARGE)(request).map(Left(_))
         }
       }
     }
@@ -687,21 +729,26 @@ trait BodyParsers {
      * @param maxLength The max length allowed
      * @param parser The BodyParser to wrap
      */
-    def maxLength[A](maxLength: Long, parser: BodyParser[A])(implicit mat: Materializer): BodyParser[Either[MaxSizeExceeded, A]] = BodyParser.iteratee("maxLength=" + maxLength + ", wrapping=" + parser.toString) { request =>
+    def maxLength[A](maxLength: Long, parser: BodyParser[A])(implicit mat: Materializer): BodyParser[Either[MaxSizeExceeded, A]] = BodyParser("maxLength=" + maxLength + ", wrapping=" + parser.toString) { request =>
       import play.api.libs.iteratee.Execution.Implicits.trampoline
-      Traversable.takeUpTo[ByteString](maxLength).transform(Streams.accumulatorToIteratee(parser(request))).flatMap(Iteratee.eofOrElse(MaxSizeExceeded(maxLength))).map {
-        case Right(Right(result)) => Right(Right(result))
-        case Right(Left(badRequest)) => Left(badRequest)
-        case Left(maxSizeExceeded) => Right(Left(maxSizeExceeded))
+      // Whatever the wrapped parser makes of the body being cut short, it's the limit being exceeded that matters
+      val limitAttained = new AtomicBoolean()
+      val takeUpToFlow = Flow[ByteString].transform { () => new BodyParsers.TakeUpTo(maxLength, limitAttained) }
+      parser(request).through(takeUpToFlow).map {
+        case _ if limitAttained.get => Right(Left(MaxSizeExceeded(maxLength)))
+        case Right(result) => Right(Right(result))
+        case Left(badRequest) => Left(badRequest)
+      }.recover {
+        case _ if limitAttained.get => Right(Left(MaxSizeExceeded(maxLength)))
       }
     }
 
     /**
      * A body parser that always returns an error.
      */
-    def error[A](result: Future[Result]): BodyParser[A] = BodyParser.iteratee("error") { request =>
+    def error[A](result: Future[Result]): BodyParser[A] = BodyParser("error") { request =>
       import play.api.libs.iteratee.Execution.Implicits.trampoline
-      Iteratee.flatten(result.map(r => Done(Left(r), Empty)))
+      Accumulator.done(result.map(Left.apply))
     }
 
     /**
@@ -729,24 +776,6 @@ trait BodyParsers {
       LazyHttpErrorHandler.onClientError(request, statusCode, msg)
     }
 
-    /**
-     * Check that the input is finished. If it is finished, the iteratee returns `eofValue`.
-     * If the input is not finished then it returns a REQUEST_ENTITY_TOO_LARGE result.
-     */
-    private def checkForEof[A](request: RequestHeader): A => Iteratee[ByteString, Either[Result, A]] = { eofValue: A =>
-      import play.api.libs.iteratee.Execution.Implicits.trampoline
-      def cont: Iteratee[ByteString, Either[Result, A]] = Cont {
-        case in @ Input.El(e) =>
-          val badResult: Future[Result] = createBadResult("Request Entity Too Large", REQUEST_ENTITY_TOO_LARGE)(request)
-          Iteratee.flatten(badResult.map(r => Done(Left(r), in)))
-        case in @ Input.EOF =>
-          Done(Right(eofValue), in)
-        case Input.Empty =>
-          cont
-      }
-      cont
-    }
-
     private def checkForMaxLengthAttained[A](request: RequestHeader, materializationRes: Future[A]): Future[Either[Result, A]] = {
       import play.core.Execution.Implicits.internalContext
       materializationRes.map(Right(_)).recoverWith {
@@ -757,28 +786,25 @@ trait BodyParsers {
     }
 
     private def tolerantBodyParser[A](name: String, maxLength: Long, errorMessage: String)(parser: (RequestHeader, ByteString) => A): BodyParser[A] =
-      BodyParser.iteratee(name + ", maxLength=" + maxLength) { request =>
-        import play.api.libs.iteratee.Execution.Implicits.trampoline
-        import scala.util.control.Exception._
-
-        val bodyParser: Iteratee[ByteString, Either[Result, Either[Future[Result], A]]] =
-          Traversable.takeUpTo[ByteString](maxLength).transform(
-            Iteratee.consume[ByteString]().map { bytes =>
-              allCatch[A].either {
-                parser(request, bytes)
-              }.left.map {
-                case NonFatal(e) =>
-                  logger.debug(errorMessage, e)
-                  createBadResult(errorMessage + ": " + e.getMessage)(request)
-                case t => throw t
-              }
-            }
-          ).flatMap(checkForEof(request))
+      BodyParser(name + ", maxLength=" + maxLength) { request =>
+        import play.core.Execution.Implicits.internalContext
 
-        bodyParser.mapM {
-          case Left(tooLarge) => Future.successful(Left(tooLarge))
-          case Right(Left(badResult)) => badResult.map(Left.apply)
-          case Right(Right(body)) => Future.successful(Right(body))
+        Accumulator {
+          val takeUpToFlow = Flow[ByteString].transform { () => new BodyParsers.TakeUpTo(maxLength) }
+          val foldingSink = Sink.fold[ByteString, ByteString](ByteString.empty)((state, bs) => state ++ bs)
+          takeUpToFlow.toMat(foldingSink)(Keep.right).mapMaterializedValue { f =>
+            checkForMaxLengthAttained(request, f).flatMap {
+              case Left(tooLarge) => Future.successful(Left(tooLarge))
+              case Right(bytes) =>
+                try {
+                  Future.successful(Right(parser(request, bytes)))
+                } catch {
+                  case NonFatal(e) =>
+                    logger.debug(errorMessage, e)
+                    createBadResult(errorMessage + ": " + e.getMessage)(request).map(Left.apply)
+                }
+            }
+          }
         }
       }
   }
@@ -792,13 +818,40 @@ object BodyParsers extends BodyParsers {
 
   private val hcCache = Application.instanceCache[HttpConfiguration]
 
-  private class TakeUpTo(maxLength: Long) extends PushStage[ByteString, ByteString] {
+  /**
+   * Fails the stream once more than `maxLength` bytes have been pushed.
+   *
+   * @param limitAttained If given, set when the limit is attained, before the stream is failed.
+   */
+  private class TakeUpTo(maxLength: Long, limitAttained: AtomicBoolean = null) extends PushStage[ByteString, ByteString] {
     private var pushedBytes: Long = 0
 
     override def onPush(chunk: ByteString, ctx: Context[ByteString]): SyncDirective = {
       pushedBytes += chunk.size
-      if (pushedBytes > maxLength) ctx.fail(new MaxLengthLimitAttained)
-      else ctx.push(chunk)
+      if (pushedBytes > maxLength) {
+        if (limitAttained != null) limitAttained.set(true)
+        ctx.fail(new MaxLengthLimitAttained)
+      } else ctx.push(chunk)
+    }
+  }
+
+  /**
+   * Writes the stream to a file, replacing whatever the file contained.  Nothing is pushed downstream.
+   */
+  private[play] class WriteToFile(to: File) extends PushStage[ByteString, ByteString] {
+    private var os: OutputStream = null
+
+    override def preStart(ctx: LifecycleContext): Unit = {
+      os = new FileOutputStream(to)
+    }
+
+    override def onPush(chunk: ByteString, ctx: Context[ByteString]): SyncDirective = {
+      os.write(chunk.toArray)
+      ctx.pull()
+    }
+
+    override def postStop(): Unit = {
+      if (os != null) os.close()
     }
   }
 
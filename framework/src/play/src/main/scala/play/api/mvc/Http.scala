@@ -4,15 +4,16 @@
 package play.api.mvc {
 
   import java.util.Locale
+  import java.util.concurrent.ConcurrentHashMap
 
   import play.api._
   import play.api.http.{ HttpConfiguration, MediaType, MediaRange, HeaderNames }
   import play.api.i18n.Lang
   import play.api.libs.Crypto
-  import play.core.utils.CaseInsensitiveOrdered
+  import play.core.utils.{ CaseInsensitiveOrdered, IndexedHeaders }
 
   import scala.annotation._
-  import scala.collection.immutable.{ TreeMap, TreeSet }
+  import scala.collection.immutable.TreeMap
   import scala.util.control.NonFatal
   import scala.util.Try
   import java.net.{ URI, URLDecoder, URLEncoder }
@@ -378,10 +379,15 @@ package play.api.mvc {
    */
   class Headers(val headers: Seq[(String, String)]) {
 
+    /**
+     * The headers, indexed for case insensitive lookup.
+     */
+    private lazy val indexed: IndexedHeaders = IndexedHeaders(headers)
+
     /**
      * Append the given headers
      */
-    def add(headers: (String, String)*) = new Headers(this.headers ++ headers)
+    def add(headers: (String, String)*) = new Headers(indexed.append(headers))
 
     /**
      * Retrieves the first header value which is associated with the given key.
@@ -396,12 +402,12 @@ package play.api.mvc {
     /**
      * Optionally returns the first header value associated with a key.
      */
-    def get(key: String): Option[String] = getAll(key).headOption
+    def get(key: String): Option[String] = indexed.get(key)
 
     /**
      * Retrieve all header values associated with the given key.
      */
-    def getAll(key: String): Seq[String] = toMap.getOrElse(key, Nil)
+    def getAll(key: String): Seq[String] = indexed.getAll(key)
 
     override def hashCode = {
       toMap.map {
@@ -418,10 +424,7 @@ package play.api.mvc {
     /**
      * Remove any headers with the given keys
      */
-    def remove(keys: String*) = {
-      val keySet = TreeSet(keys: _*)(CaseInsensitiveOrdered)
-      new Headers(headers.filterNot { case (name, _) => keySet(name) })
-    }
+    def remove(keys: String*) = new Headers(indexed.remove(keys))
 
     /**
      * Append the given headers, replacing any existing headers having the same keys
@@ -500,6 +503,14 @@ package play.api.mvc {
      */
     def path = "/"
 
+    /**
+     * The number of signed cookie values to remember once they've been verified, so that they don't need to be
+     * verified again.  Defaults to 0, which disables the cache.
+     */
+    def decodedCacheSize: Int = 0
+
+    private lazy val decodedCache = new DecodedCookieCache
+
     /**
      * Encodes the data as a `String`.
      */
@@ -517,6 +528,15 @@ package play.api.mvc {
      * Decodes from an encoded `String`.
      */
     def decode(data: String): Map[String, String] = {
+      val cacheSize = decodedCacheSize
+      if (isSigned && cacheSize > 0) {
+        decodedCache.getOrElseUpdate(data, cacheSize)(verifyAndDecode(data))
+      } else {
+        verifyAndDecode(data)
+      }
+    }
+
+    private def verifyAndDecode(data: String): Map[String, String] = {
 
       def urldecode(data: String) = {
         data
@@ -560,7 +580,11 @@ package play.api.mvc {
      * Encodes the data as a `Cookie`.
      */
     def encodeAsCookie(data: T): Cookie = {
-      val cookie = encode(serialize(data))
+      // Data that hasn't been modified since it was decoded doesn't need to be encoded and signed again
+      val cookie = data match {
+        case decoded: DecodedCookie => decoded.encodedValue
+        case _ => encode(serialize(data))
+      }
       Cookie(COOKIE_NAME, cookie, maxAge, path, domain, secure, httpOnly)
     }
 
@@ -577,7 +601,9 @@ package play.api.mvc {
     def decodeFromCookie(cookie: Option[Cookie]): T = if (cookie.isEmpty) emptyCookie else {
       val extractedCookie: Cookie = cookie.get
       if (extractedCookie.name != COOKIE_NAME) emptyCookie /* can this happen? */ else {
-        deserialize(decode(extractedCookie.value))
+        val data = decode(extractedCookie.value)
+        // Only data that was successfully decoded can be sent back as is
+        if (data.isEmpty) deserialize(data) else deserialize(data, extractedCookie.value)
       }
     }
 
@@ -591,6 +617,18 @@ package play.api.mvc {
      */
     protected def deserialize(data: Map[String, String]): T
 
+    /**
+     * Builds the cookie object from the data decoded from the given cookie value.
+     *
+     * Cookie objects that extend `DecodedCookie` are encoded as the value they were decoded from, as long as they
+     * haven't been modified.  By default the value is ignored.
+     *
+     * @param data the data map to build the cookie object
+     * @param encodedValue the cookie value that the data was decoded from
+     * @return a new cookie object
+     */
+    protected def deserialize(data: Map[String, String], encodedValue: String): T = deserialize(data)
+
     /**
      * Converts the given cookie object into a data map.
      *
@@ -601,6 +639,50 @@ package play.api.mvc {
 
   }
 
+  /**
+   * A cookie object that was decoded from a cookie value, and hasn't been modified since.
+   *
+   * Modifying a `Session` or `Flash` copies it, and the copy doesn't extend this trait, so the value is only reused
+   * for the data it was decoded from.
+   */
+  private[mvc] trait DecodedCookie {
+    def encodedValue: String
+  }
+
+  /**
+   * A bounded cache of the data decoded from signed cookie values.
+   *
+   * Only values whose signature has been verified are cached, and the cache is cleared if the secret changes, so a
+   * value found in the cache is as good as verified.  When the cache is full, an arbitrary entry is evicted.
+   */
+  private[mvc] class DecodedCookieCache {
+    private val entries = new ConcurrentHashMap[String, Map[String, String]]
+    @volatile private var signer: AnyRef = null
+
+    def getOrElseUpdate(value: String, maxSize: Int)(decode: => Map[String, String]): Map[String, String] = {
+      val currentSigner = Crypto.crypto
+      if (signer ne currentSigner) {
+        entries.clear()
+        signer = currentSigner
+      }
+      val cached = entries.get(value)
+      if (cached != null) cached else {
+        val decoded = decode
+        if (decoded.nonEmpty) {
+          if (entries.size >= maxSize) {
+            val keys = entries.keySet.iterator
+            if (keys.hasNext) {
+              keys.next()
+              keys.remove()
+            }
+          }
+          entries.put(value, decoded)
+        }
+        decoded
+      }
+    }
+  }
+
   /**
    * HTTP Session.
    *
@@ -666,9 +748,15 @@ package play.api.mvc {
     override def httpOnly = HttpConfiguration.current.session.httpOnly
     override def path = HttpConfiguration.current.context
     override def domain = HttpConfiguration.current.session.domain
+    override def decodedCacheSize = HttpConfiguration.current.session.decodedCacheSize
 
     def deserialize(data: Map[String, String]) = new Session(data)
 
+    override protected def deserialize(data: Map[String, String], value: String) =
+      new Session(data) with DecodedCookie {
+        val encodedValue = value
+      }
+
     def serialize(session: Session) = session.data
   }
 
@@ -740,6 +828,11 @@ package play.api.mvc {
 
     def deserialize(data: Map[String, String]) = new Flash(data)
 
+    override protected def deserialize(data: Map[String, String], value: String) =
+      new Flash(data) with DecodedCookie {
+        val encodedValue = value
+      }
+
     def serialize(flash: Flash) = flash.data
 
   }
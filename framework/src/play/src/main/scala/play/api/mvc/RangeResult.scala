@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.mvc
+
+import java.io.{ EOFException, File }
+import java.nio.file.{ Files, Path }
+import java.util.concurrent.ThreadLocalRandom
+
+import akka.stream.scaladsl.{ FlattenStrategy, Source }
+import akka.stream.stage.{ Context, PushPullStage }
+import akka.util.ByteString
+import play.api.http.{ ContentTypes, HttpEntity }
+import play.api.http.HeaderNames._
+import play.api.http.Status._
+import play.api.libs.MimeTypes
+
+/**
+ * Results for requests for byte ranges of an entity, as specified by the HTTP Range header.
+ *
+ * If the Range header is absent or can't be parsed, the whole entity is sent with a 200 status.  If none of the
+ * ranges can be satisfied, a 416 status is returned.  Otherwise, a single range is sent with a 206 status and a
+ * Content-Range header, and several ranges are sent with a 206 status as a `multipart/byteranges` body.  Overlapping
+ * and adjacent ranges are coalesced.
+ *
+ * Ranges of files are read from the file at their offsets, rather than by reading the file from the start, and when
+ * a single range of a file is requested, servers that support it send the range straight from the file to the socket.
+ *
+ * For example:
+ *
+ * {{{
+ * def download = Action { request =>
+ *   RangeResult.ofPath(path, request.headers.get(RANGE), Some("video/mp4"))
+ * }
+ * }}}
+ */
+object RangeResult {
+
+  /**
+   * The most ranges that will be sent in a multipart response, after coalescing.  If more ranges are requested, the
+   * Range header is ignored, and the whole entity is sent.
+   */
+  val MaxRanges = 16
+
+  /**
+   * A result for the requested ranges of a file.
+   *
+   * @param path The path of the file.
+   * @param rangeHeader The value of the Range header of the request, if any.
+   * @param contentType The content type of the file.  Defaults to the type for the file name.
+   */
+  def ofPath(path: Path, rangeHeader: Option[String], contentType: Option[String] = None): Result = {
+    val fileContentType = contentType orElse MimeTypes.forFileName(path.getFileName.toString) orElse Some(ContentTypes.BINARY)
+    ofEntity(HttpEntity.FileRegion(path, 0, Files.size(path), fileContentType), rangeHeader)
+  }
+
+  /**
+   * A result for the requested ranges of a file.
+   *
+   * @param file The file.
+   * @param rangeHeader The value of the Range header of the request, if any.
+   * @param contentType The content type of the file.  Defaults to the type for the file name.
+   */
+  def ofFile(file: File, rangeHeader: Option[String], contentType: Option[String] = None): Result =
+    ofPath(file.toPath, rangeHeader, contentType)
+
+  /**
+   * A result for the requested ranges of a stream.
+   *
+   * Since a stream can't seek, the bytes before each range are read and discarded.  The stream is only consumed once,
+   * even if several ranges are requested.
+   *
+   * @param entityLength The length of the whole stream.
+   * @param source The stream.
+   * @param rangeHeader The value of the Range header of the request, if any.
+   * @param contentType The content type of the stream, if known.
+   */
+  def ofSource(entityLength: Long, source: Source[ByteString, _], rangeHeader: Option[String],
+    contentType: Option[String]): Result =
+    ofEntity(HttpEntity.Streamed(source, Some(entityLength), contentType), rangeHeader)
+
+  /**
+   * A result for the requested ranges of some bytes.
+   *
+   * @param bytes The bytes.
+   * @param rangeHeader The value of the Range header of the request, if any.
+   * @param contentType The content type of the bytes, if known.
+   */
+  def ofBytes(bytes: ByteString, rangeHeader: Option[String], contentType: Option[String]): Result =
+    ofEntity(HttpEntity.Strict(bytes, contentType), rangeHeader)
+
+  /**
+   * A result for the requested ranges of an entity.
+   *
+   * Ranges can only be served from entities whose length is known, so the whole entity is sent if its length isn't.
+   *
+   * @param entity The entity.
+   * @param rangeHeader The value of the Range header of the request, if any.
+   */
+  def ofEntity(entity: HttpEntity, rangeHeader: Option[String]): Result = {
+    entity.contentLength match {
+      case None => Result(ResponseHeader(OK), entity)
+      case Some(entityLength) =>
+        val ranges = rangeHeader.flatMap(ByteRange.parse(_, entityLength)).filter(_.size <= MaxRanges)
+        val header = ranges match {
+          case None => ResponseHeader(OK)
+          case Some(Seq()) => ResponseHeader(REQUESTED_RANGE_NOT_SATISFIABLE, Map(CONTENT_RANGE -> s"bytes */$entityLength"))
+          case Some(Seq(range)) => ResponseHeader(PARTIAL_CONTENT, Map(CONTENT_RANGE -> range.contentRange(entityLength)))
+          case Some(_) => ResponseHeader(PARTIAL_CONTENT)
+        }
+        val body = ranges match {
+          case None => entity
+          case Some(Seq()) => HttpEntity.NoEntity
+          case Some(Seq(range)) => slice(entity, range)
+          case Some(several) => multipart(entity, entityLength, several)
+        }
+        Result(header.copy(headers = header.headers + (ACCEPT_RANGES -> "bytes")), body)
+    }
+  }
+
+  private def slice(entity: HttpEntity, range: ByteRange): HttpEntity = entity match {
+    case HttpEntity.Strict(data, contentType) =>
+      HttpEntity.Strict(data.slice(range.start.toInt, range.end.toInt + 1), contentType)
+    case HttpEntity.FileRegion(path, offset, _, contentType) =>
+      HttpEntity.FileRegion(path, offset + range.start, range.length, contentType)
+    case other =>
+      val data = other.dataStream.transform(() => new ByteRangesStage(Seq(range -> ByteString.empty), ByteString.empty))
+      HttpEntity.Streamed(data, Some(range.length), other.contentType)
+  }
+
+  private def multipart(entity: HttpEntity, entityLength: Long, ranges: Seq[ByteRange]): HttpEntity = {
+    val boundary = java.lang.Long.toHexString(ThreadLocalRandom.current.nextLong) +
+      java.lang.Long.toHexString(ThreadLocalRandom.current.nextLong)
+
+    // Each part is preceded by its boundary and headers, and the last part is followed by the closing boundary
+    val parts = ranges.zipWithIndex.map {
+      case (range, index) =>
+        val partHeader = new StringBuilder
+        if (index > 0) partHeader ++= "\r\n"
+        partHeader ++= s"--$boundary\r\n"
+        entity.contentType.foreach(contentType => partHeader ++= s"$CONTENT_TYPE: $contentType\r\n")
+        partHeader ++= s"$CONTENT_RANGE: ${range.contentRange(entityLength)}\r\n\r\n"
+        range -> ByteString(partHeader.toString, "US-ASCII")
+    }
+    val closing = ByteString(s"\r\n--$boundary--\r\n", "US-ASCII")
+    val length = parts.map { case (range, partHeader) => partHeader.length + range.length }.sum + closing.length
+    val contentType = Some(s"multipart/byteranges; boundary=$boundary")
+
+    entity match {
+      case HttpEntity.Strict(data, _) =>
+        val body = parts.foldLeft(ByteString.empty) {
+          case (body, (range, partHeader)) => body ++ partHeader ++ data.slice(range.start.toInt, range.end.toInt + 1)
+        }
+        HttpEntity.Strict(body ++ closing, contentType)
+      case file: HttpEntity.FileRegion =>
+        // Read each range from its offset in the file
+        val data = Source(parts.toList).map {
+          case (range, partHeader) =>
+            Source.single(partHeader) ++ slice(file, range).dataStream
+        }.flatten(FlattenStrategy.concat) ++ Source.single(closing)
+        HttpEntity.Streamed(data, Some(length), contentType)
+      case other =>
+        HttpEntity.Streamed(other.dataStream.transform(() => new ByteRangesStage(parts, closing)), Some(length), contentType)
+    }
+  }
+
+  /**
+   * A byte range, with the positions of its first and last bytes.
+   */
+  private[mvc] case class ByteRange(start: Long, end: Long) {
+    def length = end - start + 1
+    def contentRange(entityLength: Long) = s"bytes $start-$end/$entityLength"
+  }
+
+  private[mvc] object ByteRange {
+
+    private val RangeSpec = """(\d*)-(\d*)""".r
+
+    /**
+     * Parse the value of a Range header for an entity of the given length.
+     *
+     * @return None if the header isn't a valid bytes range header, otherwise the satisfiable ranges, sorted and
+     *         coalesced.  The ranges are empty if none of them can be satisfied.
+     */
+    def parse(header: String, entityLength: Long): Option[Seq[ByteRange]] = {
+      header.trim.split("=", 2) match {
+        case Array(unit, specs) if unit.trim.equalsIgnoreCase("bytes") =>
+          val parsed = specs.split(',').toSeq.map(_.trim).filter(_.nonEmpty).map {
+            case RangeSpec("", "") => None
+            case RangeSpec(first, last) if first.length > 18 || last.length > 18 => None
+            case RangeSpec("", suffixLength) => Some(Right(suffixLength.toLong))
+            case RangeSpec(first, "") => Some(Left((first.toLong, Long.MaxValue)))
+            case RangeSpec(first, last) if first.toLong <= last.toLong => Some(Left((first.toLong, last.toLong)))
+            case _ => None
+          }
+          if (parsed.isEmpty || parsed.contains(None)) {
+            None
+          } else {
+            val satisfiable = parsed.flatten.flatMap {
+              case Left((first, _)) if first >= entityLength => None
+              case Left((first, last)) => Some(ByteRange(first, math.min(last, entityLength - 1)))
+              case Right(suffixLength) if suffixLength == 0 || entityLength == 0 => None
+              case Right(suffixLength) => Some(ByteRange(math.max(0, entityLength - suffixLength), entityLength - 1))
+            }
+            Some(coalesce(satisfiable))
+          }
+        case _ => None
+      }
+    }
+
+    private def coalesce(ranges: Seq[ByteRange]): Seq[ByteRange] = {
+      ranges.sortBy(_.start).foldLeft(List.empty[ByteRange]) {
+        case (previous :: rest, range) if range.start <= previous.end + 1 =>
+          ByteRange(previous.start, math.max(previous.end, range.end)) :: rest
+        case (coalesced, range) => range :: coalesced
+      }.reverse
+    }
+  }
+
+  /**
+   * Extracts byte ranges from a stream, preceding each range with a header.
+   *
+   * The ranges must be sorted and must not overlap.  The stream is cancelled once the last range has been sent, and
+   * the closing bytes are sent after the last range.
+   */
+  private class ByteRangesStage(ranges: Seq[(ByteRange, ByteString)], closing: ByteString)
+      extends PushPullStage[ByteString, ByteString] {
+
+    private val remaining = ranges.toIndexedSeq
+    private var index = 0
+    private var started = false
+    private var position = 0L
+
+    def onPush(elem: ByteString, ctx: Context[ByteString]) = {
+      val chunkStart = position
+      val chunkEnd = position + elem.length
+      var out = ByteString.empty
+      var inChunk = true
+      while (inChunk && index < remaining.length && remaining(index)._1.start < chunkEnd) {
+        val (range, header) = remaining(index)
+        if (!started) {
+          out ++= header
+          started = true
+        }
+        val from = math.max(range.start, chunkStart)
+        val until = math.min(range.end + 1, chunkEnd)
+        out ++= elem.slice((from - chunkStart).toInt, (until - chunkStart).toInt)
+        if (range.end < chunkEnd) {
+          index += 1
+          started = false
+        } else {
+          inChunk = false
+        }
+      }
+      position = chunkEnd
+
+      if (index == remaining.length) {
+        ctx.pushAndFinish(out ++ closing)
+      } else if (out.isEmpty) {
+        ctx.pull()
+      } else {
+        ctx.push(out)
+      }
+    }
+
+    def onPull(ctx: Context[ByteString]) = ctx.pull()
+
+    override def onUpstreamFinish(ctx: Context[ByteString]) = {
+      ctx.fail(new EOFException(s"The stream ended at $position, before the end of the requested ranges"))
+    }
+  }
+}
@@ -5,7 +5,7 @@ package play.api.mvc
 
 import java.nio.file.{ Files, Path }
 
-import akka.stream.scaladsl.Source
+import akka.stream.scaladsl.{ Flow, Source }
 import akka.util.ByteString
 import org.joda.time.{ DateTime, DateTimeZone }
 import org.joda.time.format.{ DateTimeFormat, DateTimeFormatter }
@@ -13,6 +13,8 @@ import play.api.i18n.{ MessagesApi, Lang }
 import play.api.libs.iteratee._
 import play.api.http._
 import play.api.http.HeaderNames._
+import play.api.libs.JsonStream
+import play.api.libs.json.JsValue
 import play.api.libs.streams.Streams
 
 import play.core.Execution.Implicits._
@@ -456,6 +458,33 @@ trait Results {
       )
     }
 
+    /**
+     * Stream the JSON values as a JSON array, using chunked transfer encoding.
+     *
+     * Each value is serialized as it's sent, so the whole array is never held in memory.
+     *
+     * @param content Source providing the values of the array.
+     */
+    def chunkedJson(content: Source[JsValue, _]): Result = {
+      chunkedJson(content, JsonStream.array, ContentTypes.JSON(Codec.utf_8))
+    }
+
+    /**
+     * Stream the JSON values as newline delimited JSON, one value per line, using chunked transfer encoding.
+     *
+     * @param content Source providing the values.
+     */
+    def chunkedJsonLines(content: Source[JsValue, _]): Result = {
+      chunkedJson(content, JsonStream.lines, JsonStream.NDJSON)
+    }
+
+    private def chunkedJson(content: Source[JsValue, _], format: Flow[JsValue, ByteString, _], contentType: String): Result = {
+      Result(
+        header = header,
+        body = HttpEntity.Chunked(content.via(format).map(HttpChunk.Chunk), Some(contentType))
+      )
+    }
+
     /**
      * Feed the content as the response, using chunked transfer encoding.
      *
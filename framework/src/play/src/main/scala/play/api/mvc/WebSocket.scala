@@ -3,6 +3,9 @@
  */
 package play.api.mvc
 
+import akka.stream.scaladsl.Flow
+import akka.util.ByteString
+import play.api.http.websocket._
 import play.api.libs.json._
 import play.api.libs.iteratee._
 import play.api.libs.concurrent._
@@ -37,6 +40,26 @@ case class WebSocket[In, Out](f: RequestHeader => Future[Either[Result, (Enumera
 
 }
 
+/**
+ * A WebSocket handler that handles the messages of the WebSocket with an Akka Streams flow.
+ *
+ * The flow is backpressured: messages are only read from the client as fast as the flow consumes them, and the flow
+ * only produces messages as fast as they can be written to the client.  Completing the flow closes the WebSocket.
+ *
+ * @param f A function that, given the request, either rejects the WebSocket with a result, or accepts it with the
+ *          flow to handle it.
+ */
+case class FlowWebSocket(f: RequestHeader => Future[Either[Result, Flow[Message, Message, _]]]) extends Handler {
+
+  /**
+   * Returns itself, for better support in the routes file.
+   *
+   * @return itself
+   */
+  def apply() = this
+
+}
+
 /**
  * Helper utilities to generate WebSocket results.
  */
@@ -91,6 +114,123 @@ object WebSocket {
     )
   }
 
+  /**
+   * Transforms a flow of messages of some type into a flow of WebSocket messages.
+   */
+  trait MessageFlowTransformer[In, Out] {
+
+    /**
+     * Transform the flow of In/Out messages into a flow of WebSocket messages.
+     */
+    def transform(flow: Flow[In, Out, _]): Flow[Message, Message, _]
+
+    /**
+     * Convert this MessageFlowTransformer[In, Out] to a MessageFlowTransformer[NewIn, NewOut]
+     */
+    def map[NewIn, NewOut](f: In => NewIn, g: NewOut => Out): MessageFlowTransformer[NewIn, NewOut] = {
+      val top = this
+      new MessageFlowTransformer[NewIn, NewOut] {
+        def transform(flow: Flow[NewIn, NewOut, _]) = top.transform(Flow[In].map(f).via(flow).map(g))
+      }
+    }
+  }
+
+  /**
+   * Default message flow transformers.
+   *
+   * Messages of the wrong type close the WebSocket with the unacceptable status.
+   */
+  object MessageFlowTransformer {
+
+    private def unacceptable(reason: String) = WebSocketCloseException(CloseMessage(CloseCodes.Unacceptable, reason))
+
+    /**
+     * WebSocket messages.
+     */
+    implicit val identityMessageFlowTransformer: MessageFlowTransformer[Message, Message] = {
+      new MessageFlowTransformer[Message, Message] {
+        def transform(flow: Flow[Message, Message, _]) = flow
+      }
+    }
+
+    /**
+     * String WebSocket messages.
+     */
+    implicit val stringMessageFlowTransformer: MessageFlowTransformer[String, String] = {
+      new MessageFlowTransformer[String, String] {
+        def transform(flow: Flow[String, String, _]) = Flow[Message].collect {
+          case TextMessage(text) => text
+          case BinaryMessage(_) => throw unacceptable("This WebSocket only supports text messages")
+        }.via(flow).map(TextMessage.apply)
+      }
+    }
+
+    /**
+     * Binary WebSocket messages.
+     */
+    implicit val byteStringMessageFlowTransformer: MessageFlowTransformer[ByteString, ByteString] = {
+      new MessageFlowTransformer[ByteString, ByteString] {
+        def transform(flow: Flow[ByteString, ByteString, _]) = Flow[Message].collect {
+          case BinaryMessage(data) => data
+          case TextMessage(_) => throw unacceptable("This WebSocket only supports binary messages")
+        }.via(flow).map(BinaryMessage.apply)
+      }
+    }
+
+    /**
+     * Binary WebSocket messages, as byte arrays.
+     */
+    implicit val byteArrayMessageFlowTransformer: MessageFlowTransformer[Array[Byte], Array[Byte]] = {
+      byteStringMessageFlowTransformer.map(_.toArray, ByteString.apply)
+    }
+
+    /**
+     * Json WebSocket messages, sent as text messages.
+     */
+    implicit val jsonMessageFlowTransformer: MessageFlowTransformer[JsValue, JsValue] = {
+      new MessageFlowTransformer[JsValue, JsValue] {
+        def transform(flow: Flow[JsValue, JsValue, _]) = Flow[Message].collect {
+          case TextMessage(text) => try Json.parse(text) catch {
+            case e: Exception => throw unacceptable("Unable to parse json message")
+          }
+          case BinaryMessage(_) => throw unacceptable("This WebSocket only supports text messages")
+        }.via(flow).map(json => TextMessage(Json.stringify(json)))
+      }
+    }
+
+    /**
+     * Json WebSocket messages, parsed into/formatted from objects of type In and Out.
+     */
+    def jsonMessageFlowTransformer[In: Reads, Out: Writes]: MessageFlowTransformer[In, Out] = {
+      jsonMessageFlowTransformer.map(json => Json.fromJson[In](json).fold(
+        errors => throw unacceptable(Json.stringify(JsError.toJson(errors))),
+        identity
+      ), out => Json.toJson(out))
+    }
+  }
+
+  /**
+   * Accepts a WebSocket, handling its messages with the flow returned by the given function.
+   *
+   * For example:
+   *
+   * {{{
+   *   def echo = WebSocket.accept[String, String] { req =>
+   *     Flow[String].map(msg => "I received your message: " + msg)
+   *   }
+   * }}}
+   */
+  def accept[In, Out](f: RequestHeader => Flow[In, Out, _])(implicit transformer: MessageFlowTransformer[In, Out]): FlowWebSocket = {
+    acceptOrResult[In, Out](f.andThen(flow => Future.successful(Right(flow))))
+  }
+
+  /**
+   * Either rejects the WebSocket with a result, or accepts it and handles its messages with a flow, asynchronously.
+   */
+  def acceptOrResult[In, Out](f: RequestHeader => Future[Either[Result, Flow[In, Out, _]]])(implicit transformer: MessageFlowTransformer[In, Out]): FlowWebSocket = {
+    FlowWebSocket(f.andThen(_.map(_.right.map(transformer.transform))))
+  }
+
   /**
    * Accepts a WebSocket using the given inbound/outbound channels.
    */
@@ -3,10 +3,11 @@
  */
 package play.core.j
 
-import javax.inject.Inject
+import javax.inject.{ Inject, Provider }
 
 import play.api.http.{ HttpConfiguration, HttpRequestHandler }
 import play.api.inject.{ Injector, NewInstanceInjector }
+import play.api.inject.guice.GuiceInjector
 
 import scala.language.existentials
 
@@ -15,7 +16,8 @@ import play.api.mvc._
 import play.mvc.{ Action => JAction, Result => JResult }
 import play.mvc.Http.{ Context => JContext }
 import play.libs.F.{ Promise => JPromise }
-import scala.concurrent.{ ExecutionContext, Future }
+import scala.concurrent.Future
+import scala.util.control.NonFatal
 
 /**
  * Retains and evaluates what is otherwise expensive reflection work on call by call basis.
@@ -47,6 +49,73 @@ class JavaActionAnnotations(val controller: Class[_], val method: java.lang.refl
         a.annotationType.getAnnotation(classOf[play.mvc.With]).value.map(c => (a, c)).toSeq
     }.flatten.reverse
   }
+
+  // The composition resolved for the components this route was last invoked with
+  @volatile private var cachedComposition: JavaActionComposition = _
+
+  /**
+   * The action composition chain of this route, resolved with the given components.
+   *
+   * The chain is only resolved once, so that actions aren't looked up in the injector for each request.
+   */
+  private[j] def composition(components: JavaHandlerComponents): JavaActionComposition = {
+    val cached = cachedComposition
+    if (cached != null && (cached.components eq components)) {
+      cached
+    } else {
+      val composition = new JavaActionComposition(components, actionMixins)
+      cachedComposition = composition
+      composition
+    }
+  }
+}
+
+/**
+ * The action composition chain of a route, resolved with the given components.
+ *
+ * The classes of the actions are validated, and a factory is created for each of them.  Each request gets new
+ * instances of the actions, as the delegate and configuration of an action are set for the request, so an instance
+ * can't be shared by concurrent requests.  With Guice, actions are created by providers that are obtained once, and
+ * actions whose classes are annotated as singletons are created without going through their singleton scope.
+ */
+private[j] class JavaActionComposition(val components: JavaHandlerComponents,
+    mixins: Seq[(java.lang.annotation.Annotation, Class[_ <: JAction[_]])]) {
+
+  private val factories: Array[(java.lang.annotation.Annotation, Provider[JAction[Any]])] = mixins.map {
+    case (annotation, actionClass) =>
+      if (java.lang.reflect.Modifier.isAbstract(actionClass.getModifiers)) {
+        throw new IllegalStateException(s"Action class ${actionClass.getName} used by ${annotation.annotationType.getName} is abstract")
+      }
+      val clazz = actionClass.asInstanceOf[Class[JAction[Any]]]
+      val factory: Provider[JAction[Any]] = components.injector match {
+        case guice: GuiceInjector if isSingleton(clazz) => guice.unscopedProviderOf(clazz)
+        case guice: GuiceInjector => guice.providerOf(clazz)
+        case injector => new Provider[JAction[Any]] { def get = injector.instanceOf(clazz) }
+      }
+      (annotation, factory)
+  }.toArray
+
+  private def isSingleton(clazz: Class[_]): Boolean = {
+    clazz.isAnnotationPresent(classOf[javax.inject.Singleton]) ||
+      clazz.isAnnotationPresent(classOf[com.google.inject.Singleton])
+  }
+
+  /**
+   * Create the chain of actions for a request, ending with the given action.
+   */
+  def compose(baseAction: JAction[_]): JAction[_] = {
+    var delegate: JAction[_] = baseAction
+    var i = 0
+    while (i < factories.length) {
+      val (annotation, factory) = factories(i)
+      val action = factory.get
+      action.configuration = annotation
+      action.delegate = delegate
+      delegate = action
+      i += 1
+    }
+    delegate
+  }
 }
 
 /*
@@ -77,24 +146,19 @@ abstract class JavaAction(components: JavaHandlerComponents) extends Action[play
     val baseAction = components.requestHandler.createAction(javaContext.request, annotations.method)
     baseAction.delegate = rootAction
 
-    val finalAction = components.requestHandler.wrapAction(
-      annotations.actionMixins.foldLeft[JAction[_ <: Any]](baseAction) {
-        case (delegate, (annotation, actionClass)) =>
-          val action = components.injector.instanceOf(actionClass).asInstanceOf[play.mvc.Action[Object]]
-          action.configuration = annotation
-          action.delegate = delegate
-          action
-      }
-    )
-
-    val trampolineWithContext: ExecutionContext = {
-      val javaClassLoader = Thread.currentThread.getContextClassLoader
-      new HttpExecutionContext(javaClassLoader, javaContext, trampoline)
+    val finalAction = components.requestHandler.wrapAction(annotations.composition(components).compose(baseAction))
+
+    // Call the action with the context set on this thread
+    val oldContext = JContext.current.get()
+    val actionFuture: Future[JResult] = try {
+      JContext.current.set(javaContext)
+      finalAction.call(javaContext).wrapped
+    } catch {
+      case NonFatal(e) => Future.failed(e)
+    } finally {
+      JContext.current.set(oldContext)
     }
-    val actionFuture: Future[Future[JResult]] = Future { finalAction.call(javaContext).wrapped }(trampolineWithContext)
-    val flattenedActionFuture: Future[JResult] = actionFuture.flatMap(identity)(trampoline)
-    val resultFuture: Future[Result] = flattenedActionFuture.map(createResult(javaContext, _))(trampoline)
-    resultFuture
+    actionFuture.map(createResult(javaContext, _))(trampoline)
   }
 
 }
@@ -57,14 +57,15 @@ trait JavaHelpers {
     val wResult = javaResult.asScala.withHeaders(javaContext.response.getHeaders.asScala.toSeq: _*)
       .withCookies(cookiesToScalaCookies(javaContext.response.cookies): _*)
 
-    if (javaContext.session.isDirty && javaContext.flash.isDirty) {
-      wResult.withSession(Session(javaContext.session.asScala.toMap)).flashing(Flash(javaContext.flash.asScala.toMap))
+    // The session and flash scope are only copied back if they were modified
+    if (javaContext._isSessionDirty && javaContext._isFlashDirty) {
+      wResult.withSession(javaSession(javaContext)).flashing(javaFlash(javaContext))
     } else {
-      if (javaContext.session.isDirty) {
-        wResult.withSession(Session(javaContext.session.asScala.toMap))
+      if (javaContext._isSessionDirty) {
+        wResult.withSession(javaSession(javaContext))
       } else {
-        if (javaContext.flash.isDirty) {
-          wResult.flashing(Flash(javaContext.flash.asScala.toMap))
+        if (javaContext._isFlashDirty) {
+          wResult.flashing(javaFlash(javaContext))
         } else {
           wResult
         }
@@ -72,8 +73,22 @@ trait JavaHelpers {
     }
   }
 
+  // A scope that was written to with the same values as the request's can be sent back as it was received, rather
+  // than being encoded and signed again
+  private def javaSession(javaContext: JContext): Session = {
+    val data = javaContext.session.asScala.toMap
+    Option(javaContext._requestHeader).map(_.session).filter(_.data == data).getOrElse(Session(data))
+  }
+
+  private def javaFlash(javaContext: JContext): Flash = {
+    val data = javaContext.flash.asScala.toMap
+    Option(javaContext._requestHeader).map(_.flash).filter(_.data == data).getOrElse(Flash(data))
+  }
+
   /**
    * Creates a java context from a scala RequestHeader
+   *
+   * The session and flash cookies are only decoded if the session or flash scope is used.
    * @param req
    */
   def createJavaContext(req: RequestHeader): JContext = {
@@ -81,14 +96,16 @@ trait JavaHelpers {
       req.id,
       req,
       new JRequestImpl(req),
-      req.session.data.asJava,
-      req.flash.data.asJava,
-      req.tags.mapValues(_.asInstanceOf[AnyRef]).asJava
+      new LazyJavaMap(req.session.data),
+      new LazyJavaMap(req.flash.data),
+      req.tags.asJava.asInstanceOf[java.util.Map[String, AnyRef]]
     )
   }
 
   /**
    * Creates a java context from a scala Request[RequestBody]
+   *
+   * The session and flash cookies are only decoded if the session or flash scope is used.
    * @param req
    */
   def createJavaContext(req: Request[RequestBody]): JContext = {
@@ -96,9 +113,9 @@ trait JavaHelpers {
       req.id,
       req,
       new JRequestImpl(req),
-      req.session.data.asJava,
-      req.flash.data.asJava,
-      req.tags.mapValues(_.asInstanceOf[AnyRef]).asJava)
+      new LazyJavaMap(req.session.data),
+      new LazyJavaMap(req.flash.data),
+      req.tags.asJava.asInstanceOf[java.util.Map[String, AnyRef]])
   }
 
   /**
@@ -159,6 +176,17 @@ trait JavaHelpers {
 
 object JavaHelpers extends JavaHelpers
 
+/**
+ * A read-only Java view of a Scala map, which is only computed when it's first used.
+ */
+private[j] class LazyJavaMap[V](underlying: => Map[String, V]) extends java.util.AbstractMap[String, V] {
+  private lazy val map = underlying.asJava
+  def entrySet = map.entrySet
+  override def size = map.size
+  override def get(key: Any) = map.get(key)
+  override def containsKey(key: Any) = map.containsKey(key)
+}
+
 class RequestHeaderImpl(header: RequestHeader) extends JRequestHeader {
 
   def _underlyingHeader = header
@@ -177,22 +205,28 @@ class RequestHeaderImpl(header: RequestHeader) extends JRequestHeader {
 
   def path = header.path
 
-  def headers = createHeaderMap(header.headers)
+  // The Java views of the header are created when they're first used, and are read-only, so they can be shared
+  private lazy val javaHeaders = createHeaderMap(header.headers)
+  private lazy val javaQueryString = java.util.Collections.unmodifiableMap[String, Array[String]](
+    header.queryString.map { case (key, values) => key -> values.toArray }.asJava)
+  private lazy val javaAcceptLanguages = java.util.Collections.unmodifiableList[play.i18n.Lang](
+    header.acceptLanguages.map(new play.i18n.Lang(_)).asJava)
+  private lazy val javaCookies = JavaHelpers.cookiesToJavaCookies(header.cookies)
 
-  def acceptLanguages = header.acceptLanguages.map(new play.i18n.Lang(_)).asJava
+  def headers = javaHeaders
 
-  def queryString = {
-    header.queryString.mapValues(_.toArray).asJava
-  }
+  def acceptLanguages = javaAcceptLanguages
+
+  def queryString = javaQueryString
 
   def acceptedTypes = header.acceptedTypes.asJava
 
   def accepts(mediaType: String) = header.accepts(mediaType)
 
-  def cookies = JavaHelpers.cookiesToJavaCookies(header.cookies)
+  def cookies = javaCookies
 
   def getQueryString(key: String): String = {
-    if (queryString().containsKey(key) && queryString().get(key).length > 0) queryString().get(key)(0) else null
+    header.getQueryString(key).orNull
   }
 
   def cookie(name: String): JCookie = {
@@ -200,18 +234,17 @@ class RequestHeaderImpl(header: RequestHeader) extends JRequestHeader {
   }
 
   def getHeader(headerName: String): String = {
-    val header: Array[String] = headers.get(headerName)
-    if (header == null) null else header(0)
+    header.headers.get(headerName).orNull
   }
 
   def hasHeader(headerName: String): Boolean = {
-    getHeader(headerName) != null
+    header.headers.get(headerName).isDefined
   }
 
   private def createHeaderMap(headers: Headers): java.util.Map[String, Array[String]] = {
     val map = new java.util.TreeMap[String, Array[String]](play.core.utils.CaseInsensitiveOrdered)
     map.putAll(headers.toMap.mapValues(_.toArray).asJava)
-    map
+    java.util.Collections.unmodifiableMap[String, Array[String]](map)
   }
 
   override def toString = header.toString
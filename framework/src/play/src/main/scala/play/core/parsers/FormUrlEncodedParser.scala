@@ -3,7 +3,12 @@
  */
 package play.core.parsers
 
+import java.nio.charset.Charset
+
+import akka.util.ByteString
+
 import scala.collection.immutable.ListMap
+import scala.collection.mutable
 
 /** An object for parsing application/x-www-form-urlencoded data */
 object FormUrlEncodedParser {
@@ -16,25 +21,22 @@ object FormUrlEncodedParser {
    * @return A ListMap of keys to the sequence of values for that key
    */
   def parseNotPreservingOrder(data: String, encoding: String = "utf-8"): Map[String, Seq[String]] = {
-    // Generate the pairs of values from the string.
-    parseToPairs(data, encoding).groupBy(_._1).map(param => param._1 -> param._2.map(_._2)).toMap
+    parse(data, encoding).toMap
   }
 
   /**
    * Parse the content type "application/x-www-form-urlencoded" which consists of a bunch of & separated key=value
    * pairs, both of which are URL encoded. We are careful in this parser to maintain the original order of the
-   * keys by using OrderPreserving.groupBy as some applications depend on the original browser ordering.
+   * keys as some applications depend on the original browser ordering.
    * @param data The body content of the request, or whatever needs to be so parsed
    * @param encoding The character encoding of data
    * @return A ListMap of keys to the sequence of values for that key
    */
   def parse(data: String, encoding: String = "utf-8"): Map[String, Seq[String]] = {
-
-    // Generate the pairs of values from the string.
-    val pairs: Seq[(String, String)] = parseToPairs(data, encoding)
-
-    // Group the pairs by the key (first item of the pair) being sure to preserve insertion order
-    play.utils.OrderPreserving.groupBy(pairs)(_._1)
+    val charset = Charset.forName(encoding)
+    val decoder = new Decoder(charset, Int.MaxValue, Int.MaxValue)
+    decoder.feed(ByteString(data.getBytes(charset)))
+    decoder.result()
   }
 
   /**
@@ -52,25 +54,106 @@ object FormUrlEncodedParser {
   }
 
   /**
-   * Do the basic parsing into a sequence of key/value pairs
-   * @param data The data to parse
-   * @param encoding The encoding to use for interpreting the data
-   * @return The sequence of key/value pairs
+   * An incremental parser for application/x-www-form-urlencoded data.
+   *
+   * The data is fed to the decoder in chunks of bytes, as it arrives. Percent escapes are decoded directly from the
+   * bytes, and each key and value is only decoded to a string once it is complete. Keys are grouped as they are
+   * parsed, in the order that they first appear in.
+   *
+   * A decoder must only be used by one thread at a time.
+   *
+   * @param charset The charset of the data.
+   * @param maxFields The maximum number of fields, after which an `IllegalArgumentException` is thrown.
+   * @param maxKeyLength The maximum length of a key in bytes, after which an `IllegalArgumentException` is thrown.
    */
-  private def parseToPairs(data: String, encoding: String): Seq[(String, String)] = {
+  private[play] final class Decoder(charset: Charset, maxFields: Int, maxKeyLength: Int) {
+
+    // The decoded bytes of the key or value being parsed
+    private var segment = new Array[Byte](64)
+    private var length = 0
+    // The key of the field being parsed, or null if the key is being parsed
+    private var key: String = null
+    // The number of hex digits read of the escape being parsed, or -1 if no escape is being parsed
+    private var escapeDigits = -1
+    private var escapeValue = 0
+    private var fields = 0
+    private val grouped = mutable.LinkedHashMap.empty[String, mutable.Builder[String, Vector[String]]]
+
+    /**
+     * Feed the next chunk of data to the decoder.
+     */
+    def feed(bytes: ByteString): Unit = {
+      var i = 0
+      while (i < bytes.length) {
+        accept(bytes(i))
+        i += 1
+      }
+    }
 
-    import java.net._
+    /**
+     * Finish decoding the data.
+     *
+     * @return A ListMap of keys to the sequence of values for that key
+     */
+    def result(): Map[String, Seq[String]] = {
+      endField()
+      val builder = ListMap.newBuilder[String, Seq[String]]
+      grouped.foreach {
+        case (k, values) => builder += k -> values.result()
+      }
+      builder.result()
+    }
 
-    // Generate all the pairs, with potentially redundant key values, by parsing the body content.
-    data.split('&').flatMap { param =>
-      if (param.contains("=") && !param.startsWith("=")) {
-        val parts = param.split("=")
-        val key = URLDecoder.decode(parts.head, encoding)
-        val value = URLDecoder.decode(parts.tail.headOption.getOrElse(""), encoding)
-        Seq(key -> value)
+    private def accept(byte: Byte): Unit = {
+      if (escapeDigits >= 0) {
+        val digit = Character.digit((byte & 0xff).toChar, 16)
+        if (digit < 0) {
+          throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern")
+        } else if (escapeDigits == 0) {
+          escapeValue = digit
+          escapeDigits = 1
+        } else {
+          append(((escapeValue << 4) | digit).toByte)
+          escapeDigits = -1
+        }
       } else {
-        Nil
+        byte match {
+          case '%' => escapeDigits = 0
+          case '+' => append(' ')
+          case '=' if key == null =>
+            key = new String(segment, 0, length, charset)
+            length = 0
+          case '&' => endField()
+          case other => append(other)
+        }
+      }
+    }
+
+    private def append(byte: Byte): Unit = {
+      if (key == null && length == maxKeyLength) {
+        throw new IllegalArgumentException(s"Key exceeds the maximum length of $maxKeyLength bytes")
+      }
+      if (length == segment.length) {
+        segment = java.util.Arrays.copyOf(segment, segment.length * 2)
+      }
+      segment(length) = byte
+      length += 1
+    }
+
+    private def endField(): Unit = {
+      if (escapeDigits >= 0) {
+        throw new IllegalArgumentException("Incomplete trailing escape (%) pattern")
+      }
+      // Fields without a key, or without a value, are ignored
+      if (key != null && key.nonEmpty) {
+        fields += 1
+        if (fields > maxFields) {
+          throw new IllegalArgumentException(s"Form exceeds the maximum of $maxFields fields")
+        }
+        grouped.getOrElseUpdate(key, Vector.newBuilder[String]) += new String(segment, 0, length, charset)
       }
-    }.toSeq
+      key = null
+      length = 0
+    }
   }
 }
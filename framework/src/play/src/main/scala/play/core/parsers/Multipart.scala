@@ -3,12 +3,12 @@
  */
 package play.core.parsers
 
-import java.io.FileOutputStream
-
+import akka.stream.scaladsl.{ Flow, Keep, Sink, Source }
+import akka.stream.stage.{ Context, PushPullStage, PushStage, SyncDirective }
 import akka.util.ByteString
 import play.api.Play
 import play.api.libs.Files.TemporaryFile
-import play.api.libs.iteratee._
+import play.api.libs.streams.Accumulator
 import play.api.mvc._
 import play.api.mvc.MultipartFormData._
 import play.api.http.Status._
@@ -23,26 +23,40 @@ import play.api.libs.iteratee.Execution.Implicits.trampoline
  */
 object Multipart {
 
+  /**
+   * Parses the stream into a stream of [[play.api.mvc.MultipartFormData.Part]] to be handled by `partHandler`.
+   *
+   * The body is scanned for boundaries by a stream stage, which passes the data of each part on without copying it,
+   * and only buffers the headers of a part, up to a fixed limit. The data of each part is streamed to its handler as
+   * it arrives, and the handler applies backpressure to the request body.
+   *
+   * @param maxDataLength The maximum total length of the data parts.
+   * @param filePartHandler The handler for file parts.
+   */
   def multipartParser[A](
     maxDataLength: Int,
-    filePartHandler: PartHandler[FilePart[A]]): RequestHeader => Iteratee[ByteString, Either[Result, MultipartFormData[A]]] = { request =>
+    filePartHandler: PartHandler[FilePart[A]]): RequestHeader => Accumulator[ByteString, Either[Result, MultipartFormData[A]]] = { request =>
 
     val maybeBoundary = for {
       mt <- request.mediaType
       (_, value) <- mt.parameters.find(_._1.equalsIgnoreCase("boundary"))
       boundary <- value
-    } yield ByteString("\r\n--" + boundary, "utf-8")
+    } yield boundary
 
     maybeBoundary.map { boundary =>
-      for {
-        // First, we ignore the first boundary.  Note that if the body contains a preamble, this won't work.  But the
-        // body never contains a preamble.
-        _ <- Traversable.take[ByteString](boundary.size - 2) transform Iteratee.ignore
-        // We use the search enumeratee to turn the stream into a stream of data chunks that are either the boundary,
-        // or not the boundary, and we parse that
-        result <- search(boundary) transform parseParts(maxDataLength, filePartHandler)
-      } yield {
-        result.right.map { reversed =>
+      val parser = Flow[ByteString]
+        .transform(() => new BodyPartParser(boundary, MaxHeaderBuffer))
+        // Each part starts a substream, followed by its data. The end of a part and errors start substreams of their
+        // own, so that they aren't dropped with the rest of the data when a part handler doesn't consume all of it.
+        .splitWhen(event => !isPartData(event))
+        .transform(() => new HandleParts(readPart(maxDataLength, filePartHandler)))
+        .mapAsync(1)(identity)
+        .transform(() => new CollectParts(maxDataLength))
+        .toMat(Sink.head)(Keep.right)
+
+      Accumulator(parser).mapFuture {
+        case Left(error) => error(request).map(Left.apply)
+        case Right(reversed) =>
           // We built the parts by prepending a list, so we need to reverse them
           val parts = reversed.reverse
           val data = parts.collect {
@@ -53,116 +67,125 @@ object Multipart {
           val missing = parts.collect {
             case missing: MissingFilePart => missing
           }
-          MultipartFormData(data, files, bad, missing)
-        }
+          Future.successful(Right(MultipartFormData(data, files, bad, missing)))
       }
     }.getOrElse {
-      Iteratee.flatten(createBadResult("Missing boundary header")(request).
-        map(r => Done(Left(r))))
+      Accumulator.done(createBadResult("Missing boundary header")(request).map(Left.apply))
     }
   }
 
-  type PartHandler[A] = PartialFunction[Map[String, String], Iteratee[ByteString, A]]
+  type PartHandler[A] = PartialFunction[Map[String, String], Accumulator[ByteString, A]]
 
   def handleFilePartAsTemporaryFile: PartHandler[FilePart[TemporaryFile]] = {
     handleFilePart {
       case FileInfo(partName, filename, contentType) =>
         val tempFile = TemporaryFile("multipartBody", "asTemporaryFile")
-        import play.core.Execution.Implicits.internalContext
-        Iteratee.fold[ByteString, FileOutputStream](
-          new java.io.FileOutputStream(tempFile.file)) { (os, data) =>
-            os.write(data.toArray)
-            os
-          }(internalContext).map { os =>
-            os.close()
-            tempFile
-          }(internalContext)
+        val writeToFile = Flow[ByteString].transform { () => new BodyParsers.WriteToFile(tempFile.file) }
+        Accumulator(writeToFile.toMat(Sink.ignore)(Keep.right)).map(_ => tempFile)
     }
   }
 
-  private val CRLF = ByteString("\r\n", "utf-8")
-  private val CRLFCRLF = CRLF ++ CRLF
-
-  private type ParserInput = MatchInfo[ByteString]
-  private type Parser[T] = Iteratee[ParserInput, T]
-
   /**
-   * Recursively parses the parts
+   * The maximum length of the headers of a part.
    */
-  private def parseParts(dataPartLimit: Int,
-    filePartHandler: PartHandler[Part],
-    parts: List[Part] = Nil): Parser[Either[Result, List[Part]]] = {
-    parsePart(dataPartLimit, filePartHandler).flatMap {
-      // None, we've reached the end of the body
-      case None => Done(Right(parts))
-      // The max data part size has been exceeded, return an error
-      case Some(MaxDataPartSizeExceeded(_)) => Done(Left(Results.EntityTooLarge))
-      // A data part, handled specially so we can calculate the data part limit
-      case Some(dp @ DataPart(_, value)) =>
-        for {
-          // Drop the boundary
-          _ <- Iteratee.head
-          result <- parseParts(dataPartLimit - value.length, filePartHandler, dp :: parts)
-        } yield result
-      // All other parts
-      case Some(other: Part) =>
-        for {
-          // Drop the boundary
-          _ <- Iteratee.head
-          result <- parseParts(dataPartLimit, filePartHandler, other :: parts)
-        } yield result
-    }
-  }
-
-  private def parsePart(dataPartLimit: Int,
-    filePartHandler: PartHandler[Part]): Parser[Option[Part]] = {
+  private val MaxHeaderBuffer = 4 * 1024
 
-    // Enumeratee that takes everything up to the boundary
-    val takeUpToBoundary = Enumeratee.takeWhile[ParserInput](!_.isMatch)
-
-    // Buffer the header
-    val maxHeaderBuffer = Traversable.takeUpTo[ByteString](4 * 1024) transform Iteratee.consume[ByteString]()
-
-    // Collect the headers, returns none if we got the last part, otherwise returns the headers, and the part of the
-    // buffer that wasn't part of the headers
-    val collectHeaders: Iteratee[ByteString, Option[(Map[String, String], ByteString)]] = maxHeaderBuffer.map { buffer =>
-
-      // The headers should be split from the part by a double crlf
-      val (headerBytes, rest) = Option(buffer).map(b => b.splitAt(b.indexOfSlice(CRLFCRLF))).get
-
-      val headerString = headerBytes.utf8String.trim
-      if (headerString.startsWith("--") || headerString.isEmpty) {
-        // It's the last part
-        None
-      } else {
-        val headers = headerString.lines.map { header =>
-          val key :: value = header.trim.split(":").toList
-          (key.trim.toLowerCase(java.util.Locale.ENGLISH), value.mkString(":").trim)
-        }.toMap
-
-        val left = rest.drop(CRLFCRLF.length)
-        Some((headers, left))
-      }
-    }
+  private val isPartData: MultipartEvent => Boolean = {
+    case PartData(_) => true
+    case _ => false
+  }
 
-    // Create a part handler that reads all the different types of parts
-    val readPart: PartHandler[Part] = handleDataPart(dataPartLimit)
-      .orElse[Map[String, String], Iteratee[ByteString, Part]]({
+  /**
+   * Create a part handler that reads all the different types of parts.
+   */
+  private def readPart(maxDataLength: Int, filePartHandler: PartHandler[Part]): PartHandler[Part] = {
+    handleDataPart(maxDataLength)
+      .orElse[Map[String, String], Accumulator[ByteString, Part]]({
         case FileInfoMatcher(partName, fileName, _) if fileName.trim.isEmpty =>
-          Done(MissingFilePart(partName), Input.Empty)
+          Accumulator.done(MissingFilePart(partName))
       })
       .orElse(filePartHandler)
       .orElse({
-        case headers => Done(BadPart(headers), Input.Empty)
+        case headers => Accumulator.done(BadPart(headers))
       })
+  }
 
-    // Put everything together - take up to the boundary, remove the MatchInfo wrapping, collect headers, and then
-    // read the part
-    takeUpToBoundary compose Enumeratee.map[MatchInfo[ByteString]](_.content) transform collectHeaders.flatMap {
-      case Some((headers, left)) => Iteratee.flatten(readPart(headers).feed(Input.El(left))).map(Some.apply)
-      case _ => Done(None)
+  /**
+   * Runs the handler of each part on the data of the part, and emits the future part. Other events are emitted as
+   * they are.
+   *
+   * The substreams are run as soon as they are pushed, so that they're subscribed to before they time out, even when
+   * the handler of the previous part hasn't finished yet.
+   */
+  private class HandleParts(readPart: PartHandler[Part])
+      extends PushStage[Source[MultipartEvent, Unit], Future[Either[MultipartEvent, Part]]] {
+
+    def onPush(events: Source[MultipartEvent, Unit], ctx: Context[Future[Either[MultipartEvent, Part]]]) = {
+      implicit val mat = ctx.materializer
+      val handled = events.prefixAndTail(1).runWith(Sink.head).flatMap {
+        case (Seq(PartStart(headers)), data) =>
+          readPart(headers).run(data.collect { case PartData(bytes) => bytes }).map(Right.apply)
+        case (Seq(other), rest) =>
+          // Only data can follow the start of a part, so this is only ever empty
+          rest.runWith(Sink.ignore)
+          Future.successful(Left(other))
+      }
+      ctx.push(handled)
+    }
+  }
+
+  /**
+   * Collects the parts, checking that each part is terminated, and that the data parts don't exceed the max length.
+   *
+   * Emits the parts in reverse order, or a function that creates the result for the error, and stops at the first
+   * error.
+   */
+  private class CollectParts(maxDataLength: Int)
+      extends PushPullStage[Either[MultipartEvent, Part], Either[RequestHeader => Future[Result], List[Part]]] {
+
+    private var parts: List[Part] = Nil
+    private var current: Option[Part] = None
+    private var dataLength = 0
+
+    def onPush(elem: Either[MultipartEvent, Part], ctx: Context[Either[RequestHeader => Future[Result], List[Part]]]) = {
+      (elem, current) match {
+        case (Right(part), None) =>
+          current = Some(part)
+          ctx.pull()
+        case (Left(PartEnd), Some(part)) =>
+          current = None
+          part match {
+            // The max data part size has been exceeded, return an error
+            case MaxDataPartSizeExceeded(_) => ctx.pushAndFinish(Left(_ => Future.successful(Results.EntityTooLarge)))
+            // A data part, counted so we can check the total length of the data parts
+            case dp @ DataPart(_, value) =>
+              dataLength += value.length
+              if (dataLength > maxDataLength) {
+                ctx.pushAndFinish(Left(_ => Future.successful(Results.EntityTooLarge)))
+              } else {
+                parts ::= dp
+                ctx.pull()
+              }
+            case other =>
+              parts ::= other
+              ctx.pull()
+          }
+        case (Left(ParseError(message)), _) => ctx.pushAndFinish(Left(createBadResult(message)))
+        case (_, Some(_)) => ctx.pushAndFinish(Left(createBadResult("Unexpected end of multipart body")))
+        case _ => ctx.pushAndFinish(Left(createBadResult("Unexpected multipart body")))
+      }
     }
 
+    def onPull(ctx: Context[Either[RequestHeader => Future[Result], List[Part]]]) = {
+      if (!ctx.isFinishing) ctx.pull()
+      else if (current.isDefined) ctx.pushAndFinish(Left(createBadResult("Unexpected end of multipart body")))
+      else ctx.pushAndFinish(Right(parts))
+    }
+
+    override def onUpstreamFinish(ctx: Context[Either[RequestHeader => Future[Result], List[Part]]]) = {
+      // Absorb termination, so we can emit the parts on the next pull
+      ctx.absorbTermination()
+    }
   }
 
   case class FileInfo(
@@ -239,17 +262,17 @@ object Multipart {
    *
    * {{{
    * import play.core.parsers.Multipart, Multipart.FileInfo
-   * import play.api.libs.iteratee.Iteratee
+   * import play.api.libs.streams.Accumulator
    *
    * val handler = Multipart.handleFilePart[List[Int]] { fileInfo =>
-   *   ??? // return corresponding Iteratee[Array[Byte], List[Int]]
+   *   ??? // return corresponding Accumulator[ByteString, List[Int]]
    * }
    *
    * // then use it
    * Multipart.multipartParser[List[Int]](1024, handler)
    * }}}
    */
-  def handleFilePart[A](handler: FileInfo => Iteratee[ByteString, A]): PartHandler[FilePart[A]] = {
+  def handleFilePart[A](handler: FileInfo => Accumulator[ByteString, A]): PartHandler[FilePart[A]] = {
     case FileInfoMatcher(partName, fileName, contentType) =>
       val safeFileName = fileName.split('\\').takeRight(1).mkString
       handler(FileInfo(partName, safeFileName, contentType)).
@@ -275,14 +298,15 @@ object Multipart {
 
   private def handleDataPart(maxLength: Int): PartHandler[Part] = {
     case headers @ PartInfoMatcher(partName) if !FileInfoMatcher.unapply(headers).isDefined =>
-      Traversable.takeUpTo[ByteString](maxLength)
-        .transform(Iteratee.consume[ByteString]().map(bytes => DataPart(partName, bytes.utf8String)))
-        .flatMap { data =>
-          Cont({
-            case Input.El(_) => Done(MaxDataPartSizeExceeded(partName), Input.Empty)
-            case in => Done(data, in)
-          })
-        }
+      // Keeps consuming the data once the max length has been exceeded, but doesn't buffer it
+      val collect = Sink.fold[Option[ByteString], ByteString](Some(ByteString.empty)) {
+        case (Some(data), bytes) if data.length + bytes.length <= maxLength => Some(data ++ bytes)
+        case _ => None
+      }
+      Accumulator(collect).map {
+        case Some(data) => DataPart(partName, data.utf8String)
+        case None => MaxDataPartSizeExceeded(partName)
+      }
   }
 
   private def createBadResult(msg: String): RequestHeader => Future[Result] =
@@ -291,87 +315,210 @@ object Multipart {
         _.errorHandler.onClientError(request, BAD_REQUEST, msg))
     }
 
-  sealed trait MatchInfo[A] {
-    def content: A
-    def isMatch = this match {
-      case Matched(_) => true
-      case Unmatched(_) => false
+  /**
+   * An event in a multipart body, emitted by the [[BodyPartParser]].
+   */
+  private[play] sealed trait MultipartEvent
+
+  /**
+   * The start of a part, with its headers. The names of the headers are lower case.
+   */
+  private[play] case class PartStart(headers: Map[String, String]) extends MultipartEvent
+
+  /**
+   * Some of the data of the current part.
+   */
+  private[play] case class PartData(bytes: ByteString) extends MultipartEvent
+
+  /**
+   * The end of the current part.
+   */
+  private[play] case object PartEnd extends MultipartEvent
+
+  /**
+   * An error in the body. No events follow it.
+   */
+  private[play] case class ParseError(message: String) extends MultipartEvent
+
+  /**
+   * A Boyer-Moore-Horspool search for a byte sequence in a ByteString.
+   */
+  private final class ByteSearch(needle: ByteString) {
+
+    private val bytes = needle.toArray
+    private val last = bytes.length - 1
+    private val skip = {
+      val skip = Array.fill(256)(bytes.length)
+      for (i <- 0 until last) skip(bytes(i) & 0xff) = last - i
+      skip
+    }
+
+    def length: Int = bytes.length
+
+    /**
+     * Find the first index of the needle in the haystack, or -1 if it's not there.
+     */
+    def indexIn(haystack: ByteString): Int = {
+      val end = haystack.length - bytes.length
+      var pos = 0
+      var found = -1
+      while (found < 0 && pos <= end) {
+        var i = last
+        while (i >= 0 && haystack(pos + i) == bytes(i)) {
+          i -= 1
+        }
+        if (i < 0) found = pos
+        else pos += skip(haystack(pos + last) & 0xff)
+      }
+      found
     }
   }
-  case class Matched[A](val content: A) extends MatchInfo[A]
-  case class Unmatched[A](val content: A) extends MatchInfo[A]
-
-  def search[A](needle: ByteString): Enumeratee[ByteString, MatchInfo[ByteString]] = new Enumeratee[ByteString, MatchInfo[ByteString]] {
-    val needleSize = needle.size
-    val fullJump = needleSize
-    val jumpBadCharecter: (Byte => Int) = {
-      val map = Map(needle.dropRight(1).reverse.zipWithIndex.reverse: _*) //remove the last
-      byte => map.get(byte).map(_ + 1).getOrElse(fullJump)
+
+  private object BodyPartParser {
+    sealed trait State
+    /** Before the first boundary */
+    case object Preamble extends State
+    /** After a boundary, before the end of its line */
+    case object AfterBoundary extends State
+    /** In the headers of a part */
+    case object Headers extends State
+    /** In the data of a part */
+    case object Body extends State
+    /** After the final boundary */
+    case object Epilogue extends State
+  }
+
+  /**
+   * A stage that parses a multipart body into a stream of [[MultipartEvent]].
+   *
+   * Only the headers of a part, and the end of the data that may be the start of a boundary, are buffered. Any other
+   * data is emitted as slices of the incoming ByteStrings.
+   *
+   * @param boundary The boundary of the body.
+   * @param maxHeaderBuffer The maximum length of the headers of a part.
+   */
+  private[play] class BodyPartParser(boundary: String, maxHeaderBuffer: Int) extends PushPullStage[ByteString, MultipartEvent] {
+
+    import BodyPartParser._
+
+    private val firstBoundary = new ByteSearch(ByteString("--" + boundary, "utf-8"))
+    private val delimiter = new ByteSearch(ByteString("\r\n--" + boundary, "utf-8"))
+    private val CRLF = new ByteSearch(ByteString("\r\n", "utf-8"))
+    private val CRLFCRLF = new ByteSearch(ByteString("\r\n\r\n", "utf-8"))
+
+    private var buffer = ByteString.empty
+    private var state: State = Preamble
+
+    def onPush(elem: ByteString, ctx: Context[MultipartEvent]) = {
+      buffer = buffer ++ elem
+      next(ctx)
     }
 
-    def applyOn[A](inner: Iteratee[MatchInfo[ByteString], A]): Iteratee[ByteString, Iteratee[MatchInfo[ByteString], A]] = {
+    def onPull(ctx: Context[MultipartEvent]) = next(ctx)
 
-      Iteratee.flatten(inner.fold1((a, e) => Future.successful(Done(Done(a, e), Input.Empty: Input[ByteString])),
-        k => Future.successful(Cont(step(ByteString(), Cont(k)))),
-        (err, r) => throw new Exception()))
+    override def onUpstreamFinish(ctx: Context[MultipartEvent]) = {
+      // Absorb termination, so we can emit the events that are still buffered on the next pulls
+      ctx.absorbTermination()
+    }
 
+    private def next(ctx: Context[MultipartEvent]): SyncDirective = {
+      parse() match {
+        case error: ParseError => ctx.pushAndFinish(error)
+        case null if ctx.isFinishing =>
+          if (state == Epilogue) ctx.finish()
+          else ctx.pushAndFinish(ParseError("Unexpected end of multipart body"))
+        case null => ctx.pull()
+        case event => ctx.push(event)
+      }
     }
-    def scan(previousMatches: List[MatchInfo[ByteString]], piece: ByteString, startScan: Int): (List[MatchInfo[ByteString]], ByteString) = {
-      if (piece.length < needleSize) {
-        (previousMatches, piece)
-      } else {
-        val fullMatch = Range(needleSize - 1, -1, -1).forall(scan => needle(scan) == piece(scan + startScan))
-        if (fullMatch) {
-          val (prefix, suffix) = piece.splitAt(startScan)
-          val (matched, left) = suffix.splitAt(needleSize)
-          val newResults = previousMatches ++ List(Unmatched(prefix), Matched(matched)) filter (!_.content.isEmpty)
-
-          if (left.length < needleSize) (newResults, left) else scan(newResults, left, 0)
 
+    /**
+     * Parse the next event out of the buffer, or return null if more input is needed.
+     */
+    private def parse(): MultipartEvent = state match {
+      case Preamble =>
+        val index = firstBoundary.indexIn(buffer)
+        if (index >= 0) {
+          buffer = buffer.drop(index + firstBoundary.length)
+          state = AfterBoundary
+          parse()
         } else {
-          val jump = jumpBadCharecter(piece(startScan + needleSize - 1))
-          val isFullJump = jump == fullJump
-          val newScan = startScan + jump
-          if (newScan + needleSize > piece.length) {
-            val (prefix, suffix) = (piece.splitAt(startScan))
-            (previousMatches ++ List(Unmatched(prefix)), suffix)
-          } else scan(previousMatches, piece, newScan)
+          // Keep what may be the start of the boundary
+          buffer = buffer.takeRight(firstBoundary.length - 1)
+          null
         }
-      }
-    }
 
-    def step[A](rest: ByteString, inner: Iteratee[MatchInfo[ByteString], A])(in: Input[ByteString]): Iteratee[ByteString, Iteratee[MatchInfo[ByteString], A]] = {
+      case AfterBoundary =>
+        if (buffer.length < 2) {
+          null
+        } else if (buffer(0) == '-' && buffer(1) == '-') {
+          state = Epilogue
+          parse()
+        } else {
+          // Skip any transport padding
+          val index = CRLF.indexIn(buffer)
+          if (index >= 0) {
+            buffer = buffer.drop(index + CRLF.length)
+            state = Headers
+            parse()
+          } else if (buffer.length > maxHeaderBuffer) {
+            ParseError("Malformed multipart boundary")
+          } else {
+            null
+          }
+        }
 
-      in match {
-        case Input.Empty => Cont(step(rest, inner)) //here should rather pass Input.Empty along
+      case Headers =>
+        if (buffer.length >= 2 && buffer(0) == '\r' && buffer(1) == '\n') {
+          buffer = buffer.drop(2)
+          state = Body
+          PartStart(Map.empty)
+        } else {
+          val index = CRLFCRLF.indexIn(buffer)
+          if (index >= 0 && index <= maxHeaderBuffer) {
+            val headers = parseHeaders(buffer.take(index).utf8String)
+            buffer = buffer.drop(index + CRLFCRLF.length)
+            state = Body
+            PartStart(headers)
+          } else if (index >= 0 || buffer.length > maxHeaderBuffer) {
+            ParseError("Multipart part headers are too large")
+          } else {
+            null
+          }
+        }
 
-        case Input.EOF => Done(inner, Input.El(rest))
+      case Body =>
+        val index = delimiter.indexIn(buffer)
+        if (index > 0) {
+          val data = buffer.take(index)
+          buffer = buffer.drop(index)
+          PartData(data)
+        } else if (index == 0) {
+          buffer = buffer.drop(delimiter.length)
+          state = AfterBoundary
+          PartEnd
+        } else {
+          // Keep what may be the start of the delimiter
+          val length = buffer.length - delimiter.length + 1
+          if (length > 0) {
+            val data = buffer.take(length)
+            buffer = buffer.drop(length)
+            PartData(data)
+          } else {
+            null
+          }
+        }
 
-        case Input.El(chunk) =>
-          val all = rest ++ chunk
-          def inputOrEmpty(a: ByteString) = if (a.isEmpty) Input.Empty else Input.El(a)
+      case Epilogue =>
+        buffer = ByteString.empty
+        null
+    }
 
-          Iteratee.flatten(inner.fold1((a, e) => Future.successful(Done(Done(a, e), inputOrEmpty(rest))),
-            k => {
-              val (result, suffix) = scan(Nil, all, 0)
-              val fed = result.filter(!_.content.isEmpty).foldLeft(Future.successful(ByteString() -> Cont(k))) { (p, m) =>
-                p.flatMap(i => i._2.fold1((a, e) => Future.successful((i._1 ++ m.content, Done(a, e))),
-                  k => Future.successful((i._1, k(Input.El(m)))),
-                  (err, e) => throw new Exception())
-                )
-              }
-              fed.flatMap {
-                case (ss, i) => i.fold1((a, e) => Future.successful(Done(Done(a, e), inputOrEmpty(ss ++ suffix))),
-                  k => Future.successful(Cont[ByteString, Iteratee[MatchInfo[ByteString], A]]((in: Input[ByteString]) => in match {
-                    case Input.EOF => Done(k(Input.El(Unmatched(suffix))), Input.EOF) //suffix maybe empty
-                    case other => step(ss ++ suffix, Cont(k))(other)
-                  })),
-                  (err, e) => throw new Exception())
-              }
-            },
-            (err, e) => throw new Exception())
-          )
-      }
+    private def parseHeaders(headerString: String): Map[String, String] = {
+      headerString.trim.lines.map { header =>
+        val key :: value = header.trim.split(":").toList
+        (key.trim.toLowerCase(java.util.Locale.ENGLISH), value.mkString(":").trim)
+      }.toMap
     }
   }
 
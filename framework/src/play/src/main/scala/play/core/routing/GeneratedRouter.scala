@@ -22,15 +22,14 @@ object Route {
   }
 
   /**
-   * Create a params extractor from the given method and path pattern.
+   * A params extractor that matches the given method and path pattern.
    */
-  def apply(method: String, pathPattern: PathPattern) = new ParamsExtractor {
+  class PatternExtractor(val method: String, val pathPattern: PathPattern) extends ParamsExtractor {
 
     def unapply(request: RequestHeader): Option[RouteParams] = {
       if (method == request.method) {
-        pathPattern(request.path).map { groups =>
-          RouteParams(groups, request.queryString)
-        }
+        val params = pathPattern.extract(request.path)
+        if (params != null) Some(RouteParams(params, request.queryString)) else None
       } else {
         None
       }
@@ -38,6 +37,11 @@ object Route {
 
   }
 
+  /**
+   * Create a params extractor from the given method and path pattern.
+   */
+  def apply(method: String, pathPattern: PathPattern): PatternExtractor = new PatternExtractor(method, pathPattern)
+
 }
 
 /**
@@ -66,6 +70,24 @@ case class RouteParams(path: Map[String, Either[Throwable, String]], queryString
     })
   }
 
+  /**
+   * Get the path parameter with the given index and name.
+   *
+   * Parameters extracted by a compiled path pattern are looked up by index, otherwise they're looked up by name.
+   *
+   * @param index The index of the dynamic part that the parameter was extracted from.
+   * @param key The name of the parameter.
+   * @param default The default value, if the parameter is missing.
+   */
+  def fromPath[T](index: Int, key: String, default: Option[T])(implicit binder: PathBindable[T]): Param[T] = path match {
+    case indexed: IndexedPathParams =>
+      indexed.value(index) match {
+        case Some(value) => Param(key, value.fold(t => Left(t.getMessage), binder.bind(key, _)))
+        case None => fromPath(key, default)
+      }
+    case _ => fromPath(key, default)
+  }
+
   def fromQuery[T](key: String, default: Option[T] = None)(implicit binder: QueryStringBindable[T]): Param[T] = {
     Param(key, binder.bind(key, queryString).getOrElse {
       default.map(d => Right(d)).getOrElse(Left("Missing parameter: " + key))
@@ -39,6 +39,8 @@ private class TaggingInvoker[A](underlyingInvoker: HandlerInvoker[A], handlerDef
       }
       case ws @ WebSocket(f) =>
         WebSocket[ws.FramesIn, ws.FramesOut](rh => ws.f(taggedRequest(rh, cachedHandlerTags)))(ws.inFormatter, ws.outFormatter)
+      case FlowWebSocket(f) =>
+        FlowWebSocket(rh => f(taggedRequest(rh, cachedHandlerTags)))
       case other => other
     }
   }
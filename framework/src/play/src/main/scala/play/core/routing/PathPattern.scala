@@ -4,8 +4,12 @@
 package play.core.routing
 
 import java.net.URI
+import java.util.regex.{ Matcher, Pattern }
 
-import scala.util.control.Exception
+import play.utils.UriEncoding
+
+import scala.collection.immutable.AbstractMap
+import scala.util.control.{ Exception, NonFatal }
 
 /**
  * A part of a path.
@@ -35,8 +39,6 @@ case class StaticPart(value: String) extends PathPart {
  */
 case class PathPattern(parts: Seq[PathPart]) {
 
-  import java.util.regex._
-
   private def decodeIfEncoded(decode: Boolean, groupCount: Int): Matcher => Either[Throwable, String] = matcher =>
     Exception.allCatch[String].either {
       if (decode) {
@@ -62,6 +64,80 @@ case class PathPattern(parts: Seq[PathPart]) {
     }.get
   }
 
+  /**
+   * The static prefix of this pattern, that is, the static parts that precede the first dynamic part.
+   */
+  lazy val staticPrefix: String = parts.takeWhile(_.isInstanceOf[StaticPart]).map {
+    case StaticPart(value) => value
+    case _ => ""
+  }.mkString
+
+  /**
+   * Whether this pattern consists only of static parts.
+   */
+  lazy val isStatic: Boolean = parts.forall(_.isInstanceOf[StaticPart])
+
+  /**
+   * The dynamic parts of this pattern, in the order that they appear in.
+   *
+   * Generated routers look up the value of a dynamic part by its index in this sequence.
+   */
+  lazy val dynamicParts: IndexedSeq[DynamicPart] = parts.collect {
+    case part: DynamicPart => part
+  }.toIndexedSeq
+
+  /**
+   * The regex group of each dynamic part, by index.
+   */
+  private lazy val dynamicGroups: Array[Int] = dynamicParts.scanLeft(1) { (group, part) =>
+    group + 1 + Pattern.compile(part.constraint).matcher("").groupCount
+  }.init.toArray
+
+  private lazy val dynamicNames: Array[String] = dynamicParts.map(_.name).toArray
+
+  private lazy val dynamicEncoded: Array[Boolean] = dynamicParts.map(_.encodeable).toArray
+
+  /**
+   * Matchers are reused by each thread, rather than created for each request.
+   */
+  private lazy val matchers = new ThreadLocal[Matcher] {
+    override def initialValue() = regex.matcher("")
+  }
+
+  private lazy val emptyParams = new IndexedPathParams("", Array.empty, Array.empty, Array.empty)
+
+  /**
+   * Match the given path, extracting the dynamic parts by their index.
+   *
+   * This is the compiled equivalent of `apply`: rather than building a map of decoded values, it records where each
+   * dynamic part is in the path, and decodes a part only when its value is looked up.
+   *
+   * @param path The path to match against.
+   * @return The extracted parameters, or null if the path didn't match.
+   */
+  private[routing] def extract(path: String): IndexedPathParams = {
+    if (isStatic) {
+      if (path == staticPrefix) emptyParams else null
+    } else {
+      val matcher = matchers.get.reset(path)
+      val params = if (matcher.matches) {
+        val bounds = new Array[Int](dynamicGroups.length * 2)
+        var i = 0
+        while (i < dynamicGroups.length) {
+          bounds(i * 2) = matcher.start(dynamicGroups(i))
+          bounds(i * 2 + 1) = matcher.end(dynamicGroups(i))
+          i += 1
+        }
+        new IndexedPathParams(path, dynamicNames, bounds, dynamicEncoded)
+      } else {
+        null
+      }
+      // Don't hold on to the path after matching it
+      matcher.reset("")
+      params
+    }
+  }
+
   /**
    * Apply the path pattern to a given candidate path to see if it matches.
    *
@@ -69,6 +145,14 @@ case class PathPattern(parts: Seq[PathPart]) {
    * @return The map of extracted parameters, or none if the path didn't match.
    */
   def apply(path: String): Option[Map[String, Either[Throwable, String]]] = {
+    if (isStatic) {
+      if (path == staticPrefix) Some(Map.empty) else None
+    } else {
+      matchDynamic(path)
+    }
+  }
+
+  private def matchDynamic(path: String): Option[Map[String, Either[Throwable, String]]] = {
     val matcher = regex.matcher(path)
     if (matcher.matches) {
       Some(groups.map {
@@ -85,3 +169,53 @@ case class PathPattern(parts: Seq[PathPart]) {
   }.mkString
 
 }
+
+/**
+ * The dynamic parts extracted from a path by a compiled path pattern.
+ *
+ * Values are looked up by the index of their dynamic part, and are only decoded when they are looked up. Looking them
+ * up by name is also supported, so that this can be used wherever a map of path parameters is expected.
+ *
+ * @param path The path that was matched.
+ * @param names The names of the dynamic parts.
+ * @param bounds The start and end of each dynamic part in the path.
+ * @param encoded Whether each dynamic part should be decoded.
+ */
+private[routing] final class IndexedPathParams(path: String, names: Array[String], bounds: Array[Int],
+    encoded: Array[Boolean]) extends AbstractMap[String, Either[Throwable, String]] {
+
+  /**
+   * Get the value of the dynamic part with the given index, or None if the path has no such part.
+   */
+  def value(index: Int): Option[Either[Throwable, String]] = {
+    if (index >= 0 && index < names.length) Some(decode(index)) else None
+  }
+
+  private def decode(index: Int): Either[Throwable, String] = {
+    val start = bounds(index * 2)
+    val end = bounds(index * 2 + 1)
+    if (encoded(index)) {
+      try {
+        Right(UriEncoding.decodeUriPath(path, start, end))
+      } catch {
+        case NonFatal(e) => Left(e)
+      }
+    } else {
+      Right(path.substring(start, end))
+    }
+  }
+
+  def get(key: String): Option[Either[Throwable, String]] = {
+    var i = 0
+    while (i < names.length && names(i) != key) {
+      i += 1
+    }
+    if (i < names.length) Some(decode(i)) else None
+  }
+
+  def iterator: Iterator[(String, Either[Throwable, String])] = names.indices.iterator.map(i => names(i) -> decode(i))
+
+  def +[B >: Either[Throwable, String]](kv: (String, B)): Map[String, B] = Map[String, B](toSeq: _*) + kv
+
+  def -(key: String): Map[String, Either[Throwable, String]] = Map(toSeq: _*) - key
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.routing
+
+import play.api.mvc.{ Handler, RequestHeader }
+
+import scala.collection.immutable.TreeMap
+
+/**
+ * A prefix tree of routes, used by generated routers to dispatch requests.
+ *
+ * Routes are indexed by HTTP method and by the static prefix of their path pattern, so that finding the route for a
+ * request only requires walking the request path once, and then trying the few routes whose static prefix matched.
+ * Dynamic parts are only matched, using their regular expression, once a route has been selected this way.
+ *
+ * Candidate routes are always tried in the order that they were declared in, so the first match semantics of the
+ * routes file are preserved.
+ */
+final class RoutingTree private (byMethod: Map[String, RoutingTree.Node], anyMethod: RoutingTree.Node)
+    extends PartialFunction[RequestHeader, Handler] {
+
+  import RoutingTree._
+
+  /**
+   * Find the candidate entries for the given request, in declaration order.
+   */
+  private def candidates(request: RequestHeader): Array[Entry] = {
+    val path = request.path
+    var node = byMethod.getOrElse(request.method, anyMethod)
+    var pos = 0
+    var descending = true
+    while (descending && pos < path.length) {
+      val child = node.child(path.charAt(pos))
+      if (child != null && path.regionMatches(pos, child.label, 0, child.label.length)) {
+        node = child
+        pos += child.label.length
+      } else {
+        descending = false
+      }
+    }
+    if (pos == path.length) node.candidates else node.prefixCandidates
+  }
+
+  def isDefinedAt(request: RequestHeader): Boolean = {
+    val entries = candidates(request)
+    var i = 0
+    while (i < entries.length) {
+      if (entries(i).isDefinedAt(request)) return true
+      i += 1
+    }
+    false
+  }
+
+  def apply(request: RequestHeader): Handler = applyOrElse(request, (rh: RequestHeader) => throw new MatchError(rh))
+
+  override def applyOrElse[A1 <: RequestHeader, B1 >: Handler](request: A1, default: A1 => B1): B1 = {
+    val entries = candidates(request)
+    var i = 0
+    while (i < entries.length) {
+      entries(i).handle(request) match {
+        case Some(handler) => return handler
+        case None => i += 1
+      }
+    }
+    default(request)
+  }
+
+}
+
+object RoutingTree {
+
+  /**
+   * An entry in the routing tree.
+   *
+   * @param method The method this entry applies to, or None if it applies to all methods.
+   * @param prefix The static prefix that a request path must start with for this entry to match.
+   * @param exact Whether the request path must be equal to the prefix for this entry to match.
+   */
+  sealed abstract class Entry(val method: Option[String], val prefix: String, val exact: Boolean) {
+    private[RoutingTree] var index: Int = 0
+    def isDefinedAt(request: RequestHeader): Boolean
+    def handle(request: RequestHeader): Option[Handler]
+  }
+
+  private class RouteEntry(extractor: Route.ParamsExtractor, generator: RouteParams => Handler,
+      method: Option[String], prefix: String, exact: Boolean) extends Entry(method, prefix, exact) {
+    def isDefinedAt(request: RequestHeader) = extractor.unapply(request).isDefined
+    def handle(request: RequestHeader) = extractor.unapply(request).map(generator)
+  }
+
+  private class IncludeEntry(include: => Include, prefix: String) extends Entry(None, prefix, false) {
+    def isDefinedAt(request: RequestHeader) = include.router.routes.isDefinedAt(request)
+    def handle(request: RequestHeader) = include.unapply(request)
+  }
+
+  /**
+   * Create an entry for a route.
+   *
+   * Extractors created by `Route.apply` are indexed by their method and path, any other extractor is tried against
+   * every request.
+   *
+   * @param extractor The extractor for the route parameters.
+   * @param generator The function that generates the handler from the route parameters.
+   */
+  def route(extractor: Route.ParamsExtractor)(generator: RouteParams => Handler): Entry = extractor match {
+    case pattern: Route.PatternExtractor =>
+      new RouteEntry(pattern, generator, Some(pattern.method), pattern.pathPattern.staticPrefix,
+        pattern.pathPattern.isStatic)
+    case other =>
+      new RouteEntry(other, generator, None, "", false)
+  }
+
+  /**
+   * Create an entry for an included router.
+   *
+   * @param prefix The prefix that the included router was given.
+   * @param include The included router. This is evaluated on each request, since legacy static routers replace their
+   *                includes when their prefix changes.
+   */
+  def include(prefix: String)(include: => Include): Entry = new IncludeEntry(include, prefix)
+
+  /**
+   * Build a routing tree from the given entries, in the order that they should be tried.
+   */
+  def apply(entries: Entry*): RoutingTree = {
+    entries.zipWithIndex.foreach {
+      case (entry, index) => entry.index = index
+    }
+    val (anyMethod, specific) = entries.partition(_.method.isEmpty)
+    val methods = specific.flatMap(_.method).distinct
+    val byMethod = methods.map { method =>
+      method -> build(entries.filter(e => e.method.isEmpty || e.method.contains(method)))
+    }.toMap
+    new RoutingTree(byMethod, build(anyMethod))
+  }
+
+  /**
+   * A node in the tree.
+   *
+   * @param label The segment of the path that this node matches, relative to its parent.
+   * @param keys The first character of the label of each child, sorted.
+   * @param children The children, in the same order as the keys.
+   * @param candidates The entries that may match a path ending at this node, in declaration order. This includes the
+   *                   entries of all the ancestors of this node.
+   * @param prefixCandidates The entries that may match a path that continues past this node, in declaration order.
+   */
+  private final class Node(val label: String, keys: Array[Char], children: Array[Node],
+      val candidates: Array[Entry], val prefixCandidates: Array[Entry]) {
+
+    def child(c: Char): Node = {
+      val i = java.util.Arrays.binarySearch(keys, c)
+      if (i >= 0) children(i) else null
+    }
+  }
+
+  /**
+   * A mutable character trie, used while building the tree.
+   */
+  private class TrieNode {
+    var children = TreeMap.empty[Char, TrieNode]
+    var entries = Vector.empty[Entry]
+
+    def insert(path: String, pos: Int, entry: Entry): Unit = {
+      if (pos == path.length) {
+        entries :+= entry
+      } else {
+        val c = path.charAt(pos)
+        val child = children.getOrElse(c, new TrieNode)
+        children += (c -> child)
+        child.insert(path, pos + 1, entry)
+      }
+    }
+  }
+
+  private def build(entries: Seq[Entry]): Node = {
+    val root = new TrieNode
+    entries.foreach(entry => root.insert(entry.prefix, 0, entry))
+    compress("", root, Vector.empty, collapse = false)
+  }
+
+  /**
+   * Compress chains of single child trie nodes without entries into one node.
+   *
+   * @param inherited The entries of the ancestors of this node that may match paths continuing past them.
+   * @param collapse Whether single child descendants may be collapsed into this node. The root must match the empty
+   *                 path, so it never collapses.
+   */
+  private def compress(label: String, trie: TrieNode, inherited: Vector[Entry], collapse: Boolean): Node = {
+    var node = trie
+    var fullLabel = label
+    while (collapse && node.entries.isEmpty && node.children.size == 1) {
+      val (c, child) = node.children.head
+      fullLabel += c
+      node = child
+    }
+    val prefixEntries = sorted(inherited ++ node.entries.filterNot(_.exact))
+    val allEntries = sorted(inherited ++ node.entries)
+    val children = node.children.toSeq.map {
+      case (c, child) => compress(c.toString, child, prefixEntries, collapse = true)
+    }
+    new Node(fullLabel, node.children.keys.toArray, children.toArray, allEntries.toArray, prefixEntries.toArray)
+  }
+
+  private def sorted(entries: Vector[Entry]): Vector[Entry] = entries.sortBy(_.index)
+}
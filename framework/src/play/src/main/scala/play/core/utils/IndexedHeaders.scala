@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.utils
+
+import java.util.Arrays
+import java.util.concurrent.atomic.AtomicInteger
+
+import scala.collection.{ immutable, mutable }
+
+/**
+ * An immutable sequence of HTTP headers with case insensitive lookup, backed by a flat array of names and values.
+ *
+ * The case insensitive hash of each name is computed once, when the header is added, so finding a header only
+ * compares the names of headers with the same hash. Large sequences also build a hash table to look headers up in.
+ *
+ * Appending to a sequence shares its array where possible: the first sequence to append to an array claims the free
+ * space after its own headers, any other sequence appending to the same array copies it.
+ */
+private[play] final class IndexedHeaders private (storage: IndexedHeaders.Storage, val length: Int)
+    extends immutable.IndexedSeq[(String, String)] {
+
+  import IndexedHeaders._
+
+  def apply(index: Int): (String, String) = {
+    if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index.toString)
+    name(index) -> value(index)
+  }
+
+  /**
+   * The name of the header with the given index.
+   */
+  def name(index: Int): String = storage.entries(index * 2)
+
+  /**
+   * The value of the header with the given index.
+   */
+  def value(index: Int): String = storage.entries(index * 2 + 1)
+
+  /**
+   * The first value of the header with the given name.
+   */
+  def get(name: String): Option[String] = {
+    val index = indexOf(name)
+    if (index >= 0) Some(value(index)) else None
+  }
+
+  /**
+   * All the values of the headers with the given name, in order.
+   */
+  def getAll(name: String): Seq[String] = {
+    var index = indexOf(name)
+    if (index < 0) {
+      Nil
+    } else {
+      val hash = storage.hashes(index)
+      val values = Vector.newBuilder[String]
+      while (index < length) {
+        if (matches(index, name, hash)) values += value(index)
+        index += 1
+      }
+      values.result()
+    }
+  }
+
+  /**
+   * Whether there is a header with the given name.
+   */
+  def contains(name: String): Boolean = indexOf(name) >= 0
+
+  /**
+   * Append the given headers.
+   */
+  def append(headers: Seq[(String, String)]): IndexedHeaders = {
+    val count = headers.size
+    if (count == 0) {
+      this
+    } else {
+      val target = if (length + count <= storage.capacity && storage.claimed.compareAndSet(length, length + count)) {
+        storage
+      } else {
+        storage.copy(length, math.max(length + count, length * 2), length + count)
+      }
+      var index = length
+      headers.foreach {
+        case (name, value) =>
+          target.set(index, name, value, hash(name))
+          index += 1
+      }
+      new IndexedHeaders(target, length + count)
+    }
+  }
+
+  /**
+   * Remove the headers with any of the given names.
+   */
+  def remove(names: Seq[String]): IndexedHeaders = {
+    val hashes = names.map(hash)
+    val builder = new Builder(length)
+    var index = 0
+    while (index < length) {
+      if (!names.indices.exists(i => matches(index, names(i), hashes(i)))) {
+        builder.add(name(index), value(index), storage.hashes(index))
+      }
+      index += 1
+    }
+    builder.result()
+  }
+
+  private def matches(index: Int, name: String, hash: Int): Boolean =
+    storage.hashes(index) == hash && storage.entries(index * 2).equalsIgnoreCase(name)
+
+  private def indexOf(name: String): Int = {
+    val hash = IndexedHeaders.hash(name)
+    if (length <= ScanThreshold) {
+      var index = 0
+      while (index < length && !matches(index, name, hash)) {
+        index += 1
+      }
+      if (index < length) index else -1
+    } else {
+      val mask = table.length - 1
+      var slot = spread(hash) & mask
+      while (table(slot) >= 0 && !matches(table(slot), name, hash)) {
+        slot = (slot + 1) & mask
+      }
+      table(slot)
+    }
+  }
+
+  /**
+   * An open addressing hash table of the index of the first header with each name.
+   */
+  private lazy val table: Array[Int] = {
+    val table = new Array[Int](Integer.highestOneBit(length * 2) * 2)
+    Arrays.fill(table, -1)
+    val mask = table.length - 1
+    var index = 0
+    while (index < length) {
+      val hash = storage.hashes(index)
+      var slot = spread(hash) & mask
+      while (table(slot) >= 0 && !matches(table(slot), name(index), hash)) {
+        slot = (slot + 1) & mask
+      }
+      if (table(slot) < 0) table(slot) = index
+      index += 1
+    }
+    table
+  }
+}
+
+private[play] object IndexedHeaders {
+
+  /**
+   * Sequences with at most this many headers are searched without a hash table.
+   */
+  private val ScanThreshold = 8
+
+  val empty: IndexedHeaders = new Builder(0).result()
+
+  /**
+   * Create indexed headers from the given headers, reusing them if they're already indexed.
+   */
+  def apply(headers: Seq[(String, String)]): IndexedHeaders = headers match {
+    case indexed: IndexedHeaders => indexed
+    case other =>
+      val builder = new Builder(other.size)
+      other.foreach {
+        case (name, value) => builder.add(name, value)
+      }
+      builder.result()
+  }
+
+  /**
+   * A case insensitive hash of a header name, consistent with `String.equalsIgnoreCase`.
+   */
+  def hash(name: String): Int = {
+    var hash = 0
+    var i = 0
+    while (i < name.length) {
+      hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)))
+      i += 1
+    }
+    hash
+  }
+
+  private def spread(hash: Int): Int = hash ^ (hash >>> 16)
+
+  /**
+   * The arrays that headers are stored in, possibly shared between several sequences.
+   *
+   * @param entries The names and values of the headers, with the name of each header followed by its value.
+   * @param hashes The case insensitive hash of each name.
+   * @param claimed The number of headers that some sequence has written to the arrays.
+   */
+  private final class Storage(val entries: Array[String], val hashes: Array[Int], val claimed: AtomicInteger) {
+
+    def capacity: Int = hashes.length
+
+    def set(index: Int, name: String, value: String, hash: Int): Unit = {
+      entries(index * 2) = name
+      entries(index * 2 + 1) = value
+      hashes(index) = hash
+    }
+
+    /**
+     * Copy the first headers of this storage into new storage.
+     *
+     * @param length The number of headers to copy.
+     * @param capacity The capacity of the new storage.
+     * @param claim The number of headers that the new storage is claimed up to.
+     */
+    def copy(length: Int, capacity: Int, claim: Int): Storage = {
+      val storage = Storage(capacity, claim)
+      System.arraycopy(entries, 0, storage.entries, 0, length * 2)
+      System.arraycopy(hashes, 0, storage.hashes, 0, length)
+      storage
+    }
+  }
+
+  private object Storage {
+    def apply(capacity: Int, claim: Int): Storage =
+      new Storage(new Array[String](capacity * 2), new Array[Int](capacity), new AtomicInteger(claim))
+  }
+
+  /**
+   * A builder for indexed headers.
+   *
+   * @param sizeHint The expected number of headers.
+   */
+  final class Builder(sizeHint: Int) extends mutable.Builder[(String, String), IndexedHeaders] {
+
+    private var storage = Storage(sizeHint, 0)
+    private var length = 0
+    // Whether the storage has been handed to a result, and so must be copied before adding to it
+    private var shared = false
+
+    def add(name: String, value: String): this.type = add(name, value, hash(name))
+
+    private[IndexedHeaders] def add(name: String, value: String, hash: Int): this.type = {
+      if (shared || length == storage.capacity) {
+        storage = storage.copy(length, math.max(4, length * 2), 0)
+        shared = false
+      }
+      storage.set(length, name, value, hash)
+      length += 1
+      this
+    }
+
+    def +=(header: (String, String)): this.type = add(header._1, header._2)
+
+    def clear(): Unit = {
+      storage = Storage(sizeHint, 0)
+      length = 0
+      shared = false
+    }
+
+    def result(): IndexedHeaders = {
+      storage.claimed.set(length)
+      shared = true
+      new IndexedHeaders(storage, length)
+    }
+  }
+}
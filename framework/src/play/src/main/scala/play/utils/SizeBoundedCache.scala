@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.utils
+
+/**
+ * A cache that is bounded by the total size of the values it holds, and evicts the least recently used values first.
+ *
+ * Values that are larger than the cache on their own are never cached.  The cache is safe to use from multiple
+ * threads.
+ *
+ * @param maxSize The maximum total size of the values.
+ * @param sizeOf The size of a value, in the same unit as `maxSize`.
+ */
+class SizeBoundedCache[K, V](maxSize: Long, sizeOf: V => Long) {
+
+  // An access ordered map, so iteration starts with the least recently used entry
+  private val entries = new java.util.LinkedHashMap[K, V](16, 0.75f, true)
+  private var size = 0L
+
+  def get(key: K): Option[V] = synchronized {
+    Option(entries.get(key))
+  }
+
+  def put(key: K, value: V): Unit = {
+    if (sizeOf(value) <= maxSize) synchronized {
+      val previous = entries.put(key, value)
+      if (previous != null) size -= sizeOf(previous)
+      size += sizeOf(value)
+      val lru = entries.values.iterator
+      while (size > maxSize && lru.hasNext) {
+        size -= sizeOf(lru.next())
+        lru.remove()
+      }
+    }
+  }
+
+  /**
+   * The total size of the values in the cache.
+   */
+  def currentSize: Long = synchronized(size)
+}
@@ -3,6 +3,7 @@
  */
 package play.utils
 
+import java.nio.charset.StandardCharsets
 import java.util.BitSet
 import java.io.ByteArrayOutputStream
 
@@ -140,6 +141,60 @@ object UriEncoding {
     splitString(s, '/').map(decodePathSegment(_, outputCharset)).mkString("/")
   }
 
+  /**
+   * Decode a URI path, or a part of one, the same way that `java.net.URI.getPath` does, without parsing a URI.
+   *
+   * Percent-encoded octets are decoded as UTF-8, replacing malformed input, and all other characters are left as they
+   * are. Unlike `decodePath`, characters that aren't allowed in a path are not rejected, since the path has usually
+   * been validated already by the server that received it. If the given range contains no percent-encoded octets, it
+   * is returned without being decoded.
+   *
+   * @param s The string containing the path to decode.
+   * @param start The index of the first character to decode.
+   * @param end The index after the last character to decode.
+   * @throws InvalidUriEncodingException If the range contains a malformed percent-encoded octet.
+   * @return The decoded range.
+   */
+  def decodeUriPath(s: String, start: Int, end: Int): String = {
+    val firstEscape = s.indexOf('%', start)
+    if (firstEscape < 0 || firstEscape >= end) {
+      s.substring(start, end)
+    } else {
+      val out = new java.lang.StringBuilder(end - start)
+      out.append(s, start, firstEscape)
+      // Consecutive percent-encoded octets must be decoded together, since they may encode one multi-byte character
+      val octets = new Array[Byte]((end - firstEscape) / 3)
+      var pos = firstEscape
+      while (pos < end) {
+        if (s.charAt(pos) == '%') {
+          var count = 0
+          while (pos < end && s.charAt(pos) == '%') {
+            val high = if (pos + 2 < end) hexValue(s.charAt(pos + 1)) else -1
+            val low = if (pos + 2 < end) hexValue(s.charAt(pos + 2)) else -1
+            if (high == -1 || low == -1) {
+              throw new InvalidUriEncodingException(s"Malformed escape pair at index ${pos - start}: ${s.substring(start, end)}")
+            }
+            octets(count) = ((high << 4) + low).toByte
+            count += 1
+            pos += 3
+          }
+          out.append(new String(octets, 0, count, StandardCharsets.UTF_8))
+        } else {
+          out.append(s.charAt(pos))
+          pos += 1
+        }
+      }
+      out.toString
+    }
+  }
+
+  /**
+   * Decode a URI path the same way that `java.net.URI.getPath` does, without parsing a URI.
+   *
+   * @see decodeUriPath(String, Int, Int)
+   */
+  def decodeUriPath(s: String): String = decodeUriPath(s, 0, s.length)
+
   // RFC 3986, 3.3. Path
   // segment       = *pchar
   // segment-nz    = 1*pchar
@@ -197,6 +252,21 @@ object UriEncoding {
     }
   }
 
+  /**
+   * Return the value of the given hex digit, or -1 if the character isn't a hex digit.
+   */
+  private def hexValue(c: Char): Int = {
+    if (c >= '0' && c <= '9') {
+      c - '0'
+    } else if (c >= 'A' && c <= 'F') {
+      10 + c - 'A'
+    } else if (c >= 'a' && c <= 'f') {
+      10 + c - 'a'
+    } else {
+      -1
+    }
+  }
+
   /**
    * Split a string on a character. Similar to `String.split` except, for this method,
    * the invariant {{{splitString(s, '/').mkString("/") == s}}} holds.
@@ -6,7 +6,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+import play.http.HttpEntity;
+import play.libs.Json;
 import play.mvc.Http.HeaderNames;
 
 import static org.junit.Assert.*;
@@ -61,4 +66,28 @@ public class ResultsTest {
     assertEquals(result.status(), Http.Status.UNAUTHORIZED);
     assertEquals(result.header(HeaderNames.CONTENT_DISPOSITION).get(), "attachment; filename=\"foo.bar\"");
   }
+
+  @Test
+  public void sendJsonAsUtf8() {
+    Result result = Results.ok().sendJson(Json.newObject().put("key", "\u00E9"));
+
+    assertEquals(Optional.of("application/json;charset=utf-8"), result.body().contentType());
+    assertEquals(ByteString.fromString("{\"key\":\"\u00E9\"}", "UTF-8"), ((HttpEntity.Strict) result.body()).data());
+  }
+
+  @Test
+  public void sendJsonInOtherCharsets() {
+    Result result = Results.ok().sendJson(Json.newObject().put("key", "\u00E9"), "iso-8859-1");
+
+    assertEquals(Optional.of("application/json;charset=iso-8859-1"), result.body().contentType());
+    assertEquals(ByteString.fromString("{\"key\":\"\u00E9\"}", "iso-8859-1"), ((HttpEntity.Strict) result.body()).data());
+  }
+
+  @Test
+  public void chunkedJsonWithJsonContentType() {
+    Result result = Results.ok().chunkedJson(Source.single(Json.newObject()));
+
+    assertEquals(Optional.of("application/json;charset=utf-8"), result.body().contentType());
+    assertTrue(result.body() instanceof HttpEntity.Chunked);
+  }
 }
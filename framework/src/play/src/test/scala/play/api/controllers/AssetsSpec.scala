@@ -3,7 +3,10 @@
  */
 package controllers
 
+import akka.util.ByteString
+import java.io.File
 import org.specs2.mutable.Specification
+import play.api.http.HttpEntity
 import play.api.mvc.ResponseHeader
 import play.utils.InvalidUriEncodingException
 
@@ -107,5 +110,39 @@ object AssetsSpec extends Specification {
       // If it uses the escaped path, the file won't be found, and so last modified will be 0
       lastModified.toDate.getTime must_!= 0
     }
+
+    "evict the least recently used assets from the bytes cache" in {
+      val cache = new AssetBytesCache(10)
+      cache.put("a", ByteString("aaaa"))
+      cache.put("b", ByteString("bbbb"))
+      cache.get("a") must beSome(ByteString("aaaa"))
+      cache.put("c", ByteString("cccc"))
+      cache.get("a") must beSome(ByteString("aaaa"))
+      cache.get("b") must beNone
+      cache.get("c") must beSome(ByteString("cccc"))
+      cache.currentSize must_== 8
+    }
+
+    "not cache assets that are larger than the bytes cache" in {
+      val cache = new AssetBytesCache(10)
+      cache.put("a", ByteString("aaaa"))
+      cache.put("b", ByteString("b" * 11))
+      cache.get("a") must beSome(ByteString("aaaa"))
+      cache.get("b") must beNone
+    }
+
+    "serve small assets on the file system from memory" in {
+      val url = AssetsSpec.getClass.getClassLoader.getResource("file withspace.css")
+      Assets.assetEntity(url, "text/css") must beSome.like {
+        case HttpEntity.Strict(data, contentType) =>
+          data.length must_== new File(url.toURI).length
+          contentType must beSome("text/css")
+      }
+    }
+
+    "not serve directories on the file system" in {
+      val url = new File(AssetsSpec.getClass.getClassLoader.getResource("file withspace.css").toURI).getParentFile.toURI.toURL
+      Assets.assetEntity(url, "text/plain") must beNone
+    }
   }
 }
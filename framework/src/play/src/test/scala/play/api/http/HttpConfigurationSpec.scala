@@ -19,6 +19,8 @@ object HttpConfigurationSpec extends Specification {
         "play.http.context" -> "/",
         "play.http.parser.maxMemoryBuffer" -> "10k",
         "play.http.parser.maxDiskBuffer" -> "20k",
+        "play.http.parser.maxFormFields" -> "100",
+        "play.http.parser.maxFormKeyLength" -> "256",
         "play.http.actionComposition.controllerAnnotationsFirst" -> "true",
         "play.http.cookies.strict" -> "true",
         "play.http.session.cookieName" -> "PLAY_SESSION",
@@ -55,6 +57,16 @@ object HttpConfigurationSpec extends Specification {
       httpConfiguration.parser.maxDiskBuffer must beEqualTo(20 * 1024)
     }
 
+    "configure max form fields" in {
+      val httpConfiguration = new HttpConfiguration.HttpConfigurationProvider(configuration).get
+      httpConfiguration.parser.maxFormFields must beEqualTo(100)
+    }
+
+    "configure max form key length" in {
+      val httpConfiguration = new HttpConfiguration.HttpConfigurationProvider(configuration).get
+      httpConfiguration.parser.maxFormKeyLength must beEqualTo(256)
+    }
+
     "configure cookies encoder/decoder" in {
       val httpConfiguration = new HttpConfiguration.HttpConfigurationProvider(configuration).get
       httpConfiguration.cookies.strict must beTrue
@@ -87,6 +87,36 @@ object MessagesSpec extends Specification {
 
     }
 
+    "format messages with arguments" in {
+      val formatApi = new DefaultMessagesApi(new Environment(new File("."), this.getClass.getClassLoader, Mode.Dev),
+        Configuration.reference, new DefaultLangs(Configuration.reference ++ Configuration.from(Map("play.i18n.langs" -> Seq("en", "fr"))))
+      ) {
+        override protected def loadAllMessages = Map(
+          "default" -> Map("hello" -> "Hello {0}", "count" -> "{0} items", "quoted" -> "It''s '{0}'", "bad" -> "Bad {0"),
+          "fr" -> Map("hello" -> "Bonjour {0}"))
+      }
+      formatApi("hello", "world")(Lang("en")) must_== "Hello world"
+      formatApi("hello", "world")(Lang("fr")) must_== "Bonjour world"
+      formatApi("hello")(Lang("en")) must_== "Hello {0}"
+      formatApi("count", 1234)(Lang("en")) must_== "1,234 items"
+      formatApi("count", 1234)(Lang("fr")) must_== new java.text.MessageFormat("{0} items", Lang("fr").toLocale).format(Array[AnyRef](Integer.valueOf(1234)))
+      formatApi("quoted", "x")(Lang("en")) must_== "It's {0}"
+      formatApi("bad")(Lang("en")) must throwAn[IllegalArgumentException]
+      formatApi("hello", "world")(Lang("de")) must_== "Hello world"
+    }
+
+    "return the same instance for messages without arguments" in {
+      (api("title")(Lang("fr")) eq api("title")(Lang("fr"))) must beTrue
+    }
+
+    "reuse preferred langs for repeated Accept-Language headers" in {
+      api.preferred(FakeRequest().withHeaders("Accept-Language" -> "de, fr;q=0.5")).lang must_== Lang("fr")
+      api.preferred(FakeRequest().withHeaders("Accept-Language" -> "de, fr;q=0.5")).lang must_== Lang("fr")
+      api.preferred(FakeRequest().withHeaders("Accept-Language" -> "de, fr;q=0.5")
+        .withCookies(Cookie("PLAY_LANG", "fr-CH"))).lang must_== Lang("fr-CH")
+      api.preferred(FakeRequest()).lang must_== Lang("en")
+    }
+
     "report error for unsupported lang" in {
       new DefaultMessagesApi(new Environment(new File("."), this.getClass.getClassLoader, Mode.Dev),
         Configuration.reference, new DefaultLangs(Configuration.reference ++ Configuration.from(Map("play.i18n.langs" -> Seq("wrong"))))
@@ -3,7 +3,7 @@
  */
 package play.api.libs
 
-import javax.crypto.Cipher
+import javax.crypto.{ Cipher, Mac }
 import javax.crypto.spec.SecretKeySpec
 
 import org.specs2.mutable._
@@ -47,6 +47,36 @@ object CryptoSpec extends Specification {
     }
   }
 
+  "Crypto api" should {
+    "sign repeatedly with the application secret and with other keys" in {
+      val crypto = new Crypto(CryptoConfig("0123456789abcdef"))
+      val expected = {
+        val mac = Mac.getInstance("HmacSHA1")
+        mac.init(new SecretKeySpec("0123456789abcdef".getBytes("utf-8"), "HmacSHA1"))
+        Codecs.toHexString(mac.doFinal("message".getBytes("utf-8")))
+      }
+      crypto.sign("message") must_== expected
+      crypto.sign("message") must_== expected
+      crypto.sign("message", "0123456789abcdef".getBytes("utf-8")) must_== expected
+      crypto.sign("message", "other".getBytes("utf-8")) must_!= expected
+      crypto.sign("message") must_== expected
+    }
+
+    "sign and encrypt consistently from several threads" in {
+      val crypto = new Crypto(CryptoConfig("0123456789abcdef"))
+      val signature = crypto.sign("message")
+      val results = (1 to 8).par.map { i =>
+        (1 to 100).forall { j =>
+          val text = s"text-$i-$j"
+          crypto.sign("message") == signature &&
+            crypto.decryptAES(crypto.encryptAES(text)) == text &&
+            crypto.decryptAES(crypto.encryptAES(text, "other key"), "other key") == text
+        }
+      }
+      results.forall(identity) must beTrue
+    }
+  }
+
   "Crypto config parser" should {
     "parse the secret" in {
       val Secret = "abcdefghijklmnopqrs"
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.libs
+
+import akka.actor.ActorSystem
+import akka.stream.ActorMaterializer
+import akka.stream.scaladsl.{ Flow, Source }
+import akka.util.ByteString
+import org.specs2.mutable.Specification
+import org.specs2.specification.AfterAll
+import play.api.http.{ ContentTypes, HttpChunk, HttpEntity, Writeable }
+import play.api.libs.json._
+import play.api.mvc.{ Codec, Results }
+
+import scala.concurrent.Await
+import scala.concurrent.duration._
+
+object JsonStreamSpec extends Specification with AfterAll {
+
+  implicit val system = ActorSystem("json-stream-spec")
+  implicit val materializer = ActorMaterializer()(system)
+
+  def afterAll(): Unit = {
+    materializer.shutdown()
+    system.shutdown()
+  }
+
+  def render(values: Seq[JsValue], flow: Flow[JsValue, ByteString, _]): String = {
+    val bytes = Source(values.toList).via(flow).runFold(ByteString.empty)(_ ++ _)
+    Await.result(bytes, 10.seconds).utf8String
+  }
+
+  def body(entity: HttpEntity): String = entity match {
+    case HttpEntity.Chunked(chunks, _) =>
+      val bytes = chunks.collect { case HttpChunk.Chunk(data) => data }.runFold(ByteString.empty)(_ ++ _)
+      Await.result(bytes, 10.seconds).utf8String
+    case other => throw new IllegalArgumentException("Expected a chunked entity, got " + other)
+  }
+
+  val values = Seq(Json.obj("a" -> 1), JsString("bé"), Json.arr(1, 2))
+
+  "JsonStream" should {
+
+    "render values as a JSON array" in {
+      val rendered = render(values, JsonStream.array)
+      rendered must_== """[{"a":1},"bé",[1,2]]"""
+      Json.parse(rendered) must_== JsArray(values)
+    }
+
+    "render an empty stream as an empty JSON array" in {
+      render(Nil, JsonStream.array) must_== "[]"
+    }
+
+    "render values as newline delimited JSON" in {
+      render(values, JsonStream.lines) must_== "{\"a\":1}\n\"bé\"\n[1,2]\n"
+    }
+
+    "be usable to send a chunked JSON array" in {
+      val result = Results.Ok.chunkedJson(Source(values.toList))
+      result.body.contentType must beSome(ContentTypes.JSON(Codec.utf_8))
+      body(result.body) must_== """[{"a":1},"bé",[1,2]]"""
+    }
+
+    "be usable to send chunked newline delimited JSON" in {
+      val result = Results.Ok.chunkedJsonLines(Source(values.toList))
+      result.body.contentType must beSome(JsonStream.NDJSON)
+      body(result.body) must_== "{\"a\":1}\n\"bé\"\n[1,2]\n"
+    }
+  }
+
+  def parse(chunks: Seq[String], flow: Flow[ByteString, JsValue, _]): Seq[JsValue] = {
+    val values = Source(chunks.map(ByteString(_)).toList).via(flow).runFold(Seq.empty[JsValue])(_ :+ _)
+    Await.result(values, 10.seconds)
+  }
+
+  // Every split of the input in two chunks
+  def splits(input: String): Seq[Seq[String]] = (0 to input.length).map(i => Seq(input.take(i), input.drop(i)))
+
+  "JsonStream parsing" should {
+
+    "parse the elements of a JSON array" in {
+      val input = """ [ {"a": [1, {"b": "]}"}]}, "x\"]", 12.5e3 , true,null,[] ] """
+      forall(splits(input)) { chunks =>
+        parse(chunks, JsonStream.parseArray(1024)) must_== Seq(
+          Json.obj("a" -> Json.arr(1, Json.obj("b" -> "]}"))), JsString("x\"]"), JsNumber(12.5e3), JsBoolean(true),
+          JsNull, Json.arr()
+        )
+      }
+    }
+
+    "parse multi-byte characters split across chunks" in {
+      val input = ByteString("[\"bé样\"]", "UTF-8")
+      val chunks = input.map(b => ByteString(b))
+      val values = Source(chunks.toList).via(JsonStream.parseArray(1024)).runFold(Seq.empty[JsValue])(_ :+ _)
+      Await.result(values, 10.seconds) must_== Seq(JsString("bé样"))
+    }
+
+    "parse an empty JSON array" in {
+      parse(Seq("[", " ]"), JsonStream.parseArray(1024)) must beEmpty
+    }
+
+    "fail on malformed arrays" in {
+      forall(Seq("{}", "[1,]", "[1 2]", "[1", "[1] 2", "[,1]")) { input =>
+        parse(Seq(input), JsonStream.parseArray(1024)) must throwA[JsonStream.JsonFramingException]
+      }
+    }
+
+    "fail on invalid elements" in {
+      parse(Seq("[{\"a\" 1}]"), JsonStream.parseArray(1024)) must throwA[Exception]
+    }
+
+    "fail on elements that are too long" in {
+      parse(Seq("[\"abc\", ", "\"abcdefgh", "ijklmnop\"]"), JsonStream.parseArray(8)) must throwA[JsonStream.JsonFramingException]
+      parse(Seq("[\"abc\", ", "\"abcdefgh"), JsonStream.parseArray(8)) must throwA[JsonStream.JsonFramingException]
+    }
+
+    "parse newline delimited JSON" in {
+      val input = "{\"a\":1}\n\n  \"b\"\r\n[1,2]"
+      forall(splits(input)) { chunks =>
+        parse(chunks, JsonStream.parseLines(1024)) must_== Seq(Json.obj("a" -> 1), JsString("b"), Json.arr(1, 2))
+      }
+    }
+
+    "round trip values through rendering and parsing" in {
+      val rendered = render(values, JsonStream.array)
+      parse(Seq(rendered), JsonStream.parseArray(1024)) must_== values
+    }
+  }
+
+  "The JsValue writeable" should {
+
+    "write UTF-8 JSON without going through a String" in {
+      val json = Json.obj("key" -> "样品")
+      Writeable.writeableOf_JsValue(Codec.utf_8).transform(json) must_== ByteString(Json.stringify(json), "UTF-8")
+    }
+
+    "write JSON in other charsets" in {
+      val json = Json.obj("key" -> "é")
+      val codec = Codec.javaSupported("iso-8859-1")
+      Writeable.writeableOf_JsValue(codec).transform(json) must_== ByteString(Json.stringify(json), "iso-8859-1")
+    }
+  }
+}
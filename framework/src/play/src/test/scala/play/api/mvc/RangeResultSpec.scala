@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.mvc
+
+import java.nio.file.Files
+
+import akka.actor.ActorSystem
+import akka.stream.ActorMaterializer
+import akka.stream.scaladsl.Source
+import akka.util.ByteString
+
+import org.specs2.mutable.Specification
+import org.specs2.specification.AfterAll
+
+import play.api.http.HeaderNames._
+import play.api.http.HttpEntity
+import play.api.http.Status._
+
+import scala.concurrent.Await
+import scala.concurrent.duration.Duration
+
+object RangeResultSpec extends Specification with AfterAll {
+
+  implicit val system = ActorSystem("range-result-spec")
+  implicit val materializer = ActorMaterializer()(system)
+
+  def afterAll(): Unit = {
+    materializer.shutdown()
+    system.shutdown()
+  }
+
+  import RangeResult.ByteRange
+
+  val content = ByteString("0123456789")
+
+  def body(result: Result): String = Await.result(result.body.consumeData, Duration.Inf).utf8String
+
+  // A source with small chunks, so that ranges span chunks
+  def source = Source(content.grouped(3).toList)
+
+  def withFile[T](block: java.nio.file.Path => T): T = {
+    val path = Files.createTempFile("range-result", ".txt")
+    try {
+      Files.write(path, content.toArray)
+      block(path)
+    } finally {
+      Files.delete(path)
+    }
+  }
+
+  "ByteRange.parse" should {
+
+    "parse first and last positions" in {
+      ByteRange.parse("bytes=2-5", 10) must beSome(Seq(ByteRange(2, 5)))
+    }
+
+    "parse open ended ranges" in {
+      ByteRange.parse("bytes=7-", 10) must beSome(Seq(ByteRange(7, 9)))
+    }
+
+    "parse suffix ranges" in {
+      ByteRange.parse("bytes=-3", 10) must beSome(Seq(ByteRange(7, 9)))
+      ByteRange.parse("bytes=-30", 10) must beSome(Seq(ByteRange(0, 9)))
+    }
+
+    "truncate ranges that end after the entity" in {
+      ByteRange.parse("bytes=5-50", 10) must beSome(Seq(ByteRange(5, 9)))
+    }
+
+    "sort and coalesce overlapping and adjacent ranges" in {
+      ByteRange.parse("bytes=6-8, 0-1, 2-3, 7-9", 10) must beSome(Seq(ByteRange(0, 3), ByteRange(6, 9)))
+    }
+
+    "drop unsatisfiable ranges" in {
+      ByteRange.parse("bytes=10-12, 0-1", 10) must beSome(Seq(ByteRange(0, 1)))
+      ByteRange.parse("bytes=10-12, -0", 10) must beSome(Seq.empty[ByteRange])
+    }
+
+    "ignore invalid headers" in {
+      ByteRange.parse("bytes=5-2", 10) must beNone
+      ByteRange.parse("bytes=a-b", 10) must beNone
+      ByteRange.parse("bytes=-", 10) must beNone
+      ByteRange.parse("bytes=", 10) must beNone
+      ByteRange.parse("items=0-1", 10) must beNone
+    }
+  }
+
+  "RangeResult" should {
+
+    "send the whole entity when no range is requested" in {
+      val result = RangeResult.ofBytes(content, None, Some("text/plain"))
+      result.header.status must_== OK
+      result.header.headers.get(ACCEPT_RANGES) must beSome("bytes")
+      body(result) must_== "0123456789"
+    }
+
+    "send a single range of bytes" in {
+      val result = RangeResult.ofBytes(content, Some("bytes=2-4"), Some("text/plain"))
+      result.header.status must_== PARTIAL_CONTENT
+      result.header.headers.get(CONTENT_RANGE) must beSome("bytes 2-4/10")
+      result.body.contentLength must beSome(3)
+      body(result) must_== "234"
+    }
+
+    "return requested range not satisfiable for unsatisfiable ranges" in {
+      val result = RangeResult.ofBytes(content, Some("bytes=20-"), Some("text/plain"))
+      result.header.status must_== REQUESTED_RANGE_NOT_SATISFIABLE
+      result.header.headers.get(CONTENT_RANGE) must beSome("bytes */10")
+    }
+
+    "send the whole entity when too many ranges are requested" in {
+      val ranges = (0 until 40 by 2).map(i => s"$i-$i").mkString("bytes=", ",", "")
+      val result = RangeResult.ofBytes(ByteString("x" * 100), Some(ranges), None)
+      result.header.status must_== OK
+    }
+
+    "send a single range of a stream, spanning chunks" in {
+      val result = RangeResult.ofSource(10, source, Some("bytes=2-7"), None)
+      result.header.status must_== PARTIAL_CONTENT
+      result.header.headers.get(CONTENT_RANGE) must beSome("bytes 2-7/10")
+      body(result) must_== "234567"
+    }
+
+    "send a single range of a file as a file region" in withFile { path =>
+      val result = RangeResult.ofPath(path, Some("bytes=-4"))
+      result.header.status must_== PARTIAL_CONTENT
+      result.header.headers.get(CONTENT_RANGE) must beSome("bytes 6-9/10")
+      result.body must_== HttpEntity.FileRegion(path, 6, 4, Some("text/plain"))
+      body(result) must_== "6789"
+    }
+
+    "send several ranges as multipart/byteranges" in {
+      def multipart(result: Result) = {
+        result.header.status must_== PARTIAL_CONTENT
+        val contentType = result.body.contentType.get
+        contentType must startWith("multipart/byteranges; boundary=")
+        val boundary = contentType.drop("multipart/byteranges; boundary=".length)
+        val data = body(result)
+        result.body.contentLength must beSome(data.length.toLong)
+        data must_== s"--$boundary\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/10\r\n\r\n01" +
+          s"\r\n--$boundary\r\nContent-Type: text/plain\r\nContent-Range: bytes 5-7/10\r\n\r\n567" +
+          s"\r\n--$boundary--\r\n"
+      }
+      "from bytes" in {
+        multipart(RangeResult.ofBytes(content, Some("bytes=0-1,5-7"), Some("text/plain")))
+      }
+      "from a stream" in {
+        multipart(RangeResult.ofSource(10, source, Some("bytes=0-1,5-7"), Some("text/plain")))
+      }
+      "from a file" in withFile { path =>
+        multipart(RangeResult.ofPath(path, Some("bytes=0-1,5-7"), Some("text/plain")))
+      }
+    }
+
+    "fail streams that end before the requested ranges" in {
+      val result = RangeResult.ofSource(20, source, Some("bytes=5-15"), None)
+      Await.result(result.body.consumeData, Duration.Inf) must throwA[java.io.EOFException]
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.api.mvc
+
+import org.specs2.mutable._
+import play.core.test._
+
+object SessionCookieSpec extends Specification {
+
+  "Session cookies" should {
+
+    "decode a signed session" in withApplication {
+      val cookie = Session.encodeAsCookie(Session(Map("user" -> "alice")))
+      Session.decodeFromCookie(Some(cookie)).data must_== Map("user" -> "alice")
+    }
+
+    "decode the same signed session again" in withApplication {
+      val cookie = Session.encodeAsCookie(Session(Map("user" -> "alice")))
+      Session.decodeFromCookie(Some(cookie))
+      Session.decodeFromCookie(Some(cookie)).data must_== Map("user" -> "alice")
+    }
+
+    "not decode a session whose signature is invalid" in withApplication {
+      val cookie = Session.encodeAsCookie(Session(Map("user" -> "alice")))
+      val tampered = cookie.copy(value = cookie.value.replace("alice", "admin"))
+      Session.decodeFromCookie(Some(tampered)).data must beEmpty
+      // Still invalid once the original value has been cached
+      Session.decodeFromCookie(Some(cookie))
+      Session.decodeFromCookie(Some(tampered)).data must beEmpty
+    }
+
+    "send back the value of an unmodified session" in withApplication {
+      val cookie = Session.encodeAsCookie(Session(Map("user" -> "alice")))
+      val session = Session.decodeFromCookie(Some(cookie))
+      Session.encodeAsCookie(session).value must_== cookie.value
+    }
+
+    "encode a modified session" in withApplication {
+      val cookie = Session.encodeAsCookie(Session(Map("user" -> "alice")))
+      val session = Session.decodeFromCookie(Some(cookie)) + ("lang" -> "fr")
+      val encoded = Session.encodeAsCookie(session)
+      encoded.value must_!= cookie.value
+      Session.decodeFromCookie(Some(encoded)).data must_== Map("user" -> "alice", "lang" -> "fr")
+    }
+
+    "send back the value of an unmodified flash" in withApplication {
+      val cookie = Flash.encodeAsCookie(Flash(Map("success" -> "saved")))
+      val flash = Flash.decodeFromCookie(Some(cookie))
+      flash.data must_== Map("success" -> "saved")
+      Flash.encodeAsCookie(flash).value must_== cookie.value
+    }
+  }
+}
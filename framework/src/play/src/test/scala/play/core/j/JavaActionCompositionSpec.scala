@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.j
+
+import java.util.concurrent.{ CyclicBarrier, Executors, TimeUnit }
+import javax.inject.{ Inject, Singleton }
+
+import org.specs2.mutable.Specification
+import play.api.inject.Injector
+import play.api.inject.guice.GuiceInjectorBuilder
+import play.libs.F.{ Promise => JPromise }
+import play.mvc.{ Action => JAction, Result => JResult, Results }
+import play.mvc.Http.{ Context => JContext }
+
+import scala.concurrent.{ Await, ExecutionContext, Future }
+import scala.concurrent.duration._
+
+object JavaActionCompositionSpec extends Specification {
+
+  "Java action composition" should {
+
+    val components = new JavaHandlerComponents(new GuiceInjectorBuilder().build(), null)
+
+    def composition(actionClass: Class[_ <: JAction[_]]) = {
+      val annotation = actionClass.getAnnotation(classOf[Singleton])
+      new JavaActionComposition(components, Seq(annotation -> actionClass))
+    }
+
+    "give concurrent requests their own chains, even with singleton actions" in {
+      val composed = composition(classOf[SingletonDelegatingAction])
+      val requests = 16
+      val barrier = new CyclicBarrier(requests)
+      val executor = Executors.newFixedThreadPool(requests)
+      implicit val ec = ExecutionContext.fromExecutor(executor)
+      val chains = (1 to requests).map { _ =>
+        Future {
+          val result = Results.ok()
+          val base = new JAction[Any] {
+            def call(ctx: JContext) = JPromise.pure(result)
+          }
+          val chain = composed.compose(base)
+          // Wait until every request has composed its chain before calling it
+          barrier.await(10, TimeUnit.SECONDS)
+          (result, chain.call(null).get(10, TimeUnit.SECONDS))
+        }
+      }
+      val results = try Await.result(Future.sequence(chains), 20.seconds) finally executor.shutdown()
+      forall(results) {
+        case (expected, actual) => actual must beTheSameAs(expected)
+      }
+    }
+
+    "create singleton actions with their dependencies" in {
+      val chain = composition(classOf[SingletonDelegatingAction]).compose(new JAction[Any] {
+        def call(ctx: JContext) = JPromise.pure[JResult](Results.ok())
+      })
+      chain.asInstanceOf[SingletonDelegatingAction].injector must not beNull
+    }
+  }
+}
+
+@Singleton
+class SingletonDelegatingAction @Inject() (val injector: Injector) extends JAction[Any] {
+  def call(ctx: JContext): JPromise[JResult] = delegate.call(ctx)
+}
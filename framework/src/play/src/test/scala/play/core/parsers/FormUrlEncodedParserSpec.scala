@@ -3,6 +3,9 @@
  */
 package play.core.parsers
 
+import java.nio.charset.StandardCharsets
+
+import akka.util.ByteString
 import org.specs2.mutable.Specification
 
 object FormUrlEncodedParserSpec extends Specification {
@@ -23,5 +26,33 @@ object FormUrlEncodedParserSpec extends Specification {
       val reconstructed = strings.substring(1)
       reconstructed must equalTo(url_encoded)
     }
+    "decode percent encoded and plus encoded characters" in {
+      FormUrlEncodedParser.parse("na%20me=caf%C3%A9+au+lait") must_== Map("na me" -> List("café au lait"))
+    }
+    "fail on malformed escapes" in {
+      FormUrlEncodedParser.parse("foo=bar%zz") must throwAn[IllegalArgumentException]
+      FormUrlEncodedParser.parse("foo=bar%2") must throwAn[IllegalArgumentException]
+    }
+  }
+
+  "FormUrlEncodedParser.Decoder" should {
+    def decode(chunks: String*)(maxFields: Int = Int.MaxValue, maxKeyLength: Int = Int.MaxValue) = {
+      val decoder = new FormUrlEncodedParser.Decoder(StandardCharsets.UTF_8, maxFields, maxKeyLength)
+      chunks.foreach(chunk => decoder.feed(ByteString(chunk)))
+      decoder.result()
+    }
+
+    "decode forms fed in chunks" in {
+      decode("fo", "o=b", "ar&foo", "=baz&x", "=%C3", "%A", "9")() must_== Map("foo" -> List("bar", "baz"), "x" -> List("é"))
+    }
+    "limit the number of fields" in {
+      decode("a=1&b=2&a=3")(maxFields = 3) must_== Map("a" -> List("1", "3"), "b" -> List("2"))
+      decode("a=1&b=2&a=3")(maxFields = 2) must throwAn[IllegalArgumentException]
+    }
+    "limit the length of keys" in {
+      decode("abc=1")(maxKeyLength = 3) must_== Map("abc" -> List("1"))
+      decode("ab", "cd=1")(maxKeyLength = 3) must throwAn[IllegalArgumentException]
+      decode("a=1234")(maxKeyLength = 3) must_== Map("a" -> List("1234"))
+    }
   }
 }
@@ -73,5 +73,35 @@ object RouterSpec extends Specification {
       pathPattern(pathString).get("foo") must beEqualTo(Right("this/is/some%20file/with/id"))
 
     }
+
+    "extract indexed params" in {
+      val pathPattern = PathPattern(Seq(StaticPart("/users/"), DynamicPart("id", "([0-9])+", true), StaticPart("/files/"),
+        DynamicPart("file", ".+", false)))
+      val params = pathPattern.extract("/users/12/files/a%20b/c")
+      params.value(0) must beEqualTo(Some(Right("12")))
+      params.value(1) must beEqualTo(Some(Right("a%20b/c")))
+      params.value(2) must beNone
+      params.get("file") must beEqualTo(Some(Right("a%20b/c")))
+      params.get("missing") must beNone
+    }
+
+    "decode indexed params the same way as named params" in {
+      pathPattern.extract(pathString).value(0) must beEqualTo(Some(Right("some file")))
+      pathPattern.extract(pathNonEncodedString2).value(0) must beEqualTo(Some(Right("bar: baz")))
+      pathPattern.extract(pathStringInvalid).value(0) must beSome(beLeft[Throwable])
+    }
+
+    "fall back to the default for indexed params that are missing" in {
+      val params = RouteParams(pathPattern.extract(pathString), Map.empty)
+      params.fromPath[String](0, "foo", None) must_== Param("foo", Right("some file"))
+      params.fromPath[String](1, "bar", Some("default")) must_== Param("bar", Right("default"))
+      params.fromPath[String](1, "bar", None) must_== Param("bar", Left("Missing parameter: bar"))
+    }
+
+    "not extract params from paths that don't match" in {
+      pathPattern.extract("/path/to/") must beNull
+      PathPattern(Seq(StaticPart("/path"))).extract("/path/") must beNull
+      PathPattern(Seq(StaticPart("/path"))).extract("/path") must beEmpty
+    }
   }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.routing
+
+import org.specs2.mutable.Specification
+import play.api.mvc.{ Handler, RequestHeader }
+import play.api.routing.Router
+
+object RoutingTreeSpec extends Specification {
+
+  case class NamedHandler(name: String) extends Handler
+
+  def request(requestMethod: String, requestPath: String): RequestHeader = new RequestHeader {
+    def id = 1
+    def tags = Map()
+    def uri = requestPath
+    def path = requestPath
+    def method = requestMethod
+    def version = "HTTP/1.1"
+    def queryString = Map()
+    def headers = play.api.mvc.Headers()
+    def remoteAddress = ""
+    def secure = false
+  }
+
+  def route(method: String, parts: PathPart*)(name: String) =
+    RoutingTree.route(Route(method, PathPattern(parts))) { params =>
+      NamedHandler(name + params.path.values.collect { case Right(v) => ":" + v }.mkString)
+    }
+
+  def handlerName(tree: RoutingTree, method: String, path: String): Option[String] =
+    tree.lift(request(method, path)).collect { case NamedHandler(name) => name }
+
+  "RoutingTree" should {
+
+    val tree = RoutingTree(
+      route("GET", StaticPart("/"))("index"),
+      route("GET", StaticPart("/users"))("users"),
+      route("POST", StaticPart("/users"))("createUser"),
+      route("GET", StaticPart("/users/"), DynamicPart("id", "[0-9]+", true))("user"),
+      route("GET", StaticPart("/users/"), DynamicPart("name", "[^/]+", true))("userByName"),
+      route("GET", StaticPart("/users/me"))("me"),
+      route("GET", StaticPart("/assets/"), DynamicPart("file", ".+", false))("assets"),
+      route("GET", StaticPart("/"), DynamicPart("page", "[^/]+", true))("page")
+    )
+
+    "route static paths" in {
+      handlerName(tree, "GET", "/") must beSome("index")
+      handlerName(tree, "GET", "/users") must beSome("users")
+    }
+
+    "route by method" in {
+      handlerName(tree, "POST", "/users") must beSome("createUser")
+      handlerName(tree, "DELETE", "/users") must beNone
+    }
+
+    "route dynamic paths" in {
+      handlerName(tree, "GET", "/users/10") must beSome("user:10")
+      handlerName(tree, "GET", "/users/bob") must beSome("userByName:bob")
+      handlerName(tree, "GET", "/assets/css/main.css") must beSome("assets:css/main.css")
+    }
+
+    "preserve the declaration order of routes" in {
+      handlerName(tree, "GET", "/users/me") must beSome("userByName:me")
+      handlerName(tree, "GET", "/about") must beSome("page:about")
+    }
+
+    "not match static routes against longer paths" in {
+      handlerName(tree, "GET", "/users/") must beNone
+      handlerName(tree, "GET", "/usersx") must beSome("page:usersx")
+    }
+
+    "report whether it is defined for a request" in {
+      tree.isDefinedAt(request("GET", "/users/10")) must beTrue
+      tree.isDefinedAt(request("PUT", "/users/10")) must beFalse
+    }
+
+    "try included routers in declaration order for any method" in {
+      val included = Router.from {
+        case rh if rh.path == "/admin/users" => NamedHandler("admin:" + rh.method)
+      }
+      val withInclude = RoutingTree(
+        route("GET", StaticPart("/admin/status"))("status"),
+        RoutingTree.include("/admin")(Include(included)),
+        route("DELETE", StaticPart("/admin/users"))("never")
+      )
+      handlerName(withInclude, "GET", "/admin/status") must beSome("status")
+      handlerName(withInclude, "DELETE", "/admin/users") must beSome("admin:DELETE")
+      handlerName(withInclude, "PATCH", "/admin/users") must beSome("admin:PATCH")
+      handlerName(withInclude, "GET", "/other") must beNone
+    }
+
+    "handle an empty routes file" in {
+      RoutingTree().isDefinedAt(request("GET", "/")) must beFalse
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2009-2015 Typesafe Inc. <http://www.typesafe.com>
+ */
+package play.core.utils
+
+import org.specs2.mutable.Specification
+
+object IndexedHeadersSpec extends Specification {
+
+  val headers = IndexedHeaders(Seq("Content-Type" -> "text/plain", "Accept" -> "text/html", "accept" -> "*/*"))
+
+  val many = IndexedHeaders((1 to 20).map(i => s"X-Header-$i" -> i.toString) :+ ("x-header-5" -> "again"))
+
+  "IndexedHeaders" should {
+
+    "look up headers case insensitively" in {
+      headers.get("content-type") must beSome("text/plain")
+      headers.get("ACCEPT") must beSome("text/html")
+      headers.getAll("Accept") must_== Seq("text/html", "*/*")
+      headers.get("Host") must beNone
+      headers.getAll("Host") must beEmpty
+    }
+
+    "look up headers in large sequences" in {
+      many.get("x-header-1") must beSome("1")
+      many.get("X-HEADER-20") must beSome("20")
+      many.getAll("X-Header-5") must_== Seq("5", "again")
+      many.contains("X-Header-21") must beFalse
+    }
+
+    "preserve the order of headers" in {
+      headers.toList must_== List("Content-Type" -> "text/plain", "Accept" -> "text/html", "accept" -> "*/*")
+    }
+
+    "append headers without changing the original" in {
+      val appended = headers.append(Seq("Host" -> "example.com"))
+      val other = headers.append(Seq("Host" -> "other.com", "Accept" -> "application/json"))
+      appended.get("Host") must beSome("example.com")
+      other.get("Host") must beSome("other.com")
+      other.getAll("accept") must_== Seq("text/html", "*/*", "application/json")
+      headers.get("Host") must beNone
+      headers.length must_== 3
+    }
+
+    "append to appended headers" in {
+      val appended = (1 to 20).foldLeft(IndexedHeaders.empty) { (headers, i) =>
+        headers.append(Seq(s"X-Header-$i" -> i.toString))
+      }
+      appended.length must_== 20
+      appended.get("x-header-13") must beSome("13")
+    }
+
+    "remove headers case insensitively" in {
+      val removed = headers.remove(Seq("ACCEPT"))
+      removed.toList must_== List("Content-Type" -> "text/plain")
+      removed.get("accept") must beNone
+      many.remove(Seq("X-Header-5")).getAll("x-header-5") must beEmpty
+    }
+
+    "reuse indexed headers" in {
+      IndexedHeaders(headers) must beTheSameAs(headers)
+    }
+
+    "not share storage between results of a builder" in {
+      val builder = new IndexedHeaders.Builder(2).add("A", "1")
+      val first = builder.result()
+      val second = builder.add("B", "2").result()
+      val appended = first.append(Seq("C" -> "3"))
+      first.toList must_== List("A" -> "1")
+      second.toList must_== List("A" -> "1", "B" -> "2")
+      appended.toList must_== List("A" -> "1", "C" -> "3")
+    }
+  }
+}
@@ -218,6 +218,27 @@ RFC 3986 - Uniform Resource Identifier (URI): Generic Syntax
     }
   }
 
+  "URI path decoding" should {
+
+    "decode a range of a path" in {
+      decodeUriPath("/users/bob/files", 7, 10) must_== "bob"
+      decodeUriPath("/a/some%20file", 3, 14) must_== "some file"
+    }
+
+    "decode multibyte characters as UTF-8" in {
+      decodeUriPath("/caf%C3%A9") must_== "/café"
+    }
+
+    "leave characters that aren't percent-encoded as they are" in {
+      decodeUriPath("/bar:%20baz+qux") must_== "/bar: baz+qux"
+    }
+
+    "fail on malformed escapes" in {
+      decodeUriPath("/invalide%2") must throwAn[InvalidUriEncodingException]
+      decodeUriPath("/invalide%zz") must throwAn[InvalidUriEncodingException]
+    }
+  }
+
   "Path decoding" should {
 
     "decode basic paths" in {
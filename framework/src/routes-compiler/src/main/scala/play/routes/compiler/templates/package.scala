@@ -88,12 +88,25 @@ package object templates {
         p.fixed.map { v =>
           """Param[""" + p.typeName + """]("""" + p.name + """", Right(""" + v + """))"""
         }.getOrElse {
-          """params.""" + (if (route.path.has(p.name)) "fromPath" else "fromQuery") + """[""" + p.typeName + """]("""" + p.name + """", """ + p.default.map("Some(" + _ + ")").getOrElse("None") + """)"""
+          val default = p.default.map("Some(" + _ + ")").getOrElse("None")
+          dynamicPartIndex(route, p.name).map { index =>
+            """params.fromPath[""" + p.typeName + """](""" + index + """, """" + p.name + """", """ + default + """)"""
+          }.getOrElse {
+            """params.fromQuery[""" + p.typeName + """]("""" + p.name + """", """ + default + """)"""
+          }
         }
       }.mkString(", ")
     }.map("(" + _ + ")").getOrElse("")
   }
 
+  /**
+   * The index of the dynamic part with the given name in the path of the route, if it's a path parameter
+   */
+  def dynamicPartIndex(route: Route, name: String): Option[Int] = {
+    val index = route.path.parts.collect { case part: DynamicPart => part.name }.indexOf(name)
+    if (index >= 0) Some(index) else None
+  }
+
   /**
    * Extract the local names out from the route
    */
@@ -5,6 +5,9 @@ import controllers.Assets.Asset
 
 object RouterSpec extends PlaySpecification {
 
+  // Changing the prefix of a router also changes the prefix of the reverse routes
+  sequential
+
   "reverse routes containing boolean parameters" in {
     "in the query string" in {
       controllers.routes.Application.takeBool(true).url must equalTo ("/take-bool?b=true")
@@ -16,6 +19,21 @@ object RouterSpec extends PlaySpecification {
     }
   }
 
+  "route with the prefix given after the routes have been used" in {
+    val routes = new _root_.router.Routes
+    try {
+      routes.routes.isDefinedAt(FakeRequest(GET, "/take-bool?b=true")) must beTrue
+      routes.routes.isDefinedAt(FakeRequest(GET, "/module/index")) must beTrue
+      routes.withPrefix("/prefixed")
+      routes.routes.isDefinedAt(FakeRequest(GET, "/prefixed/take-bool?b=true")) must beTrue
+      routes.routes.isDefinedAt(FakeRequest(GET, "/prefixed/module/index")) must beTrue
+      routes.routes.isDefinedAt(FakeRequest(GET, "/take-bool?b=true")) must beFalse
+      routes.routes.isDefinedAt(FakeRequest(GET, "/module/index")) must beFalse
+    } finally {
+      routes.withPrefix("/")
+    }
+  }
+
   "bind boolean parameters" in {
     "from the query string" in new WithApplication() {
       val Some(result) = route(FakeRequest(GET, "/take-bool?b=true"))